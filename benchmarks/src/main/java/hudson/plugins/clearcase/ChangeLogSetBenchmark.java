@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import hudson.plugins.clearcase.benchmark.SyntheticOutput;
+import hudson.plugins.clearcase.util.CompactChangeLog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing and reading the change log of a base view, in xml and in the compact format.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeLogSetBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    int entries;
+
+    private List<ClearCaseChangeLogEntry> changeLog;
+    private byte[] xml;
+    private File compactFile;
+
+    @Setup
+    public void generate() throws IOException {
+        changeLog = new SyntheticOutput().changeLogEntries(entries);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ClearCaseChangeLogSet.saveToChangeLog(out, changeLog);
+        xml = out.toByteArray();
+        compactFile = File.createTempFile("changelog", ".bin");
+        OutputStream fileOut = new FileOutputStream(compactFile);
+        try {
+            ClearCaseChangeLogSet.saveToCompactChangeLog(fileOut, changeLog);
+        } finally {
+            fileOut.close();
+        }
+    }
+
+    @TearDown
+    public void delete() {
+        compactFile.delete();
+    }
+
+    @Benchmark
+    public int saveXml() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(xml.length);
+        ClearCaseChangeLogSet.saveToChangeLog(out, changeLog);
+        return out.size();
+    }
+
+    @Benchmark
+    public ClearCaseChangeLogSet parseXml() throws Exception {
+        return ClearCaseChangeLogSet.parse(null, new ByteArrayInputStream(xml));
+    }
+
+    @Benchmark
+    public int saveCompact() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ClearCaseChangeLogSet.saveToCompactChangeLog(out, changeLog);
+        return out.size();
+    }
+
+    @Benchmark
+    public List<ClearCaseChangeLogEntry> readCompact() throws IOException {
+        return CompactChangeLog.readAll(compactFile, ClearCaseChangeLogSet.CODEC);
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.benchmark;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files written with {@code -rf csv}, typically a baseline run and the run of a change.
+ * <p>
+ * Usage: {@code CompareResults <baseline.csv> <current.csv> [threshold %]}. Every benchmark found in both files is
+ * listed with its change; the exit code is 1 if one of them got slower by more than the threshold (10% by default)
+ * beyond the error margins of both runs.
+ * </p>
+ */
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.csv> <current.csv> [threshold %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+        System.exit(compare(baseline, current, threshold, System.out) > 0 ? 1 : 0);
+    }
+
+    /**
+     * @return the number of regressions
+     */
+    static int compare(Map<String, Result> baseline, Map<String, Result> current, double threshold, PrintStream out) {
+        int regressions = 0;
+        out.println(String.format(Locale.ENGLISH, "%-80s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                out.println(String.format(Locale.ENGLISH, "%-80s %14s %14.3f %9s", entry.getKey(), "-", entry.getValue().score, "new"));
+                continue;
+            }
+            Result after = entry.getValue();
+            double change = (after.score - before.score) / before.score * 100;
+            boolean regression = before.isRegression(after, threshold);
+            if (regression) {
+                regressions++;
+            }
+            out.println(String.format(Locale.ENGLISH, "%-80s %14.3f %14.3f %+8.1f%%%s", entry.getKey(), before.score, after.score, change,
+                    regression ? "  REGRESSION" : ""));
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                out.println(String.format(Locale.ENGLISH, "%-80s %14.3f %14s %9s", key, baseline.get(key).score, "-", "missing"));
+            }
+        }
+        out.println(regressions + " regression(s) above " + threshold + "%");
+        return regressions;
+    }
+
+    static Map<String, Result> read(String fileName) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(fileName), "UTF-8");
+        try {
+            return read(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the results by benchmark, the benchmark name followed by its parameters.
+     */
+    static Map<String, Result> read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        Map<String, Result> results = new LinkedHashMap<String, Result>();
+        List<String> header = split(lines.readLine());
+        int benchmark = header.indexOf("Benchmark");
+        int mode = header.indexOf("Mode");
+        int score = header.indexOf("Score");
+        int error = header.indexOf("Score Error (99.9%)");
+        int unit = header.indexOf("Unit");
+        if (benchmark < 0 || mode < 0 || score < 0) {
+            throw new IOException("Not a JMH csv result file, header: " + header);
+        }
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            List<String> values = split(line);
+            if (values.size() < header.size()) {
+                continue;
+            }
+            StringBuilder key = new StringBuilder(values.get(benchmark));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ") && values.get(i).length() > 0) {
+                    key.append(' ').append(header.get(i).substring("Param: ".length())).append('=').append(values.get(i));
+                }
+            }
+            Result result = new Result();
+            result.mode = values.get(mode);
+            result.score = parse(values.get(score));
+            result.error = error < 0 ? 0 : parse(values.get(error));
+            result.unit = unit < 0 ? "" : values.get(unit);
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double parse(String value) {
+        return value.length() == 0 || "NaN".equals(value) ? 0 : Double.parseDouble(value);
+    }
+
+    private static List<String> split(String line) {
+        List<String> values = new ArrayList<String>();
+        if (line == null) {
+            return values;
+        }
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append(c);
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    static class Result {
+        String mode;
+        double score;
+        double error;
+        String unit;
+
+        /**
+         * Throughput modes score operations per time unit, the others time per operation.
+         */
+        boolean isRegression(Result after, double threshold) {
+            boolean higherIsBetter = "thrpt".equals(mode);
+            double worse = higherIsBetter ? (score - error) - (after.score + after.error) : (after.score - after.error)
+                    - (score + error);
+            return worse > 0 && worse / score * 100 > threshold;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.benchmark;
+
+import hudson.plugins.clearcase.ClearTool;
+
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A {@link ClearTool} answering the commands read by the benchmarked code with synthetic output, without running
+ * cleartool. Subclasses override the commands they need; the others fail.
+ */
+public abstract class FakeClearTool implements InvocationHandler {
+
+    public ClearTool create() {
+        return (ClearTool) Proxy.newProxyInstance(ClearTool.class.getClassLoader(), new Class<?>[] { ClearTool.class }, this);
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, args);
+        }
+        if ("describe".equals(method.getName())) {
+            String[] selectors = args[1] instanceof String[] ? (String[]) args[1] : new String[] { (String) args[1] };
+            return new StringReader(describe((String) args[0], selectors));
+        }
+        if ("diffbl".equals(method.getName())) {
+            return new StringReader(diffbl((String) args[1], (String) args[2]));
+        }
+        throw new UnsupportedOperationException(method.getName());
+    }
+
+    protected String describe(String format, String[] selectors) {
+        throw new UnsupportedOperationException("describe");
+    }
+
+    protected String diffbl(String baseline1, String baseline2) {
+        throw new UnsupportedOperationException("diffbl");
+    }
+}
@@ -0,0 +1,301 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.benchmark;
+
+import hudson.plugins.clearcase.ClearCaseChangeLogEntry;
+import hudson.plugins.clearcase.ucm.UcmActivity;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates cleartool output and change logs shaped like those of a large ClearCase site. The same seed always gives
+ * the same output, so that two benchmark runs measure the same input.
+ */
+public class SyntheticOutput {
+
+    public static final long SEED = 20130321L;
+
+    private static final int VOBS = 20;
+    private static final int DIRECTORIES_PER_VOB = 200;
+    private static final int FILES_PER_DIRECTORY = 50;
+    private static final int USERS = 60;
+    private static final int COMMENTS = 400;
+    private static final int ACTIVITIES = 2000;
+    private static final long START_TIME = 1356998400000L; // 2013-01-01
+
+    private static final String[] WORDS = { "fix", "refactor", "update", "merge", "release", "build", "parser", "view",
+            "baseline", "stream", "defect", "review", "cleanup", "module", "test" };
+
+    private final Random random;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyyMMdd.HHmmss");
+
+    public SyntheticOutput() {
+        this(SEED);
+    }
+
+    public SyntheticOutput(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * Output of {@code lshistory} with the format of the base history action, or with the UCM activity of each
+     * version. Each entry line is followed by the lines of its comment, and a cleartool error shows up now and then
+     * as on real views.
+     */
+    public String lsHistory(int events, boolean withActivity) {
+        StringBuilder output = new StringBuilder(events * 160);
+        long time = START_TIME + events * 60000L;
+        for (int i = 0; i < events; i++) {
+            if (i % 500 == 499) {
+                output.append("cleartool: Error: Not an object in a vob: \"view.dat\".\n");
+            }
+            time -= random.nextInt(120000);
+            String element = element();
+            output.append(quote(dateFormat.format(new Date(time))));
+            output.append(quote(user()));
+            output.append(quote(element));
+            output.append(quote(versionId()));
+            int kind = random.nextInt(100);
+            if (kind < 90) {
+                output.append(quote("create version")).append(quote("checkin"));
+            } else if (kind < 98) {
+                output.append(quote("create branch")).append(quote("mkbranch"));
+            } else {
+                output.append(quote("destroy sub-branch \"dev\" of branch")).append(quote("rmbranch"));
+            }
+            if (withActivity) {
+                output.append(quote(activity()));
+            }
+            output.append('\n').append(comment()).append('\n');
+            if (random.nextInt(10) == 0) {
+                output.append(comment()).append('\n');
+            }
+        }
+        return output.toString();
+    }
+
+    /**
+     * Load rules spread over the VOBs, as found on views loading a whole product.
+     */
+    public String[] loadRules(int count) {
+        String[] loadRules = new String[count];
+        for (int i = 0; i < count; i++) {
+            loadRules[i] = "/vobs/vob" + (i % VOBS) + "/dir" + (i / VOBS) + (i % 7 == 0 ? "/" : "");
+        }
+        return loadRules;
+    }
+
+    /**
+     * Output of {@code diffbl -versions}: the versions only in the second baseline are prefixed by &gt;&gt;.
+     */
+    public String diffBl(int versions) {
+        StringBuilder output = new StringBuilder(versions * 80);
+        output.append("Comparing the following:\n  baseline:bl_old@/vobs/pvob\n  baseline:bl_new@/vobs/pvob\n");
+        output.append("Differences:\n");
+        for (int i = 0; i < versions; i++) {
+            output.append(random.nextInt(10) == 0 ? "<< " : ">> ");
+            output.append("/view/vobs").append(element()).append("@@").append(versionId()).append('\n');
+        }
+        return output.toString();
+    }
+
+    /**
+     * Output of {@code describe} on versions with the format of the UCM history action.
+     */
+    public String describeVersions(String[] versions) {
+        StringBuilder output = new StringBuilder(versions.length * 160);
+        long time = START_TIME;
+        for (String version : versions) {
+            int at = version.indexOf("@@");
+            time += random.nextInt(120000);
+            output.append(quote(dateFormat.format(new Date(time))));
+            output.append(quote(user()));
+            output.append(quote(version.substring(0, at)));
+            output.append(quote(version.substring(at + 2)));
+            output.append(quote("create version")).append(quote("checkin")).append(quote(activity()));
+            output.append('\n').append(comment()).append('\n');
+        }
+        return output.toString();
+    }
+
+    /**
+     * Output of {@code describe -fmt %[latest_bls]Xp stream:...}: all the baselines on one line.
+     */
+    public String baselineNames(int count) {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            output.append("baseline:comp").append(i).append("_bl_").append(random.nextInt(1000)).append("@/vobs/pvob ");
+        }
+        return output.append('\n').toString();
+    }
+
+    /**
+     * Output of {@code describe -fmt %[component]Xp\n} on baselines.
+     */
+    public String baselineComponents(int count) {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            output.append("component:comp").append(i).append("@/vobs/pvob\n");
+        }
+        return output.toString();
+    }
+
+    /**
+     * Output of {@code describe stream:...}: the foundation baselines with their components and whether the stream
+     * can modify them.
+     */
+    public String streamDescription(int components) {
+        StringBuilder output = new StringBuilder();
+        output.append("stream \"int_stream\"\n  created 2013-01-01T10:00:00+01:00 by builder\n  owner: builder\n");
+        output.append("  project: product@/vobs/pvob\n  foundation baselines:\n");
+        for (int i = 0; i < components; i++) {
+            output.append("    comp").append(i).append("_INITIAL@/vobs/pvob (comp").append(i).append("@/vobs/pvob) (");
+            output.append(random.nextInt(3) == 0 ? "non-modifiable" : "modifiable").append(")\n");
+        }
+        return output.toString();
+    }
+
+    /**
+     * Output of {@code describe -fmt %[found_bls]Xp\n%[latest_bls]Xp\n%[activities]Xp\n stream:...}.
+     */
+    public String streamContent(int baselines, int activities) {
+        StringBuilder output = new StringBuilder();
+        output.append(baselineNames(baselines));
+        output.append(baselineNames(baselines));
+        for (int i = 0; i < activities; i++) {
+            output.append("activity:act").append(i).append("@/vobs/pvob ");
+        }
+        return output.append('\n').toString();
+    }
+
+    /**
+     * Output of {@code describe -fmt "%Xn %[versions]Cp\n"} on activities.
+     */
+    public String activityVersions(String[] activities, int versionsPerActivity) {
+        StringBuilder output = new StringBuilder();
+        for (String activity : activities) {
+            output.append(activity);
+            for (int i = 0; i < versionsPerActivity; i++) {
+                output.append(i == 0 ? " " : ", ").append("/view/vobs").append(element()).append("@@").append(versionId());
+            }
+            output.append('\n');
+        }
+        return output.toString();
+    }
+
+    /**
+     * Change log entries of a base view, one element each and not merged yet, newest first.
+     */
+    public List<ClearCaseChangeLogEntry> changeLogEntries(int count) {
+        List<ClearCaseChangeLogEntry> entries = new ArrayList<ClearCaseChangeLogEntry>(count);
+        long time = START_TIME + count * 60000L;
+        for (int i = 0; i < count; i++) {
+            time -= random.nextInt(120000);
+            ClearCaseChangeLogEntry entry = new ClearCaseChangeLogEntry(new Date(time), user(), comment());
+            entry.addElement(new ClearCaseChangeLogEntry.FileElement(element(), versionId(), "create version", "checkin"));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Activities of a UCM change log. Every {@code deliverEvery}th activity is a deliver whose contributing
+     * activities are nested {@code depth} levels deep, {@code fanOut} per level.
+     */
+    public List<UcmActivity> activities(int count, int filesPerActivity, int deliverEvery, int depth, int fanOut) {
+        List<UcmActivity> activities = new ArrayList<UcmActivity>(count);
+        for (int i = 0; i < count; i++) {
+            boolean deliver = deliverEvery > 0 && i % deliverEvery == 0;
+            UcmActivity activity = activity(deliver ? "deliver.int_stream." + i : "act" + i, filesPerActivity);
+            if (deliver) {
+                addContributors(activity, depth, fanOut);
+            }
+            activities.add(activity);
+        }
+        return activities;
+    }
+
+    private void addContributors(UcmActivity parent, int depth, int fanOut) {
+        if (depth == 0) {
+            return;
+        }
+        for (int i = 0; i < fanOut; i++) {
+            UcmActivity child = activity((depth > 1 ? "deliver.dev_stream." : "act") + random.nextInt(100000), 0);
+            addContributors(child, depth - 1, fanOut);
+            parent.addSubActivity(child);
+        }
+    }
+
+    private UcmActivity activity(String name, int files) {
+        UcmActivity activity = new UcmActivity();
+        activity.setName(name);
+        activity.setHeadline(comment());
+        activity.setStream("int_stream");
+        activity.setUser(user());
+        long time = START_TIME;
+        for (int i = 0; i < files; i++) {
+            time += random.nextInt(120000);
+            UcmActivity.File file = new UcmActivity.File();
+            file.setName(element());
+            file.setVersion(versionId());
+            file.setDate(new Date(time));
+            file.setEvent("create version");
+            file.setOperation("checkin");
+            file.setComment(comment());
+            activity.addFile(file);
+        }
+        return activity;
+    }
+
+    private String element() {
+        return "/vobs/vob" + random.nextInt(VOBS) + "/dir" + random.nextInt(DIRECTORIES_PER_VOB) + "/File"
+                + random.nextInt(FILES_PER_DIRECTORY) + ".java";
+    }
+
+    private String versionId() {
+        return "/main/int/dev_" + random.nextInt(USERS) + "/" + random.nextInt(40);
+    }
+
+    private String user() {
+        return "user" + random.nextInt(USERS);
+    }
+
+    private String activity() {
+        return "act" + random.nextInt(ACTIVITIES);
+    }
+
+    private String comment() {
+        int comment = random.nextInt(COMMENTS);
+        return WORDS[comment % WORDS.length] + " " + WORDS[(comment / WORDS.length) % WORDS.length] + " #" + comment;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value + "\" ";
+    }
+}
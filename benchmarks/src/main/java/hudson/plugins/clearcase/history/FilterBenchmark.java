@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.AbstractClearCaseScm;
+import hudson.plugins.clearcase.base.BaseHistoryAction;
+import hudson.plugins.clearcase.benchmark.SyntheticOutput;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the load rule regexp and filtering history entries with the filter chain of a job, as configured by
+ * {@link AbstractClearCaseScm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+    @Param({ "10", "1000", "5000" })
+    int loadRules;
+
+    @Param({ "100000" })
+    int events;
+
+    private String[] rules;
+    private List<HistoryEntry> entries;
+    private FilterChain filterChain;
+
+    @Setup
+    public void generate() throws Exception {
+        SyntheticOutput output = new SyntheticOutput();
+        rules = output.loadRules(loadRules);
+        entries = new ArrayList<HistoryEntry>();
+        AbstractHistoryAction action = new BaseHistoryAction(null, false, null, 0);
+        action.parseLsHistory(new BufferedReader(new StringReader(output.lsHistory(events, false))), entries);
+
+        List<Filter> filters = new ArrayList<Filter>();
+        filters.add(new DefaultFilter());
+        filters.add(new FileFilter(FileFilter.Type.DoesNotContainRegxp, "\\.keep$"));
+        filters.add(new FileFilter(FileFilter.Type.ContainsRegxp, AbstractClearCaseScm.getViewPathsRegexp(rules, true)));
+        filters.add(new DestroySubBranchFilter());
+        filterChain = new FilterChain(filters);
+    }
+
+    @Benchmark
+    public String viewPathsRegexp() {
+        return AbstractClearCaseScm.getViewPathsRegexp(rules, true);
+    }
+
+    @Benchmark
+    public int filterChain() {
+        int accepted = 0;
+        for (HistoryEntry entry : entries) {
+            if (filterChain.accept(entry)) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+}
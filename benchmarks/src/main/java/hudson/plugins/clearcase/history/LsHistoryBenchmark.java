@@ -0,0 +1,107 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.history;
+
+import hudson.plugins.clearcase.base.BaseHistoryAction;
+import hudson.plugins.clearcase.benchmark.SyntheticOutput;
+import hudson.plugins.clearcase.ucm.UcmHistoryAction;
+import hudson.plugins.clearcase.util.ClearToolFormatHandler;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching and parsing of lshistory output, for base and UCM views.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LsHistoryBenchmark {
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    int events;
+
+    private String baseOutput;
+    private String ucmOutput;
+    private String[] baseLines;
+
+    // declared with the type of the parser so that its protected methods are reachable from here
+    private AbstractHistoryAction baseAction;
+    private AbstractHistoryAction ucmAction;
+
+    @Setup
+    public void generate() {
+        SyntheticOutput output = new SyntheticOutput();
+        baseOutput = output.lsHistory(events, false);
+        ucmOutput = output.lsHistory(events, true);
+        baseLines = baseOutput.split("\n");
+        baseAction = new BaseHistoryAction(null, false, null, 0);
+        ucmAction = new UcmHistoryAction(null, false, null, null, null, null);
+    }
+
+    @Benchmark
+    public int checkLine() {
+        ClearToolFormatHandler handler = baseAction.getHistoryFormatHandler();
+        int matches = 0;
+        for (String line : baseLines) {
+            if (handler.checkLine(line) != null) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public List<HistoryEntry> parseBaseLsHistory() throws Exception {
+        List<HistoryEntry> history = new ArrayList<HistoryEntry>();
+        baseAction.parseLsHistory(new BufferedReader(new StringReader(baseOutput)), history);
+        return history;
+    }
+
+    @Benchmark
+    public List<HistoryEntry> parseUcmLsHistory() throws Exception {
+        List<HistoryEntry> history = new ArrayList<HistoryEntry>();
+        ucmAction.parseLsHistory(new BufferedReader(new StringReader(ucmOutput)), history);
+        return history;
+    }
+}
@@ -0,0 +1,1174 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.simulator;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A fake cleartool, for load tests of the plugin on machines without ClearCase. It implements the subcommands and
+ * options that ClearToolExec runs, against the {@link Site} and {@link State} of a data directory, and prints what
+ * cleartool prints for them: the -fmt output, the messages the plugin parses and the "cleartool: Error:" lines.
+ * <p>
+ * Each command first waits for the latency configured for it in the site, and fails with the configured
+ * probability, so that the plugin can be measured against a slow or unreliable ClearCase.
+ * </p>
+ * <p>
+ * The data directory is given by the {@value #DATA_PROPERTY} system property; {@link SimulatorHome} installs a
+ * bin/cleartool script which runs this class with it.
+ * </p>
+ */
+public class ClearToolSimulator {
+
+    public static final String DATA_PROPERTY = "clearcase.simulator.data";
+
+    private static final Pattern LOAD_RULE = Pattern.compile("vobs/vob(\\d+)(?:/dir(\\d+))?(?:/.*)?");
+    private static final String DEFAULT_CONFIG_SPEC = "element * CHECKEDOUT\nelement * /main/LATEST\n";
+
+    private final File dataDirectory;
+    private final Site site;
+    private final State state;
+    private final long now;
+    private final Random random = new Random();
+
+    public ClearToolSimulator(File dataDirectory) throws IOException {
+        this(dataDirectory, System.currentTimeMillis());
+    }
+
+    ClearToolSimulator(File dataDirectory, long now) throws IOException {
+        this.dataDirectory = dataDirectory;
+        this.site = Site.load(dataDirectory);
+        this.state = new State(dataDirectory);
+        this.now = now;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String data = System.getProperty(DATA_PROPERTY);
+        if (data == null) {
+            System.err.println("cleartool: Error: the " + DATA_PROPERTY + " system property is not set.");
+            System.exit(1);
+        }
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024), false);
+        int status = new ClearToolSimulator(new File(data)).run(args, new File(System.getProperty("user.dir")), out, System.err);
+        out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * Signals a command which cleartool would reject: the message is printed after "cleartool: Error: " and the
+     * command exits with 1.
+     */
+    static class CommandException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        CommandException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Runs one cleartool command.
+     * 
+     * @param cwd the working directory of the command, which is the view for the commands run in a view
+     * @return the exit code
+     */
+    public int run(String[] args, File cwd, PrintStream out, PrintStream err) throws InterruptedException {
+        if (args.length == 0) {
+            err.println("Usage: cleartool subcommand [options/params]");
+            return 1;
+        }
+        String command = args[0];
+        Options options = new Options(Arrays.asList(args).subList(1, args.length));
+        try {
+            simulateLatency(command);
+            if (random.nextDouble() < site.getFailureRate(command)) {
+                throw new CommandException("Simulated failure of \"" + command + "\".");
+            }
+            cwd = cwd.getCanonicalFile();
+            boolean success = true;
+            if ("-version".equals(command)) {
+                version(out);
+            } else if ("hostinfo".equals(command)) {
+                hostinfo(out);
+            } else if ("lsstgloc".equals(command)) {
+                out.println("simulated_stgloc " + new File(dataDirectory, "storage").getAbsolutePath());
+            } else if ("catcs".equals(command)) {
+                out.print(getView(options.get("-tag")).getProperty("configspec"));
+            } else if ("lsview".equals(command)) {
+                success = lsview(options, cwd, out, err);
+            } else if ("lsvob".equals(command)) {
+                lsvob(out);
+            } else if ("mkview".equals(command)) {
+                mkview(options, cwd, out);
+            } else if ("rmview".equals(command)) {
+                rmview(options, cwd, out);
+            } else if ("rmtag".equals(command)) {
+                removeView(getView(options.getOperand(0)));
+                out.println("Removed view tag \"" + options.getOperand(0) + "\".");
+            } else if ("mktag".equals(command)) {
+                mktag(options, out);
+            } else if ("unregister".equals(command)) {
+                unregister(options, out);
+            } else if ("startview".equals(command) || "endview".equals(command)) {
+                for (String tag : options.getOperands()) {
+                    getView(tag);
+                }
+            } else if ("mount".equals(command)) {
+                out.println("Mounted " + site.getVobs() + " VOBs.");
+            } else if ("lock".equals(command) || "unlock".equals(command)) {
+                out.println(("lock".equals(command) ? "Locked" : "Unlocked") + " object \"" + options.getOperand(0) + "\".");
+            } else if ("pwv".equals(command)) {
+                out.println(getViewRoot(cwd, true));
+            } else if ("setcs".equals(command)) {
+                setcs(options, cwd, out);
+            } else if ("update".equals(command)) {
+                update(options, cwd, out);
+            } else if ("lshistory".equals(command)) {
+                lshistory(options, cwd, out);
+            } else if ("desc".equals(command) || "describe".equals(command)) {
+                success = describe(options, cwd, out, err);
+            } else if ("lsactivity".equals(command)) {
+                out.print(render(options.get("-fmt"), getActivityValues(options.getOperand(0), cwd)));
+            } else if ("diffbl".equals(command)) {
+                diffbl(options, cwd, out);
+            } else if ("lsbl".equals(command)) {
+                lsbl(options, out);
+            } else if ("lsstream".equals(command)) {
+                lsstream(options, out);
+            } else if ("lsproject".equals(command)) {
+                Map<String, String> values = getStreamValues(getView(options.get("-view")).getProperty("stream", ""));
+                out.print(render(options.get("-fmt"), values));
+            } else if ("mkstream".equals(command)) {
+                mkstream(options, out);
+            } else if ("mkbl".equals(command)) {
+                mkbl(options, out);
+            } else if ("chbl".equals(command)) {
+                chbl(options, out);
+            } else if ("chstream".equals(command)) {
+                getStream(Site.shortName(options.getOperand(0), "stream:"));
+                out.println("Set default recommended baselines of stream \"" + options.getOperand(0) + "\".");
+            } else if ("rebase".equals(command)) {
+                rebase(options, out);
+            } else {
+                throw new CommandException("Unrecognized command: \"" + command + "\"");
+            }
+            return success ? 0 : 1;
+        } catch (CommandException e) {
+            err.println("cleartool: Error: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            err.println("cleartool: Error: " + e);
+            return 1;
+        } finally {
+            out.flush();
+            err.flush();
+        }
+    }
+
+    private void simulateLatency(String command) throws InterruptedException {
+        long latency = site.getLatency(command);
+        if (latency > 0) {
+            double jitter = site.getLatencyJitter() * (2 * random.nextDouble() - 1);
+            Thread.sleep(Math.max(0, Math.round(latency * (1 + jitter))));
+        }
+    }
+
+    private String render(String format, Map<String, String> values) throws CommandException {
+        if (format == null) {
+            throw new CommandException("Missing -fmt argument.");
+        }
+        return FormatRenderer.render(format, values);
+    }
+
+    // ---- node
+
+    private void version(PrintStream out) {
+        out.println("ClearCase version 7.1.2 (Simulated)");
+        out.println("@(#) MVFS version 7.1.2.0 (Simulated)");
+        out.println("cleartool                         7.1.2.0 (Simulated)");
+    }
+
+    private void hostinfo(PrintStream out) {
+        out.println("Client: localhost");
+        out.println("  Product: ClearCase 7.1.2");
+        out.println("  Operating system: " + System.getProperty("os.name") + " " + System.getProperty("os.version"));
+        out.println("  Hardware type: " + System.getProperty("os.arch"));
+        out.println("  Registry host: localhost");
+        out.println("  Registry region: " + site.getProperty("region", "simulated"));
+        out.println("  License host: localhost");
+    }
+
+    private void lsvob(PrintStream out) {
+        for (int vob = 0; vob < site.getVobs(); vob++) {
+            out.println("* " + site.getComponentRoot(vob) + " " + getStorage("vob" + vob + ".vbs") + " public");
+        }
+        out.println("* " + site.getPvob() + " " + getStorage("pvob.vbs") + " public (ucmvob)");
+    }
+
+    private String getStorage(String name) {
+        return new File(new File(dataDirectory, "storage"), name).getAbsolutePath();
+    }
+
+    // ---- views
+
+    private Properties getView(String tag) throws IOException, CommandException {
+        Properties view = tag == null ? null : state.read(State.VIEW, tag);
+        if (view == null) {
+            throw new CommandException("No matching entries found for view tag \"" + tag + "\".");
+        }
+        return view;
+    }
+
+    /**
+     * @return the snapshot view the directory is in, or null if it isn't in a view
+     */
+    private Properties getViewAt(File directory) throws IOException {
+        String path = directory.getPath();
+        for (Properties view : state.list(State.VIEW)) {
+            String root = view.getProperty("path");
+            if (root != null && (path.equals(root) || path.startsWith(root + File.separator))) {
+                return view;
+            }
+        }
+        return null;
+    }
+
+    private String getViewRoot(File cwd, boolean required) throws IOException, CommandException {
+        Properties view = getViewAt(cwd);
+        if (view == null) {
+            if (required) {
+                throw new CommandException("Cannot get view info for current view: not a ClearCase object.");
+            }
+            return cwd.getPath();
+        }
+        return view.getProperty("path");
+    }
+
+    private boolean lsview(Options options, File cwd, PrintStream out, PrintStream err) throws IOException, CommandException {
+        if (options.has("-cview")) {
+            Properties view = getViewAt(cwd);
+            if (view == null) {
+                throw new CommandException("Cannot get view info for current view: not a ClearCase object.");
+            }
+            out.println(view.getProperty("tag"));
+        } else if (options.has("-l")) {
+            Properties view = state.read(State.VIEW, options.get("-l"));
+            if (view == null) {
+                err.println("cleartool: Error: No matching entries found for view tag \"" + options.get("-l") + "\".");
+                return false;
+            }
+            out.println("Tag: " + view.getProperty("tag"));
+            out.println("  Global path: " + view.getProperty("storage"));
+            out.println("  Server host: localhost");
+            out.println("  Region: " + site.getProperty("region", "simulated"));
+            out.println("  Active: YES");
+            out.println("  View tag uuid:" + view.getProperty("uuid"));
+            out.println("View on host: localhost");
+            out.println("View server access path: " + view.getProperty("storage"));
+            out.println("View uuid: " + view.getProperty("uuid"));
+            out.println("View owner: simulated/" + System.getProperty("user.name"));
+        } else if (!options.getOperands().isEmpty()) {
+            Properties view = state.read(State.VIEW, options.getOperand(0));
+            if (view == null) {
+                err.println("cleartool: Error: No matching entries found for view tag \"" + options.getOperand(0) + "\".");
+                return false;
+            }
+            out.println("* " + view.getProperty("tag") + " " + view.getProperty("storage"));
+        } else {
+            for (Properties view : state.list(State.VIEW)) {
+                out.println("* " + view.getProperty("tag") + " " + view.getProperty("storage"));
+            }
+        }
+        return true;
+    }
+
+    private void mkview(final Options options, final File cwd, final PrintStream out) throws IOException, CommandException {
+        final String tag = options.get("-tag");
+        if (tag == null) {
+            throw new CommandException("Missing -tag argument.");
+        }
+        final boolean snapshot = options.has("-snapshot");
+        final String stream = options.has("-stream") ? Site.shortName(options.get("-stream"), "stream:") : null;
+        if (stream != null) {
+            getStream(stream);
+        }
+        String error = state.locked(new State.Transaction<String>() {
+            public String execute() throws IOException {
+                if (state.read(State.VIEW, tag) != null) {
+                    return "View tag \"" + tag + "\" already exists.";
+                }
+                File root;
+                if (snapshot) {
+                    if (options.getOperands().isEmpty()) {
+                        return "Missing snapshot view path.";
+                    }
+                    root = resolve(cwd, options.getOperand(0));
+                    String[] content = root.list();
+                    if (content != null && content.length > 0) {
+                        return "Snapshot view path \"" + root + "\" already exists.";
+                    }
+                } else {
+                    root = new File(new File(dataDirectory, "dynamic"), tag);
+                }
+                root.mkdirs();
+                String uuid = UUID.nameUUIDFromBytes((tag + now).getBytes("UTF-8")).toString();
+                writeFile(new File(root, "view.dat"), "ws_oid:" + uuid + " view_uuid:" + uuid + "\n");
+                String storage = options.has("-vws") ? options.get("-vws") : getStorage(tag + ".vws");
+                Properties view = new Properties();
+                view.setProperty("tag", tag);
+                view.setProperty("uuid", uuid);
+                view.setProperty("snapshot", Boolean.toString(snapshot));
+                view.setProperty("path", root.getCanonicalPath());
+                view.setProperty("storage", storage);
+                view.setProperty("configspec", stream != null ? getStreamConfigSpec(stream, Collections.<String> emptyList()) : DEFAULT_CONFIG_SPEC);
+                if (stream != null) {
+                    view.setProperty("stream", stream);
+                }
+                state.write(State.VIEW, tag, view);
+                out.println("Created view.");
+                out.println("Host-local path: localhost:" + storage);
+                out.println("Global path:     " + storage);
+                if (snapshot) {
+                    out.println("Created snapshot view directory \"" + root + "\".");
+                }
+                return null;
+            }
+        });
+        if (error != null) {
+            throw new CommandException(error);
+        }
+    }
+
+    private void rmview(Options options, File cwd, PrintStream out) throws IOException, CommandException {
+        Properties view;
+        if (options.has("-tag")) {
+            view = getView(options.get("-tag"));
+        } else if (options.has("-uuid")) {
+            view = null;
+            for (Properties candidate : state.list(State.VIEW)) {
+                if (candidate.getProperty("uuid").equals(options.get("-uuid"))) {
+                    view = candidate;
+                }
+            }
+            if (view == null) {
+                throw new CommandException("View with uuid \"" + options.get("-uuid") + "\" not found.");
+            }
+        } else {
+            File root = resolve(cwd, options.getOperand(0));
+            view = getViewAt(root.getCanonicalFile());
+            if (view == null) {
+                throw new CommandException("Cannot get view info for current view: not a ClearCase object.");
+            }
+        }
+        removeView(view);
+        if (Boolean.parseBoolean(view.getProperty("snapshot")) && !options.has("-tag")) {
+            deleteRecursive(new File(view.getProperty("path")));
+        }
+        out.println("Removed view \"" + view.getProperty("tag") + "\".");
+    }
+
+    private void removeView(final Properties view) throws IOException {
+        state.locked(new State.Transaction<Boolean>() {
+            public Boolean execute() {
+                return state.delete(State.VIEW, view.getProperty("tag"));
+            }
+        });
+    }
+
+    private void mktag(Options options, PrintStream out) throws IOException, CommandException {
+        String tag = options.get("-tag");
+        if (tag == null || options.getOperands().isEmpty()) {
+            throw new CommandException("Usage: mktag -view -tag view-tag view-storage-pname");
+        }
+        if (state.read(State.VIEW, tag) != null) {
+            throw new CommandException("View tag \"" + tag + "\" already exists.");
+        }
+        Properties view = new Properties();
+        view.setProperty("tag", tag);
+        view.setProperty("uuid", UUID.nameUUIDFromBytes((tag + now).getBytes("UTF-8")).toString());
+        view.setProperty("snapshot", "false");
+        view.setProperty("path", new File(new File(dataDirectory, "dynamic"), tag).getAbsolutePath());
+        view.setProperty("storage", options.getOperand(0));
+        view.setProperty("configspec", DEFAULT_CONFIG_SPEC);
+        state.write(State.VIEW, tag, view);
+        out.println("Created view tag \"" + tag + "\".");
+    }
+
+    private void unregister(Options options, PrintStream out) throws IOException, CommandException {
+        for (Properties view : state.list(State.VIEW)) {
+            if (view.getProperty("uuid").equals(options.get("-uuid"))) {
+                removeView(view);
+                out.println("Unregistered view \"" + view.getProperty("tag") + "\".");
+                return;
+            }
+        }
+        throw new CommandException("View with uuid \"" + options.get("-uuid") + "\" not found.");
+    }
+
+    // ---- config specs and updates
+
+    private void setcs(Options options, File cwd, PrintStream out) throws IOException, CommandException {
+        Properties view = options.has("-tag") ? getView(options.get("-tag")) : getViewAt(cwd);
+        if (view == null) {
+            throw new CommandException("Cannot get view info for current view: not a ClearCase object.");
+        }
+        String configSpec;
+        if (options.has("-stream")) {
+            String stream = view.getProperty("stream");
+            if (stream == null) {
+                throw new CommandException("View \"" + view.getProperty("tag") + "\" is not attached to a stream.");
+            }
+            configSpec = getStreamConfigSpec(stream, getLoadRules(view.getProperty("configspec")));
+        } else if (options.has("-current")) {
+            configSpec = view.getProperty("configspec");
+        } else if (!options.getOperands().isEmpty()) {
+            configSpec = readFile(resolve(cwd, options.getOperand(0)));
+        } else {
+            throw new CommandException("Usage: setcs [-tag view-tag] {-current | -stream | config-spec-pname}");
+        }
+        view.setProperty("configspec", configSpec);
+        state.write(State.VIEW, view.getProperty("tag"), view);
+        if (Boolean.parseBoolean(view.getProperty("snapshot"))) {
+            load(view, getLoadRules(configSpec), out);
+        }
+    }
+
+    private void update(Options options, File cwd, PrintStream out) throws IOException, CommandException {
+        Properties view = getViewAt(cwd);
+        if (view == null || !Boolean.parseBoolean(view.getProperty("snapshot"))) {
+            throw new CommandException("Cannot get view info for current view: not a ClearCase object.");
+        }
+        List<String> loadRules = getLoadRules(view.getProperty("configspec"));
+        if (options.has("-add_loadrules")) {
+            List<String> added = new ArrayList<String>(options.getOperands());
+            added.add(0, options.get("-add_loadrules"));
+            StringBuilder configSpec = new StringBuilder(view.getProperty("configspec"));
+            for (String rule : added) {
+                rule = normalizeLoadRule(rule);
+                if (!loadRules.contains(rule)) {
+                    loadRules.add(rule);
+                    configSpec.append("load /").append(rule).append('\n');
+                }
+            }
+            view.setProperty("configspec", configSpec.toString());
+            state.write(State.VIEW, view.getProperty("tag"), view);
+        }
+        load(view, loadRules, out);
+    }
+
+    /**
+     * Loads the files of the rules which aren't in the view yet. Only the first directories of each VOB are loaded,
+     * the site has too many files to copy them all at each checkout.
+     */
+    private void load(Properties view, List<String> loadRules, PrintStream out) throws IOException {
+        File root = new File(view.getProperty("path"));
+        int directories = Math.min(site.getDirectories(), Integer.parseInt(site.getProperty("update.directories", "2")));
+        int fileBytes = Integer.parseInt(site.getProperty("update.fileBytes", "256"));
+        int loaded = 0;
+        long bytes = 0;
+        for (String rule : loadRules) {
+            Matcher matcher = LOAD_RULE.matcher(rule);
+            if (!matcher.matches() || Integer.parseInt(matcher.group(1)) >= site.getVobs()) {
+                out.println("cleartool: Warning: Pathname not found: \"" + rule + "\".");
+                continue;
+            }
+            int first = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : 0;
+            int last = matcher.group(2) != null ? first + 1 : directories;
+            for (int dir = first; dir < last; dir++) {
+                for (int file = 0; file < site.getFiles(); file++) {
+                    String element = "vobs/vob" + matcher.group(1) + "/dir" + dir + "/File" + file + ".java";
+                    File target = new File(root, element);
+                    if (!target.exists()) {
+                        target.getParentFile().mkdirs();
+                        StringBuilder content = new StringBuilder("// ").append(element).append('\n');
+                        while (content.length() < fileBytes) {
+                            content.append("// simulated content\n");
+                        }
+                        content.setLength(fileBytes);
+                        writeFile(target, content.toString());
+                        out.println("Loading \"" + element + "\" (" + fileBytes + " bytes).");
+                        loaded++;
+                        bytes += fileBytes;
+                    }
+                }
+            }
+        }
+        out.println("Done loading \"" + root + "\" (" + loaded + " objects, copied " + bytes / 1024 + " KB).");
+    }
+
+    private static List<String> getLoadRules(String configSpec) {
+        List<String> rules = new ArrayList<String>();
+        for (String line : configSpec.split("[\\r\\n]+")) {
+            line = line.trim();
+            if (line.startsWith("load ")) {
+                String rule = normalizeLoadRule(line.substring(5));
+                if (!rules.contains(rule)) {
+                    rules.add(rule);
+                }
+            }
+        }
+        return rules;
+    }
+
+    private static String normalizeLoadRule(String rule) {
+        rule = rule.trim().replace('\\', '/');
+        if (rule.startsWith("\"") && rule.endsWith("\"") && rule.length() > 1) {
+            rule = rule.substring(1, rule.length() - 1);
+        }
+        while (rule.startsWith("/")) {
+            rule = rule.substring(1);
+        }
+        return rule;
+    }
+
+    private String getStreamConfigSpec(String stream, List<String> loadRules) {
+        StringBuilder configSpec = new StringBuilder();
+        configSpec.append("ucm\n");
+        configSpec.append("identity UCM.Stream oid:").append(UUID.nameUUIDFromBytes(stream.getBytes())).append("@vobuuid:pvob 1\n\n");
+        configSpec.append("# ONLY EDIT THIS CONFIG SPEC IN THE INDICATED \"CUSTOM\" AREAS\n#\n");
+        configSpec.append("element * CHECKEDOUT\n");
+        configSpec.append("element * .../").append(stream).append("/LATEST\n");
+        configSpec.append("element * /main/0 -ucm -nocheckout\n\n");
+        configSpec.append("#UCMCustomLoadBegin - DO NOT REMOVE - ADD CUSTOM LOAD RULES AFTER THIS LINE\n");
+        for (String rule : loadRules) {
+            configSpec.append("load /").append(rule).append('\n');
+        }
+        return configSpec.toString();
+    }
+
+    // ---- history
+
+    private void lshistory(Options options, File cwd, PrintStream out) throws IOException, CommandException {
+        String since = options.get("-since");
+        if (since == null) {
+            throw new CommandException("Only lshistory -since is simulated.");
+        }
+        SimpleDateFormat formatter = new SimpleDateFormat("d-MMM-yy.HH:mm:ss'UTC'Z", Locale.US);
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long from;
+        try {
+            // the plugin lowercases the date
+            from = formatter.parse(since.toUpperCase(Locale.US)).getTime();
+        } catch (ParseException e) {
+            throw new CommandException("Bad date-time: \"" + since + "\".");
+        }
+        String branch = options.has("-branch") ? options.get("-branch").replaceFirst("^brtype:", "") : null;
+        List<String> paths = new ArrayList<String>();
+        for (String path : options.getOperands()) {
+            path = normalizeLoadRule(path);
+            paths.add(path.endsWith("/") ? path : path + "/");
+        }
+        String root = getViewRoot(cwd, false);
+        String format = options.get("-fmt");
+        List<Event> events = site.getEvents(from, now);
+        // newest first, as cleartool lists them
+        for (int i = events.size() - 1; i >= 0; i--) {
+            Event event = events.get(i);
+            if ((branch == null || branch.equals(event.getBranch())) && isInPaths(event.getElement(), paths)) {
+                out.print(render(format, event.getFields(root, site.getPvob())));
+            }
+        }
+    }
+
+    private static boolean isInPaths(String element, List<String> paths) {
+        if (paths.isEmpty()) {
+            return true;
+        }
+        for (String path : paths) {
+            if (element.startsWith(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ---- describe
+
+    private boolean describe(Options options, File cwd, PrintStream out, PrintStream err) throws IOException {
+        String format = options.get("-fmt");
+        boolean success = true;
+        for (String selector : options.getOperands()) {
+            try {
+                if (format == null) {
+                    describeLong(selector, out);
+                } else {
+                    out.print(FormatRenderer.render(format, getValues(selector, cwd)));
+                }
+            } catch (CommandException e) {
+                // cleartool goes on with the next object
+                err.println("cleartool: Error: " + e.getMessage());
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    private Map<String, String> getValues(String selector, File cwd) throws IOException, CommandException {
+        if (selector.startsWith("stream:")) {
+            return getStreamValues(Site.shortName(selector, "stream:"));
+        } else if (selector.startsWith("component:")) {
+            return getComponentValues(selector);
+        } else if (selector.startsWith("activity:")) {
+            return getActivityValues(selector, cwd);
+        } else if (selector.contains("@@")) {
+            return getVersionValues(selector);
+        }
+        return getBaselineValues(getBaseline(selector));
+    }
+
+    private void describeLong(String selector, PrintStream out) throws IOException, CommandException {
+        if (!selector.startsWith("stream:")) {
+            Map<String, String> values = getValues(selector, null);
+            out.println(values.get("Xn"));
+            return;
+        }
+        String name = Site.shortName(selector, "stream:");
+        Properties stream = getStream(name);
+        out.println("stream \"" + name + "\"");
+        out.println("  created " + new Date(site.getStart()) + " by simulator");
+        out.println("  owner: simulator");
+        out.println("  group: simulator");
+        out.println("  project: project_" + site.getIntegrationStream() + "@" + site.getPvob());
+        if (stream.getProperty("parent") == null) {
+            out.println("  integration stream");
+        } else {
+            out.println("  development stream");
+            out.println("  parent stream: " + stream.getProperty("parent") + "@" + site.getPvob());
+        }
+        out.println("  foundation baselines:");
+        for (int vob = 0; vob < site.getVobs(); vob++) {
+            out.println("    " + getFoundationBaseline(stream, vob) + "@" + site.getPvob());
+        }
+        out.println("  recommended baselines:");
+        out.println("  components:");
+        for (int vob = 0; vob < site.getVobs(); vob++) {
+            out.println("    " + getLatestBaseline(stream, vob) + "@" + site.getPvob() + " (" + site.getComponent(vob) + "@" + site.getPvob() + ") ("
+                    + (site.isModifiable(vob) ? "modifiable" : "non-modifiable") + ")");
+        }
+    }
+
+    private Map<String, String> getComponentValues(String selector) throws CommandException {
+        int vob = site.getComponentVob(selector);
+        if (vob < 0) {
+            throw new CommandException("Component not found: \"" + selector + "\".");
+        }
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("n", site.getComponent(vob));
+        values.put("Xn", "component:" + site.getComponent(vob) + "@" + site.getPvob());
+        values.put("[root_dir]p", site.getComponentRoot(vob));
+        return values;
+    }
+
+    private Map<String, String> getVersionValues(String selector) throws CommandException {
+        int separator = selector.indexOf("@@");
+        String path = selector.substring(0, separator);
+        Event event = site.getEvent(selector.substring(separator + 2), now);
+        if (event == null) {
+            throw new CommandException("Unable to access \"" + selector + "\": No such file or directory.");
+        }
+        Map<String, String> values = event.getFields("", site.getPvob());
+        values.put("En", path);
+        values.put("n", selector);
+        values.put("Xn", selector);
+        return values;
+    }
+
+    // ---- UCM
+
+    private Properties getStream(String name) throws IOException, CommandException {
+        Properties stream = state.read(State.STREAM, name);
+        if (stream == null) {
+            if (!site.isStream(name)) {
+                throw new CommandException("stream not found: \"" + name + "\".");
+            }
+            stream = new Properties();
+            stream.setProperty("name", name);
+            if (!name.equals(site.getIntegrationStream())) {
+                stream.setProperty("parent", site.getIntegrationStream());
+            }
+        }
+        return stream;
+    }
+
+    private String getFoundationBaseline(Properties stream, int vob) {
+        return stream.getProperty("foundation." + vob, site.getFoundationBaseline(vob));
+    }
+
+    private String getLatestBaseline(Properties stream, int vob) {
+        return stream.getProperty("latest." + vob, getFoundationBaseline(stream, vob));
+    }
+
+    private Map<String, String> getStreamValues(String name) throws IOException, CommandException {
+        Properties stream = getStream(name);
+        String pvob = site.getPvob();
+        List<String> foundation = new ArrayList<String>();
+        List<String> latest = new ArrayList<String>();
+        List<String> components = new ArrayList<String>();
+        List<String> modifiable = new ArrayList<String>();
+        for (int vob = 0; vob < site.getVobs(); vob++) {
+            foundation.add("baseline:" + getFoundationBaseline(stream, vob) + "@" + pvob);
+            latest.add("baseline:" + getLatestBaseline(stream, vob) + "@" + pvob);
+            components.add("component:" + site.getComponent(vob) + "@" + pvob);
+            if (site.isModifiable(vob)) {
+                modifiable.add("component:" + site.getComponent(vob) + "@" + pvob);
+            }
+        }
+        List<String> activities = new ArrayList<String>();
+        if (site.isStream(name)) {
+            for (String activity : site.getActivities(name, now)) {
+                activities.add("activity:" + activity + "@" + pvob);
+            }
+        }
+        List<String> views = new ArrayList<String>();
+        for (Properties view : state.list(State.VIEW)) {
+            if (name.equals(view.getProperty("stream"))) {
+                views.add(view.getProperty("tag"));
+            }
+        }
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("n", name);
+        values.put("Xn", "stream:" + name + "@" + pvob);
+        values.put("[found_bls]Xp", join(foundation, " "));
+        values.put("[latest_bls]Xp", join(latest, " "));
+        values.put("[activities]Xp", join(activities, " "));
+        values.put("[components]Xp", join(components, " "));
+        values.put("[components]XCp", join(components, ", "));
+        values.put("[mod_comps]Xp", join(modifiable, " "));
+        values.put("[views]p", join(views, " "));
+        values.put("[project]p", "project_" + site.getIntegrationStream());
+        values.put("[parent_stream]p", stream.getProperty("parent", ""));
+        return values;
+    }
+
+    private Properties getBaseline(String selector) throws IOException, CommandException {
+        String name = Site.shortName(selector, "baseline:");
+        for (int vob = 0; vob < site.getVobs(); vob++) {
+            if (name.equals(site.getFoundationBaseline(vob))) {
+                Properties baseline = new Properties();
+                baseline.setProperty("name", name);
+                baseline.setProperty("component", Integer.toString(vob));
+                baseline.setProperty("time", Long.toString(site.getStart()));
+                baseline.setProperty("label", "Full");
+                baseline.setProperty("level", "INITIAL");
+                return baseline;
+            }
+        }
+        Properties baseline = state.read(State.BASELINE, name);
+        if (baseline == null) {
+            throw new CommandException("Baseline not found: \"" + selector + "\".");
+        }
+        return baseline;
+    }
+
+    private Map<String, String> getBaselineValues(Properties baseline) {
+        int vob = Integer.parseInt(baseline.getProperty("component"));
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("n", baseline.getProperty("name"));
+        values.put("Xn", "baseline:" + baseline.getProperty("name") + "@" + site.getPvob());
+        values.put("[component]p", site.getComponent(vob));
+        values.put("[component]Xp", "component:" + site.getComponent(vob) + "@" + site.getPvob());
+        values.put("[label_status]p", baseline.getProperty("label"));
+        values.put("[plevel]p", baseline.getProperty("level"));
+        values.put("[depends_on]p", "");
+        values.put("c", baseline.getProperty("comment", "") + "\n");
+        values.put("Nc", baseline.getProperty("comment", ""));
+        return values;
+    }
+
+    private Map<String, String> getActivityValues(String selector, File cwd) throws IOException, CommandException {
+        String name = Site.shortName(selector, "activity:");
+        if (!site.isActivity(name)) {
+            throw new CommandException("Activity not found: \"" + selector + "\".");
+        }
+        String root = cwd == null ? "" : getViewRoot(cwd, false);
+        List<String> versions = new ArrayList<String>();
+        Set<String> users = new LinkedHashSet<String>();
+        for (Event event : site.getActivityVersions(name, now)) {
+            Map<String, String> fields = event.getFields(root, site.getPvob());
+            versions.add(fields.get("n"));
+            users.add(fields.get("u"));
+        }
+        Map<String, String> values = new HashMap<String, String>();
+        values.put("n", name);
+        values.put("Xn", "activity:" + name + "@" + site.getPvob());
+        values.put("[headline]p", site.getHeadline(name));
+        values.put("[stream]p", site.getActivityStream(name));
+        values.put("[stream]Xp", "stream:" + site.getActivityStream(name) + "@" + site.getPvob());
+        values.put("u", users.isEmpty() ? "user0" : users.iterator().next());
+        values.put("[contrib_acts]p", join(site.getContributingActivities(name), " "));
+        values.put("[versions]p", join(versions, " "));
+        values.put("[versions]Cp", join(versions, ", "));
+        return values;
+    }
+
+    private void lsbl(Options options, PrintStream out) throws IOException, CommandException {
+        Properties baseline = getBaseline(options.getOperand(0));
+        if (options.has("-fmt")) {
+            out.print(render(options.get("-fmt"), getBaselineValues(baseline)));
+            return;
+        }
+        Map<String, String> values = getBaselineValues(baseline);
+        out.println(new Date(Long.parseLong(baseline.getProperty("time"))) + "  baseline \"" + values.get("n") + "\"");
+        out.println("  stream: " + baseline.getProperty("stream", ""));
+        out.println("  component: " + values.get("[component]p"));
+        out.println("  label status: " + values.get("[label_status]p"));
+        out.println("  promotion level: " + values.get("[plevel]p"));
+    }
+
+    private void lsstream(Options options, PrintStream out) throws IOException, CommandException {
+        String name;
+        if (!options.getOperands().isEmpty()) {
+            name = Site.shortName(options.getOperand(0), "stream:");
+        } else if (options.has("-view")) {
+            name = getView(options.get("-view")).getProperty("stream");
+            if (name == null) {
+                throw new CommandException("View \"" + options.get("-view") + "\" is not attached to a stream.");
+            }
+        } else {
+            throw new CommandException("Usage: lsstream [-view view-tag] [-fmt format] [stream-selector]");
+        }
+        Map<String, String> values = getStreamValues(name);
+        if (options.has("-short")) {
+            out.println(name);
+        } else if (options.has("-fmt")) {
+            out.print(render(options.get("-fmt"), values));
+        } else {
+            out.println(new Date(site.getStart()) + "  stream \"" + name + "\"");
+        }
+    }
+
+    private void mkstream(Options options, PrintStream out) throws IOException, CommandException {
+        final String parentName = Site.shortName(options.get("-in"), "stream:");
+        final String name = Site.shortName(options.getOperand(0), "stream:");
+        final Properties parent = getStream(parentName);
+        String error = state.locked(new State.Transaction<String>() {
+            public String execute() throws IOException {
+                if (site.isStream(name) || state.read(State.STREAM, name) != null) {
+                    return "Stream \"" + name + "\" already exists.";
+                }
+                Properties stream = new Properties();
+                stream.setProperty("name", name);
+                stream.setProperty("parent", parentName);
+                for (int vob = 0; vob < site.getVobs(); vob++) {
+                    stream.setProperty("foundation." + vob, getLatestBaseline(parent, vob));
+                }
+                state.write(State.STREAM, name, stream);
+                return null;
+            }
+        });
+        if (error != null) {
+            throw new CommandException(error);
+        }
+        out.println("Created stream \"" + name + "\".");
+    }
+
+    private void mkbl(final Options options, final PrintStream out) throws IOException, CommandException {
+        final String name = options.getOperand(0);
+        final String streamName = getView(options.get("-view")).getProperty("stream");
+        if (streamName == null) {
+            throw new CommandException("View \"" + options.get("-view") + "\" is not attached to a stream.");
+        }
+        final List<Integer> vobs = new ArrayList<Integer>();
+        if (options.has("-comp")) {
+            for (String component : options.get("-comp").split(",")) {
+                int vob = site.getComponentVob(component.trim());
+                if (vob < 0) {
+                    throw new CommandException("Component not found: \"" + component + "\".");
+                }
+                vobs.add(vob);
+            }
+        } else {
+            for (int vob = 0; vob < site.getVobs(); vob++) {
+                if (site.isModifiable(vob)) {
+                    vobs.add(vob);
+                }
+            }
+        }
+        state.locked(new State.Transaction<Void>() {
+            public Void execute() throws IOException {
+                Properties stream;
+                try {
+                    stream = getStream(streamName);
+                } catch (CommandException e) {
+                    throw new IOException(e.getMessage());
+                }
+                for (int vob : vobs) {
+                    long previous = getBaselineTime(getLatestBaseline(stream, vob));
+                    if (!options.has("-identical") && !hasVersions(streamName, vob, previous, now)) {
+                        out.println("Baseline not created for component \"" + site.getComponent(vob) + "\": no changes since the last baseline.");
+                        continue;
+                    }
+                    String baselineName = name;
+                    for (int i = 1; state.read(State.BASELINE, baselineName) != null; i++) {
+                        baselineName = name + "." + i;
+                    }
+                    Properties baseline = new Properties();
+                    baseline.setProperty("name", baselineName);
+                    baseline.setProperty("component", Integer.toString(vob));
+                    baseline.setProperty("stream", streamName);
+                    baseline.setProperty("time", Long.toString(now));
+                    baseline.setProperty("label", options.has("-full") ? "Full" : "Incrementally Labeled");
+                    baseline.setProperty("level", "INITIAL");
+                    baseline.setProperty("comment", options.has("-comment") ? options.get("-comment") : "");
+                    state.write(State.BASELINE, baselineName, baseline);
+                    stream.setProperty("latest." + vob, baselineName);
+                    out.println("Created baseline \"" + baselineName + "\" in component \"" + site.getComponent(vob) + "\".");
+                }
+                state.write(State.STREAM, streamName, stream);
+                return null;
+            }
+        });
+    }
+
+    private long getBaselineTime(String name) throws IOException {
+        try {
+            return Long.parseLong(getBaseline(name).getProperty("time"));
+        } catch (CommandException e) {
+            return site.getStart();
+        }
+    }
+
+    private boolean hasVersions(String stream, int vob, long from, long to) {
+        String prefix = "vobs/vob" + vob + "/";
+        for (Event event : site.getEvents(from, to)) {
+            if (stream.equals(event.getBranch()) && event.getElement().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void chbl(final Options options, PrintStream out) throws IOException, CommandException {
+        final Properties baseline = getBaseline(options.getOperand(0));
+        if (options.has("-level")) {
+            state.locked(new State.Transaction<Void>() {
+                public Void execute() throws IOException {
+                    baseline.setProperty("level", options.get("-level"));
+                    state.write(State.BASELINE, baseline.getProperty("name"), baseline);
+                    return null;
+                }
+            });
+        }
+        out.println("Changed baseline \"" + baseline.getProperty("name") + "\".");
+    }
+
+    private void rebase(Options options, PrintStream out) throws IOException, CommandException {
+        final String streamName = getView(options.get("-view")).getProperty("stream");
+        if (streamName == null) {
+            throw new CommandException("View \"" + options.get("-view") + "\" is not attached to a stream.");
+        }
+        final Map<Integer, String> baselines = new LinkedHashMap<Integer, String>();
+        for (String selector : options.get("-baseline").split(",")) {
+            Properties baseline = getBaseline(selector.trim());
+            baselines.put(Integer.valueOf(baseline.getProperty("component")), baseline.getProperty("name"));
+        }
+        state.locked(new State.Transaction<Void>() {
+            public Void execute() throws IOException {
+                Properties stream;
+                try {
+                    stream = getStream(streamName);
+                } catch (CommandException e) {
+                    throw new IOException(e.getMessage());
+                }
+                for (Map.Entry<Integer, String> baseline : baselines.entrySet()) {
+                    stream.setProperty("foundation." + baseline.getKey(), baseline.getValue());
+                    stream.remove("latest." + baseline.getKey());
+                }
+                state.write(State.STREAM, streamName, stream);
+                return null;
+            }
+        });
+        out.println("Rebase completed.");
+    }
+
+    /**
+     * Lists the versions, or the activities, created on the stream between the two baselines. A stream stands for
+     * its current state.
+     */
+    private void diffbl(Options options, File cwd, PrintStream out) throws IOException, CommandException {
+        if (options.getOperands().size() < 2) {
+            throw new CommandException("Usage: diffbl [-activities | -versions | -baselines] baseline-or-stream baseline-or-stream");
+        }
+        long[] times = new long[2];
+        String stream = null;
+        int vob = -1;
+        for (int i = 0; i < 2; i++) {
+            String selector = options.getOperand(i);
+            if (selector.startsWith("stream:")) {
+                stream = Site.shortName(selector, "stream:");
+                getStream(stream);
+                times[i] = now;
+            } else {
+                Properties baseline = getBaseline(selector);
+                times[i] = Long.parseLong(baseline.getProperty("time"));
+                vob = Integer.parseInt(baseline.getProperty("component"));
+                if (stream == null) {
+                    stream = baseline.getProperty("stream");
+                }
+            }
+        }
+        out.println("Comparing the following:");
+        out.println("  " + options.getOperand(0));
+        out.println("  " + options.getOperand(1));
+        out.println("Differences:");
+        String root = getViewRoot(cwd, false);
+        Set<String> activities = new HashSet<String>();
+        String prefix = vob < 0 ? "" : "vobs/vob" + vob + "/";
+        for (Event event : site.getEvents(Math.min(times[0], times[1]), Math.max(times[0], times[1]))) {
+            if (stream == null || !stream.equals(event.getBranch()) || !event.getElement().startsWith(prefix)) {
+                continue;
+            }
+            if (options.has("-activities")) {
+                if (event.getActivity() != null && activities.add(event.getActivity())) {
+                    out.println(">> " + event.getActivity() + "@" + site.getPvob() + " \"" + site.getHeadline(event.getActivity()) + "\"");
+                }
+            } else if (options.has("-versions")) {
+                out.println(">> " + root + "/" + event.getElement() + "@@" + event.getVersionId());
+            }
+        }
+    }
+
+    // ---- utilities
+
+    private static File resolve(File cwd, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(cwd, path);
+    }
+
+    private static String join(List<String> items, String separator) {
+        StringBuilder builder = new StringBuilder();
+        for (String item : items) {
+            if (builder.length() > 0) {
+                builder.append(separator);
+            }
+            builder.append(item);
+        }
+        return builder.toString();
+    }
+
+    private static String readFile(File file) throws IOException {
+        StringBuilder content = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                content.append(line).append('\n');
+            }
+        } finally {
+            reader.close();
+        }
+        return content.toString();
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void deleteRecursive(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursive(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * The options of a command: the options in {@link #VALUE_OPTIONS} take the next argument as their value, the
+     * other arguments starting with a dash are flags, and the rest are operands.
+     */
+    static class Options {
+        private static final Set<String> VALUE_OPTIONS = new HashSet<String>(Arrays.asList("-tag", "-fmt", "-since", "-branch", "-stream", "-view",
+                "-l", "-stgloc", "-vws", "-host", "-hpath", "-gpath", "-uuid", "-comment", "-c", "-comp", "-ddepends_on", "-adepends_on", "-level",
+                "-baseline", "-in", "-log", "-add_loadrules"));
+
+        private final Map<String, String> values = new HashMap<String, String>();
+        private final List<String> operands = new ArrayList<String>();
+
+        Options(List<String> arguments) {
+            for (int i = 0; i < arguments.size(); i++) {
+                String argument = arguments.get(i);
+                if (argument.startsWith("-") && argument.length() > 1) {
+                    if (VALUE_OPTIONS.contains(argument) && i + 1 < arguments.size()) {
+                        values.put(argument, arguments.get(++i));
+                    } else {
+                        values.put(argument, "");
+                    }
+                } else {
+                    operands.add(argument);
+                }
+            }
+        }
+
+        boolean has(String option) {
+            return values.containsKey(option);
+        }
+
+        String get(String option) {
+            return values.get(option);
+        }
+
+        List<String> getOperands() {
+            return operands;
+        }
+
+        String getOperand(int index) {
+            return index < operands.size() ? operands.get(index) : null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.simulator;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * A version created in the simulated VOBs. Events are not stored: {@link Site} generates them again from their time
+ * and their version number.
+ */
+public class Event {
+
+    private final long time;
+    private final String element;
+    private final String branch;
+    private final String versionId;
+    private final String user;
+    private final String event;
+    private final String operation;
+    private final String activity;
+    private final String comment;
+
+    Event(long time, String element, String branch, String versionId, String user, String event, String operation, String activity, String comment) {
+        this.time = time;
+        this.element = element;
+        this.branch = branch;
+        this.versionId = versionId;
+        this.user = user;
+        this.event = event;
+        this.operation = operation;
+        this.activity = activity;
+        this.comment = comment;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the path of the element from the root of a view, like vobs/vob1/dir2/File3.java
+     */
+    public String getElement() {
+        return element;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public String getVersionId() {
+        return versionId;
+    }
+
+    public String getActivity() {
+        return activity;
+    }
+
+    /**
+     * @param viewRoot the root of the view the element is shown in, without trailing separator
+     * @return the values of the -fmt conversions of lshistory and describe for this version
+     */
+    public Map<String, String> getFields(String viewRoot, String pvob) {
+        SimpleDateFormat numeric = new SimpleDateFormat("yyyyMMdd.HHmmss");
+        SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US);
+        numeric.setTimeZone(TimeZone.getTimeZone("UTC"));
+        date.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String path = viewRoot + "/" + element;
+        Map<String, String> fields = new HashMap<String, String>();
+        fields.put("Nd", numeric.format(new Date(time)));
+        fields.put("d", date.format(new Date(time)));
+        fields.put("u", user);
+        fields.put("Fu", "User " + user.substring(4));
+        fields.put("Lu", user + ".dev");
+        fields.put("En", path);
+        fields.put("Vn", versionId);
+        fields.put("n", path + "@@" + versionId);
+        fields.put("Xn", path + "@@" + versionId);
+        fields.put("e", event);
+        fields.put("o", operation);
+        fields.put("c", comment + "\n");
+        fields.put("Nc", comment);
+        fields.put("[activity]p", activity == null ? "" : activity);
+        fields.put("[activity]Xp", activity == null ? "" : activity + "@" + pvob);
+        return fields;
+    }
+}
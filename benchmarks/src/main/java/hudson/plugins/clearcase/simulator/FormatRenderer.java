@@ -0,0 +1,69 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.simulator;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the -fmt argument of a cleartool command: the backslash escapes and the conversion specifications like %u,
+ * %Nd or %[activity]Xp. Specifications without a value render as an empty string, as cleartool does for properties
+ * which don't apply to the object.
+ */
+class FormatRenderer {
+
+    private static final Pattern SPECIFICATION = Pattern.compile("%(\\[\\w+\\])?[A-Z]*[a-z]|%%|\\\\(.)");
+
+    private FormatRenderer() {
+    }
+
+    /**
+     * @param values the values of the specifications, keyed by the specification without the leading %
+     */
+    static String render(String format, Map<String, String> values) {
+        StringBuilder builder = new StringBuilder();
+        Matcher matcher = SPECIFICATION.matcher(format);
+        int last = 0;
+        while (matcher.find()) {
+            builder.append(format, last, matcher.start());
+            String match = matcher.group();
+            if (matcher.group(2) != null) {
+                char escaped = matcher.group(2).charAt(0);
+                builder.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+            } else if ("%%".equals(match)) {
+                builder.append('%');
+            } else {
+                String value = values.get(match.substring(1));
+                if (value != null) {
+                    builder.append(value);
+                }
+            }
+            last = matcher.end();
+        }
+        builder.append(format, last, format.length());
+        return builder.toString();
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.simulator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * Installs the simulator as a ClearCase home: bin/cleartool runs {@link ClearToolSimulator} on the data directory of
+ * the home, so the home can be set as the ClearCase installation of a Jenkins node.
+ */
+public class SimulatorHome {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+
+    private SimulatorHome() {
+    }
+
+    /**
+     * @param home the directory of the installation, created if needed
+     * @param site the site properties; the start of the history defaults to history.days days ago
+     * @param classpath the classpath of the simulator JVMs, which only need the simulator classes
+     * @return the cleartool script
+     */
+    public static File install(File home, Properties site, String classpath) throws IOException {
+        File data = new File(home, "data");
+        File bin = new File(home, "bin");
+        data.mkdirs();
+        bin.mkdirs();
+
+        Properties properties = new Properties();
+        properties.putAll(site);
+        if (properties.getProperty("start") == null) {
+            long days = Long.parseLong(properties.getProperty("history.days", "30"));
+            long start = (System.currentTimeMillis() - days * DAY) / DAY * DAY;
+            properties.setProperty("start", Long.toString(start));
+        }
+        OutputStream out = new FileOutputStream(new File(data, Site.FILE_NAME));
+        try {
+            properties.store(out, "Simulated ClearCase site");
+        } finally {
+            out.close();
+        }
+
+        String script = readTemplate();
+        script = script.replace("@JAVA@", new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath());
+        script = script.replace("@CLASSPATH@", classpath);
+        script = script.replace("@DATA@", data.getAbsolutePath());
+        File cleartool = new File(bin, "cleartool");
+        out = new FileOutputStream(cleartool);
+        try {
+            out.write(script.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        if (!cleartool.setExecutable(true)) {
+            throw new IOException("Could not make " + cleartool + " executable");
+        }
+        return cleartool;
+    }
+
+    /**
+     * @return the classpath entry the simulator classes were loaded from
+     */
+    public static String getDefaultClasspath() {
+        return new File(SimulatorHome.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getAbsolutePath();
+    }
+
+    private static String readTemplate() throws IOException {
+        InputStream in = SimulatorHome.class.getResourceAsStream("cleartool.sh");
+        if (in == null) {
+            throw new IOException("The cleartool.sh template is missing from the classpath");
+        }
+        try {
+            StringBuilder template = new StringBuilder();
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read > 0; read = in.read(buffer)) {
+                template.append(new String(buffer, 0, read, "UTF-8"));
+            }
+            return template.toString();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Installs a home for manual runs: {@code SimulatorHome <home> [site.properties]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SimulatorHome <home> [site.properties]");
+            System.exit(1);
+        }
+        Properties site = new Properties();
+        if (args.length > 1) {
+            InputStream in = new FileInputStream(args[1]);
+            try {
+                site.load(in);
+            } finally {
+                in.close();
+            }
+        }
+        System.out.println(install(new File(args[0]), site, getDefaultClasspath()));
+    }
+}
@@ -0,0 +1,399 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.simulator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * The simulated ClearCase site, described by the site.properties file of the data directory: VOBs and their elements,
+ * the UCM streams and components, the rate of the check-ins, and the latency and failures to inject.
+ * <p>
+ * The history isn't stored: the versions created in each minute since the start of the site are generated from the
+ * seed and the minute, so every cleartool process sees the same history and new versions keep arriving while the
+ * site is polled. Version numbers encode their minute, so a version can be described without scanning the history.
+ * </p>
+ */
+public class Site {
+
+    public static final String FILE_NAME = "site.properties";
+
+    private static final int MAX_EVENTS_PER_MINUTE = 1000;
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+    private static final String[] WORDS = { "fix", "refactor", "update", "merge", "release", "build", "parser", "view",
+            "baseline", "stream", "defect", "review", "cleanup", "module", "test" };
+
+    private final Properties properties;
+    private final long seed;
+    private final long start;
+    private final int vobs;
+    private final int directories;
+    private final int files;
+    private final int users;
+    private final List<String> streams;
+    private final List<String> branches;
+    private final double changesPerMinute;
+    private final String pvob;
+    private final int modifiableComponents;
+    private final int deliverEvery;
+    private final int activityHours;
+
+    public Site(Properties properties) {
+        this.properties = properties;
+        seed = getLong("seed", 1);
+        start = getLong("start", 0);
+        vobs = (int) getLong("vobs", 5);
+        directories = (int) getLong("directories", 50);
+        files = (int) getLong("files", 20);
+        users = (int) getLong("users", 30);
+        streams = Collections.unmodifiableList(Arrays.asList(properties.getProperty("streams", "int dev1 dev2 dev3").trim().split("\\s+")));
+        List<String> allBranches = new ArrayList<String>();
+        allBranches.add("main");
+        allBranches.addAll(streams);
+        branches = Collections.unmodifiableList(allBranches);
+        changesPerMinute = Double.parseDouble(properties.getProperty("changesPerHour", "600")) / 60;
+        pvob = properties.getProperty("pvob", "/vobs/pvob");
+        modifiableComponents = (int) getLong("modifiableComponents", vobs);
+        deliverEvery = (int) getLong("deliverEvery", 6);
+        activityHours = (int) getLong("activityHours", 48);
+    }
+
+    public static Site load(File dataDirectory) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(new File(dataDirectory, FILE_NAME));
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return new Site(properties);
+    }
+
+    public String getProperty(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    /**
+     * @return the latency in ms to add to the command, before jitter
+     */
+    public long getLatency(String command) {
+        return getLong("latency." + command, getLong("latency.default", 0));
+    }
+
+    /**
+     * @return the fraction of the latency drawn at random, above or below it
+     */
+    public double getLatencyJitter() {
+        return Double.parseDouble(properties.getProperty("latency.jitter", "0.2"));
+    }
+
+    /**
+     * @return the probability that the command fails
+     */
+    public double getFailureRate(String command) {
+        return Double.parseDouble(properties.getProperty("failure." + command, properties.getProperty("failure.default", "0")));
+    }
+
+    public String getPvob() {
+        return pvob;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public int getVobs() {
+        return vobs;
+    }
+
+    public int getDirectories() {
+        return directories;
+    }
+
+    public int getFiles() {
+        return files;
+    }
+
+    public List<String> getStreams() {
+        return streams;
+    }
+
+    public String getIntegrationStream() {
+        return streams.get(0);
+    }
+
+    public boolean isStream(String name) {
+        return streams.contains(name);
+    }
+
+    // ---- components
+
+    public String getComponent(int vob) {
+        return "comp" + vob;
+    }
+
+    public String getComponentRoot(int vob) {
+        return "/vobs/vob" + vob;
+    }
+
+    /**
+     * @return the VOB of the component, or -1 if the component doesn't exist
+     */
+    public int getComponentVob(String component) {
+        String name = shortName(component, "component:");
+        if (name.startsWith("comp")) {
+            try {
+                int vob = Integer.parseInt(name.substring(4));
+                return vob < vobs ? vob : -1;
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isModifiable(int vob) {
+        return vob < modifiableComponents;
+    }
+
+    public String getFoundationBaseline(int vob) {
+        return getComponent(vob) + "_INITIAL";
+    }
+
+    // ---- history
+
+    /**
+     * @return the versions created after from, up to to included, oldest first
+     */
+    public List<Event> getEvents(long from, long to) {
+        List<Event> events = new ArrayList<Event>();
+        long first = Math.max(0, (from - start) / MINUTE);
+        long last = (to - start) / MINUTE;
+        for (long minute = first; minute <= last; minute++) {
+            for (Event event : getEvents(minute)) {
+                if (event.getTime() > from && event.getTime() <= to) {
+                    events.add(event);
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * @param versionId a version id like /main/int/12345678
+     * @return the version, or null if it was never created
+     */
+    public Event getEvent(String versionId, long now) {
+        int slash = versionId.lastIndexOf('/');
+        long number;
+        try {
+            number = Long.parseLong(versionId.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        List<Event> events = getEvents(number / MAX_EVENTS_PER_MINUTE);
+        int index = (int) (number % MAX_EVENTS_PER_MINUTE);
+        if (index >= events.size()) {
+            return null;
+        }
+        Event event = events.get(index);
+        return event.getVersionId().equals(versionId) && event.getTime() <= now ? event : null;
+    }
+
+    private List<Event> getEvents(long minute) {
+        Random random = new Random(seed * 1000003L + minute);
+        int count = Math.min(MAX_EVENTS_PER_MINUTE, poisson(random, changesPerMinute));
+        List<Event> events = new ArrayList<Event>(count);
+        long minuteStart = start + minute * MINUTE;
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = minuteStart + random.nextInt((int) MINUTE);
+        }
+        Arrays.sort(times);
+        for (int i = 0; i < count; i++) {
+            int vob = random.nextInt(vobs);
+            String element = "vobs/vob" + vob + "/dir" + random.nextInt(directories) + "/File" + random.nextInt(files) + ".java";
+            String branch = branches.get(random.nextInt(branches.size()));
+            long number = minute * MAX_EVENTS_PER_MINUTE + i;
+            String versionId = "main".equals(branch) ? "/main/" + number : "/main/" + branch + "/" + number;
+            String user = "user" + random.nextInt(users);
+            int kind = random.nextInt(100);
+            String event;
+            String operation;
+            if (kind < 95) {
+                event = "create version";
+                operation = "checkin";
+            } else if (kind < 99) {
+                event = "create branch";
+                operation = "mkbranch";
+            } else {
+                event = "destroy sub-branch \"" + branch + "\" of branch";
+                operation = "rmbranch";
+            }
+            String activity = "main".equals(branch) ? null : getActivity(branch, (times[i] - start) / HOUR);
+            int comment = random.nextInt(400);
+            events.add(new Event(times[i], element, branch, versionId, user, event, operation, activity, WORDS[comment % WORDS.length] + " "
+                    + WORDS[comment / WORDS.length % WORDS.length] + " #" + comment));
+        }
+        return events;
+    }
+
+    private static int poisson(Random random, double mean) {
+        if (mean > 30) {
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * random.nextGaussian()));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    // ---- UCM activities
+
+    /**
+     * Each stream has one activity per hour. Every {@code deliverEvery} hours, the activity of the integration stream
+     * is a deliver of one of the development streams.
+     */
+    String getActivity(String stream, long hour) {
+        if (stream.equals(getIntegrationStream()) && streams.size() > 1 && deliverEvery > 0 && hour % deliverEvery == 0) {
+            return "deliver." + getDeliveringStream(hour) + "." + hour;
+        }
+        return stream + "_act_" + hour;
+    }
+
+    private String getDeliveringStream(long hour) {
+        return streams.get(1 + (int) (hour / deliverEvery % (streams.size() - 1)));
+    }
+
+    /**
+     * @return the activities of the stream that got versions in the last hours, oldest first
+     */
+    public List<String> getActivities(String stream, long now) {
+        List<String> activities = new ArrayList<String>();
+        long lastHour = (now - start) / HOUR;
+        for (long hour = Math.max(0, lastHour - activityHours + 1); hour <= lastHour; hour++) {
+            activities.add(getActivity(stream, hour));
+        }
+        return activities;
+    }
+
+    /**
+     * @return the stream and hour of the activity, or null if it isn't an activity of the site
+     */
+    Object[] parseActivity(String activity) {
+        String name = shortName(activity, "activity:");
+        try {
+            if (name.startsWith("deliver.")) {
+                long hour = Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+                return new Object[] { getIntegrationStream(), hour };
+            }
+            int separator = name.lastIndexOf("_act_");
+            if (separator > 0 && isStream(name.substring(0, separator))) {
+                return new Object[] { name.substring(0, separator), Long.parseLong(name.substring(separator + 5)) };
+            }
+        } catch (NumberFormatException e) {
+            // not an activity of the site
+        }
+        return null;
+    }
+
+    public boolean isActivity(String activity) {
+        return parseActivity(activity) != null;
+    }
+
+    /**
+     * @return the versions of the activity created up to now, oldest first
+     */
+    public List<Event> getActivityVersions(String activity, long now) {
+        Object[] parsed = parseActivity(activity);
+        List<Event> versions = new ArrayList<Event>();
+        if (parsed == null) {
+            return versions;
+        }
+        String stream = (String) parsed[0];
+        long hour = (Long) parsed[1];
+        long from = start + hour * HOUR;
+        for (Event event : getEvents(from - 1, Math.min(now, from + HOUR - 1))) {
+            if (stream.equals(event.getBranch())) {
+                versions.add(event);
+            }
+        }
+        return versions;
+    }
+
+    public String getHeadline(String activity) {
+        Object[] parsed = parseActivity(activity);
+        return parsed == null ? "" : "Work of hour " + parsed[1] + " on " + parsed[0];
+    }
+
+    public String getActivityStream(String activity) {
+        Object[] parsed = parseActivity(activity);
+        return parsed == null ? "" : (String) parsed[0];
+    }
+
+    /**
+     * @return the activities delivered by a deliver activity, empty for the other activities
+     */
+    public List<String> getContributingActivities(String activity) {
+        List<String> contributing = new ArrayList<String>();
+        String name = shortName(activity, "activity:");
+        Object[] parsed = parseActivity(activity);
+        if (parsed != null && name.startsWith("deliver.")) {
+            long hour = (Long) parsed[1];
+            String devStream = name.substring("deliver.".length(), name.lastIndexOf('.'));
+            for (long h = Math.max(0, hour - deliverEvery); h < hour; h++) {
+                contributing.add(devStream + "_act_" + h);
+            }
+        }
+        return contributing;
+    }
+
+    /**
+     * Strips the kind prefix and the project VOB of a selector: stream:int@/vobs/pvob gives int.
+     */
+    public static String shortName(String selector, String kind) {
+        String name = selector.startsWith(kind) ? selector.substring(kind.length()) : selector;
+        int at = name.indexOf('@');
+        return at < 0 ? name : name.substring(0, at);
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.simulator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * What the simulated cleartool commands change in the site: views, created streams, baselines and the latest
+ * baselines of the streams. Each object is a properties file under the state directory, named after its kind and
+ * name. Many cleartool processes run at once, so the commands that change the state hold a lock on the directory.
+ */
+public class State {
+
+    public static final String VIEW = "view";
+    public static final String STREAM = "stream";
+    public static final String BASELINE = "baseline";
+
+    private final File directory;
+
+    public State(File dataDirectory) {
+        directory = new File(dataDirectory, "state");
+    }
+
+    public interface Transaction<T> {
+        T execute() throws IOException;
+    }
+
+    /**
+     * Runs the transaction while holding the lock of the state, against the other cleartool processes.
+     */
+    public <T> T locked(Transaction<T> transaction) throws IOException {
+        directory.mkdirs();
+        RandomAccessFile lockFile = new RandomAccessFile(new File(directory, ".lock"), "rw");
+        try {
+            FileLock lock = lockFile.getChannel().lock();
+            try {
+                return transaction.execute();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            lockFile.close();
+        }
+    }
+
+    /**
+     * @return the properties of the object, or null if it doesn't exist
+     */
+    public Properties read(String kind, String name) throws IOException {
+        Properties properties = new Properties();
+        InputStream in;
+        try {
+            in = new FileInputStream(getFile(kind, name));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+
+    /**
+     * Writes the object to a temporary file first, so that the commands which don't lock never read half of it.
+     */
+    public void write(String kind, String name, Properties properties) throws IOException {
+        directory.mkdirs();
+        File file = getFile(kind, name);
+        File temp = new File(directory, file.getName() + ".tmp");
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            properties.store(out, kind + " " + name);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not write " + file);
+            }
+        }
+    }
+
+    public boolean delete(String kind, String name) {
+        return getFile(kind, name).delete();
+    }
+
+    /**
+     * @return the properties of all the objects of the kind
+     */
+    public List<Properties> list(String kind) throws IOException {
+        List<Properties> objects = new ArrayList<Properties>();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return objects;
+        }
+        List<String> names = new ArrayList<String>();
+        for (File file : files) {
+            if (file.getName().startsWith(kind + ".") && file.getName().endsWith(".properties")) {
+                names.add(file.getName());
+            }
+        }
+        Collections.sort(names);
+        for (String name : names) {
+            Properties properties = read(kind, name.substring(kind.length() + 1, name.length() - ".properties".length()));
+            // null if deleted meanwhile
+            if (properties != null) {
+                objects.add(properties);
+            }
+        }
+        return objects;
+    }
+
+    private File getFile(String kind, String name) {
+        return new File(directory, kind + "." + name.replaceAll("[^A-Za-z0-9._-]", "_") + ".properties");
+    }
+}
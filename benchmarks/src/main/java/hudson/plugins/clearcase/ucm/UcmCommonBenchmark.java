@@ -0,0 +1,150 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import hudson.plugins.clearcase.Baseline;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.Component;
+import hudson.plugins.clearcase.benchmark.FakeClearTool;
+import hudson.plugins.clearcase.benchmark.SyntheticOutput;
+import hudson.plugins.clearcase.history.HistoryEntry;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of the describe and diffbl output read by {@link UcmCommon} and {@link UcmHistoryAction}. The cleartool
+ * output is generated beforehand, so only the parsing is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UcmCommonBenchmark {
+
+    /** Number of components of the stream; the stream holds ten times more activities and versions */
+    @Param({ "100", "1000", "10000" })
+    int components;
+
+    private ClearTool clearTool;
+    private String baselineNames;
+    private String baselineComponents;
+    private String streamDescription;
+    private String streamContent;
+    private Map<String, String> activityVersions;
+    private String diffBl;
+    private Map<String, String> versionDescriptions;
+    private String[] loadRules;
+    private UcmHistoryAction historyAction;
+
+    @Setup
+    public void generate() {
+        SyntheticOutput output = new SyntheticOutput();
+        baselineNames = output.baselineNames(components);
+        baselineComponents = output.baselineComponents(components);
+        streamDescription = output.streamDescription(components);
+        int activities = components * 10;
+        streamContent = output.streamContent(components, activities);
+        activityVersions = new HashMap<String, String>();
+        for (int i = 0; i < activities; i++) {
+            String activity = "activity:act" + i + "@/vobs/pvob";
+            activityVersions.put(activity, output.activityVersions(new String[] { activity }, 5));
+        }
+        diffBl = output.diffBl(components * 10);
+        versionDescriptions = new HashMap<String, String>();
+        for (String line : diffBl.split("\n")) {
+            if (line.startsWith(">>")) {
+                String version = line.substring(2).trim();
+                versionDescriptions.put(version, output.describeVersions(new String[] { version }));
+            }
+        }
+        loadRules = output.loadRules(components);
+
+        clearTool = new FakeClearTool() {
+            @Override
+            protected String describe(String format, String[] selectors) {
+                if (format == null) {
+                    return streamDescription;
+                }
+                if (format.startsWith("%[latest_bls]")) {
+                    return baselineNames;
+                }
+                if (format.startsWith("%[component]")) {
+                    return baselineComponents;
+                }
+                if (format.startsWith("%[found_bls]")) {
+                    return streamContent;
+                }
+                Map<String, String> descriptions = format.startsWith("%Xn") ? activityVersions : versionDescriptions;
+                StringBuilder output = new StringBuilder();
+                for (String selector : selectors) {
+                    output.append(descriptions.get(selector));
+                }
+                return output.toString();
+            }
+        }.create();
+        historyAction = new UcmHistoryAction(clearTool, false, null, null, null, null);
+    }
+
+    @Benchmark
+    public List<Baseline> latestBaselines() throws Exception {
+        return UcmCommon.getLatestBaselines(clearTool, "int_stream@/vobs/pvob");
+    }
+
+    @Benchmark
+    public List<Component> streamComponents() throws Exception {
+        return UcmCommon.getStreamComponentsDesc(clearTool, "int_stream@/vobs/pvob");
+    }
+
+    @Benchmark
+    public String streamFingerprint() throws Exception {
+        return UcmCommon.getStreamFingerprint(clearTool, "int_stream@/vobs/pvob", loadRules);
+    }
+
+    @Benchmark
+    public List<HistoryEntry> diffBlVersions() throws Exception {
+        List<HistoryEntry> history = new ArrayList<HistoryEntry>();
+        historyAction.describeVersions(new DiffBlVersionIterator(new StringReader(diffBl)), history);
+        return history;
+    }
+}
@@ -0,0 +1,5 @@
+#!/bin/sh
+# Simulated cleartool, installed by hudson.plugins.clearcase.simulator.SimulatorHome.
+# CLEARTOOL_SIMULATOR_OPTS adds options to the JVM, e.g. -Xmx256m.
+exec "@JAVA@" -XX:TieredStopAtLevel=1 -Xss512k $CLEARTOOL_SIMULATOR_OPTS -cp "@CLASSPATH@" \
+    -Dclearcase.simulator.data="@DATA@" hudson.plugins.clearcase.simulator.ClearToolSimulator "$@"
@@ -0,0 +1,76 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.benchmark;
+
+import static org.junit.Assert.assertEquals;
+import hudson.plugins.clearcase.benchmark.CompareResults.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompareResultsTest {
+
+    private static final String HEADER = "\"Benchmark\",\"Mode\",\"Threads\",\"Samples\",\"Score\",\"Score Error (99.9%)\",\"Unit\",\"Param: events\"\n";
+
+    @Test
+    public void testRead() throws Exception {
+        Map<String, Result> results = CompareResults.read(new StringReader(HEADER
+                + "\"hudson.plugins.clearcase.history.LsHistoryBenchmark.checkLine\",\"avgt\",1,5,1.500000,0.100000,\"ms/op\",1000\n"
+                + "\"hudson.plugins.clearcase.history.LsHistoryBenchmark.checkLine\",\"avgt\",1,5,15.000000,0.500000,\"ms/op\",10000\n"));
+        assertEquals(2, results.size());
+        Result result = results.get("hudson.plugins.clearcase.history.LsHistoryBenchmark.checkLine events=10000");
+        assertEquals("avgt", result.mode);
+        assertEquals(15.0, result.score, 0);
+        assertEquals(0.5, result.error, 0);
+        assertEquals("ms/op", result.unit);
+    }
+
+    @Test
+    public void testCompare() throws Exception {
+        Map<String, Result> baseline = CompareResults.read(new StringReader(HEADER
+                + "\"a\",\"avgt\",1,5,10.0,0.1,\"ms/op\",1000\n"
+                + "\"b\",\"avgt\",1,5,10.0,0.1,\"ms/op\",1000\n"
+                + "\"c\",\"thrpt\",1,5,10.0,0.1,\"ops/ms\",1000\n"
+                + "\"d\",\"avgt\",1,5,10.0,0.1,\"ms/op\",1000\n"));
+        Map<String, Result> current = CompareResults.read(new StringReader(HEADER
+                + "\"a\",\"avgt\",1,5,10.5,0.1,\"ms/op\",1000\n"
+                + "\"b\",\"avgt\",1,5,13.0,0.1,\"ms/op\",1000\n"
+                + "\"c\",\"thrpt\",1,5,7.0,0.1,\"ops/ms\",1000\n"
+                + "\"e\",\"avgt\",1,5,1.0,0.1,\"ms/op\",1000\n"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, CompareResults.compare(baseline, current, 10, new PrintStream(out, true)));
+    }
+
+    @Test
+    public void testNoRegressionWithinErrorMargin() throws Exception {
+        Map<String, Result> baseline = CompareResults.read(new StringReader(HEADER + "\"a\",\"avgt\",1,5,10.0,1.0,\"ms/op\",1000\n"));
+        Map<String, Result> current = CompareResults.read(new StringReader(HEADER + "\"a\",\"avgt\",1,5,12.5,1.0,\"ms/op\",1000\n"));
+        assertEquals(0, CompareResults.compare(baseline, current, 10, new PrintStream(new ByteArrayOutputStream(), true)));
+    }
+}
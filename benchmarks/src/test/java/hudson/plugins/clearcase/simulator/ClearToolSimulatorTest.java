@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ClearToolSimulatorTest {
+
+    private static final long NOW = 1363860000000L;
+    private static final long HOUR = 60 * 60 * 1000L;
+    /** The lshistory format of UcmHistoryAction */
+    private static final String HISTORY_FORMAT = "\\\"%Nd\\\" \\\"%u\\\" \\\"%En\\\" \\\"%Vn\\\" \\\"%e\\\" \\\"%o\\\" \\\"%[activity]Xp\\\" \\n%c\\n";
+    private static final Pattern HISTORY_LINE = Pattern.compile("\"(.*)\"\\s*\"(.*)\"\\s*\"(.*)\"\\s*\"(.*)\"\\s*\"(.*)\"\\s*\"(.*)\"\\s*\"(.*)\"\\s*");
+
+    private File data;
+    private File workspace;
+    private Properties site;
+
+    @Before
+    public void setUp() throws Exception {
+        data = File.createTempFile("simulator", "");
+        data.delete();
+        workspace = new File(data, "workspace");
+        workspace.mkdirs();
+        site = new Properties();
+        site.setProperty("start", Long.toString(NOW - 48 * HOUR));
+        site.setProperty("vobs", "3");
+        site.setProperty("directories", "4");
+        site.setProperty("files", "5");
+        site.setProperty("changesPerHour", "600");
+        writeSite();
+    }
+
+    @After
+    public void tearDown() {
+        delete(data);
+    }
+
+    @Test
+    public void testLsHistoryMatchesPluginFormat() throws Exception {
+        run(workspace, 0, "mkview", "-snapshot", "-tag", "view1", "-stgloc", "-auto", "view1");
+        File view = new File(workspace, "view1");
+        String output = run(view, 0, "lshistory", "-all", "-since", since(NOW - HOUR), "-fmt", HISTORY_FORMAT, "-branch", "brtype:int", "-nco",
+                "vobs/vob1");
+        // %c ends with a new line, so the format gives an empty line after each comment
+        String[] records = output.split("\n\n");
+        assertTrue("Expected about 600 / 4 branches / 3 VOBs versions, got " + records.length, records.length > 20);
+        String previousDate = "99999999.999999";
+        for (String record : records) {
+            String[] lines = record.split("\n");
+            assertEquals(record, 2, lines.length);
+            Matcher matcher = HISTORY_LINE.matcher(lines[0]);
+            assertTrue(lines[0], matcher.matches());
+            assertTrue("newest first", matcher.group(1).compareTo(previousDate) <= 0);
+            assertTrue(matcher.group(3), matcher.group(3).startsWith(view.getCanonicalPath() + "/vobs/vob1/"));
+            assertTrue(matcher.group(4), matcher.group(4).startsWith("/main/int/"));
+            assertTrue(matcher.group(7), matcher.group(7).endsWith("@/vobs/pvob"));
+            previousDate = matcher.group(1);
+        }
+    }
+
+    @Test
+    public void testDescribeRegeneratesVersion() throws Exception {
+        String output = run(workspace, 0, "lshistory", "-all", "-since", since(NOW - HOUR), "-fmt", HISTORY_FORMAT, "-nco", "vobs");
+        Matcher matcher = HISTORY_LINE.matcher(output.split("\n")[0]);
+        assertTrue(matcher.matches());
+        String version = matcher.group(3) + "@@" + matcher.group(4);
+        assertEquals(matcher.group(2) + " " + matcher.group(5) + "\n", run(workspace, 0, "desc", "-fmt", "%u %e\\n", version));
+        assertTrue(run(workspace, 1, "desc", "-fmt", "%u\\n", matcher.group(3) + "@@/main/999999999").contains("cleartool: Error: Unable to access"));
+    }
+
+    @Test
+    public void testUpdateLoadsFiles() throws Exception {
+        run(workspace, 0, "mkview", "-snapshot", "-tag", "view1", "-stgloc", "-auto", "view1");
+        File view = new File(workspace, "view1");
+        String output = run(view, 0, "update", "-force", "-overwrite", "-log", "NUL", "-add_loadrules", "vobs/vob0");
+        // 2 directories of 5 files
+        assertEquals(10, output.split("Loading \"vobs/vob0/").length - 1);
+        assertTrue(new File(view, "vobs/vob0/dir1/File4.java").isFile());
+        assertTrue(run(workspace, 0, "catcs", "-tag", "view1").contains("load /vobs/vob0\n"));
+        assertEquals("view1\n", run(view, 0, "lsview", "-cview", "-s"));
+        assertFalse(run(view, 0, "update", "-force", "-overwrite", "-log", "NUL").contains("Loading"));
+    }
+
+    @Test
+    public void testUcmBaselines() throws Exception {
+        run(workspace, 0, "mkview", "-stream", "int@/vobs/pvob", "-tag", "int_view");
+        String output = run(workspace, 0, "mkbl", "-full", "-view", "int_view", "build_1");
+        assertTrue(output, output.contains("Created baseline \"build_1\" in component \"comp0\""));
+        assertTrue(output, output.contains("Created baseline \"build_1.2\" in component \"comp2\""));
+        assertEquals("baseline:build_1@/vobs/pvob baseline:build_1.1@/vobs/pvob baseline:build_1.2@/vobs/pvob", run(workspace, 0, "lsstream", "-view",
+                "int_view", "-fmt", "%[latest_bls]Xp"));
+        assertEquals("Full|component:comp1@/vobs/pvob", run(workspace, 0, "lsbl", "-fmt", "%[label_status]p|%[component]Xp", "build_1.1@/vobs/pvob"));
+        assertEquals("baseline:comp0_INITIAL@/vobs/pvob baseline:comp1_INITIAL@/vobs/pvob baseline:comp2_INITIAL@/vobs/pvob\n", run(workspace, 0,
+                "desc", "-fmt", "%[found_bls]Xp\\n", "stream:int@/vobs/pvob"));
+        String diff = run(workspace, 0, "diffbl", "-versions", "baseline:comp0_INITIAL@/vobs/pvob", "baseline:build_1@/vobs/pvob");
+        assertTrue(diff, diff.contains(">> "));
+        assertTrue(run(workspace, 0, "desc", "stream:int").contains("(comp0@/vobs/pvob) (modifiable)"));
+    }
+
+    @Test
+    public void testIntegrationActivity() throws Exception {
+        // hour 42 of the site is a deliver, every 6 hours
+        String output = run(workspace, 0, "desc", "-fmt", "%[activities]Xp", "stream:int");
+        assertTrue(output, output.contains("activity:deliver.dev"));
+        String activity = output.substring(output.indexOf("activity:deliver.") + "activity:".length()).split(" ")[0];
+        String contributing = run(workspace, 0, "lsactivity", "-fmt", "%[contrib_acts]p", activity);
+        assertEquals(6, contributing.split(" ").length);
+        assertTrue(contributing, contributing.startsWith(activity.split("\\.")[1] + "_act_"));
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        assertTrue(run(workspace, 1, "lsview", "missing").contains("No matching entries found for view"));
+        assertTrue(run(workspace, 1, "lsstream", "-short", "missing").contains("stream not found"));
+        assertTrue(run(workspace, 1, "lsview", "-cview", "-s").contains("cleartool: Error: Cannot get view info for current view: not a ClearCase object."));
+        assertTrue(run(workspace, 1, "bogus").contains("cleartool: Error: Unrecognized command"));
+    }
+
+    @Test
+    public void testFailureInjection() throws Exception {
+        site.setProperty("failure.lsvob", "1");
+        writeSite();
+        assertTrue(run(workspace, 1, "lsvob").contains("cleartool: Error: Simulated failure"));
+        assertTrue(run(workspace, 0, "lsview").length() == 0);
+    }
+
+    private String run(File cwd, int expectedStatus, String... args) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(out, true);
+        int status = new ClearToolSimulator(data, NOW).run(args, cwd, stream, stream);
+        assertEquals(out.toString(), expectedStatus, status);
+        return out.toString();
+    }
+
+    private static String since(long time) {
+        SimpleDateFormat formatter = new SimpleDateFormat("d-MMM-yy.HH:mm:ss'UTC'Z", Locale.US);
+        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return formatter.format(new Date(time)).toLowerCase();
+    }
+
+    private void writeSite() throws IOException {
+        OutputStream out = new FileOutputStream(new File(data, Site.FILE_NAME));
+        try {
+            site.store(out, null);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.simulator;
+
+import hudson.model.AbstractProject;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.AbstractClearCaseScm.ChangeSetLevel;
+import hudson.plugins.clearcase.ClearCaseInstallation;
+import hudson.plugins.clearcase.ClearCaseSCM;
+import hudson.plugins.clearcase.ClearCaseUcmSCM;
+import hudson.plugins.clearcase.NodeCapabilities;
+import hudson.plugins.clearcase.profile.PhaseProfile;
+import hudson.scm.PollingResult;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jvnet.hudson.test.HudsonTestCase;
+
+/**
+ * Load test of the plugin against the cleartool simulator: many ClearCaseSCM and ClearCaseUcmSCM jobs check out
+ * and poll at once, and the throughput and the latency of each are reported. It isn't named like a test, so that
+ * it only runs when asked for:
+ * 
+ * <pre>
+ * mvn -f benchmarks/pom.xml test -Dtest=ScaleHarness -Dscale.jobs=50 -Dscale.latency=100
+ * </pre>
+ * 
+ * The report is printed and written to target/scale-report.txt.
+ */
+public class ScaleHarness extends HudsonTestCase {
+
+    private static final int JOBS = Integer.getInteger("scale.jobs", 20);
+    private static final int BUILDS = Integer.getInteger("scale.builds", 2);
+    private static final int POLLS = Integer.getInteger("scale.polls", 5);
+    private static final int THREADS = Integer.getInteger("scale.threads", 8);
+    private static final int LATENCY = Integer.getInteger("scale.latency", 20);
+    private static final double FAILURE_RATE = Double.parseDouble(System.getProperty("scale.failureRate", "0"));
+    /** Polling runs cleartool from the PATH, which the pom points to the bin directory of this home */
+    private static final File HOME = new File(System.getProperty("scale.home", "target/simulator")).getAbsoluteFile();
+    private static final String[] BRANCHES = { "main", "dev1", "dev2", "dev3" };
+    private static final String[] STREAMS = { "int", "dev1", "dev2", "dev3" };
+
+    private final Map<String, LatencyStats> stats = Collections.synchronizedMap(new LinkedHashMap<String, LatencyStats>());
+    private final LatencyStats commands = new LatencyStats();
+
+    public void testScale() throws Exception {
+        installSimulator();
+        hudson.setNumExecutors(THREADS);
+        hudson.setNodes(hudson.getNodes());
+
+        List<FreeStyleProject> projects = new ArrayList<FreeStyleProject>();
+        for (int i = 0; i < JOBS; i++) {
+            projects.add(i % 2 == 0 ? createBaseProject(i) : createUcmProject(i));
+        }
+
+        long checkoutTime = 0;
+        for (int round = 0; round < BUILDS; round++) {
+            long start = System.currentTimeMillis();
+            List<Future<FreeStyleBuild>> builds = new ArrayList<Future<FreeStyleBuild>>();
+            for (FreeStyleProject project : projects) {
+                builds.add(project.scheduleBuild2(0));
+            }
+            for (Future<FreeStyleBuild> future : builds) {
+                recordBuild(future.get());
+            }
+            checkoutTime += System.currentTimeMillis() - start;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long pollTime;
+        try {
+            long start = System.currentTimeMillis();
+            List<Future<?>> polls = new ArrayList<Future<?>>();
+            for (int round = 0; round < POLLS; round++) {
+                for (final FreeStyleProject project : projects) {
+                    polls.add(pool.submit(new Callable<Void>() {
+                        public Void call() {
+                            poll(project);
+                            return null;
+                        }
+                    }));
+                }
+            }
+            for (Future<?> poll : polls) {
+                poll.get();
+            }
+            pollTime = System.currentTimeMillis() - start;
+        } finally {
+            pool.shutdown();
+        }
+
+        report(checkoutTime, pollTime);
+    }
+
+    private void installSimulator() throws Exception {
+        Properties site = new Properties();
+        site.setProperty("latency.default", Integer.toString(LATENCY));
+        if (FAILURE_RATE > 0) {
+            // the commands which read the history, the ones a slow or overloaded server fails first
+            for (String command : new String[] { "lshistory", "desc", "lsactivity", "diffbl", "update" }) {
+                site.setProperty("failure." + command, Double.toString(FAILURE_RATE));
+            }
+        }
+        SimulatorHome.install(HOME, site, SimulatorHome.getDefaultClasspath());
+        hudson.getDescriptorByType(ClearCaseInstallation.DescriptorImpl.class).setInstallations(new ClearCaseInstallation(HOME.getPath()));
+        NodeCapabilities.invalidateAll();
+    }
+
+    private FreeStyleProject createBaseProject(int index) throws Exception {
+        String branch = BRANCHES[index / 2 % BRANCHES.length];
+        String configSpec = "main".equals(branch) ? "element * CHECKEDOUT\nelement * /main/LATEST\n" : "element * CHECKEDOUT\nelement * .../" + branch
+                + "/LATEST\nelement * /main/LATEST -mkbranch " + branch + "\n";
+        FreeStyleProject project = createFreeStyleProject("base" + index);
+        project.setScm(new ClearCaseSCM(branch, "", configSpec, "sim_base" + index, true, getLoadRules(index), false, "", "", false, false, false, "", "",
+                false, false, "view", ChangeSetLevel.defaultLevel(), null));
+        return project;
+    }
+
+    private FreeStyleProject createUcmProject(int index) throws Exception {
+        String stream = STREAMS[index / 2 % STREAMS.length] + "@/vobs/pvob";
+        FreeStyleProject project = createFreeStyleProject("ucm" + index);
+        project.setScm(new ClearCaseUcmSCM(stream, getLoadRules(index), "sim_ucm" + index, false, "", "", false, true, false, "", null, "", false, false,
+                false, false, "view", true, ChangeSetLevel.defaultLevel(), null));
+        return project;
+    }
+
+    private static String getLoadRules(int index) {
+        return "/vobs/vob" + index % 5 + "\n/vobs/vob" + (index + 1) % 5;
+    }
+
+    private void recordBuild(FreeStyleBuild build) {
+        String kind = build.getProject().getScm() instanceof ClearCaseUcmSCM ? "ucm" : "base";
+        LatencyStats checkout = getStats("checkout " + kind);
+        if (build.getResult() != Result.SUCCESS) {
+            checkout.fail();
+            return;
+        }
+        checkout.add(build.getDuration());
+        PhaseProfile profile = build.getAction(PhaseProfile.class);
+        if (profile != null) {
+            int count = 0;
+            for (PhaseProfile.Row row : profile.getRows()) {
+                count += row.getPhase().getCommands();
+            }
+            commands.add(count);
+        }
+    }
+
+    private void poll(AbstractProject<?, ?> project) {
+        String kind = project.getScm() instanceof ClearCaseUcmSCM ? "ucm" : "base";
+        LatencyStats latency = getStats("poll " + kind);
+        long start = System.currentTimeMillis();
+        try {
+            PollingResult result = project.poll(TaskListener.NULL);
+            latency.add(System.currentTimeMillis() - start);
+            getStats("poll with changes").add(result.hasChanges() ? 1 : 0);
+        } catch (RuntimeException e) {
+            latency.fail();
+        }
+    }
+
+    private LatencyStats getStats(String name) {
+        synchronized (stats) {
+            LatencyStats stat = stats.get(name);
+            if (stat == null) {
+                stat = new LatencyStats();
+                stats.put(name, stat);
+            }
+            return stat;
+        }
+    }
+
+    private void report(long checkoutTime, long pollTime) throws Exception {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.US, "ClearCase plugin scale run: %d jobs, %d builds, %d polls per job, %d threads, latency %d ms, failure rate %.3f%n",
+                JOBS, BUILDS, POLLS, THREADS, LATENCY, FAILURE_RATE));
+        report.append(String.format(Locale.US, "%-16s %7s %7s %10s %8s %8s %8s %8s%n", "operation", "count", "failed", "per second", "p50 ms", "p90 ms",
+                "p99 ms", "max ms"));
+        for (Map.Entry<String, LatencyStats> entry : stats.entrySet()) {
+            if (entry.getKey().equals("poll with changes")) {
+                continue;
+            }
+            LatencyStats stat = entry.getValue();
+            long time = entry.getKey().startsWith("checkout") ? checkoutTime : pollTime;
+            report.append(String.format(Locale.US, "%-16s %7d %7d %10.2f %8d %8d %8d %8d%n", entry.getKey(), stat.count(), stat.failures(), stat.count()
+                    * 1000.0 / Math.max(1, time), stat.percentile(50), stat.percentile(90), stat.percentile(99), stat.percentile(100)));
+        }
+        LatencyStats changes = getStats("poll with changes");
+        report.append(String.format(Locale.US, "polls with changes: %d of %d%n", changes.sum(), changes.count()));
+        report.append(String.format(Locale.US, "cleartool commands per build: p50 %d, max %d%n", commands.percentile(50), commands.percentile(100)));
+
+        System.out.print(report);
+        File file = new File("target/scale-report.txt");
+        file.getParentFile().mkdirs();
+        PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8");
+        try {
+            out.print(report);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * The values recorded for an operation, and the number of times it failed.
+     */
+    static class LatencyStats {
+        private final List<Long> values = new ArrayList<Long>();
+        private int failures;
+
+        synchronized void add(long value) {
+            values.add(value);
+        }
+
+        synchronized void fail() {
+            failures++;
+        }
+
+        synchronized int count() {
+            return values.size();
+        }
+
+        synchronized int failures() {
+            return failures;
+        }
+
+        synchronized long sum() {
+            long sum = 0;
+            for (long value : values) {
+                sum += value;
+            }
+            return sum;
+        }
+
+        /**
+         * @return the nearest-rank percentile, 0 if nothing was recorded
+         */
+        synchronized long percentile(int percent) {
+            if (values.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<Long>(values);
+            Collections.sort(sorted);
+            int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+            return sorted.get(Math.max(0, rank - 1));
+        }
+    }
+}
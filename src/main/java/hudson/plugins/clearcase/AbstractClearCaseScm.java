@@ -35,8 +35,11 @@ import hudson.model.AbstractProject;
 import hudson.model.Computer;
 import hudson.model.Node;
 import hudson.model.Run;
+import hudson.model.StreamBuildListener;
 import hudson.plugins.clearcase.action.CheckOutAction;
 import hudson.plugins.clearcase.action.SaveChangeLogAction;
+import hudson.plugins.clearcase.cleanup.CleanupTask;
+import hudson.plugins.clearcase.cleanup.ViewCleanupService;
 import hudson.plugins.clearcase.history.AbstractHistoryAction;
 import hudson.plugins.clearcase.history.DefaultFilter;
 import hudson.plugins.clearcase.history.DestroySubBranchFilter;
@@ -44,6 +47,10 @@ import hudson.plugins.clearcase.history.FileFilter;
 import hudson.plugins.clearcase.history.Filter;
 import hudson.plugins.clearcase.history.FilterChain;
 import hudson.plugins.clearcase.history.HistoryAction;
+import hudson.plugins.clearcase.notification.ChangeNotification;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
+import hudson.plugins.clearcase.util.BackgroundTask;
 import hudson.plugins.clearcase.util.BuildVariableResolver;
 import hudson.plugins.clearcase.util.PathUtil;
 import hudson.plugins.clearcase.viewstorage.ViewStorageFactory;
@@ -55,15 +62,20 @@ import hudson.scm.SCM;
 import hudson.util.StreamTaskListener;
 import hudson.util.VariableResolver;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -119,6 +131,7 @@ public abstract class AbstractClearCaseScm extends SCM {
 	public static final String CLEARCASE_VIEWTAG_ENVSTR = "CLEARCASE_VIEWTAG";
     public static final String CLEARCASE_VIEWNAME_ENVSTR = "CLEARCASE_VIEWNAME";
     public static final String CLEARCASE_VIEWPATH_ENVSTR = "CLEARCASE_VIEWPATH";
+    public static final String CLEARCASE_UPDATE_MANIFEST_ENVSTR = "CLEARCASE_UPDATE_MANIFEST";
 
     private String viewName;
     private String mkviewOptionalParam;
@@ -331,7 +344,7 @@ public abstract class AbstractClearCaseScm extends SCM {
 
     @Override
     public boolean requiresWorkspaceForPolling() {
-        return true;
+        return !PollView.isEnabled();
     }
 
     @Override
@@ -426,14 +439,23 @@ public abstract class AbstractClearCaseScm extends SCM {
      * @return a string containing no invalid chars.
      */
     public String generateNormalizedViewName(VariableResolver<String> variableResolver, String modViewName) {
-        String generatedNormalizedViewName = Util.replaceMacro(modViewName, variableResolver);
-
-        generatedNormalizedViewName = generatedNormalizedViewName.replaceAll("[\\s\\\\\\/:\\?\\*\\|]+", "_");
-
+        String generatedNormalizedViewName = normalizeViewName(Util.replaceMacro(modViewName, variableResolver));
         setNormalizedViewName(generatedNormalizedViewName);
         return generatedNormalizedViewName;
     }
 
+    /**
+     * Same as {@link #generateNormalizedViewName(VariableResolver)}, without changing the normalized view name of this
+     * SCM, e.g. to get the view names of other builds.
+     */
+    public String resolveViewTag(VariableResolver<String> variableResolver) {
+        return normalizeViewName(Util.replaceMacro(viewName, variableResolver));
+    }
+
+    private static String normalizeViewName(String viewName) {
+        return viewName.replaceAll("[\\s\\\\\\/:\\?\\*\\|]+", "_");
+    }
+
     /**
      * @see AbstractClearCaseScm#generateNormalizedViewName(BuildVariableResolver, String)
      * @param variableResolver An initialized build variable resolver.
@@ -475,6 +497,8 @@ public abstract class AbstractClearCaseScm extends SCM {
      * <li>CLEARCASE_VIEWTAG  - The clearcase view tag.</li>
      * <li>CLEARCASE_VIEWNAME - The name of the clearcase view folder (relative to workspace).</li>
      * <li>CLEARCASE_VIEWPATH - The absolute path to the clearcase view.</li>
+     * <li>CLEARCASE_UPDATE_MANIFEST - The absolute path to the elements loaded by the checkout, for snapshot views that
+     * recorded one.</li>
      * </ul>
      */
     @Override
@@ -495,6 +519,9 @@ public abstract class AbstractClearCaseScm extends SCM {
                 String workspace = env.get("WORKSPACE");
                 if (workspace != null) {
                     env.put(CLEARCASE_VIEWPATH_ENVSTR, workspace + File.separator + normalizedViewPath);
+                    if (UpdateManifest.getFile(build).isFile()) {
+                        env.put(CLEARCASE_UPDATE_MANIFEST_ENVSTR, workspace + File.separator + UpdateManifest.FILE_NAME);
+                    }
                 }
             }
         }
@@ -503,10 +530,29 @@ public abstract class AbstractClearCaseScm extends SCM {
     @Override
     public boolean checkout(AbstractBuild build, Launcher launcher, FilePath workspace, BuildListener listener, File changelogFile) throws IOException,
             InterruptedException {
+        PhaseProfile profile = PhaseProfile.start(build);
+        Phase phase = PhaseProfile.enter("checkout");
+        try {
+            return doCheckout(build, launcher, workspace, listener, changelogFile);
+        } finally {
+            PhaseProfile.exit(phase);
+            profile.stop();
+        }
+    }
+
+    private boolean doCheckout(AbstractBuild build, Launcher launcher, FilePath workspace, BuildListener listener, File changelogFile) throws IOException,
+            InterruptedException {
         // Calculate revision state from the beginning, it will enable to reuse load rules
-        build.addAction(calcRevisionsFromBuild(build, launcher, listener));
+        Phase phase = PhaseProfile.enter("revision state");
+        try {
+            build.addAction(calcRevisionsFromBuild(build, launcher, listener));
+        } finally {
+            PhaseProfile.exit(phase);
+        }
 
         ClearToolLauncher clearToolLauncher = createClearToolLauncher(listener, workspace, launcher);
+        // Record what the updates of the snapshot view load
+        UpdateManifest updateManifest = isUseDynamicView() ? null : UpdateManifest.start(build);
         // Create actions
         VariableResolver<String> variableResolver = new BuildVariableResolver(build);
 
@@ -521,19 +567,46 @@ public abstract class AbstractClearCaseScm extends SCM {
 
         boolean computeChangeLogAfterCheckout = false;
         boolean returnValue = true;
+        BackgroundTask<Boolean> changeLogTask = null;
         if (build.getPreviousBuild() != null) {
             if (checkoutAction.isViewValid(launcher, workspace, coNormalizedViewName)) {
                 // We need a valid view to determine the change log. For instance, on a new slave the view won't exist
-                returnValue = saveChangeLog(build, launcher, listener, changelogFile, clearToolLauncher, variableResolver, saveChangeLogAction,
-                        coNormalizedViewName, returnValue);
+                if (isChangeLogConcurrentWithCheckout(build)) {
+                    changeLogTask = startChangeLog(build, launcher, workspace, listener, changelogFile, variableResolver, coNormalizedViewName);
+                } else {
+                    returnValue = saveChangeLog(build, launcher, listener, changelogFile, clearToolLauncher, variableResolver, saveChangeLogAction,
+                            coNormalizedViewName, returnValue);
+                }
             } else {
                 // Otherwise, we just wait for the checkout to happen to set the view correctly.
                 computeChangeLogAfterCheckout = true;
             }
         }
-        if (!checkoutAction.checkout(launcher, workspace, coNormalizedViewName)) {
+        boolean checkedOut = false;
+        phase = PhaseProfile.enter("check out view");
+        try {
+            checkedOut = checkoutAction.checkout(launcher, workspace, coNormalizedViewName);
+        } catch (InterruptedException e) {
+            if (changeLogTask != null && changeLogTask.isFailed()) {
+                // the change log failed, and stopped the checkout: report its failure
+                changeLogTask.get();
+            }
+            throw e;
+        } finally {
+            PhaseProfile.exit(phase);
+            if (!checkedOut) {
+                abortCheckout(updateManifest, changeLogTask);
+            }
+        }
+        if (!checkedOut) {
             throw new AbortException();
         }
+        if (changeLogTask != null) {
+            returnValue = changeLogTask.get();
+        }
+        if (updateManifest != null) {
+            updateManifest.finish(build, workspace);
+        }
         if (computeChangeLogAfterCheckout) {
             returnValue = saveChangeLog(build, launcher, listener, changelogFile, clearToolLauncher, variableResolver, saveChangeLogAction,
                     coNormalizedViewName, returnValue);
@@ -542,22 +615,114 @@ public abstract class AbstractClearCaseScm extends SCM {
         return returnValue;
     }
 
+    /**
+     * Stops what runs along a checkout that failed. Failures are only logged, so that they don't hide why the checkout
+     * failed.
+     */
+    private static void abortCheckout(UpdateManifest updateManifest, BackgroundTask<?> changeLogTask) {
+        if (updateManifest != null) {
+            try {
+                updateManifest.abort();
+            } catch (IOException e) {
+                Logger.getLogger(AbstractClearCaseScm.class.getName()).log(Level.WARNING, "Failed to close the update manifest", e);
+            }
+        }
+        if (changeLogTask != null) {
+            try {
+                changeLogTask.cancel();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Tells whether the change log of the build can be computed while its view is updated, when the view is valid. The
+     * change log then comes out the same as when it is computed before the update: the history is read from the VOBs,
+     * for the same load rules as the previous build. Dynamic views are excluded, as the update changes what they show.
+     *
+     * @see ClearCaseSCM.ClearCaseScmDescriptor#isSequentialChangeLog()
+     */
+    protected boolean isChangeLogConcurrentWithCheckout(AbstractBuild<?, ?> build) {
+        if (PluginImpl.BASE_DESCRIPTOR.isSequentialChangeLog() || isUseDynamicView()) {
+            return false;
+        }
+        AbstractClearCaseSCMRevisionState revisionState = build.getAction(AbstractClearCaseSCMRevisionState.class);
+        if (revisionState == null) {
+            return false;
+        }
+        AbstractBuild<?, ?> previousBuild = build.getPreviousBuild();
+        AbstractClearCaseSCMRevisionState previousRevisionState = previousBuild == null ? null : previousBuild
+                .getAction(AbstractClearCaseSCMRevisionState.class);
+        if (previousRevisionState == null) {
+            return false;
+        }
+        return getLoadRuleSet(revisionState.getLoadRules()).equals(getLoadRuleSet(previousRevisionState.getLoadRules()));
+    }
+
+    private static Set<String> getLoadRuleSet(String[] loadRules) {
+        Set<String> set = new HashSet<String>();
+        if (loadRules != null) {
+            set.addAll(Arrays.asList(loadRules));
+        }
+        return set;
+    }
+
+    /**
+     * Starts computing the change log while the view is updated. A failure of the change log interrupts the update. The
+     * output of the change log is kept apart, and written to the build log in one piece once it is done, so that it
+     * doesn't mix with the output of the update. Its cleartool commands are recorded in the phase of the checkout.
+     */
+    private BackgroundTask<Boolean> startChangeLog(final AbstractBuild build, final Launcher launcher, final FilePath workspace,
+            final BuildListener listener, final File changelogFile, final VariableResolver<String> variableResolver, final String coNormalizedViewName) {
+        final Phase checkoutPhase = PhaseProfile.current();
+        return new BackgroundTask<Boolean>(new Callable<Boolean>() {
+            public Boolean call() throws IOException, InterruptedException {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                BuildListener changeLogListener = new StreamBuildListener(output);
+                changeLogListener.getLogger().println("Change log computed while the view is updated:");
+                ClearToolLauncher clearToolLauncher = createClearToolLauncher(changeLogListener, workspace, launcher);
+                PhaseProfile.resume(checkoutPhase);
+                try {
+                    return saveChangeLog(build, launcher, changeLogListener, changelogFile, clearToolLauncher, variableResolver,
+                            createSaveChangeLogAction(clearToolLauncher), coNormalizedViewName, true);
+                } finally {
+                    PhaseProfile.suspend();
+                    changeLogListener.getLogger().flush();
+                    // a single write, which the output of the update doesn't split
+                    byte[] bytes = output.toByteArray();
+                    listener.getLogger().write(bytes, 0, bytes.length);
+                }
+            }
+        }).startFailingFast(Computer.threadPoolForRemoting);
+    }
+
     private boolean saveChangeLog(AbstractBuild build, Launcher launcher, BuildListener listener, File changelogFile, ClearToolLauncher clearToolLauncher,
             VariableResolver<String> variableResolver, SaveChangeLogAction saveChangeLogAction, String coNormalizedViewName, boolean returnValue)
             throws IOException, InterruptedException {
-        List<? extends ChangeLogSet.Entry> changelogEntries;
-        @SuppressWarnings("unchecked") Run prevBuild = build.getPreviousBuild();
-        Date lastBuildTime = getBuildTime(prevBuild);
-        HistoryAction historyAction = createHistoryAction(variableResolver, clearToolLauncher, build);
-        changelogEntries = historyAction.getChanges(lastBuildTime, getViewPath(variableResolver), coNormalizedViewName, getBranchNames(variableResolver), getViewPaths(variableResolver, build, launcher));
-        // Save change log
-        if (CollectionUtils.isEmpty(changelogEntries)) {
-            // no changes
-            returnValue = createEmptyChangeLog(changelogFile, listener, "changelog");
-        } else {
-            saveChangeLogAction.saveChangeLog(changelogFile, changelogEntries);
+        Phase changeLogPhase = PhaseProfile.enter("change log");
+        try {
+            List<? extends ChangeLogSet.Entry> changelogEntries;
+            @SuppressWarnings("unchecked") Run prevBuild = build.getPreviousBuild();
+            Date lastBuildTime = getBuildTime(prevBuild);
+            HistoryAction historyAction = createHistoryAction(variableResolver, clearToolLauncher, build);
+            changelogEntries = historyAction.getChanges(lastBuildTime, getViewPath(variableResolver), coNormalizedViewName, getBranchNames(variableResolver), getViewPaths(variableResolver, build, launcher));
+            // Save change log
+            Phase phase = PhaseProfile.enter("write change log");
+            try {
+                if (CollectionUtils.isEmpty(changelogEntries)) {
+                    // no changes
+                    returnValue = createEmptyChangeLog(changelogFile, listener, "changelog");
+                } else {
+                    saveChangeLogAction.saveChangeLog(changelogFile, changelogEntries);
+                }
+            } finally {
+                PhaseProfile.exit(phase);
+            }
+            return returnValue;
+        } finally {
+            PhaseProfile.exit(changeLogPhase);
         }
-        return returnValue;
     }
 
     @Override
@@ -567,6 +732,27 @@ public abstract class AbstractClearCaseScm extends SCM {
             return PollingResult.BUILD_NOW;
         }
         AbstractClearCaseSCMRevisionState ccBaseline = (AbstractClearCaseSCMRevisionState) baseline;
+        PollActivity activity = PollActivity.getInstance();
+        long maxStaleness = PluginImpl.BASE_DESCRIPTOR.getPollMaxStaleness() * 60 * 1000L;
+        String skipReason = activity.getSkipReason(project.getFullName(), ccBaseline.getBuildTime(), maxStaleness, System.currentTimeMillis());
+        if (skipReason != null) {
+            listener.getLogger().println(skipReason);
+            // keep the baseline, so that the next scan covers everything since its build time
+            return new PollingResult(baseline, baseline, Change.NONE);
+        }
+        PollingResult result = scanForChanges(project, launcher, workspace, listener, ccBaseline);
+        activity.recordScan(project.getFullName(), ccBaseline.getBuildTime(), result.hasChanges(), System.currentTimeMillis());
+        return result;
+    }
+
+    /**
+     * Scans the history for changes since the baseline, once polling decided to.
+     */
+    protected PollingResult scanForChanges(AbstractProject<?, ?> project, Launcher launcher, FilePath workspace, TaskListener listener,
+            AbstractClearCaseSCMRevisionState ccBaseline) throws IOException, InterruptedException {
+        if (workspace == null) {
+            return compareWithPollView(project, listener, ccBaseline);
+        }
 
         AbstractBuild<?, ?> build = project.getSomeBuildWithWorkspace();
         if (build == null) {
@@ -585,7 +771,66 @@ public abstract class AbstractClearCaseScm extends SCM {
         } else {
             change = Change.NONE;
         }
-        return new PollingResult(baseline, calcRevisionsFromPoll(build, launcher, listener), change);
+        return new PollingResult(ccBaseline, calcRevisionsFromPoll(build, launcher, listener), change);
+    }
+
+    /**
+     * Polls in the poll view of the job, on the poll node, when polling doesn't use the workspace.
+     */
+    private PollingResult compareWithPollView(AbstractProject<?, ?> project, TaskListener listener, AbstractClearCaseSCMRevisionState baseline)
+            throws IOException, InterruptedException {
+        AbstractBuild<?, ?> build = project.getLastBuild();
+        if (build == null) {
+            return PollingResult.BUILD_NOW;
+        }
+        PollView pollView = PollView.get(listener);
+        if (pollView == null) {
+            listener.getLogger().println("The poll node is offline, polling again later");
+            return new PollingResult(baseline, baseline, Change.NONE);
+        }
+        VariableResolver<String> variableResolver = new BuildVariableResolver(build);
+        PollView.PollViewLauncher clearToolLauncher = (PollView.PollViewLauncher) pollView.createClearToolLauncher(getDescriptor().getDisplayName(),
+                getViewDrive());
+        String viewTag = preparePollView(pollView, createClearTool(variableResolver, clearToolLauncher), variableResolver, clearToolLauncher.isUnix());
+        clearToolLauncher.setViewTag(viewTag);
+        HistoryAction historyAction = createHistoryAction(variableResolver, clearToolLauncher, build);
+        if (historyAction instanceof AbstractHistoryAction) {
+            // the jobs polling the same branches or stream share the poll view, and can share its history
+            ((AbstractHistoryAction) historyAction).setCoalesced(true);
+        }
+        Change change;
+        if (historyAction.hasChanges(baseline.getBuildTime(), viewTag, viewTag, getBranchNames(variableResolver), baseline.getLoadRules())) {
+            change = Change.SIGNIFICANT;
+        } else {
+            change = Change.NONE;
+        }
+        return new PollingResult(baseline, calcRevisionsFromPoll(build, pollView.getLauncher(), listener), change);
+    }
+
+    /**
+     * Creates the poll view the history of the job is read in, if it doesn't exist yet, and starts it.
+     *
+     * @return the tag of the poll view
+     */
+    protected abstract String preparePollView(PollView pollView, ClearTool clearTool, VariableResolver<String> variableResolver, boolean isUnix)
+            throws IOException, InterruptedException;
+
+    /**
+     * Tells whether a change notified by a ClearCase trigger can be seen by the job, from its branches and the load
+     * rules of its last build.
+     *
+     * @param build the last build of the job, null if it never ran
+     */
+    public boolean isAffectedBy(ChangeNotification notification, AbstractBuild<?, ?> build) {
+        if (build == null) {
+            return true;
+        }
+        VariableResolver<String> variableResolver = new BuildVariableResolver(build);
+        if (!notification.matchesBranch(getBranchNames(variableResolver))) {
+            return false;
+        }
+        AbstractClearCaseSCMRevisionState revisionState = build.getAction(AbstractClearCaseSCMRevisionState.class);
+        return notification.matchesPaths(revisionState == null ? null : revisionState.getLoadRules());
     }
 
     protected abstract boolean isFirstBuild(SCMRevisionState baseline);
@@ -614,11 +859,21 @@ public abstract class AbstractClearCaseScm extends SCM {
     }
 
     protected ClearTool createClearTool(VariableResolver<String> variableResolver, ClearToolLauncher launcher) {
-        if (isUseDynamicView()) {
-            return new ClearToolDynamic(variableResolver, launcher, getViewDrive(), getMkviewOptionalParam());
+        ClearToolExec clearTool;
+        if (launcher instanceof PollView.PollViewLauncher) {
+            clearTool = new ClearToolDynamic(variableResolver, launcher, ((PollView.PollViewLauncher) launcher).getViewDrive(), null);
+        } else if (isUseDynamicView()) {
+            clearTool = new ClearToolDynamic(variableResolver, launcher, getViewDrive(), getMkviewOptionalParam());
         } else {
-            return new ClearToolSnapshot(variableResolver, launcher, mkviewOptionalParam);
+            clearTool = new ClearToolSnapshot(variableResolver, launcher, mkviewOptionalParam);
+        }
+        if (variableResolver instanceof BuildVariableResolver) {
+            // share what is known about the views between the actions of the build
+            AbstractBuild<?, ?> build = ((BuildVariableResolver) variableResolver).getBuild();
+            clearTool.setViewState(ViewState.get(build));
+            clearTool.setUpdateManifest(UpdateManifest.getRecording(build));
         }
+        return clearTool;
     }
 
     @Override
@@ -627,13 +882,13 @@ public abstract class AbstractClearCaseScm extends SCM {
             // HUDSON-7663 : deleting a job that has never run
             return true;
         }
+        if (isUseDynamicView() && !isCreateDynView()) {
+            return true;
+        }
         StreamTaskListener listener = StreamTaskListener.fromStdout();
         Launcher launcher = node.createLauncher(listener);
         ClearTool ct = createClearTool(null, createClearToolLauncher(listener, project.getSomeWorkspace().getParent().getParent(), launcher));
         try {
-            if (isUseDynamicView() && !isCreateDynView()) {
-                return true;
-            }
             AbstractBuild<?, ?> latestBuildOnNode = null;
             for(AbstractBuild<?, ?> build : project.getBuilds()) {
                 if (node.equals(build.getBuiltOn())) {
@@ -645,6 +900,12 @@ public abstract class AbstractClearCaseScm extends SCM {
                 latestBuildOnNode = project.getLastBuild();
             }
             BuildVariableResolver buildVariableResolver = new BuildVariableResolver(latestBuildOnNode);
+            ViewCleanupService cleanupService = ViewCleanupService.getInstance();
+            if (cleanupService != null) {
+                // the workspace is deleted right after, only the tag is left to remove
+                cleanupService.submit(CleanupTask.removeViewTag(node.getNodeName(), resolveViewTag(buildVariableResolver)));
+                return true;
+            }
             ct.rmviewtag(generateNormalizedViewName(buildVariableResolver));
         } catch (Exception e) {
             Logger.getLogger(AbstractClearCaseScm.class.getName()).log(Level.WARNING, "Failed to remove ClearCase view", e);
@@ -757,6 +1018,9 @@ public abstract class AbstractClearCaseScm extends SCM {
     protected void setExtendedViewPath(VariableResolver<String> variableResolver, ClearTool ct, AbstractHistoryAction action) {
         try {
             String viewPath = getViewPath(variableResolver);
+            if (ct.getLauncher() instanceof PollView.PollViewLauncher) {
+                viewPath = ((PollView.PollViewLauncher) ct.getLauncher()).getViewTag();
+            }
             String pwv = ct.pwv(viewPath);
             if (pwv != null) {
                 if (pwv.contains("/")) {
@@ -0,0 +1,164 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.plugins.clearcase.util.CompactChangeLog;
+import hudson.scm.ChangeLogParser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Converts the xml change logs of all the builds of ClearCase jobs to the compact binary format, on a background
+ * thread. Only one migration runs at a time; its progress is reported by {@link #toString()}.
+ */
+public class ChangeLogMigration implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(ChangeLogMigration.class.getName());
+
+    private static ChangeLogMigration current;
+
+    private final List<AbstractProject<?, ?>> projects = new ArrayList<AbstractProject<?, ?>>();
+    private final long startTime = System.currentTimeMillis();
+    private int projectsDone;
+    private int builds;
+    private int migrated;
+    private int failed;
+    private boolean done;
+    private long endTime;
+
+    ChangeLogMigration(List<AbstractProject<?, ?>> projects) {
+        this.projects.addAll(projects);
+    }
+
+    /**
+     * Starts migrating the change logs of the ClearCase jobs, unless a migration is running already.
+     *
+     * @return the running migration
+     */
+    public static synchronized ChangeLogMigration start() {
+        if (current == null || current.isDone()) {
+            List<AbstractProject<?, ?>> projects = new ArrayList<AbstractProject<?, ?>>();
+            for (AbstractProject<?, ?> project : Hudson.getInstance().getAllItems(AbstractProject.class)) {
+                if (project.getScm() instanceof AbstractClearCaseScm) {
+                    projects.add(project);
+                }
+            }
+            current = new ChangeLogMigration(projects);
+            Thread thread = new Thread(current, "ClearCase change log migration");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return current;
+    }
+
+    /**
+     * @return the last migration started, or null if none was
+     */
+    public static synchronized ChangeLogMigration getCurrent() {
+        return current;
+    }
+
+    public void run() {
+        try {
+            for (AbstractProject<?, ?> project : projects) {
+                migrate(project);
+                synchronized (this) {
+                    projectsDone++;
+                }
+            }
+        } finally {
+            synchronized (this) {
+                done = true;
+                endTime = System.currentTimeMillis();
+            }
+            LOGGER.info(toString());
+        }
+    }
+
+    private void migrate(AbstractProject<?, ?> project) {
+        ChangeLogParser parser = project.getScm().createChangeLogParser();
+        if (!(parser instanceof CompactChangeLog.Migrator)) {
+            return;
+        }
+        CompactChangeLog.Migrator migrator = (CompactChangeLog.Migrator) parser;
+        for (AbstractBuild<?, ?> build : project.getBuilds()) {
+            File changeLogFile = new File(build.getRootDir(), "changelog.xml");
+            boolean converted = false;
+            boolean error = false;
+            try {
+                converted = migrator.migrate(build, changeLogFile);
+            } catch (IOException e) {
+                error = true;
+                LOGGER.log(Level.WARNING, "Could not migrate " + changeLogFile, e);
+            } catch (SAXException e) {
+                error = true;
+                LOGGER.log(Level.WARNING, "Could not migrate " + changeLogFile, e);
+            } catch (RuntimeException e) {
+                // a corrupt change log or a bug must not stop the migration of the other builds
+                error = true;
+                LOGGER.log(Level.WARNING, "Could not migrate " + changeLogFile, e);
+            }
+            synchronized (this) {
+                builds++;
+                if (converted) {
+                    migrated++;
+                }
+                if (error) {
+                    failed++;
+                }
+            }
+        }
+    }
+
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    public synchronized int getMigratedCount() {
+        return migrated;
+    }
+
+    public synchronized int getFailedCount() {
+        return failed;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long duration = (done ? endTime : System.currentTimeMillis()) - startTime;
+        return (done ? "Change log migration done" : "Change log migration running") + ": " + projectsDone + "/" + projects.size() + " jobs, "
+                + builds + " builds checked, " + migrated + " change logs migrated to the compact format, " + failed + " failed, in "
+                + duration / 1000 + " s";
+    }
+}
@@ -25,6 +25,7 @@
 package hudson.plugins.clearcase;
 
 import hudson.model.User;
+import hudson.plugins.clearcase.util.ChangeLogPaging;
 import hudson.scm.ChangeLogSet;
 import hudson.scm.EditType;
 
@@ -75,11 +76,30 @@ public class ClearCaseChangeLogEntry extends ChangeLogSet.Entry {
         this.files.addAll(files);
     }
 
-    @Exported
     public List<FileElement> getElements() {
         return files;
     }
 
+    /**
+     * The elements exported by the remote API. The <code>fileStart</code> and <code>fileLimit</code> query parameters
+     * can be used to page through entries with many elements.
+     */
+    @Exported(name = "elements")
+    public List<FileElement> getExportedElements() {
+        return ChangeLogPaging.getExportedRange(files, "fileStart", "fileLimit");
+    }
+
+    /**
+     * @return the elements rendered with the entry, the others are only loaded when expanded
+     */
+    public List<FileElement> getInlineElements() {
+        return ChangeLogPaging.getInlineFiles(files);
+    }
+
+    public boolean isElementsTruncated() {
+        return files.size() > ChangeLogPaging.INLINE_FILE_LIMIT;
+    }
+
     public String getComment() {
         return comment;
     }
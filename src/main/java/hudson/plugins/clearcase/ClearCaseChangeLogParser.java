@@ -25,6 +25,8 @@
 package hudson.plugins.clearcase;
 
 import hudson.model.AbstractBuild;
+import hudson.plugins.clearcase.util.ChangeLogSetCache;
+import hudson.plugins.clearcase.util.CompactChangeLog;
 import hudson.scm.ChangeLogParser;
 import hudson.scm.ChangeLogSet;
 
@@ -38,9 +40,17 @@ import org.xml.sax.SAXException;
  * 
  * @author Erik Ramfelt
  */
-public class ClearCaseChangeLogParser extends ChangeLogParser {
+public class ClearCaseChangeLogParser extends ChangeLogParser implements CompactChangeLog.Migrator {
     @Override
-    public ChangeLogSet<ClearCaseChangeLogEntry> parse(@SuppressWarnings("unchecked") AbstractBuild build, File changelogFile) throws IOException, SAXException {
-        return ClearCaseChangeLogSet.parse(build, changelogFile);
+    public ChangeLogSet<ClearCaseChangeLogEntry> parse(@SuppressWarnings("unchecked") final AbstractBuild build, final File changelogFile) throws IOException, SAXException {
+        return ChangeLogSetCache.getInstance().get(build, changelogFile, new ChangeLogSetCache.Loader<ClearCaseChangeLogSet>() {
+            public ClearCaseChangeLogSet load() throws IOException, SAXException {
+                return ClearCaseChangeLogSet.parse(build, changelogFile);
+            }
+        });
+    }
+
+    public boolean migrate(AbstractBuild<?, ?> build, File changeLogFile) throws IOException, SAXException {
+        return ClearCaseChangeLogSet.migrateToCompact(changeLogFile);
     }
 }
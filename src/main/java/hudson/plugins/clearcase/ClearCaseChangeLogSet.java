@@ -25,6 +25,9 @@
 package hudson.plugins.clearcase;
 
 import hudson.model.AbstractBuild;
+import hudson.plugins.clearcase.util.ChangeLogPaging;
+import hudson.plugins.clearcase.util.ChangeLogSetCache;
+import hudson.plugins.clearcase.util.CompactChangeLog;
 import hudson.scm.ChangeLogSet;
 
 import java.io.File;
@@ -39,6 +42,7 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.digester.Digester;
+import org.kohsuke.stapler.export.Exported;
 import org.xml.sax.SAXException;
 
 /**
@@ -46,7 +50,7 @@ import org.xml.sax.SAXException;
  * 
  * @author Erik Ramfelt
  */
-public class ClearCaseChangeLogSet extends ChangeLogSet<ClearCaseChangeLogEntry> {
+public class ClearCaseChangeLogSet extends ChangeLogSet<ClearCaseChangeLogEntry> implements ChangeLogSetCache.Sized {
 
     static final String[] TAGS = new String[] { "user", "comment", "date" };
 
@@ -60,6 +64,24 @@ public class ClearCaseChangeLogSet extends ChangeLogSet<ClearCaseChangeLogEntry>
         this.history = Collections.unmodifiableList(logs);
     }
 
+    /**
+     * Creates a set over a compact change log file, whose entries are only decoded when accessed.
+     */
+    private ClearCaseChangeLogSet(AbstractBuild<?, ?> build, File compactChangeLogFile) throws IOException {
+        super(build);
+        this.history = CompactChangeLog.openList(compactChangeLogFile, new CompactChangeLog.Codec<ClearCaseChangeLogEntry>() {
+            public void write(ClearCaseChangeLogEntry entry, CompactChangeLog.EntryOutput out) throws IOException {
+                CODEC.write(entry, out);
+            }
+
+            public ClearCaseChangeLogEntry read(CompactChangeLog.EntryInput in) throws IOException {
+                ClearCaseChangeLogEntry entry = CODEC.read(in);
+                entry.setParent(ClearCaseChangeLogSet.this);
+                return entry;
+            }
+        });
+    }
+
     @Override
     public boolean isEmptySet() {
         return history.size() == 0;
@@ -73,6 +95,49 @@ public class ClearCaseChangeLogSet extends ChangeLogSet<ClearCaseChangeLogEntry>
         return history;
     }
 
+    /**
+     * The entries exported by the remote API. The <code>start</code> and <code>limit</code> query parameters can be
+     * used to page through large change logs.
+     */
+    @Exported(name = "logs")
+    public List<ClearCaseChangeLogEntry> getExportedLogs() {
+        return ChangeLogPaging.getExportedRange(history, "start", "limit");
+    }
+
+    public int size() {
+        return history.size();
+    }
+
+    public int getPageSize() {
+        return ChangeLogPaging.PAGE_SIZE;
+    }
+
+    public int getPageCount() {
+        return ChangeLogPaging.getPageCount(history.size());
+    }
+
+    public int getPageOf(int index) {
+        return ChangeLogPaging.getPageOf(index);
+    }
+
+    public int toPage(String value) {
+        return ChangeLogPaging.toPage(value, history.size());
+    }
+
+    public List<ClearCaseChangeLogEntry> getPage(int page) {
+        return ChangeLogPaging.getPage(history, page);
+    }
+
+    /**
+     * Used by the change log views to expand a single entry on demand.
+     * 
+     * @param index the index of the entry in the change log
+     * @return the entry, or null if there is no such entry
+     */
+    public ClearCaseChangeLogEntry getEntry(int index) {
+        return index >= 0 && index < history.size() ? history.get(index) : null;
+    }
+
     /**
      * Parses the change log file and returns a ClearCase change log set.
      * 
@@ -81,6 +146,9 @@ public class ClearCaseChangeLogSet extends ChangeLogSet<ClearCaseChangeLogEntry>
      * @return the change log set
      */
     public static ClearCaseChangeLogSet parse(AbstractBuild<?, ?> build, File changeLogFile) throws IOException, SAXException {
+        if (CompactChangeLog.isCompact(changeLogFile)) {
+            return new ClearCaseChangeLogSet(build, changeLogFile);
+        }
         FileInputStream fileInputStream = new FileInputStream(changeLogFile);
         ClearCaseChangeLogSet logSet = parse(build, fileInputStream);
         fileInputStream.close();
@@ -171,6 +239,61 @@ public class ClearCaseChangeLogSet extends ChangeLogSet<ClearCaseChangeLogEntry>
         stream.close();
     }
 
+    /**
+     * Stores the history objects to the output stream in the compact binary format
+     * 
+     * @param outputStream the stream to write to
+     * @param history the history objects to store
+     * @throws IOException
+     * @see CompactChangeLog
+     */
+    public static void saveToCompactChangeLog(OutputStream outputStream, List<ClearCaseChangeLogEntry> history) throws IOException {
+        CompactChangeLog.write(outputStream, history, CODEC);
+    }
+
+    /**
+     * Rewrites a legacy xml change log file in the compact binary format.
+     * 
+     * @param changeLogFile the change log file
+     * @return true if the file has been rewritten, false if it doesn't exist or is already compact
+     */
+    public static boolean migrateToCompact(File changeLogFile) throws IOException, SAXException {
+        if (!changeLogFile.isFile() || CompactChangeLog.isCompact(changeLogFile)) {
+            return false;
+        }
+        ClearCaseChangeLogSet logSet = parse(null, changeLogFile);
+        CompactChangeLog.replace(changeLogFile, logSet.getLogs(), CODEC);
+        return true;
+    }
+
+    static final CompactChangeLog.Codec<ClearCaseChangeLogEntry> CODEC = new CompactChangeLog.Codec<ClearCaseChangeLogEntry>() {
+        public void write(ClearCaseChangeLogEntry entry, CompactChangeLog.EntryOutput out) throws IOException {
+            out.writeString(entry.getUser());
+            out.writeString(entry.getComment());
+            out.writeString(entry.getDateStr());
+            List<ClearCaseChangeLogEntry.FileElement> elements = entry.getElements();
+            out.writeInt(elements.size());
+            for (ClearCaseChangeLogEntry.FileElement element : elements) {
+                out.writeString(element.getFile());
+                out.writeString(element.getVersion());
+                out.writeString(element.getAction());
+                out.writeString(element.getOperation());
+            }
+        }
+
+        public ClearCaseChangeLogEntry read(CompactChangeLog.EntryInput in) throws IOException {
+            ClearCaseChangeLogEntry entry = new ClearCaseChangeLogEntry();
+            entry.setUser(in.readString());
+            entry.setComment(in.readString());
+            entry.setDateStr(in.readString());
+            int elementCount = in.readInt();
+            for (int i = 0; i < elementCount; i++) {
+                entry.addElement(new ClearCaseChangeLogEntry.FileElement(in.readString(), in.readString(), in.readString(), in.readString()));
+            }
+            return entry;
+        }
+    };
+
     private static String[] getEntryAsStrings(ClearCaseChangeLogEntry entry) {
         String[] array = new String[TAGS.length];
         array[0] = entry.getUser();
@@ -117,7 +117,9 @@ public class ClearCaseInstallation extends ToolInstallation implements NodeSpeci
                             ClearCaseInstallation.class,
                             formData.get("clearcaseinstall")).toArray(new ClearCaseInstallation[0]));
             save();
-            
+            // the path of cleartool may have changed on any node
+            NodeCapabilities.invalidateAll();
+
             return true;
         }
 
@@ -180,6 +182,54 @@ public class ClearCaseInstallation extends ToolInstallation implements NodeSpeci
         public int getLogMergeTimeWindow() {
             return getCCDescriptor().getLogMergeTimeWindow();
         }
+
+        public boolean isCompactChangeLog() {
+            return getCCDescriptor().isCompactChangeLog();
+        }
+
+        public boolean isSequentialChangeLog() {
+            return getCCDescriptor().isSequentialChangeLog();
+        }
+
+        public int getChangeLogCacheSize() {
+            return getCCDescriptor().getChangeLogCacheSize();
+        }
+
+        public int getStreamCacheRefreshInterval() {
+            return getCCDescriptor().getStreamCacheRefreshInterval();
+        }
+
+        public int getFullScanInterval() {
+            return getCCDescriptor().getFullScanInterval();
+        }
+
+        public int getViewPoolSize() {
+            return getCCDescriptor().getViewPoolSize();
+        }
+
+        public int getViewPoolMaxIdle() {
+            return getCCDescriptor().getViewPoolMaxIdle();
+        }
+
+        public int getViewPoolDiskQuota() {
+            return getCCDescriptor().getViewPoolDiskQuota();
+        }
+
+        public boolean isViewGarbageCollection() {
+            return getCCDescriptor().isViewGarbageCollection();
+        }
+
+        public String getPollNode() {
+            return getCCDescriptor().getPollNode();
+        }
+
+        public String getNotificationSpool() {
+            return getCCDescriptor().getNotificationSpool();
+        }
+
+        public int getPollMaxStaleness() {
+            return getCCDescriptor().getPollMaxStaleness();
+        }
         
         // Keep a ref to descriptor to avoid init each time
         private transient ClearCaseScmDescriptor desc;
@@ -46,7 +46,14 @@ import hudson.plugins.clearcase.history.Filter;
 import hudson.plugins.clearcase.history.FilterChain;
 import hudson.plugins.clearcase.history.HistoryAction;
 import hudson.plugins.clearcase.history.LabelFilter;
+import hudson.plugins.clearcase.notification.ChangeNotification;
+import hudson.plugins.clearcase.notification.ChangeNotifier;
+import hudson.plugins.clearcase.ucm.UcmStreamCache;
 import hudson.plugins.clearcase.util.BuildVariableResolver;
+import hudson.plugins.clearcase.util.ChangeLogSetCache;
+import hudson.plugins.clearcase.util.CompactChangeLog;
+import hudson.plugins.clearcase.util.PathUtil;
+import hudson.plugins.clearcase.viewpool.ViewPool;
 import hudson.plugins.clearcase.viewstorage.ViewStorage;
 import hudson.plugins.clearcase.viewstorage.ViewStorageFactory;
 import hudson.scm.ChangeLogParser;
@@ -68,6 +75,7 @@ import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
 
 import net.sf.json.JSONObject;
 
@@ -168,6 +176,16 @@ public class ClearCaseSCM extends AbstractClearCaseScm {
         return action;
     }
 
+    @Override
+    protected String preparePollView(PollView pollView, ClearTool clearTool, VariableResolver<String> variableResolver, boolean isUnix)
+            throws IOException, InterruptedException {
+        ViewStorage viewStorage = getViewStorageFactory().create(variableResolver, isUnix, getViewName(variableResolver));
+        // the poll view is dynamic, it has no use for the load rules
+        ConfigSpec pollConfigSpec = new ConfigSpec(Util.replaceMacro(configSpec, variableResolver), isUnix).stripLoadRules();
+        return pollView.prepareBranchView(clearTool, getBranchNames(variableResolver), PathUtil.convertPathForOS(pollConfigSpec.getRaw(), isUnix),
+                viewStorage);
+    }
+
     @Override
     protected HistoryAction createHistoryAction(VariableResolver<String> variableResolver, ClearToolLauncher launcher, AbstractBuild<?, ?> build) throws IOException, InterruptedException {
         ClearTool ct = createClearTool(variableResolver, launcher);
@@ -180,7 +198,7 @@ public class ClearCaseSCM extends AbstractClearCaseScm {
 
     @Override
     protected SaveChangeLogAction createSaveChangeLogAction(ClearToolLauncher launcher) {
-        return new BaseSaveChangeLogAction();
+        return new BaseSaveChangeLogAction(getDescriptor().isCompactChangeLog());
     }
 
     /**
@@ -223,8 +241,22 @@ public class ClearCaseSCM extends AbstractClearCaseScm {
      */
     public static class ClearCaseScmDescriptor extends SCMDescriptor<ClearCaseSCM> implements ModelObject {
         private static final int DEFAULT_CHANGE_LOG_MERGE_TIME_WINDOW = 5;
+        private static final int DEFAULT_FULL_SCAN_INTERVAL = 0;
+        private static final int DEFAULT_VIEW_POOL_MAX_IDLE = (int) (ViewPool.DEFAULT_MAX_IDLE / (60 * 60 * 1000));
 
         private int changeLogMergeTimeWindow = DEFAULT_CHANGE_LOG_MERGE_TIME_WINDOW;
+        private boolean compactChangeLog;
+        private boolean sequentialChangeLog;
+        private Integer changeLogCacheEntries;
+        private Integer streamCacheRefreshInterval;
+        private Integer fullScanInterval;
+        private int viewPoolSize;
+        private Integer viewPoolMaxIdle;
+        private int viewPoolDiskQuota;
+        private boolean viewGarbageCollection;
+        private String pollNode;
+        private String notificationSpool;
+        private int pollMaxStaleness;
         private String defaultViewName;
         private String defaultViewPath;
         private String defaultWinDynStorageDir;
@@ -236,12 +268,131 @@ public class ClearCaseSCM extends AbstractClearCaseScm {
         public ClearCaseScmDescriptor() {
             super(ClearCaseSCM.class, null);
             load();
+            ChangeLogSetCache.getInstance().setMaxWeight(getChangeLogCacheSize());
+            UcmStreamCache.getInstance().setRefreshInterval(getStreamCacheRefreshInterval() * 1000L);
+            configureViewPool();
         }
 
         public int getLogMergeTimeWindow() {
             return changeLogMergeTimeWindow;
         }
 
+        /**
+         * @return true if new change logs are stored in the compact binary format
+         * @see CompactChangeLog
+         */
+        public boolean isCompactChangeLog() {
+            return compactChangeLog;
+        }
+
+        /**
+         * @return true if the change log of a build is computed before its view is updated, rather than meanwhile
+         * @see AbstractClearCaseScm#isChangeLogConcurrentWithCheckout(AbstractBuild)
+         */
+        public boolean isSequentialChangeLog() {
+            return sequentialChangeLog;
+        }
+
+        /**
+         * @return the maximum count of change log entries whose parsed content is kept in memory
+         * @see ChangeLogSetCache
+         */
+        public int getChangeLogCacheSize() {
+            if (changeLogCacheEntries == null) {
+                return (int) ChangeLogSetCache.DEFAULT_MAX_WEIGHT;
+            }
+            return changeLogCacheEntries;
+        }
+
+        public ChangeLogSetCache getChangeLogCache() {
+            return ChangeLogSetCache.getInstance();
+        }
+
+        /**
+         * @return the time in seconds UCM stream metadata is shared between jobs before being queried again
+         * @see UcmStreamCache
+         */
+        public int getStreamCacheRefreshInterval() {
+            if (streamCacheRefreshInterval == null) {
+                return (int) (UcmStreamCache.DEFAULT_REFRESH_INTERVAL / 1000);
+            }
+            return streamCacheRefreshInterval;
+        }
+
+        /**
+         * @return the maximum time in minutes UCM polling relies on the stream fingerprint without scanning the history
+         *         of the load rules. 0 means the history is always scanned.
+         */
+        public int getFullScanInterval() {
+            if (fullScanInterval == null) {
+                return DEFAULT_FULL_SCAN_INTERVAL;
+            }
+            return fullScanInterval;
+        }
+
+        /**
+         * @return the number of UCM snapshot views kept ready per stream on each node, 0 if views aren't pooled
+         * @see ViewPool
+         */
+        public int getViewPoolSize() {
+            return viewPoolSize;
+        }
+
+        /**
+         * @return the time in hours after which the pooled views of a stream that wasn't requested are removed
+         */
+        public int getViewPoolMaxIdle() {
+            if (viewPoolMaxIdle == null) {
+                return DEFAULT_VIEW_POOL_MAX_IDLE;
+            }
+            return viewPoolMaxIdle;
+        }
+
+        /**
+         * @return the maximum size in MB of the pooled views of a node, 0 for no limit
+         */
+        public int getViewPoolDiskQuota() {
+            return viewPoolDiskQuota;
+        }
+
+        /**
+         * @return true if the view tags left behind by removed jobs should be looked for and removed once a day
+         * @see hudson.plugins.clearcase.cleanup.ViewCleanupService#collectGarbage(hudson.model.TaskListener)
+         */
+        public boolean isViewGarbageCollection() {
+            return viewGarbageCollection;
+        }
+
+        /**
+         * @return the name of the node to poll on without a workspace, "master" for the master, null to poll in the
+         *         workspace of the jobs
+         * @see PollView
+         */
+        public String getPollNode() {
+            return pollNode;
+        }
+
+        /**
+         * @return the directory on the master ClearCase triggers drop their change notifications in, null if none
+         * @see hudson.plugins.clearcase.notification.ChangeNotificationSpool
+         */
+        public String getNotificationSpool() {
+            return notificationSpool;
+        }
+
+        /**
+         * @return the maximum time in minutes the history scans of the jobs without recent changes can be spaced out to,
+         *         0 to scan at every poll
+         * @see PollActivity
+         */
+        public int getPollMaxStaleness() {
+            return pollMaxStaleness;
+        }
+
+        private void configureViewPool() {
+            ViewPool.getInstance().setConfiguration(getViewPoolSize(), getViewPoolMaxIdle() * 60 * 60 * 1000L, getViewPoolDiskQuota() * 1024L * 1024L);
+        }
+
         public String getCleartoolExe() {
             String cleartoolExe;
             try {
@@ -253,7 +404,7 @@ public class ClearCaseSCM extends AbstractClearCaseScm {
         }
 
         public String getCleartoolExe(Node node, TaskListener listener) throws IOException, InterruptedException {
-            return Hudson.getInstance().getDescriptorByType(ClearCaseInstallation.DescriptorImpl.class).getInstallation().getCleartoolExe(node, listener);
+            return NodeCapabilities.get(node, listener).getCleartoolExe();
         }
 
         public String getDefaultViewName() {
@@ -287,6 +438,24 @@ public class ClearCaseSCM extends AbstractClearCaseScm {
             defaultViewPath = fixEmpty(req.getParameter("clearcase.defaultViewPath").trim());
             defaultWinDynStorageDir = fixEmpty(req.getParameter("clearcase.defaultWinDynStorageDir").trim());
             defaultUnixDynStorageDir = fixEmpty(req.getParameter("clearcase.defaultUnixDynStorageDir").trim());
+            compactChangeLog = req.getParameter("clearcase.compactChangeLog") != null;
+            sequentialChangeLog = req.getParameter("clearcase.sequentialChangeLog") != null;
+            changeLogCacheEntries = parseNonNegative(req.getParameter("clearcase.changeLogCacheSize"));
+            ChangeLogSetCache.getInstance().setMaxWeight(getChangeLogCacheSize());
+            streamCacheRefreshInterval = parseNonNegative(req.getParameter("clearcase.streamCacheRefreshInterval"));
+            UcmStreamCache.getInstance().setRefreshInterval(getStreamCacheRefreshInterval() * 1000L);
+            fullScanInterval = parseNonNegative(req.getParameter("clearcase.fullScanInterval"));
+            Integer poolSize = parseNonNegative(req.getParameter("clearcase.viewPoolSize"));
+            viewPoolSize = poolSize == null ? 0 : poolSize;
+            viewPoolMaxIdle = parseNonNegative(req.getParameter("clearcase.viewPoolMaxIdle"));
+            Integer diskQuota = parseNonNegative(req.getParameter("clearcase.viewPoolDiskQuota"));
+            viewPoolDiskQuota = diskQuota == null ? 0 : diskQuota;
+            configureViewPool();
+            viewGarbageCollection = req.getParameter("clearcase.viewGarbageCollection") != null;
+            pollNode = fixEmptyAndTrim(req.getParameter("clearcase.pollNode"));
+            notificationSpool = fixEmptyAndTrim(req.getParameter("clearcase.notificationSpool"));
+            Integer maxStaleness = parseNonNegative(req.getParameter("clearcase.pollMaxStaleness"));
+            pollMaxStaleness = maxStaleness == null ? 0 : maxStaleness;
 
             String mergeTimeWindow = fixEmpty(req.getParameter("clearcase.logmergetimewindow"));
             if (mergeTimeWindow != null) {
@@ -302,6 +471,18 @@ public class ClearCaseSCM extends AbstractClearCaseScm {
             return true;
         }
 
+        private static Integer parseNonNegative(String value) {
+            value = fixEmptyAndTrim(value);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return Math.max(0, DecimalFormat.getIntegerInstance().parse(value).intValue());
+            } catch (ParseException e) {
+                return null;
+            }
+        }
+
         @Override
         public SCM newInstance(StaplerRequest req, JSONObject formData) throws FormException {
             ViewStorageFactory viewStorageFactory = req.bindJSON(ViewStorageFactory.class, formData.getJSONObject("viewStorage"));
@@ -407,6 +588,57 @@ public class ClearCaseSCM extends AbstractClearCaseScm {
             baos.writeTo(rsp.getOutputStream());
         }
 
+        /**
+         * Starts converting the xml change logs of all the builds of ClearCase jobs to the compact binary format, in
+         * the background. As it rewrites files, it must be requested by a POST.
+         */
+        public void doMigrateChangeLogs(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+            Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+            if (!"POST".equals(req.getMethod())) {
+                rsp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "The migration must be started by a POST request");
+                return;
+            }
+            ChangeLogMigration migration = ChangeLogMigration.start();
+            rsp.setContentType("text/plain");
+            rsp.getOutputStream().println(migration.toString());
+        }
+
+        /**
+         * Displays the progress of the last change log migration.
+         */
+        public void doChangeLogMigrationStatus(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+            Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+            ChangeLogMigration migration = ChangeLogMigration.getCurrent();
+            rsp.setContentType("text/plain");
+            rsp.getOutputStream().println(migration == null ? "No change log migration was started" : migration.toString());
+        }
+
+        /**
+         * Receives the changes notified by ClearCase triggers, as
+         * <tt>/scm/ClearCaseSCM/notifyCommit?event=checkin&amp;branch=dev&amp;vob=/vobs/a&amp;path=/vobs/a/b.c</tt>, with
+         * any of event, branch, vob, path, stream and activity, and polls the jobs the changes affect.
+         */
+        public void doNotifyCommit(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+            ChangeNotification notification = new ChangeNotification(req.getParameter("event"), req.getParameter("branch"), req.getParameter("vob"),
+                    req.getParameter("path"), req.getParameter("stream"), req.getParameter("activity"));
+            if (notification.isEmpty()) {
+                rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Expected any of branch, vob, path, stream or activity");
+                return;
+            }
+            ChangeNotifier.getInstance().notify(notification);
+            rsp.setContentType("text/plain");
+            rsp.getOutputStream().println("Scheduled polling of the jobs affected by " + notification);
+        }
+
+        /**
+         * Displays the statistics of the change log cache.
+         */
+        public void doChangeLogCacheStatistics(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+            Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+            rsp.setContentType("text/plain");
+            rsp.getOutputStream().println(ChangeLogSetCache.getInstance().toString());
+        }
+
         public ClearCaseInstallation[] getInstallations() {
             return this.installations;
         }
@@ -24,19 +24,23 @@
  */
 package hudson.plugins.clearcase;
 
+import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Util;
 import hudson.model.ModelObject;
 import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
 import hudson.model.Hudson;
 import hudson.plugins.clearcase.ClearCaseSCM.ClearCaseScmDescriptor;
 import hudson.plugins.clearcase.action.CheckOutAction;
 import hudson.plugins.clearcase.action.SaveChangeLogAction;
 import hudson.plugins.clearcase.action.UcmDynamicCheckoutAction;
 import hudson.plugins.clearcase.action.UcmSnapshotCheckoutAction;
+import hudson.plugins.clearcase.notification.ChangeNotification;
 import hudson.plugins.clearcase.ucm.ClearCaseUCMSCMRevisionState;
 import hudson.plugins.clearcase.ucm.FreezeCodeUcmHistoryAction;
+import hudson.plugins.clearcase.ucm.UcmBuildQueries;
 import hudson.plugins.clearcase.ucm.UcmChangeLogParser;
 import hudson.plugins.clearcase.ucm.UcmCommon;
 import hudson.plugins.clearcase.ucm.UcmHistoryAction;
@@ -45,20 +49,18 @@ import hudson.plugins.clearcase.util.BuildVariableResolver;
 import hudson.plugins.clearcase.viewstorage.ViewStorage;
 import hudson.plugins.clearcase.viewstorage.ViewStorageFactory;
 import hudson.scm.ChangeLogParser;
+import hudson.scm.PollingResult;
+import hudson.scm.PollingResult.Change;
 import hudson.scm.SCMDescriptor;
 import hudson.scm.SCMRevisionState;
 import hudson.scm.SCM;
 import hudson.util.VariableResolver;
 import hudson.util.ListBoxModel;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.Date;
 import java.util.List;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import net.sf.json.JSONObject;
 
@@ -66,7 +68,6 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.StaplerRequest;
-import org.kohsuke.stapler.framework.io.ByteBuffer;
 
 public class ClearCaseUcmSCM extends AbstractClearCaseScm {
 
@@ -172,16 +173,83 @@ public class ClearCaseUcmSCM extends AbstractClearCaseScm {
         ClearTool clearTool = createClearTool(build, launcher);
         VariableResolver<String> variableResolver = new BuildVariableResolver(build);
         String resolvedStream = getStream(variableResolver);
-        ClearCaseUCMSCMRevisionState revisionState = new ClearCaseUCMSCMRevisionState(UcmCommon.getFoundationBaselines(clearTool, resolvedStream), date, resolvedStream);
+        UcmBuildQueries queries = UcmBuildQueries.get(build);
+        ClearCaseUCMSCMRevisionState revisionState = new ClearCaseUCMSCMRevisionState(queries.getFoundationBaselines(clearTool, resolvedStream), date, resolvedStream);
         revisionState.setLoadRules(getViewPaths(variableResolver, build, launcher));
+        if (PluginImpl.BASE_DESCRIPTOR.getFullScanInterval() > 0) {
+            revisionState.setFingerprint(queries.getStreamFingerprint(clearTool, resolvedStream, revisionState.getLoadRules()));
+            revisionState.setFullScanTime(new Date());
+        }
         return revisionState;
     }
 
+    /**
+     * Skips the history scan when the fingerprint of the stream is the same as in the baseline, unless no full scan
+     * happened during the configured interval.
+     */
+    @Override
+    protected PollingResult scanForChanges(AbstractProject<?, ?> project, Launcher launcher, FilePath workspace, TaskListener listener,
+            AbstractClearCaseSCMRevisionState baseline) throws IOException, InterruptedException {
+        ClearCaseUCMSCMRevisionState ucmBaseline = (ClearCaseUCMSCMRevisionState) baseline;
+        AbstractBuild<?, ?> build;
+        Launcher queryLauncher = launcher;
+        if (workspace == null) {
+            // polling without workspace, query the stream from the poll node
+            PollView pollView = PollView.get(listener);
+            build = pollView == null ? null : project.getLastBuild();
+            queryLauncher = pollView == null ? null : pollView.getLauncher();
+        } else {
+            build = project.getSomeBuildWithWorkspace();
+        }
+        if (build != null && ucmBaseline.getFingerprint() != null && !isFullScanDue(ucmBaseline)) {
+            VariableResolver<String> variableResolver = new BuildVariableResolver(build);
+            ClearTool clearTool = createClearTool(variableResolver, createClearToolLauncher(listener, workspace, queryLauncher));
+            String stream = getStream(variableResolver);
+            String fingerprint = UcmCommon.getStreamFingerprint(clearTool, stream, getViewPaths(variableResolver, build, queryLauncher));
+            if (ucmBaseline.getFingerprint().equals(fingerprint) && stream.equals(ucmBaseline.getStream())) {
+                listener.getLogger().println("Stream " + stream + " unchanged since " + ucmBaseline.getBuildTime() + ", skipping history scan");
+                return new PollingResult(baseline, ucmBaseline.withFingerprintTime(new Date()), Change.NONE);
+            }
+        }
+        return super.scanForChanges(project, launcher, workspace, listener, baseline);
+    }
+
+    private boolean isFullScanDue(ClearCaseUCMSCMRevisionState baseline) {
+        long interval = PluginImpl.BASE_DESCRIPTOR.getFullScanInterval() * 60 * 1000L;
+        return interval == 0 || baseline.getFullScanTime() == null
+                || System.currentTimeMillis() - baseline.getFullScanTime().getTime() >= interval;
+    }
+
     @Override
     protected boolean isFirstBuild(SCMRevisionState baseline) {
         return baseline == null || !(baseline instanceof ClearCaseUCMSCMRevisionState);
     }
 
+    /**
+     * Also rules out the changes notified on another stream.
+     */
+    @Override
+    public boolean isAffectedBy(ChangeNotification notification, AbstractBuild<?, ?> build) {
+        if (build != null && notification.getStream() != null) {
+            String resolvedStream = getStream(new BuildVariableResolver(build));
+            String notifiedStream = StringUtils.removeStart(notification.getStream(), "stream:");
+            if (!UcmCommon.getNoVob(notifiedStream).equals(UcmCommon.getNoVob(StringUtils.removeStart(resolvedStream, "stream:")))) {
+                return false;
+            }
+        }
+        return super.isAffectedBy(notification, build);
+    }
+
+    /**
+     * Polls in a view attached to the stream, shared by the jobs building it.
+     */
+    @Override
+    protected String preparePollView(PollView pollView, ClearTool clearTool, VariableResolver<String> variableResolver, boolean isUnix)
+            throws IOException, InterruptedException {
+        ViewStorage viewStorage = getViewStorageFactory().create(variableResolver, isUnix, getViewName(variableResolver));
+        return pollView.prepareStreamView(clearTool, getStream(variableResolver), viewStorage);
+    }
+
     @Override
     public String generateNormalizedViewName(VariableResolver<String> variableResolver, String modViewName) {
         // Modify the view name in order to support concurrent builds
@@ -207,7 +275,7 @@ public class ClearCaseUcmSCM extends AbstractClearCaseScm {
             action = new UcmDynamicCheckoutAction(clearTool, stream2, isCreateDynView(),
                     viewStorage, build, isFreezeCode(), isRecreateView());
         } else {
-            action = new UcmSnapshotCheckoutAction(clearTool, stream2, getViewPaths(variableResolver, build, launcher.getLauncher()), isUseUpdate(), getViewPath(variableResolver), viewStorage);
+            action = new UcmSnapshotCheckoutAction(clearTool, stream2, getViewPaths(variableResolver, build, launcher.getLauncher()), isUseUpdate(), getViewPath(variableResolver), viewStorage, build);
         }
         return action;
     }
@@ -229,11 +297,20 @@ public class ClearCaseUcmSCM extends AbstractClearCaseScm {
         } else {
             action = new UcmHistoryAction(ct, isUseDynamicView(), configureFilters(variableResolver, build, launcher.getLauncher()), oldBaseline, newBaseline, getChangeset());
         }
+        action.setBuildQueries(UcmBuildQueries.get(build));
         setExtendedViewPath(variableResolver, ct, action);
 
         return action;
     }
 
+    /**
+     * The history of a freeze code build reads the baselines its checkout made.
+     */
+    @Override
+    protected boolean isChangeLogConcurrentWithCheckout(AbstractBuild<?, ?> build) {
+        return !isFreezeCode() && super.isChangeLogConcurrentWithCheckout(build);
+    }
+
     @Override
     public String[] getViewPaths(VariableResolver<String> variableResolver, AbstractBuild build, Launcher launcher) throws IOException, InterruptedException {
         if (!useManualLoadRules) {
@@ -246,8 +323,7 @@ public class ClearCaseUcmSCM extends AbstractClearCaseScm {
                 }
             }
             ClearTool clearTool = createClearTool(build, launcher);
-            List<Baseline> latest = UcmCommon.getLatestBaselines(clearTool, getStream(variableResolver));
-            return UcmCommon.generateLoadRulesFromBaselines(clearTool, getStream(variableResolver), latest);
+            return UcmBuildQueries.get(build).getLoadRules(clearTool, getStream(variableResolver));
         } else {
             return super.getViewPaths(variableResolver, build, launcher);
         }
@@ -255,12 +331,17 @@ public class ClearCaseUcmSCM extends AbstractClearCaseScm {
 
     @Override
     protected SaveChangeLogAction createSaveChangeLogAction(ClearToolLauncher launcher) {
-        return new UcmSaveChangeLogAction();
+        return new UcmSaveChangeLogAction(getDescriptor().isCompactChangeLog());
     }
 
     public ClearTool createClearTool(AbstractBuild<?, ?> build, Launcher launcher) {
         BuildVariableResolver variableResolver = new BuildVariableResolver(build);
-        ClearToolLauncher clearToolLauncher = createClearToolLauncher(launcher.getListener(), build.getWorkspace(), launcher);
+        FilePath workspace = build.getWorkspace();
+        if (workspace != null && !PollView.isOnNode(workspace, launcher)) {
+            // on the poll node, away from the workspace of the build
+            workspace = null;
+        }
+        ClearToolLauncher clearToolLauncher = createClearToolLauncher(launcher.getListener(), workspace, launcher);
         return createClearTool(variableResolver, clearToolLauncher);
     }
 
@@ -297,6 +378,10 @@ public class ClearCaseUcmSCM extends AbstractClearCaseScm {
             return baseDescriptor.getDefaultViewPath();
         }
 
+        public boolean isCompactChangeLog() {
+            return baseDescriptor.isCompactChangeLog();
+        }
+
         @Override
         public String getDisplayName() {
             return "UCM ClearCase";
@@ -308,23 +393,12 @@ public class ClearCaseUcmSCM extends AbstractClearCaseScm {
         }
 
         public ListBoxModel doFillServerItems(StaplerRequest req, JSONObject json) {
-            ByteBuffer baos = new ByteBuffer();
             ListBoxModel m = new ListBoxModel();
             m.add("auto", "auto");
             try {
-                Hudson.getInstance().createLauncher(TaskListener.NULL).launch().cmds(baseDescriptor.getCleartoolExe(), "lsstgloc", "-view").stdout(baos).join();
-                BufferedReader reader = new BufferedReader(new InputStreamReader(baos.newInputStream()));
-                String line;
-                Pattern pattern = Pattern.compile("(.*) (.*)");
-                while((line = reader.readLine()) != null) {
-                    LOGGER.fine(line);
-                    Matcher matcher = pattern.matcher(line);
-                    if (matcher.matches()) {
-                        String path = matcher.group(2).trim();
-                        String id = matcher.group(1).trim();
-                        LOGGER.fine("Adding option " + id + " -> " + path);
-                        m.add(id + " (" + path + ")", id);
-                    }
+                for (NodeCapabilities.StorageLocation location : NodeCapabilities.get(Hudson.getInstance(), TaskListener.NULL).getStorageLocations()) {
+                    LOGGER.fine("Adding option " + location.getName() + " -> " + location.getPath());
+                    m.add(location.getName() + " (" + location.getPath() + ")", location.getName());
                 }
             } catch (IOException e) {
             } catch (InterruptedException e) {
@@ -255,6 +255,15 @@ public interface ClearTool {
      */
     List<Baseline> mkbl(String name, String viewTag, String comment, boolean fullBaseline, boolean identical, List<String> components, String dDependOn, String aDependOn) throws IOException, InterruptedException;
 
+    /**
+     * Creates a view tag for an existing view, e.g. to rename a snapshot view
+     * @param viewTag The new view tag
+     * @param storageDir The global path of the view storage directory
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    void mktag(String viewTag, String storageDir) throws IOException, InterruptedException;
+
     /**
      * Make a new stream
      * @param parentStream The parent stream name
@@ -27,7 +27,7 @@ package hudson.plugins.clearcase;
 import hudson.AbortException;
 import hudson.FilePath;
 import hudson.Util;
-import hudson.plugins.clearcase.util.DeleteOnCloseFileInputStream;
+import hudson.plugins.clearcase.util.CommandOutputInputStream;
 import hudson.plugins.clearcase.util.PathUtil;
 import hudson.util.ArgumentListBuilder;
 import hudson.util.VariableResolver;
@@ -35,8 +35,6 @@ import hudson.util.VariableResolver;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -67,6 +65,8 @@ public abstract class ClearToolExec implements ClearTool {
     protected ClearToolLauncher launcher;
     protected VariableResolver<String> variableResolver;
     protected String optionalMkviewParameters;
+    private ViewState viewState;
+    private UpdateManifest updateManifest;
 
     public ClearToolExec(VariableResolver<String> variableResolver, ClearToolLauncher launcher, String optionalMkviewParameters) {
         this.variableResolver = variableResolver;
@@ -74,6 +74,41 @@ public abstract class ClearToolExec implements ClearTool {
         this.optionalMkviewParameters = optionalMkviewParameters;
     }
 
+    public ViewState getViewState() {
+        return viewState;
+    }
+
+    /**
+     * @param viewState the state to share with the other cleartool instances of the build, null to always ask cleartool
+     */
+    public void setViewState(ViewState viewState) {
+        this.viewState = viewState;
+    }
+
+    /**
+     * @param updateManifest the manifest to record the elements loaded by the updates in, null to record none
+     */
+    public void setUpdateManifest(UpdateManifest updateManifest) {
+        this.updateManifest = updateManifest;
+    }
+
+    private <T> T query(String kind, String object, ViewState.Query<T> query) throws IOException, InterruptedException {
+        if (viewState == null) {
+            return query.execute();
+        }
+        return viewState.get(kind, object, query);
+    }
+
+    private void invalidateViewState(boolean views) {
+        if (viewState != null) {
+            if (views) {
+                viewState.invalidateAll();
+            } else {
+                viewState.invalidate();
+            }
+        }
+    }
+
     public String catcs(String viewTag) throws IOException, InterruptedException {
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("catcs");
@@ -128,26 +163,18 @@ public abstract class ClearToolExec implements ClearTool {
         cmd.add(baseline1);
         cmd.add(baseline2);
 
-        // Output to a temporary file since the output can become quite large
-        File tmpFile = null;
-        try {
-            tmpFile = File.createTempFile("cleartool-diffbl", null);
-        } catch (IOException e) {
-            throw new IOException("Couldn't create a temporary file", e);
-        }
-        OutputStream out = new FileOutputStream(tmpFile);
-
         FilePath workingDirectory = launcher.getWorkspace();
         if (viewPath != null) {
             workingDirectory = workingDirectory.child(viewPath);
         }
-        try {
-            launcher.run(cmd.toCommandArray(), null, out, workingDirectory);
-        } catch (IOException e) {
-        } catch (InterruptedException e) {
-        }
-        out.close();
-        return new InputStreamReader(new DeleteOnCloseFileInputStream(tmpFile));
+        // The output can become quite large: stream it while diffbl runs rather than holding it
+        final String[] command = cmd.toCommandArray();
+        final FilePath directory = workingDirectory;
+        return new InputStreamReader(new CommandOutputInputStream(new CommandOutputInputStream.Command() {
+            public void run(OutputStream out) throws IOException, InterruptedException {
+                launcher.run(command, null, out, directory);
+            }
+        }, "diffbl " + baseline1 + " " + baseline2));
     }
 
     @Override
@@ -169,20 +196,25 @@ public abstract class ClearToolExec implements ClearTool {
         return !(cleartoolResult.contains("stream not found"));
     }
 
-    public boolean doesViewExist(String viewTag) throws IOException, InterruptedException {
-        ArgumentListBuilder cmd = new ArgumentListBuilder();
-        cmd.add("lsview");
-        cmd.add(viewTag);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            return launcher.run(cmd.toCommandArray(), null, baos, null);
-        } catch (IOException e) {
-            return false;
-        }
+    public boolean doesViewExist(final String viewTag) throws IOException, InterruptedException {
+        return query(ViewState.EXISTS, viewTag, new ViewState.Query<Boolean>() {
+            public Boolean execute() throws IOException, InterruptedException {
+                ArgumentListBuilder cmd = new ArgumentListBuilder();
+                cmd.add("lsview");
+                cmd.add(viewTag);
+
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                try {
+                    return launcher.run(cmd.toCommandArray(), null, baos, null);
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+        });
     }
 
     public void endView(String viewTag) throws IOException, InterruptedException {
+        invalidateViewState(true);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("endview");
         cmd.add(viewTag);
@@ -257,7 +289,16 @@ public abstract class ClearToolExec implements ClearTool {
      */
     protected abstract FilePath getRootViewPath(ClearToolLauncher launcher);
 
-    public Properties getViewData(String viewTag) throws IOException, InterruptedException {
+    public Properties getViewData(final String viewTag) throws IOException, InterruptedException {
+        Properties viewData = query(ViewState.VIEW_DATA, viewTag, new ViewState.Query<Properties>() {
+            public Properties execute() throws IOException, InterruptedException {
+                return lsviewLong(viewTag);
+            }
+        });
+        return (Properties) viewData.clone();
+    }
+
+    private Properties lsviewLong(String viewTag) throws IOException, InterruptedException {
         Properties resPrp = new Properties();
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("lsview");
@@ -265,6 +306,7 @@ public abstract class ClearToolExec implements ClearTool {
 
         Pattern uuidPattern = Pattern.compile("View uuid: (.*)");
         Pattern globalPathPattern = Pattern.compile("View server access path: (.*)");
+        Pattern globalStoragePathPattern = Pattern.compile("Global path: (.*)");
         boolean res = true;
         IOException exception = null;
         List<IOException> exceptions = new ArrayList<IOException>();
@@ -285,6 +327,10 @@ public abstract class ClearToolExec implements ClearTool {
                 matcher = globalPathPattern.matcher(line);
                 if (matcher.find() && matcher.groupCount() == 1)
                     resPrp.put("STORAGE_DIR", matcher.group(1));
+
+                matcher = globalStoragePathPattern.matcher(line);
+                if (matcher.find() && matcher.groupCount() == 1)
+                    resPrp.put("GLOBAL_PATH", matcher.group(1));
             }
         }
 
@@ -346,10 +392,19 @@ public abstract class ClearToolExec implements ClearTool {
 
     @Override
     public String lscurrentview(String viewPath) throws IOException, InterruptedException {
+        final FilePath workingDirectory = getLauncher().getWorkspace().child(viewPath);
+        return query(ViewState.CURRENT_VIEW, workingDirectory.getRemote(), new ViewState.Query<String>() {
+            public String execute() throws IOException, InterruptedException {
+                return lscurrentview(workingDirectory);
+            }
+        });
+    }
+
+    private String lscurrentview(FilePath workingDirectory) throws IOException, InterruptedException {
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("lsview", "-cview", "-s");
         List<IOException> exceptions = new ArrayList<IOException>();
-        String output = runAndProcessOutput(cmd, null, getLauncher().getWorkspace().child(viewPath), true, exceptions);
+        String output = runAndProcessOutput(cmd, null, workingDirectory, true, exceptions);
         if (!exceptions.isEmpty()) {
             if (output.contains("cleartool: Error: Cannot get view info for current view: not a ClearCase object.")) {
                 output = null;
@@ -521,6 +576,20 @@ public abstract class ClearToolExec implements ClearTool {
         throw new AbortException();
     }
 
+    public void mktag(String viewTag, String storageDir) throws IOException, InterruptedException {
+        invalidateViewState(true);
+        ArgumentListBuilder cmd = new ArgumentListBuilder();
+        cmd.add("mktag");
+        cmd.add("-view");
+        cmd.add("-tag");
+        cmd.add(viewTag);
+        cmd.add(storageDir);
+        String output = runAndProcessOutput(cmd, null, null, false, null);
+        if (output.contains("cleartool: Error")) {
+            throw new IOException("Failed to create view tag: " + output);
+        }
+    }
+
     public void mkstream(String parentStream, String stream) throws IOException, InterruptedException {
         ArgumentListBuilder cmd = new ArgumentListBuilder();
 
@@ -539,6 +608,7 @@ public abstract class ClearToolExec implements ClearTool {
      */
     @Deprecated
     public void mkview(String viewPath, String viewTag, String streamSelector) throws IOException, InterruptedException {
+        invalidateViewState(true);
         Validate.notEmpty(viewPath);
         boolean isOptionalParamContainsHost = false;
         ArgumentListBuilder cmd = new ArgumentListBuilder();
@@ -569,6 +639,7 @@ public abstract class ClearToolExec implements ClearTool {
      */
     @Deprecated
     public void mkview(String viewPath, String viewTag, String streamSelector, String defaultStorageDir) throws IOException, InterruptedException {
+        invalidateViewState(true);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
 
         cmd.add("mkview");
@@ -607,6 +678,7 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     public void mkview(MkViewParameters parameters) throws IOException, InterruptedException {
+        invalidateViewState(true);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("mkview");
         if (parameters.getType() == ViewType.Snapshot) {
@@ -699,18 +771,23 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     public String pwv(String viewPath) throws IOException, InterruptedException {
-        ArgumentListBuilder cmd = new ArgumentListBuilder();
-        cmd.add("pwv");
-        cmd.add("-root");
-        FilePath vp = getRootViewPath(launcher).child(viewPath);
-        if (vp.exists()) {
-            return runAndProcessOutput(cmd, null, vp, false, null);
-        } else {
-            return null;
-        }
+        final FilePath vp = getRootViewPath(launcher).child(viewPath);
+        return query(ViewState.VIEW_ROOT, vp.getRemote(), new ViewState.Query<String>() {
+            public String execute() throws IOException, InterruptedException {
+                ArgumentListBuilder cmd = new ArgumentListBuilder();
+                cmd.add("pwv");
+                cmd.add("-root");
+                if (vp.exists()) {
+                    return runAndProcessOutput(cmd, null, vp, false, null);
+                } else {
+                    return null;
+                }
+            }
+        });
     }
 
     public void rebaseDynamic(String viewTag, String baseline) throws IOException, InterruptedException {
+        invalidateViewState(false);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("rebase");
         cmd.add("-baseline", baseline);
@@ -730,6 +807,7 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     public void rmview(String viewPath) throws IOException, InterruptedException {
+        invalidateViewState(true);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("rmview");
         cmd.add("-force");
@@ -750,6 +828,7 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     public void rmviewtag(String viewTag) throws IOException, InterruptedException {
+        invalidateViewState(true);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("rmview");
         cmd.add("-force");
@@ -765,6 +844,7 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     public void rmtag(String viewTag) throws IOException, InterruptedException {
+        invalidateViewState(true);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("rmtag");
         cmd.add("-view");
@@ -776,6 +856,7 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     public void rmviewUuid(String viewUuid) throws IOException, InterruptedException {
+        invalidateViewState(true);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("rmview");
         cmd.add("-force");
@@ -792,9 +873,24 @@ public abstract class ClearToolExec implements ClearTool {
 
     protected String runAndProcessOutput(ArgumentListBuilder cmd, InputStream in, FilePath workFolder, boolean catchExceptions, List<IOException> exceptions)
             throws IOException, InterruptedException {
+        return runAndProcessOutput(cmd, in, workFolder, catchExceptions, exceptions, false);
+    }
+
+    private String runAndProcessOutput(ArgumentListBuilder cmd, InputStream in, FilePath workFolder, boolean catchExceptions, List<IOException> exceptions,
+            boolean recordUpdate) throws IOException, InterruptedException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         try {
-            launcher.run(cmd.toCommandArray(), in, baos, workFolder);
+            if (recordUpdate && updateManifest != null) {
+                // Element lines only go to the manifest, the rest is kept for error handling
+                OutputStream out = updateManifest.recordElements(baos);
+                try {
+                    launcher.run(cmd.toCommandArray(), in, out, workFolder);
+                } finally {
+                    out.close();
+                }
+            } else {
+                launcher.run(cmd.toCommandArray(), in, baos, workFolder);
+            }
         } catch (IOException e) {
             if (!catchExceptions) {
                 throw e;
@@ -828,6 +924,7 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     private void setcs(String viewTag, String viewPath, SetcsOption option, String configSpec) throws IOException, InterruptedException {
+        invalidateViewState(false);
         if (option == SetcsOption.CONFIGSPEC) {
             Validate.notNull(configSpec, "Using option CONFIGSPEC, you must provide a non-null config spec");
         } else {
@@ -852,7 +949,7 @@ public abstract class ClearToolExec implements ClearTool {
         if (viewPath != null) {
             workingDirectory = new FilePath(getRootViewPath(launcher), viewPath);
         }
-        String output = runAndProcessOutput(cmd, new ByteArrayInputStream("yes".getBytes()), workingDirectory, false, null);
+        String output = runAndProcessOutput(cmd, new ByteArrayInputStream("yes".getBytes()), workingDirectory, false, null, viewPath != null);
         if (configSpecFile != null) {
             configSpecFile.delete();
         }
@@ -881,10 +978,28 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     public void startView(String viewTags) throws IOException, InterruptedException {
+        String[] tags = StringUtils.split(viewTags);
+        if (viewState != null && tags.length > 0 && areStarted(tags)) {
+            return;
+        }
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("startview");
         cmd.addTokenized(viewTags);
         launcher.run(cmd.toCommandArray(), null, null, null);
+        if (viewState != null) {
+            for (String tag : tags) {
+                viewState.setStarted(tag);
+            }
+        }
+    }
+
+    private boolean areStarted(String[] viewTags) {
+        for (String viewTag : viewTags) {
+            if (!viewState.isStarted(viewTag)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void unlock(String comment, String objectSelector) throws IOException, InterruptedException {
@@ -897,6 +1012,7 @@ public abstract class ClearToolExec implements ClearTool {
     }
 
     public void unregisterView(String uuid) throws IOException, InterruptedException {
+        invalidateViewState(true);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("unregister");
         cmd.add("-view");
@@ -912,12 +1028,13 @@ public abstract class ClearToolExec implements ClearTool {
 
     @Override
     public void update(String viewPath, String[] loadRules) throws IOException, InterruptedException {
+        invalidateViewState(false);
         FilePath filePath = getLauncher().getWorkspace().child(viewPath);
         ArgumentListBuilder cmd = new ArgumentListBuilder();
         cmd.add("update");
         cmd.add("-force");
         cmd.add("-overwrite");
-        cmd.add("-log", "NUL");
+        cmd.add("-log", launcher.isUnix() ? "/dev/null" : "NUL");
         if (!ArrayUtils.isEmpty(loadRules)) {
             cmd.add("-add_loadrules");
             for (String loadRule : loadRules) {
@@ -925,7 +1042,7 @@ public abstract class ClearToolExec implements ClearTool {
             }
         }
         List<IOException> exceptions = new ArrayList<IOException>();
-        String output = runAndProcessOutput(cmd, new ByteArrayInputStream("yes\nyes\n".getBytes()), filePath, true, exceptions);
+        String output = runAndProcessOutput(cmd, new ByteArrayInputStream("yes\nyes\n".getBytes()), filePath, true, exceptions, true);
 
         if (!exceptions.isEmpty()) {
             handleHijackedDirectoryCCBug(viewPath, filePath, exceptions, output);
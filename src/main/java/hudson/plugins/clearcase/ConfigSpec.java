@@ -26,16 +26,38 @@ package hudson.plugins.clearcase;
 
 import hudson.plugins.clearcase.util.PathUtil;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 
+/**
+ * A config spec, as written and as parsed into {@link ConfigSpecRule}s.
+ */
 public class ConfigSpec {
+
+    /**
+     * How a config spec differs from another, from the cheapest change to apply to a snapshot view to the most
+     * expensive one.
+     */
+    public enum Change {
+        /** Same rules and load rules, whatever the spacing, comments and line endings */
+        NONE,
+        /** Same rules, only the load rules differ */
+        LOAD_RULES,
+        /** The rules differ, the view must be reloaded with setcs */
+        RULES
+    }
+
     private final String raw;
     private final boolean isUnix;
+    private transient List<ConfigSpecRule> rules;
+    private transient Set<String> loadRules;
     
     public ConfigSpec(String raw, boolean isUnix) {
         Validate.notNull(raw);
@@ -62,18 +84,84 @@ public class ConfigSpec {
         return true;
     }
     
-    public Set<String> getLoadRules() {
-        Set<String> rules = new HashSet<String>();
-        for (String row : raw.split("[\\r\\n]+")) {
-            String trimmedRow = row.trim();
-            if (trimmedRow.startsWith("load")) {
-                String rule = row.trim().substring("load".length()).trim();
-                rules.add(rule);
+    /**
+     * @return the rules of the config spec, one per line, comments and blank lines included
+     */
+    public synchronized List<ConfigSpecRule> getRules() {
+        if (rules == null) {
+            List<ConfigSpecRule> parsed = new ArrayList<ConfigSpecRule>();
+            for (String row : raw.split("[\\r\\n]+")) {
+                parsed.add(ConfigSpecRule.parse(row));
             }
+            rules = Collections.unmodifiableList(parsed);
         }
         return rules;
     }
 
+    public synchronized Set<String> getLoadRules() {
+        if (loadRules == null) {
+            Set<String> parsed = new HashSet<String>();
+            for (ConfigSpecRule rule : getRules()) {
+                if (rule.getKind() == ConfigSpecRule.Kind.LOAD) {
+                    parsed.add(rule.getArguments());
+                }
+            }
+            loadRules = Collections.unmodifiableSet(parsed);
+        }
+        return new HashSet<String>(loadRules);
+    }
+
+    /**
+     * @return true if the config spec includes other files, whose content may change without the config spec changing
+     */
+    public boolean hasIncludes() {
+        for (ConfigSpecRule rule : getRules()) {
+            if (rule.getKind() == ConfigSpecRule.Kind.INCLUDE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the meaning of this config spec with the one of a view: the order of the rules matters, not the
+     * spacing, the comments or the line endings. Load rules are compared as a set.
+     * 
+     * @param current the config spec of the view
+     * @return what must change in the view to use this config spec
+     */
+    public Change getChangeFrom(ConfigSpec current) {
+        List<ConfigSpecRule> target = getSelectionRules();
+        List<ConfigSpecRule> actual = current.getSelectionRules();
+        if (target.size() != actual.size()) {
+            return Change.RULES;
+        }
+        for (int i = 0; i < target.size(); i++) {
+            if (!target.get(i).isEquivalent(actual.get(i), isUnix)) {
+                return Change.RULES;
+            }
+        }
+        return getNormalizedLoadRules().equals(current.getNormalizedLoadRules()) ? Change.NONE : Change.LOAD_RULES;
+    }
+
+    private List<ConfigSpecRule> getSelectionRules() {
+        List<ConfigSpecRule> selectionRules = new ArrayList<ConfigSpecRule>();
+        for (ConfigSpecRule rule : getRules()) {
+            if (rule.getKind() != ConfigSpecRule.Kind.COMMENT && rule.getKind() != ConfigSpecRule.Kind.LOAD) {
+                selectionRules.add(rule);
+            }
+        }
+        return selectionRules;
+    }
+
+    private Set<String> getNormalizedLoadRules() {
+        Set<String> normalized = new HashSet<String>();
+        for (String loadRule : getLoadRules()) {
+            normalized.add(cleanLoadRule(loadRule, isUnix));
+        }
+        return normalized;
+    }
+
     public String getRaw() {
         return raw;
     }
@@ -0,0 +1,191 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A rule of a {@link ConfigSpec}: one line, split into its keyword and arguments, without comments.
+ */
+public class ConfigSpecRule {
+
+    public enum Kind {
+        /** Blank line or comment only */
+        COMMENT,
+        /** element [-file|-directory|-eltype type] pattern version-selector [options] */
+        ELEMENT,
+        /** time date-time, up to the matching end time */
+        TIME,
+        /** mkbranch branch-type, up to the matching end mkbranch */
+        MKBRANCH,
+        /** end of a time or mkbranch block */
+        END,
+        /** include config-spec-file */
+        INCLUDE,
+        /** load pname */
+        LOAD,
+        /** Any other rule (ucm, identity, block...) */
+        OTHER
+    }
+
+    private final Kind kind;
+    private final List<String> tokens;
+    private final String arguments;
+    private final String text;
+
+    ConfigSpecRule(Kind kind, List<String> tokens, String arguments, String text) {
+        this.kind = kind;
+        this.tokens = Collections.unmodifiableList(tokens);
+        this.arguments = arguments;
+        this.text = text;
+    }
+
+    /**
+     * Parses a line of a config spec.
+     */
+    static ConfigSpecRule parse(String line) {
+        String rule = stripComment(line).trim();
+        List<String> tokens = tokenize(rule);
+        if (tokens.isEmpty()) {
+            return new ConfigSpecRule(Kind.COMMENT, tokens, "", line);
+        }
+        String arguments = rule.substring(tokens.get(0).length()).trim();
+        String keyword = tokens.get(0).toLowerCase();
+        tokens.set(0, keyword);
+        Kind kind = Kind.OTHER;
+        if ("element".equals(keyword)) {
+            kind = Kind.ELEMENT;
+        } else if ("time".equals(keyword)) {
+            kind = Kind.TIME;
+        } else if ("mkbranch".equals(keyword)) {
+            kind = Kind.MKBRANCH;
+        } else if ("end".equals(keyword)) {
+            kind = Kind.END;
+        } else if ("include".equals(keyword)) {
+            kind = Kind.INCLUDE;
+        } else if ("load".equals(keyword)) {
+            kind = Kind.LOAD;
+        }
+        return new ConfigSpecRule(kind, tokens, arguments, line);
+    }
+
+    /**
+     * @return the line up to its comment, a # starting a word outside of double quotes
+     */
+    private static String stripComment(String line) {
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '#' && !quoted && (i == 0 || Character.isWhitespace(line.charAt(i - 1)))) {
+                return line.substring(0, i);
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Splits a rule on white spaces outside of double quotes.
+     */
+    private static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<String>();
+        StringBuilder token = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                token.append(c);
+                quoted = c != '"';
+            } else if (Character.isWhitespace(c)) {
+                if (token != null) {
+                    tokens.add(token.toString());
+                    token = null;
+                }
+            } else {
+                if (token == null) {
+                    token = new StringBuilder();
+                }
+                token.append(c);
+                quoted = c == '"';
+            }
+        }
+        if (token != null) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the keyword, lower case, then the arguments of the rule
+     */
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @return the arguments of the rule, as written
+     */
+    public String getArguments() {
+        return arguments;
+    }
+
+    /**
+     * @return the line of the rule, as written
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return true if the rule has the same meaning as another, whatever the spacing, comments and path separators
+     */
+    boolean isEquivalent(ConfigSpecRule other, boolean isUnix) {
+        if (kind != other.kind || tokens.size() != other.tokens.size()) {
+            return false;
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!normalize(tokens.get(i), isUnix).equals(normalize(other.tokens.get(i), isUnix))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String normalize(String token, boolean isUnix) {
+        return isUnix ? token : token.replace('\\', '/');
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
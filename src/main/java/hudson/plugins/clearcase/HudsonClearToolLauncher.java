@@ -28,12 +28,15 @@ import hudson.FilePath;
 import hudson.Launcher;
 import hudson.Proc;
 import hudson.model.TaskListener;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
 import hudson.util.ForkOutputStream;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.commons.lang.StringUtils;
 
 /**
@@ -64,6 +67,14 @@ public class HudsonClearToolLauncher implements ClearToolLauncher {
         return workspace;
     }
 
+    public String getExecutable() {
+        return executable;
+    }
+
+    public String getScmName() {
+        return scmName;
+    }
+
     public boolean run(String[] cmd, FilePath filePath) throws IOException, InterruptedException {
         return run(cmd, null, null, filePath);
     }
@@ -101,7 +112,16 @@ public class HudsonClearToolLauncher implements ClearToolLauncher {
         cmdWithExec[0] = executable;
         System.arraycopy(cmd, 0, cmdWithExec, 1, cmd.length);
 
-        int r = getLaunchedProc(cmdWithExec, env, inputStream, out, path).join();
+        // profile the command in the phase of the build it runs for
+        Phase phase = PhaseProfile.enter("cleartool " + (cmd.length > 0 ? cmd[0] : ""));
+        CountingOutputStream countingOut = new CountingOutputStream(out);
+        int r;
+        try {
+            r = getLaunchedProc(cmdWithExec, env, inputStream, countingOut, path).join();
+        } finally {
+            PhaseProfile.recordCommand(countingOut.getByteCount());
+            PhaseProfile.exit(phase);
+        }
         if (r != 0) {
             listener.fatalError(scmName + " failed. exit code=" + r);
             throw new IOException("cleartool did not return the expected exit code. Command line=\"" + getCmdString(cmd) + "\", actual exit code=" + r);
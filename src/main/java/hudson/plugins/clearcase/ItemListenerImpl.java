@@ -34,7 +34,10 @@ import hudson.model.Computer;
 import hudson.model.FreeStyleProject;
 import hudson.model.Hudson;
 import hudson.model.listeners.ItemListener;
+import hudson.plugins.clearcase.cleanup.CleanupTask;
+import hudson.plugins.clearcase.cleanup.ViewCleanupService;
 import hudson.plugins.clearcase.util.BuildVariableResolver;
+import hudson.plugins.clearcase.util.NodeClearTool;
 import hudson.scm.SCM;
 import hudson.util.StreamTaskListener;
 import hudson.util.VariableResolver;
@@ -99,10 +102,16 @@ public class ItemListenerImpl extends ItemListener {
                                 workspace = build.getWorkspace();
                             }
                         }
+                        String viewPath = ccScm.getViewPath(new VariableResolver.ByMap<String>(build.getEnvironment(listener)));
+                        ViewCleanupService cleanupService = ViewCleanupService.getInstance();
+                        String node = NodeClearTool.getNodeName(workspace);
+                        if (cleanupService != null && node != null) {
+                            cleanupService.submit(CleanupTask.removeView(node, workspace.child(viewPath).getRemote(), normalizedViewName));
+                            return;
+                        }
                         ClearTool ct = ccScm.createClearTool(null, ccScm.createClearToolLauncher(listener, workspace, launcher));
 
                         if (ct.doesViewExist(normalizedViewName)) {
-                            String viewPath = ccScm.getViewPath(new VariableResolver.ByMap<String>(build.getEnvironment(listener)));
                             if (workspace.child(viewPath).exists()) {
                                 ct.rmview(viewPath);
                             } else {
@@ -141,6 +150,12 @@ public class ItemListenerImpl extends ItemListener {
                     if (ccScm.isUseDynamicView() && !ccScm.isCreateDynView()) {
                         return;
                     }
+                    ViewCleanupService cleanupService = ViewCleanupService.getInstance();
+                    if (cleanupService != null && project.getLastBuild() != null) {
+                        String normalizedViewName = ccScm.resolveViewTag(new BuildVariableResolver(project.getLastBuild()));
+                        cleanupService.submit(CleanupTask.removeViewTag("", normalizedViewName));
+                        return;
+                    }
                     StreamTaskListener listener = StreamTaskListener.fromStdout();
                     Launcher launcher = hudson.createLauncher(listener);
                     ClearTool ct = ccScm.createClearTool(null, ccScm.createClearToolLauncher(listener, project.getSomeWorkspace().getParent().getParent(),
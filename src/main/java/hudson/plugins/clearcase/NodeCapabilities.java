@@ -0,0 +1,340 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Hudson;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * What a node offers to run cleartool, resolved once instead of at every launch: the path of cleartool for the
+ * ClearCase installation and whether the node is Unix, plus the cleartool version, the registry region and the view
+ * storage locations, read from cleartool the first time they are needed and again after an hour.
+ * <p>
+ * Filled when a node connects, dropped when it disconnects or when the nodes or the installation are reconfigured.
+ * </p>
+ */
+public class NodeCapabilities {
+
+    private static final Logger LOGGER = Logger.getLogger(NodeCapabilities.class.getName());
+
+    /** Time in ms after which the values read from cleartool are read again */
+    static final long REFRESH = Long.getLong(NodeCapabilities.class.getName() + ".refresh", 60 * 60 * 1000L);
+
+    private static final Pattern VERSION = Pattern.compile(".*ClearCase version (\\S+).*");
+    private static final Pattern REGION = Pattern.compile("\\s*Registry region:\\s*(.*)");
+    private static final Pattern STORAGE_LOCATION = Pattern.compile("(.*) (.*)");
+
+    private static final Map<String, NodeCapabilities> CACHE = new HashMap<String, NodeCapabilities>();
+
+    private final String nodeName;
+    private final String cleartoolExe;
+    private final boolean unix;
+
+    private long queryTime;
+    private boolean querying;
+    private String version;
+    private String region;
+    private List<StorageLocation> storageLocations = Collections.emptyList();
+
+    NodeCapabilities(String nodeName, String cleartoolExe, boolean unix) {
+        this.nodeName = nodeName;
+        this.cleartoolExe = cleartoolExe;
+        this.unix = unix;
+    }
+
+    /**
+     * @return the capabilities of the node, resolved now if they aren't known yet
+     */
+    public static NodeCapabilities get(Node node, TaskListener listener) throws IOException, InterruptedException {
+        String key = node.getNodeName();
+        synchronized (CACHE) {
+            NodeCapabilities capabilities = CACHE.get(key);
+            if (capabilities != null) {
+                return capabilities;
+            }
+        }
+        NodeCapabilities capabilities = new NodeCapabilities(key, resolveCleartoolExe(node, listener), node.createLauncher(listener).decorateFor(node)
+                .isUnix());
+        synchronized (CACHE) {
+            NodeCapabilities existing = CACHE.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            CACHE.put(key, capabilities);
+        }
+        return capabilities;
+    }
+
+    private static String resolveCleartoolExe(Node node, TaskListener listener) throws IOException, InterruptedException {
+        return resolveCleartoolExe(Hudson.getInstance().getDescriptorByType(ClearCaseInstallation.DescriptorImpl.class).getInstallation(), node,
+                listener);
+    }
+
+    /**
+     * @param installation the configured ClearCase installation, <code>null</code> when none is configured
+     * @return the cleartool executable of the installation, or the one found in the path when there is none
+     */
+    static String resolveCleartoolExe(ClearCaseInstallation installation, Node node, TaskListener listener) throws IOException, InterruptedException {
+        if (installation == null) {
+            return ClearCaseInstallation.CLEARTOOL_EXE_FALLBACK;
+        }
+        return installation.getCleartoolExe(node, listener);
+    }
+
+    /**
+     * Forgets the capabilities of a node, they are resolved again when next needed.
+     */
+    public static void invalidate(String nodeName) {
+        synchronized (CACHE) {
+            CACHE.remove(nodeName);
+        }
+    }
+
+    public static void invalidateAll() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    public String getCleartoolExe() {
+        return cleartoolExe;
+    }
+
+    public boolean isUnix() {
+        return unix;
+    }
+
+    /**
+     * @return the version of ClearCase, e.g. <tt>7.1.2</tt>, null if unknown
+     */
+    public String getVersion() {
+        query();
+        synchronized (this) {
+            return version;
+        }
+    }
+
+    /**
+     * @return the major version of ClearCase, 0 if unknown
+     */
+    public int getMajorVersion() {
+        String fullVersion = getVersion();
+        if (fullVersion == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(StringUtils.substringBefore(fullVersion, "."));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the registry region of the node, null if unknown
+     */
+    public String getRegion() {
+        query();
+        synchronized (this) {
+            return region;
+        }
+    }
+
+    /**
+     * @return the view storage locations the node sees
+     */
+    public List<StorageLocation> getStorageLocations() {
+        query();
+        synchronized (this) {
+            return storageLocations;
+        }
+    }
+
+    /**
+     * Reads the values from cleartool if they aren't known or are too old. The commands run without the lock, while the
+     * other threads get the values known so far. A failed query is tried again next time.
+     */
+    private void query() {
+        synchronized (this) {
+            if (querying || (queryTime != 0 && System.currentTimeMillis() - queryTime < REFRESH)) {
+                return;
+            }
+            querying = true;
+        }
+        try {
+            Node node = nodeName.length() == 0 ? Hudson.getInstance() : Hudson.getInstance().getNode(nodeName);
+            if (node == null) {
+                return;
+            }
+            String displayName = nodeName.length() == 0 ? "master" : nodeName;
+            try {
+                String queriedVersion = parseVersion(run(node, "-version"));
+                String queriedRegion = parseRegion(run(node, "hostinfo", "-long"));
+                List<StorageLocation> queriedStorageLocations = parseStorageLocations(run(node, "lsstgloc", "-view"));
+                synchronized (this) {
+                    version = queriedVersion;
+                    region = queriedRegion;
+                    storageLocations = queriedStorageLocations;
+                    queryTime = System.currentTimeMillis();
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Could not query cleartool on " + displayName, e);
+            } catch (InterruptedException e) {
+                LOGGER.log(Level.FINE, "Interrupted while querying cleartool on " + displayName, e);
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            synchronized (this) {
+                querying = false;
+            }
+        }
+    }
+
+    private String run(Node node, String... args) throws IOException, InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<String> cmds = new ArrayList<String>();
+        cmds.add(cleartoolExe);
+        Collections.addAll(cmds, args);
+        int exitCode = node.createLauncher(TaskListener.NULL).launch().cmds(cmds).stdout(out).join();
+        if (exitCode != 0) {
+            throw new IOException("cleartool " + StringUtils.join(args, ' ') + " failed with exit code " + exitCode + ": " + out.toString().trim());
+        }
+        return out.toString();
+    }
+
+    static String parseVersion(String output) {
+        for (String line : lines(output)) {
+            Matcher matcher = VERSION.matcher(line);
+            if (matcher.matches()) {
+                return matcher.group(1);
+            }
+        }
+        return null;
+    }
+
+    static String parseRegion(String output) {
+        for (String line : lines(output)) {
+            Matcher matcher = REGION.matcher(line);
+            if (matcher.matches()) {
+                return StringUtils.trimToNull(matcher.group(1));
+            }
+        }
+        return null;
+    }
+
+    static List<StorageLocation> parseStorageLocations(String output) {
+        List<StorageLocation> locations = new ArrayList<StorageLocation>();
+        for (String line : lines(output)) {
+            Matcher matcher = STORAGE_LOCATION.matcher(line);
+            if (matcher.matches()) {
+                locations.add(new StorageLocation(matcher.group(1).trim(), matcher.group(2).trim()));
+            }
+        }
+        return Collections.unmodifiableList(locations);
+    }
+
+    private static List<String> lines(String output) {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new StringReader(output));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            // can't happen on a string
+        }
+        return lines;
+    }
+
+    public static class StorageLocation {
+        private final String name;
+        private final String path;
+
+        StorageLocation(String name, String path) {
+            this.name = name;
+            this.path = path;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPath() {
+            return path;
+        }
+    }
+
+    /**
+     * Fills the capabilities of the nodes when they connect, and drops them when they disconnect or are reconfigured.
+     */
+    @Extension
+    public static class NodeListener extends ComputerListener {
+
+        @Override
+        public void onOnline(Computer c, TaskListener listener) throws IOException, InterruptedException {
+            invalidate(c.getName());
+            Node node = c.getNode();
+            if (node == null) {
+                return;
+            }
+            final NodeCapabilities capabilities = get(node, listener);
+            // cleartool may be slow to answer, don't hold the connection of the node
+            Computer.threadPoolForRemoting.submit(new Runnable() {
+                public void run() {
+                    capabilities.query();
+                }
+            });
+        }
+
+        @Override
+        public void onOffline(Computer c) {
+            invalidate(c.getName());
+        }
+
+        @Override
+        public void onConfigurationChange() {
+            invalidateAll();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Activity of the branches or streams of the jobs, as seen by polling. The history scans of the jobs without a change
+ * for long are spaced out, in proportion to the time since their last change and up to the maximum staleness
+ * configured globally, while the jobs with recent changes keep polling at their own schedule. A skipped poll keeps
+ * the baseline, so the next scan still sees all the changes since the last build. The statistics are kept in memory:
+ * after a restart, the jobs are considered active since their last build. They follow the jobs renamed, and are
+ * dropped with the jobs deleted.
+ */
+public class PollActivity {
+
+    /** Time in ms since the last change during which a job is polled at its own schedule */
+    static final long HOT_PERIOD = Long.getLong(PollActivity.class.getName() + ".hotPeriod", 24 * 60 * 60 * 1000L);
+
+    /** Ratio of the time since the last change to the time between two history scans */
+    static final long IDLE_RATIO = Long.getLong(PollActivity.class.getName() + ".idleRatio", 24L);
+
+    /** Period in ms over which the recent change rate is reported */
+    static final long RATE_PERIOD = 7 * 24 * 60 * 60 * 1000L;
+
+    private static final int MAX_CHANGES = 20;
+
+    private static final PollActivity INSTANCE = new PollActivity();
+
+    public static PollActivity getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<String, Stats> stats = new HashMap<String, Stats>();
+
+    PollActivity() {
+    }
+
+    /**
+     * Tells whether the history scan of a job can be skipped.
+     * 
+     * @param job the full name of the job
+     * @param buildTime the time of the build the job polls against, taken as its last change when none was seen yet
+     * @param maxStaleness the maximum time in ms between two scans, 0 to never skip
+     * @param now the current time in ms
+     * @return the reason to report in the polling log, or null if the history must be scanned
+     */
+    public synchronized String getSkipReason(String job, Date buildTime, long maxStaleness, long now) {
+        if (maxStaleness <= 0) {
+            return null;
+        }
+        Stats jobStats = getStats(job, buildTime);
+        if (jobStats.lastScan == 0 || jobStats.woken) {
+            return null;
+        }
+        long idle = now - jobStats.getLastChange();
+        if (idle < HOT_PERIOD) {
+            return null;
+        }
+        long interval = Math.min(maxStaleness, idle / IDLE_RATIO);
+        long sinceScan = now - jobStats.lastScan;
+        if (sinceScan >= interval) {
+            return null;
+        }
+        return "No change for " + formatDuration(idle) + " (" + jobStats.getRecentChanges(now) + " seen in the last 7 days), skipping history scan, next one in "
+                + formatDuration(interval - sinceScan);
+    }
+
+    /**
+     * Records the result of a history scan.
+     */
+    public synchronized void recordScan(String job, Date buildTime, boolean changed, long now) {
+        Stats jobStats = getStats(job, buildTime);
+        jobStats.lastScan = now;
+        jobStats.woken = false;
+        if (changed) {
+            jobStats.changes.addLast(now);
+            if (jobStats.changes.size() > MAX_CHANGES) {
+                jobStats.changes.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Makes the next poll of a job scan the history, e.g. when a change was notified for it.
+     */
+    public synchronized void wake(String job) {
+        Stats jobStats = stats.get(job);
+        if (jobStats != null) {
+            jobStats.woken = true;
+        }
+    }
+
+    /**
+     * Forgets a job, once deleted.
+     */
+    public synchronized void remove(String job) {
+        stats.remove(job);
+    }
+
+    /**
+     * Keeps the statistics of a job under its new name.
+     */
+    public synchronized void rename(String oldJob, String newJob) {
+        Stats jobStats = stats.remove(oldJob);
+        if (jobStats != null) {
+            stats.put(newJob, jobStats);
+        }
+    }
+
+    private Stats getStats(String job, Date buildTime) {
+        Stats jobStats = stats.get(job);
+        if (jobStats == null) {
+            jobStats = new Stats();
+            stats.put(job, jobStats);
+        }
+        if (buildTime != null) {
+            jobStats.lastBuild = Math.max(jobStats.lastBuild, buildTime.getTime());
+        }
+        return jobStats;
+    }
+
+    static String formatDuration(long duration) {
+        long minutes = duration / (60 * 1000L);
+        if (minutes < 60) {
+            return minutes + " min";
+        }
+        long hours = minutes / 60;
+        if (hours < 48) {
+            return hours + " h";
+        }
+        return (hours / 24) + " days";
+    }
+
+    private static class Stats {
+        private long lastScan;
+        private long lastBuild;
+        private boolean woken;
+        private final LinkedList<Long> changes = new LinkedList<Long>();
+
+        long getLastChange() {
+            return changes.isEmpty() ? lastBuild : Math.max(lastBuild, changes.getLast());
+        }
+
+        int getRecentChanges(long now) {
+            int count = 0;
+            for (long change : changes) {
+                if (now - change < RATE_PERIOD) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Prunes the statistics of the jobs renamed or deleted.
+     */
+    @Extension
+    public static class JobListener extends ItemListener {
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            String parentName = item.getParent().getFullName();
+            getInstance().rename(parentName.length() == 0 ? oldName : parentName + '/' + oldName, item.getFullName());
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            getInstance().remove(item.getFullName());
+        }
+    }
+}
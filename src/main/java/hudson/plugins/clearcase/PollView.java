@@ -0,0 +1,248 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Hudson;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.ClearTool.SetcsOption;
+import hudson.plugins.clearcase.ucm.UcmCommon;
+import hudson.plugins.clearcase.util.NodeClearTool;
+import hudson.plugins.clearcase.viewstorage.ViewStorage;
+import hudson.remoting.VirtualChannel;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The views used to poll for changes without a workspace: a dynamic view per branch or per stream, on the node
+ * configured globally, shared by all the jobs polling the same branches or stream. Polling then doesn't depend on
+ * the build nodes, nor on the state of the views in their workspaces.
+ */
+public class PollView {
+
+    static final String TAG_PREFIX = "hudson_poll_";
+    /** The defaults of the view root in the job configuration */
+    static final String DEFAULT_UNIX_VIEW_DRIVE = "/view";
+    static final String DEFAULT_WINDOWS_VIEW_DRIVE = "M:\\";
+
+    private final Node node;
+    private final TaskListener listener;
+    private final Launcher launcher;
+
+    PollView(Node node, TaskListener listener) {
+        this.node = node;
+        this.listener = listener;
+        this.launcher = node.createLauncher(listener);
+    }
+
+    /**
+     * @return true if a poll node is configured and online
+     */
+    public static boolean isEnabled() {
+        return getNode() != null;
+    }
+
+    /**
+     * @return the poll views, or null if no poll node is configured or if it is offline
+     */
+    public static PollView get(TaskListener listener) {
+        Node node = getNode();
+        return node == null ? null : new PollView(node, listener);
+    }
+
+    private static Node getNode() {
+        String name = PluginImpl.BASE_DESCRIPTOR.getPollNode();
+        if (name == null) {
+            return null;
+        }
+        Node node = NodeClearTool.getNode("master".equals(name) ? "" : name);
+        if (node == null) {
+            return null;
+        }
+        Computer computer = node.toComputer();
+        return computer != null && computer.isOnline() ? node : null;
+    }
+
+    /**
+     * @return true if the path is on the node the launcher runs commands on
+     */
+    static boolean isOnNode(FilePath path, Launcher launcher) {
+        VirtualChannel pathChannel = path.getChannel();
+        VirtualChannel launcherChannel = launcher.getChannel();
+        if (pathChannel == launcherChannel) {
+            return true;
+        }
+        // the files of the master have no channel, while its launchers have one
+        return (pathChannel == null ? Hudson.MasterComputer.localChannel : pathChannel) == (launcherChannel == null ? Hudson.MasterComputer.localChannel
+                : launcherChannel);
+    }
+
+    public Launcher getLauncher() {
+        return launcher;
+    }
+
+    /**
+     * @param viewDrive the directory the dynamic views are mounted in, from the view root configured in the job; when it
+     *            isn't configured, the default of the job configuration for the OS of the poll node
+     * @return a launcher running cleartool on the poll node, for which the SCM creates a cleartool of dynamic views
+     */
+    public ClearToolLauncher createClearToolLauncher(String scmName, String viewDrive) throws IOException, InterruptedException {
+        NodeCapabilities capabilities = NodeCapabilities.get(node, listener);
+        if (StringUtils.isBlank(viewDrive)) {
+            viewDrive = capabilities.isUnix() ? DEFAULT_UNIX_VIEW_DRIVE : DEFAULT_WINDOWS_VIEW_DRIVE;
+        }
+        return new PollViewLauncher(capabilities.getCleartoolExe(), scmName, listener, node.getRootPath(), launcher, viewDrive);
+    }
+
+    /**
+     * Creates the view with the config spec of the job if it doesn't exist yet, and starts it. The jobs with the same
+     * branches and the same config spec share the view. A view whose config spec couldn't be set is removed, so that
+     * the next poll creates it again.
+     *
+     * @param configSpec the config spec of the job, without its load rules
+     * @param viewStorage the storage of the views of the job
+     * @return the tag of the view
+     */
+    public String prepareBranchView(ClearTool clearTool, String[] branchNames, String configSpec, ViewStorage viewStorage) throws IOException,
+            InterruptedException {
+        String name = Util.join(Arrays.asList(branchNames), "_");
+        String tag = getTag(name, name + '\n' + configSpec);
+        synchronized (PollView.class) {
+            if (!clearTool.doesViewExist(tag)) {
+                listener.getLogger().println("Creating poll view " + tag);
+                clearTool.mkview(createParameters(tag, null, viewStorage));
+                boolean configured = false;
+                try {
+                    clearTool.startView(tag);
+                    clearTool.setcsTag(tag, SetcsOption.CONFIGSPEC, configSpec);
+                    configured = true;
+                } finally {
+                    if (!configured) {
+                        removeView(clearTool, tag);
+                    }
+                }
+            }
+        }
+        clearTool.startView(tag);
+        return tag;
+    }
+
+    private void removeView(ClearTool clearTool, String tag) {
+        listener.getLogger().println("Removing poll view " + tag + ", whose config spec couldn't be set");
+        try {
+            clearTool.rmviewtag(tag);
+        } catch (IOException e) {
+            e.printStackTrace(listener.error("Failed to remove poll view " + tag));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates the view attached to the stream if it doesn't exist yet, and starts it.
+     *
+     * @param viewStorage the storage of the views of the job
+     * @return the tag of the view
+     */
+    public String prepareStreamView(ClearTool clearTool, String stream, ViewStorage viewStorage) throws IOException, InterruptedException {
+        String tag = getTag(UcmCommon.getNoVob(stream));
+        synchronized (PollView.class) {
+            if (!clearTool.doesViewExist(tag)) {
+                listener.getLogger().println("Creating poll view " + tag);
+                clearTool.mkview(createParameters(tag, stream, viewStorage));
+            }
+        }
+        clearTool.startView(tag);
+        return tag;
+    }
+
+    private static MkViewParameters createParameters(String tag, String stream, ViewStorage viewStorage) {
+        MkViewParameters params = new MkViewParameters();
+        params.setType(ViewType.Dynamic);
+        params.setViewTag(tag);
+        params.setStreamSelector(stream);
+        if (viewStorage != null) {
+            params.setViewStorage(viewStorage.forViewTag(tag));
+        }
+        return params;
+    }
+
+    /**
+     * @param name what the view is for, made of the branches or the stream
+     * @return a valid view tag, distinct for each name
+     */
+    static String getTag(String name) {
+        return getTag(name, name);
+    }
+
+    /**
+     * @param key what makes the view distinct, when the name isn't enough
+     */
+    private static String getTag(String name, String key) {
+        String readable = name.replaceAll("[^A-Za-z0-9_.-]", "_");
+        if (readable.length() > 40) {
+            readable = readable.substring(0, 40);
+        }
+        return TAG_PREFIX + readable + "_" + Util.getDigestOf(key).substring(0, 8);
+    }
+
+    /**
+     * A cleartool launcher on the poll node.
+     */
+    public static class PollViewLauncher extends HudsonClearToolLauncher {
+        private final String viewDrive;
+        private String viewTag;
+
+        PollViewLauncher(String executable, String scmName, TaskListener listener, FilePath workspace, Launcher launcher, String viewDrive) {
+            super(executable, scmName, listener, workspace, launcher);
+            this.viewDrive = viewDrive;
+        }
+
+        /**
+         * @return the directory the dynamic views are mounted in on the poll node
+         */
+        public String getViewDrive() {
+            return viewDrive;
+        }
+
+        /**
+         * @return the tag of the poll view the history is read in
+         */
+        public String getViewTag() {
+            return viewTag;
+        }
+
+        public void setViewTag(String viewTag) {
+            this.viewTag = viewTag;
+        }
+    }
+}
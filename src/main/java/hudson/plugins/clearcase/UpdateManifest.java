@@ -0,0 +1,252 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import hudson.FilePath;
+import hudson.model.AbstractBuild;
+import hudson.plugins.clearcase.util.BuildScopedMap;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The elements loaded, unloaded or restored in a snapshot view by the updates of a build, so that downstream steps
+ * can build only what changed.
+ * <p>
+ * The output of <tt>cleartool update</tt> and <tt>cleartool setcs</tt> is parsed line by line while it is read, and
+ * each element found is appended to the file {@value #FILE_NAME} in the build directory, as
+ * <tt>KIND&lt;tab&gt;path</tt> where the path is relative to the view root. The file is copied to the workspace once
+ * the checkout is done.
+ * </p>
+ */
+public class UpdateManifest {
+
+    public static final String FILE_NAME = "clearcase-update-manifest.txt";
+
+    public enum Kind {
+        /** Loaded, or reloaded because it changed */
+        LOADED,
+        UNLOADED,
+        /** Hijacked, and replaced by the version selected */
+        HIJACK_RESTORED,
+        /** Hijacked, and left as is */
+        HIJACK_KEPT
+    }
+
+    private static final Pattern[] PATTERNS = new Pattern[Kind.values().length];
+    static {
+        PATTERNS[Kind.LOADED.ordinal()] = Pattern.compile("^Loading \"(.+?)\"");
+        PATTERNS[Kind.UNLOADED.ordinal()] = Pattern.compile("^Unload(?:ed|ing) (?:hijacked )?(?:object |file |directory )?\"(.+?)\"");
+        PATTERNS[Kind.HIJACK_RESTORED.ordinal()] = Pattern.compile("^(?:Overwriting|Overwrote|Renam(?:ed|ing)|Restor(?:ed|ing)|Undid hijack of) hijacked (?:object |file |directory )?\"(.+?)\"");
+        PATTERNS[Kind.HIJACK_KEPT.ordinal()] = Pattern.compile("^Keeping hijacked (?:object |file |directory )?\"(.+?)\"");
+    }
+
+    private static final BuildScopedMap<UpdateManifest> MANIFESTS = new BuildScopedMap<UpdateManifest>() {
+        @Override
+        protected UpdateManifest create(AbstractBuild<?, ?> build) {
+            // records nothing until the build starts its manifest
+            return new UpdateManifest(null);
+        }
+    };
+
+    private final int[] counts = new int[Kind.values().length];
+    private Writer writer;
+
+    UpdateManifest(Writer writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Starts the manifest of a build, replacing the one of a previous checkout.
+     */
+    public static UpdateManifest start(AbstractBuild<?, ?> build) throws IOException {
+        UpdateManifest manifest = new UpdateManifest(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(getFile(build)), "UTF-8")));
+        MANIFESTS.put(build, manifest);
+        return manifest;
+    }
+
+    /**
+     * @return the manifest the build is recording, or null if it isn't recording one
+     */
+    public static UpdateManifest getRecording(AbstractBuild<?, ?> build) {
+        if (build == null) {
+            return null;
+        }
+        UpdateManifest manifest = MANIFESTS.get(build);
+        return manifest != null && manifest.writer != null ? manifest : null;
+    }
+
+    public static File getFile(AbstractBuild<?, ?> build) {
+        return new File(build.getRootDir(), FILE_NAME);
+    }
+
+    /**
+     * @return the kind of element and its path reported by a line of output, or null if it reports none
+     */
+    static String[] parse(String line) {
+        for (Kind kind : Kind.values()) {
+            Matcher matcher = PATTERNS[kind.ordinal()].matcher(line);
+            if (matcher.find()) {
+                return new String[] { kind.name(), matcher.group(1) };
+            }
+        }
+        return null;
+    }
+
+    public int getCount(Kind kind) {
+        return counts[kind.ordinal()];
+    }
+
+    /**
+     * @return a stream that writes to out, and records the elements reported in what it writes
+     */
+    OutputStream record(OutputStream out) {
+        return new Recorder(out, false);
+    }
+
+    /**
+     * @return a stream that records the elements reported in what it writes, and only writes the other lines to out,
+     *         so that the output of an update isn't kept in memory element by element
+     */
+    OutputStream recordElements(OutputStream out) {
+        return new Recorder(out, true);
+    }
+
+    /**
+     * @return true if the line reported an element
+     */
+    synchronized boolean add(String line) throws IOException {
+        String[] entry = parse(line);
+        if (entry == null) {
+            return false;
+        }
+        if (writer == null) {
+            return true;
+        }
+        counts[Kind.valueOf(entry[0]).ordinal()]++;
+        writer.write(entry[0]);
+        writer.write('\t');
+        writer.write(entry[1]);
+        writer.write('\n');
+        return true;
+    }
+
+    /**
+     * Closes the manifest, and copies it to the workspace.
+     */
+    public void finish(AbstractBuild<?, ?> build, FilePath workspace) throws IOException, InterruptedException {
+        synchronized (this) {
+            if (writer == null) {
+                return;
+            }
+            writer.close();
+            writer = null;
+        }
+        if (workspace != null) {
+            workspace.child(FILE_NAME).copyFrom(new FilePath(getFile(build)));
+        }
+    }
+
+    /**
+     * Closes the manifest without copying it, when the checkout failed.
+     */
+    public synchronized void abort() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private class Recorder extends OutputStream {
+        private final OutputStream out;
+        private final boolean filter;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+
+        Recorder(OutputStream out, boolean filter) {
+            this.out = out;
+            this.filter = filter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!filter) {
+                out.write(b);
+            }
+            if (b == '\n') {
+                endOfLine(true);
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!filter) {
+                out.write(b, off, len);
+            }
+            int start = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    line.write(b, start, i - start);
+                    endOfLine(true);
+                    start = i + 1;
+                }
+            }
+            line.write(b, start, off + len - start);
+        }
+
+        private void endOfLine(boolean terminated) throws IOException {
+            boolean element = line.size() > 0 && add(StringUtils.chomp(line.toString(), "\r"));
+            if (filter && !element && (terminated || line.size() > 0)) {
+                line.writeTo(out);
+                if (terminated) {
+                    out.write('\n');
+                }
+            }
+            line.reset();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            endOfLine(false);
+            out.close();
+        }
+    }
+}
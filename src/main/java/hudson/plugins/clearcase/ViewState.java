@@ -0,0 +1,137 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import hudson.model.AbstractBuild;
+import hudson.plugins.clearcase.util.BuildScopedMap;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What is known about the views used by a build: whether a tag exists, the tag of the view at a path, the views
+ * started, the root of a view (pwv) and the data of a view (lsview -l). Shared by the {@link ClearToolExec} instances
+ * of the build, so that the checkout, the change log and the history actions don't ask cleartool twice.
+ * <p>
+ * Kept for the build while it runs, and never persisted with it. Forgotten each time a view is created, removed, or has
+ * its config spec set or updated.
+ * </p>
+ */
+public class ViewState {
+
+    static final String EXISTS = "exists";
+    static final String CURRENT_VIEW = "cview";
+    static final String VIEW_ROOT = "pwv";
+    static final String VIEW_DATA = "data";
+
+    interface Query<T> {
+        T execute() throws IOException, InterruptedException;
+    }
+
+    private static final BuildScopedMap<ViewState> STATES = new BuildScopedMap<ViewState>() {
+        @Override
+        protected ViewState create(AbstractBuild<?, ?> build) {
+            return new ViewState();
+        }
+    };
+
+    private Map<String, Object> values;
+    private Set<String> startedViews;
+    /** Counts the changes, so that a query started before one doesn't record its stale result */
+    private int generation;
+
+    ViewState() {
+    }
+
+    /**
+     * @return the state of the build if it is running, or else a state that isn't shared
+     */
+    public static ViewState get(AbstractBuild<?, ?> build) {
+        if (build == null || !build.isLogUpdated()) {
+            return new ViewState();
+        }
+        return STATES.getOrCreate(build);
+    }
+
+    /**
+     * Runs a query, unless it already ran since the last change. The query runs outside the lock, so that the threads
+     * of the build don't wait on each other's cleartool commands; its result isn't kept if the views changed meanwhile.
+     *
+     * @param kind the kind of query
+     * @param object the view tag or the view path queried
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(String kind, String object, Query<T> query) throws IOException, InterruptedException {
+        String key = kind + '|' + object;
+        int queriedGeneration;
+        synchronized (this) {
+            if (values != null && values.containsKey(key)) {
+                return (T) values.get(key);
+            }
+            queriedGeneration = generation;
+        }
+        T value = query.execute();
+        synchronized (this) {
+            if (generation == queriedGeneration) {
+                if (values == null) {
+                    values = new HashMap<String, Object>();
+                }
+                values.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    synchronized boolean isStarted(String viewTag) {
+        return startedViews != null && startedViews.contains(viewTag);
+    }
+
+    synchronized void setStarted(String viewTag) {
+        if (startedViews == null) {
+            startedViews = new HashSet<String>();
+        }
+        startedViews.add(viewTag);
+    }
+
+    /**
+     * Forgets what is known about the content of the views (setcs, update...). Started views stay started.
+     */
+    public synchronized void invalidate() {
+        values = null;
+        generation++;
+    }
+
+    /**
+     * Forgets everything, for changes to the views themselves (mkview, rmview, endview...).
+     */
+    public synchronized void invalidateAll() {
+        values = null;
+        generation++;
+        startedViews = null;
+    }
+}
@@ -30,6 +30,12 @@ import hudson.plugins.clearcase.ClearTool;
 import hudson.plugins.clearcase.ConfigSpec;
 import hudson.plugins.clearcase.MkViewParameters;
 import hudson.plugins.clearcase.ViewType;
+import hudson.plugins.clearcase.action.SnapshotViewPlan.Action;
+import hudson.plugins.clearcase.cleanup.CleanupTask;
+import hudson.plugins.clearcase.cleanup.ViewCleanupService;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
+import hudson.plugins.clearcase.util.NodeClearTool;
 import hudson.plugins.clearcase.viewstorage.ViewStorage;
 
 import java.io.IOException;
@@ -71,6 +77,7 @@ public abstract class AbstractCheckoutAction implements CheckOutAction {
     protected final boolean useUpdate;
     protected final String viewPath;
     protected final ViewStorage viewStorage;
+    private String reusedConfigSpec;
 
     public AbstractCheckoutAction(ClearTool cleartool, String[] loadRules, boolean useUpdate, String viewPath, ViewStorage viewStorage) {
         Validate.notNull(cleartool);
@@ -84,14 +91,7 @@ public abstract class AbstractCheckoutAction implements CheckOutAction {
     @Override
     public boolean isViewValid(Launcher launcher, FilePath workspace, String viewTag) throws IOException, InterruptedException {
         Validate.notEmpty(viewPath);
-        FilePath filePath = new FilePath(workspace, viewPath);
-        boolean viewPathExists = filePath.exists();
-        try {
-            String currentViewTag = cleartool.lscurrentview(viewPath);
-            return cleartool.doesViewExist(viewTag) && viewPathExists && viewTag.equals(currentViewTag);
-        } catch (IOException e) {
-            return false;
-        }
+        return SnapshotViewPlanner.run(cleartool, workspace, viewTag, viewPath, useUpdate, true).getAction() == Action.REUSE;
     }
     /**
      * Manages the re-creation of the view if needed. If something exists but not referenced correctly as a view, it will be renamed and the view will be created
@@ -104,48 +104,85 @@ public abstract class AbstractCheckoutAction implements CheckOutAction {
      * @throws InterruptedException
      */
     protected boolean cleanAndCreateViewIfNeeded(FilePath workspace, String viewTag, String viewPath, String streamSelector) throws IOException, InterruptedException {
+        Phase phase = PhaseProfile.enter("prepare view");
+        try {
+            return prepareView(workspace, viewTag, viewPath, streamSelector);
+        } finally {
+            PhaseProfile.exit(phase);
+        }
+    }
+
+    private boolean prepareView(FilePath workspace, String viewTag, String viewPath, String streamSelector) throws IOException, InterruptedException {
         Validate.notEmpty(viewPath);
-        FilePath filePath = new FilePath(workspace, viewPath);
-        boolean viewPathExists = filePath.exists();
-        boolean doViewCreation = true;
-        if (cleartool.doesViewExist(viewTag)) {
-            if (viewPathExists) {
-                if (viewTag.equals(cleartool.lscurrentview(viewPath))) {
-                    if (useUpdate) {
-                        doViewCreation = false;
-                    } else {
-                        cleartool.rmview(viewPath);
-                    }
-                } else {
-                    filePath.renameTo(getUnusedFilePath(workspace, viewPath));
-                    rmviewtag(viewTag);
-                }
-            } else {
-                rmviewtag(viewTag);
-            }
-        } else {
-            if (viewPathExists) {
-                filePath.renameTo(getUnusedFilePath(workspace, viewPath));
-            }
+        SnapshotViewPlan plan = SnapshotViewPlanner.run(cleartool, workspace, viewTag, viewPath, useUpdate, false);
+        reusedConfigSpec = plan.getConfigSpec();
+        if (plan.getKeptPath() != null) {
+            scheduleKeptDirectoryDeletion(workspace, plan.getKeptPath());
         }
-        if (doViewCreation) {
-            MkViewParameters params = new MkViewParameters();
-            params.setType(ViewType.Snapshot);
-            params.setViewPath(viewPath);
-            params.setViewTag(viewTag);
-            params.setStreamSelector(streamSelector);
-            params.setViewStorage(viewStorage);
-            cleartool.mkview(params);
+        if (plan.getAction() == Action.REUSE) {
+            return false;
+        }
+        if (plan.getAction() == Action.RECREATE) {
+            removeView(workspace, viewTag, viewPath);
+        }
+        if (provideView(workspace, viewTag, viewPath, streamSelector)) {
+            return false;
         }
-        return doViewCreation;
+        MkViewParameters params = new MkViewParameters();
+        params.setType(ViewType.Snapshot);
+        params.setViewPath(viewPath);
+        params.setViewTag(viewTag);
+        params.setStreamSelector(streamSelector);
+        params.setViewStorage(viewStorage);
+        cleartool.mkview(params);
+        return true;
     }
 
-    private void rmviewtag(String viewTag) throws InterruptedException, IOException{
-        try {
-            cleartool.rmviewtag(viewTag);
-        } catch(IOException e) {
-            // ClearCase RT doesn't support rmview -tag
-            cleartool.rmtag(viewTag);
+    /**
+     * @return the config spec of the view, as read while checking it when it is reused
+     */
+    protected String catcs(String viewTag) throws IOException, InterruptedException {
+        if (reusedConfigSpec != null) {
+            return reusedConfigSpec;
+        }
+        return cleartool.catcs(viewTag);
+    }
+
+    /**
+     * Called instead of creating a new view: an existing view can be provided at the view path, with the view tag.
+     * @return true if a view was provided, false if it must be created
+     */
+    protected boolean provideView(FilePath workspace, String viewTag, String viewPath, String streamSelector) throws IOException, InterruptedException {
+        return false;
+    }
+
+    /**
+     * Removes the view of the workspace, which is about to be created again. When the {@link ViewCleanupService} is
+     * available, only the tag is removed right away: the directory is renamed and deleted in the background.
+     */
+    protected void removeView(FilePath workspace, String viewTag, String viewPath) throws IOException, InterruptedException {
+        ViewCleanupService cleanupService = ViewCleanupService.getInstance();
+        String node = cleanupService == null ? null : NodeClearTool.getNodeName(workspace);
+        if (node == null) {
+            cleartool.rmview(viewPath);
+            return;
+        }
+        FilePath keptPath = SnapshotViewPlanner.getUnusedFilePath(new FilePath(workspace, viewPath));
+        new FilePath(workspace, viewPath).renameTo(keptPath);
+        SnapshotViewPlanner.rmviewtag(cleartool, viewTag);
+        cleanupService.submit(CleanupTask.deleteDirectory(node, keptPath.getRemote(), 0));
+    }
+
+    /**
+     * Deletes a directory renamed as it was in the way of the view, after
+     * {@link ViewCleanupService#KEPT_DIRECTORY_RETENTION}.
+     */
+    private void scheduleKeptDirectoryDeletion(FilePath workspace, String keptPath) {
+        ViewCleanupService cleanupService = ViewCleanupService.getInstance();
+        String node = cleanupService == null ? null : NodeClearTool.getNodeName(workspace);
+        if (node != null) {
+            long notBefore = System.currentTimeMillis() + ViewCleanupService.KEPT_DIRECTORY_RETENTION;
+            cleanupService.submit(CleanupTask.deleteDirectory(node, keptPath, notBefore));
         }
     }
 
@@ -168,14 +205,4 @@ public abstract class AbstractCheckoutAction implements CheckOutAction {
         }
         return new AbstractCheckoutAction.LoadRulesDelta(removedLoadRules, addedLoadRules);
     }
-
-    private FilePath getUnusedFilePath(FilePath workspace, String viewName) throws IOException, InterruptedException {
-        for (int i = 1; i < Integer.MAX_VALUE; i++) {
-            FilePath result = new FilePath(workspace, viewName + ".keep." + i);
-            if (!result.exists()) {
-                return result;
-            }
-        }
-        return null;
-    }
 }
@@ -32,6 +32,8 @@ import hudson.plugins.clearcase.ClearTool;
 import hudson.plugins.clearcase.ClearTool.SetcsOption;
 import hudson.plugins.clearcase.MkViewParameters;
 import hudson.plugins.clearcase.ViewType;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
 import hudson.plugins.clearcase.util.PathUtil;
 import hudson.plugins.clearcase.viewstorage.ViewStorage;
 
@@ -70,15 +72,25 @@ public class DynamicCheckoutAction implements CheckOutAction {
 
     public boolean checkout(Launcher launcher, FilePath workspace, String viewTag) throws IOException,
             InterruptedException {
-        if (createView) {
-            createView(viewTag);
+        Phase phase = PhaseProfile.enter("prepare view");
+        try {
+            if (createView) {
+                createView(viewTag);
+            }
+            startView(viewTag);
+        } finally {
+            PhaseProfile.exit(phase);
         }
-        startView(viewTag);
 
         String currentConfigSpec = cleartool.catcs(viewTag).trim();
 
         if (updateConfigSpec) {
-            currentConfigSpec = updateConfigSpec(launcher, viewTag, currentConfigSpec);
+            phase = PhaseProfile.enter("set config spec");
+            try {
+                currentConfigSpec = updateConfigSpec(launcher, viewTag, currentConfigSpec);
+            } finally {
+                PhaseProfile.exit(phase);
+            }
         }
 
         // add config spec to dataAction
@@ -29,6 +29,8 @@ import hudson.Launcher;
 import hudson.plugins.clearcase.ClearTool;
 import hudson.plugins.clearcase.ClearTool.SetcsOption;
 import hudson.plugins.clearcase.ConfigSpec;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
 import hudson.plugins.clearcase.viewstorage.ViewStorage;
 
 import java.io.IOException;
@@ -49,24 +51,40 @@ public class SnapshotCheckoutAction extends AbstractCheckoutAction {
 
     public boolean checkout(Launcher launcher, FilePath workspace, String viewTag) throws IOException, InterruptedException {
         boolean viewCreated = cleanAndCreateViewIfNeeded(workspace, viewTag, viewPath, null);
+        Phase phase = PhaseProfile.enter("update view");
+        try {
+            return updateView(launcher, viewTag, viewCreated);
+        } finally {
+            PhaseProfile.exit(phase);
+        }
+    }
 
+    private boolean updateView(Launcher launcher, String viewTag, boolean viewCreated) throws IOException, InterruptedException {
         // At this stage, we have a valid view and a valid path
-        boolean needSetCs = true;
+        ConfigSpec targetConfigSpec = configSpec.setLoadRules(loadRules);
+        ConfigSpec.Change change = ConfigSpec.Change.RULES;
         AbstractCheckoutAction.LoadRulesDelta loadRulesDelta = null;
         if (!viewCreated) {
-            ConfigSpec viewConfigSpec = new ConfigSpec(cleartool.catcs(viewTag), launcher.isUnix());
+            ConfigSpec viewConfigSpec = new ConfigSpec(catcs(viewTag), launcher.isUnix());
             loadRulesDelta = getLoadRulesDelta(viewConfigSpec.getLoadRules(), launcher);
-            needSetCs = !configSpec.stripLoadRules().equals(viewConfigSpec.stripLoadRules()) || !ArrayUtils.isEmpty(loadRulesDelta.getRemoved());
+            change = targetConfigSpec.getChangeFrom(viewConfigSpec);
+            if (change == ConfigSpec.Change.LOAD_RULES && !ArrayUtils.isEmpty(loadRulesDelta.getRemoved())) {
+                // Only setcs unloads the removed load rules
+                change = ConfigSpec.Change.RULES;
+            }
         }
 
-        if (needSetCs) {
+        if (change == ConfigSpec.Change.RULES) {
+            // setcs updates the whole view, no need to update it again
             try {
-                cleartool.setcs(viewPath, SetcsOption.CONFIGSPEC, configSpec.setLoadRules(loadRules).getRaw());
+                cleartool.setcs(viewPath, SetcsOption.CONFIGSPEC, targetConfigSpec.getRaw());
             } catch (IOException e) {
                 launcher.getListener().fatalError(e.toString());
                 return false;
             }
-        } else {
+            return true;
+        }
+        if (change == ConfigSpec.Change.LOAD_RULES) {
             String[] addedLoadRules = loadRulesDelta.getAdded();
             if (!ArrayUtils.isEmpty(addedLoadRules)) {
                 // Config spec haven't changed, but there are new load rules
@@ -79,13 +97,11 @@ public class SnapshotCheckoutAction extends AbstractCheckoutAction {
             }
         }
         // Perform a full update of the view. to reevaluate config spec
-        if (!viewCreated) {
-            try {
-                cleartool.setcs(viewPath, SetcsOption.CURRENT, null);
-            } catch (IOException e) {
-                launcher.getListener().fatalError(e.toString());
-                return false;
-            }
+        try {
+            cleartool.setcs(viewPath, SetcsOption.CURRENT, null);
+        } catch (IOException e) {
+            launcher.getListener().fatalError(e.toString());
+            return false;
         }
         return true;
     }
@@ -0,0 +1,77 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.action;
+
+import java.io.Serializable;
+
+/**
+ * What {@link SnapshotViewPlanner} found and did about the snapshot view of a workspace.
+ */
+public class SnapshotViewPlan implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Action {
+        /** The view is valid and is updated in place */
+        REUSE,
+        /** The view is valid, but must be removed before being created again */
+        RECREATE,
+        /** Whatever was in the way has been cleaned, the view must be created */
+        CREATE
+    }
+
+    private final Action action;
+    private final String keptPath;
+    private final String configSpec;
+
+    SnapshotViewPlan(Action action, String keptPath, String configSpec) {
+        this.action = action;
+        this.keptPath = keptPath;
+        this.configSpec = configSpec;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * @return the absolute path a directory in the way of the view has been renamed to, null if none
+     */
+    public String getKeptPath() {
+        return keptPath;
+    }
+
+    /**
+     * @return the config spec of the reused view, null if the view isn't reused
+     */
+    public String getConfigSpec() {
+        return configSpec;
+    }
+
+    @Override
+    public String toString() {
+        return action + (keptPath != null ? " (kept " + keptPath + ")" : "");
+    }
+}
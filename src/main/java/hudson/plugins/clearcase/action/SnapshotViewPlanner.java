@@ -0,0 +1,163 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.action;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.ClearToolLauncher;
+import hudson.plugins.clearcase.ClearToolSnapshot;
+import hudson.plugins.clearcase.HudsonClearToolLauncher;
+import hudson.plugins.clearcase.action.SnapshotViewPlan.Action;
+import hudson.remoting.VirtualChannel;
+import hudson.util.VariableResolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Probes the snapshot view of a workspace and cleans what is in the way of its creation: a directory which isn't the
+ * view is renamed, a tag which doesn't point to the view directory is removed.
+ * <p>
+ * For a workspace on a slave, the whole sequence of checks runs on the slave in a single call, instead of a round
+ * trip for each file system check and cleartool command.
+ * </p>
+ */
+class SnapshotViewPlanner implements FileCallable<SnapshotViewPlan> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String viewTag;
+    private final String viewPath;
+    private final boolean useUpdate;
+    private final boolean probeOnly;
+    private final String executable;
+    private final String scmName;
+    private final TaskListener listener;
+
+    /**
+     * @param probeOnly true to only tell whether the view can be reused, without cleaning anything
+     */
+    SnapshotViewPlanner(String viewTag, String viewPath, boolean useUpdate, boolean probeOnly, String executable, String scmName,
+            TaskListener listener) {
+        this.viewTag = viewTag;
+        this.viewPath = viewPath;
+        this.useUpdate = useUpdate;
+        this.probeOnly = probeOnly;
+        this.executable = executable;
+        this.scmName = scmName;
+        this.listener = listener;
+    }
+
+    /**
+     * Runs the planner where the workspace is when the cleartool commands can be run there, else from here.
+     */
+    static SnapshotViewPlan run(ClearTool cleartool, FilePath workspace, String viewTag, String viewPath, boolean useUpdate,
+            boolean probeOnly) throws IOException, InterruptedException {
+        ClearToolLauncher launcher = cleartool.getLauncher();
+        if (workspace.isRemote() && launcher instanceof HudsonClearToolLauncher) {
+            HudsonClearToolLauncher hudsonLauncher = (HudsonClearToolLauncher) launcher;
+            return workspace.act(new SnapshotViewPlanner(viewTag, viewPath, useUpdate, probeOnly, hudsonLauncher.getExecutable(),
+                    hudsonLauncher.getScmName(), hudsonLauncher.getListener()));
+        }
+        return new SnapshotViewPlanner(viewTag, viewPath, useUpdate, probeOnly, null, null, null).plan(cleartool, workspace);
+    }
+
+    public SnapshotViewPlan invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
+        FilePath workspace = new FilePath(f);
+        ClearToolLauncher launcher = new HudsonClearToolLauncher(executable, scmName, listener, workspace, new Launcher.LocalLauncher(listener));
+        return plan(new ClearToolSnapshot(new VariableResolver.ByMap<String>(new HashMap<String, String>()), launcher, null), workspace);
+    }
+
+    SnapshotViewPlan plan(ClearTool cleartool, FilePath workspace) throws IOException, InterruptedException {
+        FilePath filePath = new FilePath(workspace, viewPath);
+        boolean viewPathExists = filePath.exists();
+        if (probeOnly) {
+            try {
+                String currentViewTag = cleartool.lscurrentview(viewPath);
+                boolean valid = cleartool.doesViewExist(viewTag) && viewPathExists && viewTag.equals(currentViewTag);
+                return new SnapshotViewPlan(valid ? Action.REUSE : Action.CREATE, null, null);
+            } catch (IOException e) {
+                return new SnapshotViewPlan(Action.CREATE, null, null);
+            }
+        }
+        String keptPath = null;
+        if (cleartool.doesViewExist(viewTag)) {
+            if (viewPathExists) {
+                if (viewTag.equals(cleartool.lscurrentview(viewPath))) {
+                    if (useUpdate) {
+                        return new SnapshotViewPlan(Action.REUSE, null, cleartool.catcs(viewTag));
+                    }
+                    return new SnapshotViewPlan(Action.RECREATE, null, null);
+                }
+                keptPath = keep(filePath);
+                rmviewtag(cleartool, viewTag);
+            } else {
+                rmviewtag(cleartool, viewTag);
+            }
+        } else if (viewPathExists) {
+            keptPath = keep(filePath);
+        }
+        return new SnapshotViewPlan(Action.CREATE, keptPath, null);
+    }
+
+    private static String keep(FilePath filePath) throws IOException, InterruptedException {
+        FilePath keptPath = getUnusedFilePath(filePath);
+        filePath.renameTo(keptPath);
+        return keptPath.getRemote();
+    }
+
+    /**
+     * @return the first path.keep.N sibling of the path which doesn't exist
+     */
+    static FilePath getUnusedFilePath(FilePath filePath) throws IOException, InterruptedException {
+        // list the siblings once, rather than checking each name
+        Set<String> siblings = new HashSet<String>();
+        for (FilePath sibling : filePath.getParent().list()) {
+            siblings.add(sibling.getName());
+        }
+        String prefix = filePath.getName() + ".keep.";
+        for (int i = 1; i < Integer.MAX_VALUE; i++) {
+            if (!siblings.contains(prefix + i)) {
+                return filePath.getParent().child(prefix + i);
+            }
+        }
+        return null;
+    }
+
+    static void rmviewtag(ClearTool cleartool, String viewTag) throws InterruptedException, IOException {
+        try {
+            cleartool.rmviewtag(viewTag);
+        } catch (IOException e) {
+            // ClearCase RT doesn't support rmview -tag
+            cleartool.rmtag(viewTag);
+        }
+    }
+}
@@ -34,7 +34,10 @@ import hudson.plugins.clearcase.ClearTool;
 import hudson.plugins.clearcase.ClearTool.SetcsOption;
 import hudson.plugins.clearcase.MkViewParameters;
 import hudson.plugins.clearcase.ViewType;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
 import hudson.plugins.clearcase.ucm.UcmCommon;
+import hudson.plugins.clearcase.ucm.UcmBuildQueries;
 import hudson.plugins.clearcase.viewstorage.ViewStorage;
 
 import java.io.IOException;
@@ -84,17 +87,22 @@ public class UcmDynamicCheckoutAction implements CheckOutAction {
                 dataAction.setStream(stream);
             }
         }
-        if (createDynView) {
-            if (freezeCode) {
-                checkoutCodeFreeze(viewTag);
+        Phase phase = PhaseProfile.enter(createDynView && freezeCode ? "freeze code" : "prepare view");
+        try {
+            if (createDynView) {
+                if (freezeCode) {
+                    checkoutCodeFreeze(viewTag);
+                } else {
+                    prepareView(viewTag, stream);
+                    cleartool.startView(viewTag);
+                    cleartool.setcsTag(viewTag, SetcsOption.STREAM, null);
+                }
             } else {
-                prepareView(viewTag, stream);
                 cleartool.startView(viewTag);
                 cleartool.setcsTag(viewTag, SetcsOption.STREAM, null);
             }
-        } else {
-            cleartool.startView(viewTag);
-            cleartool.setcsTag(viewTag, SetcsOption.STREAM, null);
+        } finally {
+            PhaseProfile.exit(phase);
         }
 
         return true;
@@ -124,10 +132,12 @@ public class UcmDynamicCheckoutAction implements CheckOutAction {
         formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
         String dateStr = formatter.format(build.getTimestamp().getTime()).toLowerCase();
 
+        UcmBuildQueries queries = UcmBuildQueries.get(build);
         cleartool.mkbl((BASELINE_NAME + dateStr), getConfiguredStreamViewName(), (BASELINE_COMMENT + dateStr), false, false, null, null, null);
+        queries.invalidate(stream);
 
         // get latest baselines on the configured stream
-        List<Baseline> latestBlsOnConfgiuredStream = UcmCommon.getLatestBlsWithCompOnStream(cleartool, stream,
+        List<Baseline> latestBlsOnConfgiuredStream = UcmCommon.getLatestBlsWithCompOnStream(queries, cleartool, stream,
                 getConfiguredStreamViewName());
 
         // fix Not labeled baselines
@@ -139,6 +149,7 @@ public class UcmDynamicCheckoutAction implements CheckOutAction {
 
                 List<Baseline> baseLineDescList = cleartool.mkbl((BASELINE_NAME
                 + dateStr), getConfiguredStreamViewName(), (BASELINE_COMMENT + dateStr), false, true, readWriteCompList, null, null);
+                queries.invalidate(stream);
 
                 String newBaseline = baseLineDescList.get(0).getBaselineName() + "@" + UcmCommon.getVob(baseLineDesc.getComponentDesc().getName());
 
@@ -148,6 +159,7 @@ public class UcmDynamicCheckoutAction implements CheckOutAction {
 
         // rebase build stream
         UcmCommon.rebase(cleartool, viewName, latestBlsOnConfgiuredStream);
+        queries.invalidate(getBuildStream());
 
         // add baselines to build - to be later used by getChange
         ClearCaseDataAction dataAction = build.getAction(ClearCaseDataAction.class);
@@ -26,26 +26,83 @@ package hudson.plugins.clearcase.action;
 
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.model.AbstractBuild;
 import hudson.plugins.clearcase.ClearTool;
 import hudson.plugins.clearcase.ClearTool.SetcsOption;
 import hudson.plugins.clearcase.ConfigSpec;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
+import hudson.plugins.clearcase.viewpool.PooledView;
+import hudson.plugins.clearcase.viewpool.ViewPool;
 import hudson.plugins.clearcase.viewstorage.ViewStorage;
 
 import java.io.IOException;
+import java.io.PrintStream;
 
 import org.apache.commons.lang.ArrayUtils;
 
 public class UcmSnapshotCheckoutAction extends AbstractCheckoutAction {
 
     private final String streamSelector;
+    private final AbstractBuild<?, ?> build;
+
     public UcmSnapshotCheckoutAction(ClearTool cleartool, String streamSelector, String[] loadRules, boolean useUpdate, String viewPath, ViewStorage viewStorage) {
+        this(cleartool, streamSelector, loadRules, useUpdate, viewPath, viewStorage, null);
+    }
+
+    /**
+     * @param build the build checking out, to lease views from the {@link ViewPool}. null to always create the view.
+     */
+    public UcmSnapshotCheckoutAction(ClearTool cleartool, String streamSelector, String[] loadRules, boolean useUpdate, String viewPath,
+            ViewStorage viewStorage, AbstractBuild<?, ?> build) {
         super(cleartool, loadRules, useUpdate, viewPath, viewStorage);
         this.streamSelector = streamSelector;
+        this.build = build;
+    }
+
+    @Override
+    protected boolean provideView(FilePath workspace, String viewTag, String viewPath, String streamSelector) throws IOException, InterruptedException {
+        if (build == null || new FilePath(workspace, viewPath).exists()) {
+            return false;
+        }
+        ViewPool pool = ViewPool.getInstance();
+        PooledView view = pool.lease(build.getBuiltOnStr(), streamSelector, viewStorage, loadRules, build);
+        if (view == null) {
+            return false;
+        }
+        PrintStream logger = cleartool.getLauncher().getListener().getLogger();
+        try {
+            pool.adopt(view, cleartool, workspace, viewPath, viewTag);
+        } catch (IOException e) {
+            logger.println("Couldn't use pooled view " + view.getViewTag() + ", creating a new view: " + e.getMessage());
+            return false;
+        }
+        logger.println("Using pooled view " + view.getViewTag() + " updated on " + view.getLastUpdate());
+        return true;
+    }
+
+    @Override
+    protected void removeView(FilePath workspace, String viewTag, String viewPath) throws IOException, InterruptedException {
+        if (build != null
+                && ViewPool.getInstance().giveBack(build.getBuiltOnStr(), streamSelector, viewStorage, loadRules, cleartool, workspace, viewPath, viewTag)) {
+            cleartool.getLauncher().getListener().getLogger().println("Gave view " + viewTag + " back to the view pool");
+            return;
+        }
+        super.removeView(workspace, viewTag, viewPath);
     }
 
     @Override
     public boolean checkout(Launcher launcher, FilePath workspace, String viewTag) throws IOException, InterruptedException {
         boolean viewCreated = cleanAndCreateViewIfNeeded(workspace, viewTag, viewPath, streamSelector);
+        Phase phase = PhaseProfile.enter("update view");
+        try {
+            return updateView(launcher, viewTag, viewCreated);
+        } finally {
+            PhaseProfile.exit(phase);
+        }
+    }
+
+    private boolean updateView(Launcher launcher, String viewTag, boolean viewCreated) throws IOException, InterruptedException {
         // At this stage, we have a valid view and a valid path
         if (viewCreated) {
             // If the view is brand new, we just have to add the load rules
@@ -56,7 +113,7 @@ public class UcmSnapshotCheckoutAction extends AbstractCheckoutAction {
                 return false;
             }
         } else {
-            ConfigSpec viewConfigSpec = new ConfigSpec(cleartool.catcs(viewTag), launcher.isUnix());
+            ConfigSpec viewConfigSpec = new ConfigSpec(catcs(viewTag), launcher.isUnix());
             AbstractCheckoutAction.LoadRulesDelta loadRulesDelta = getLoadRulesDelta(viewConfigSpec.getLoadRules(), launcher);
             if (!ArrayUtils.isEmpty(loadRulesDelta.getRemoved())) {
                 try {
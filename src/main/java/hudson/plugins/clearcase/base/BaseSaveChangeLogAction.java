@@ -39,9 +39,26 @@ import java.util.List;
  */
 public class BaseSaveChangeLogAction implements SaveChangeLogAction {
 
+    private final boolean compact;
+
+    public BaseSaveChangeLogAction() {
+        this(false);
+    }
+
+    /**
+     * @param compact true to store the change log in the compact binary format instead of xml
+     */
+    public BaseSaveChangeLogAction(boolean compact) {
+        this.compact = compact;
+    }
+
     public void saveChangeLog(File changeLogFile, List<? extends Entry> entries) throws IOException, InterruptedException {
         FileOutputStream fileOutputStream = new FileOutputStream(changeLogFile);
-        ClearCaseChangeLogSet.saveToChangeLog(fileOutputStream, (List<ClearCaseChangeLogEntry>) entries);
+        if (compact) {
+            ClearCaseChangeLogSet.saveToCompactChangeLog(fileOutputStream, (List<ClearCaseChangeLogEntry>) entries);
+        } else {
+            ClearCaseChangeLogSet.saveToChangeLog(fileOutputStream, (List<ClearCaseChangeLogEntry>) entries);
+        }
         fileOutputStream.close();
     }
 }
@@ -0,0 +1,131 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.cleanup;
+
+import java.util.Date;
+
+/**
+ * A view removal waiting in the queue of the {@link ViewCleanupService}.
+ */
+public class CleanupTask {
+
+    private final String node;
+    private final String path;
+    private final String viewTag;
+    private int attempts;
+    private long nextAttempt;
+    private String lastError;
+    private transient boolean running;
+
+    /**
+     * @param node the node to run on, empty for the master
+     * @param path the absolute path on the node of a directory to remove. If a view tag is given, the directory is only
+     *            removed if it is still the root of that view. Otherwise, the view it contains, if any, is removed with
+     *            it. Can be null.
+     * @param viewTag the tag of a view to remove. Can be null.
+     * @param notBefore the time before which the task mustn't run
+     */
+    public CleanupTask(String node, String path, String viewTag, long notBefore) {
+        this.node = node;
+        this.path = path;
+        this.viewTag = viewTag;
+        this.nextAttempt = notBefore;
+    }
+
+    public static CleanupTask removeViewTag(String node, String viewTag) {
+        return new CleanupTask(node, null, viewTag, 0);
+    }
+
+    public static CleanupTask removeView(String node, String path, String viewTag) {
+        return new CleanupTask(node, path, viewTag, 0);
+    }
+
+    public static CleanupTask deleteDirectory(String node, String path, long notBefore) {
+        return new CleanupTask(node, path, null, notBefore);
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getViewTag() {
+        return viewTag;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public Date getNextAttempt() {
+        return new Date(nextAttempt);
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    boolean isDue(long now) {
+        return !running && nextAttempt <= now;
+    }
+
+    void setRunning(boolean running) {
+        this.running = running;
+    }
+
+    /**
+     * Records a failed attempt, and delays the next one exponentially.
+     */
+    void failed(String error, long now, long retryDelay) {
+        lastError = error;
+        attempts++;
+        nextAttempt = now + (retryDelay << Math.min(attempts - 1, 10));
+    }
+
+    /**
+     * Delays the next attempt, e.g. while the node is offline.
+     */
+    void postpone(long now, long delay) {
+        nextAttempt = now + delay;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("remove");
+        if (viewTag != null) {
+            sb.append(" view ").append(viewTag);
+        }
+        if (path != null) {
+            sb.append(" directory ").append(path);
+        }
+        if (node.length() > 0) {
+            sb.append(" on ").append(node);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,353 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.cleanup;
+
+import hudson.FilePath;
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.AbstractClearCaseScm;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.util.BuildVariableResolver;
+import hudson.plugins.clearcase.util.NodeClearTool;
+import hudson.scm.SCM;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Removes views in the background, out of the checkout and of the request threads.
+ * <p>
+ * Tasks are kept in a queue persisted under the Hudson root directory, run at most {@link #MAX_CONCURRENT_TASKS} at a
+ * time, and retried with an exponential delay when they fail. When enabled, a garbage collection also removes the view
+ * tags ending with {@value #VIEW_TAG_SUFFIX} that no job uses anymore.
+ * </p>
+ */
+public class ViewCleanupService {
+
+    private static final Logger LOGGER = Logger.getLogger(ViewCleanupService.class.getName());
+
+    static final String QUEUE_FILE = "clearcase-cleanup-queue.xml";
+
+    /** Number of attempts after which a task is given up */
+    public static final int MAX_ATTEMPTS = 8;
+
+    /** Delay before the first retry, doubled on each attempt */
+    static final long RETRY_DELAY = 5 * 60 * 1000L;
+
+    /** Time the directories renamed by the checkout are kept, for inspection, before being removed */
+    public static final long KEPT_DIRECTORY_RETENTION = 24 * 60 * 60 * 1000L;
+
+    static final int MAX_CONCURRENT_TASKS = Integer.getInteger(ViewCleanupService.class.getName() + ".maxConcurrentTasks", 4);
+
+    static final String VIEW_TAG_SUFFIX = "_hudson";
+
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{[^}]*\\}|\\$\\w+");
+
+    private static ViewCleanupService instance;
+
+    /**
+     * @return the service, null when Hudson isn't running
+     */
+    public static synchronized ViewCleanupService getInstance() {
+        if (instance == null) {
+            Hudson hudson = Hudson.getInstance();
+            if (hudson == null) {
+                return null;
+            }
+            instance = new ViewCleanupService(new XmlFile(Hudson.XSTREAM, new File(hudson.getRootDir(), QUEUE_FILE)));
+        }
+        return instance;
+    }
+
+    private final XmlFile file;
+    private final List<CleanupTask> tasks;
+    private Set<String> suspects = new HashSet<String>();
+
+    ViewCleanupService(XmlFile file) {
+        this.file = file;
+        this.tasks = load();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<CleanupTask> load() {
+        if (file != null && file.exists()) {
+            try {
+                return new ArrayList<CleanupTask>((List<CleanupTask>) file.read());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Couldn't read the view cleanup queue " + file, e);
+            }
+        }
+        return new ArrayList<CleanupTask>();
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.write(tasks);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't save the view cleanup queue " + file, e);
+        }
+    }
+
+    public synchronized void submit(CleanupTask task) {
+        tasks.add(task);
+        save();
+    }
+
+    public synchronized List<CleanupTask> getTasks() {
+        return new ArrayList<CleanupTask>(tasks);
+    }
+
+    /**
+     * Runs the tasks which are due, at most {@link #MAX_CONCURRENT_TASKS} at a time.
+     */
+    public void process(final TaskListener listener) throws InterruptedException {
+        List<Callable<Void>> due = new ArrayList<Callable<Void>>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (final CleanupTask task : tasks) {
+                if (task.isDue(now)) {
+                    task.setRunning(true);
+                    due.add(new Callable<Void>() {
+                        public Void call() throws Exception {
+                            run(task, listener);
+                            return null;
+                        }
+                    });
+                }
+            }
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(MAX_CONCURRENT_TASKS, due.size()));
+        try {
+            executor.invokeAll(due);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void run(CleanupTask task, TaskListener listener) {
+        boolean done = false;
+        String error = null;
+        try {
+            done = execute(task, listener);
+        } catch (IOException e) {
+            error = e.getMessage();
+        } catch (InterruptedException e) {
+            error = "interrupted";
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to " + task, e);
+            error = e.toString();
+        }
+        synchronized (this) {
+            task.setRunning(false);
+            long now = System.currentTimeMillis();
+            if (done) {
+                tasks.remove(task);
+            } else if (error == null) {
+                // node offline
+                task.postpone(now, RETRY_DELAY);
+            } else {
+                task.failed(error, now, RETRY_DELAY);
+                if (task.getAttempts() >= MAX_ATTEMPTS) {
+                    LOGGER.warning("Giving up, after " + task.getAttempts() + " attempts, to " + task + ": " + error);
+                    tasks.remove(task);
+                }
+            }
+            save();
+        }
+    }
+
+    /**
+     * @return true if the task is done, false if it must be run later as its node is offline
+     */
+    boolean execute(CleanupTask task, TaskListener listener) throws IOException, InterruptedException {
+        Node node = NodeClearTool.getNode(task.getNode());
+        boolean nodeRemoved = node == null;
+        if (nodeRemoved) {
+            if (task.getViewTag() == null) {
+                // the node and its directories are gone
+                return true;
+            }
+            // view tags can be removed from any node
+            node = Hudson.getInstance();
+        }
+        FilePath root = node.getRootPath();
+        if (root == null) {
+            return false;
+        }
+        if (task.getPath() != null && !nodeRemoved) {
+            FilePath directory = new FilePath(root.getChannel(), task.getPath());
+            if (directory.exists()) {
+                ClearTool cleartool = NodeClearTool.create(node, directory.getParent(), listener, "ClearCase view cleanup");
+                if (task.getViewTag() == null) {
+                    try {
+                        cleartool.rmview(directory.getName());
+                    } catch (IOException e) {
+                        // not a view
+                    }
+                    if (directory.exists()) {
+                        directory.deleteRecursive();
+                    }
+                } else if (task.getViewTag().equals(getCurrentView(cleartool, directory.getName()))) {
+                    cleartool.rmview(directory.getName());
+                }
+            }
+        }
+        if (task.getViewTag() != null) {
+            ClearTool cleartool = NodeClearTool.create(node, root, listener, "ClearCase view cleanup");
+            if (cleartool.doesViewExist(task.getViewTag())) {
+                try {
+                    cleartool.rmviewtag(task.getViewTag());
+                } catch (IOException e) {
+                    // ClearCase RT doesn't support rmview -tag
+                    cleartool.rmtag(task.getViewTag());
+                }
+            }
+        }
+        return true;
+    }
+
+    private static String getCurrentView(ClearTool cleartool, String viewPath) throws InterruptedException {
+        try {
+            return cleartool.lscurrentview(viewPath);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Queues the removal of the view tags ending with {@value #VIEW_TAG_SUFFIX} that no job uses. A tag is only
+     * removed if it was already unused at the previous collection.
+     */
+    public void collectGarbage(TaskListener listener) throws IOException, InterruptedException {
+        Set<String> used = new HashSet<String>();
+        List<Pattern> usedPatterns = new ArrayList<Pattern>();
+        collectUsedViewTags(used, usedPatterns);
+        Hudson hudson = Hudson.getInstance();
+        ClearTool cleartool = NodeClearTool.create(hudson, hudson.getRootPath(), listener, "ClearCase view cleanup");
+        Set<String> orphans = selectOrphans(cleartool.lsview(false), used, usedPatterns);
+        synchronized (this) {
+            for (String viewTag : orphans) {
+                if (suspects.contains(viewTag) && !isQueued(viewTag)) {
+                    LOGGER.info("Removing view " + viewTag + ", which no job uses");
+                    tasks.add(CleanupTask.removeViewTag("", viewTag));
+                }
+            }
+            suspects = orphans;
+            save();
+        }
+    }
+
+    private boolean isQueued(String viewTag) {
+        for (CleanupTask task : tasks) {
+            if (viewTag.equals(task.getViewTag())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the view tags of the jobs, for each node they were built on. When a variable of a tag can't be resolved,
+     * e.g. as the node is offline, a pattern matching all its possible values is collected instead.
+     */
+    private static void collectUsedViewTags(Set<String> used, List<Pattern> usedPatterns) {
+        for (AbstractProject<?, ?> project : Hudson.getInstance().getAllItems(AbstractProject.class)) {
+            SCM scm = project.getScm();
+            if (!(scm instanceof AbstractClearCaseScm)) {
+                continue;
+            }
+            AbstractClearCaseScm ccScm = (AbstractClearCaseScm) scm;
+            Set<String> nodes = new HashSet<String>();
+            for (AbstractBuild<?, ?> build : project.getBuilds()) {
+                if (build.getBuiltOn() == null || !nodes.add(build.getBuiltOnStr())) {
+                    continue;
+                }
+                String viewTag = ccScm.resolveViewTag(new BuildVariableResolver(build));
+                if (VARIABLE.matcher(viewTag).find()) {
+                    usedPatterns.add(toPattern(viewTag));
+                } else {
+                    used.add(viewTag);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a pattern matching the tag whatever the value of its unresolved variables
+     */
+    static Pattern toPattern(String viewTag) {
+        StringBuilder regex = new StringBuilder();
+        Matcher matcher = VARIABLE.matcher(viewTag);
+        int start = 0;
+        while (matcher.find()) {
+            regex.append(Pattern.quote(viewTag.substring(start, matcher.start()))).append(".*");
+            start = matcher.end();
+        }
+        regex.append(Pattern.quote(viewTag.substring(start)));
+        return Pattern.compile(regex.toString());
+    }
+
+    static Set<String> selectOrphans(Collection<String> viewTags, Set<String> used, List<Pattern> usedPatterns) {
+        Set<String> orphans = new HashSet<String>();
+        for (String viewTag : viewTags) {
+            if (!viewTag.endsWith(VIEW_TAG_SUFFIX) || used.contains(viewTag)) {
+                continue;
+            }
+            boolean matched = false;
+            for (Pattern pattern : usedPatterns) {
+                if (pattern.matcher(viewTag).matches()) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched) {
+                orphans.add(viewTag);
+            }
+        }
+        return orphans;
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.cleanup;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.PluginImpl;
+
+import java.io.IOException;
+
+/**
+ * Runs the tasks of the {@link ViewCleanupService}, and its daily garbage collection when enabled.
+ */
+@Extension
+public class ViewCleanupWork extends AsyncPeriodicWork {
+
+    private static final long GARBAGE_COLLECTION_INTERVAL = 24 * HOUR;
+
+    private long lastGarbageCollection;
+
+    public ViewCleanupWork() {
+        super("ClearCase view cleanup");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        ViewCleanupService service = ViewCleanupService.getInstance();
+        if (service == null) {
+            return;
+        }
+        service.process(listener);
+        long now = System.currentTimeMillis();
+        if (PluginImpl.BASE_DESCRIPTOR.isViewGarbageCollection() && now - lastGarbageCollection >= GARBAGE_COLLECTION_INTERVAL) {
+            lastGarbageCollection = now;
+            service.collectGarbage(listener);
+        }
+    }
+}
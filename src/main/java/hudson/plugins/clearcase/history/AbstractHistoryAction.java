@@ -26,14 +26,19 @@ package hudson.plugins.clearcase.history;
 
 import static hudson.plugins.clearcase.util.OutputFormat.COMMENT;
 import static hudson.plugins.clearcase.util.OutputFormat.LINEEND;
+import hudson.FilePath;
 import hudson.plugins.clearcase.AbstractClearCaseScm.ChangeSetLevel;
 import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
 import hudson.plugins.clearcase.util.ClearToolFormatHandler;
+import hudson.plugins.clearcase.util.NodeClearTool;
 import hudson.scm.ChangeLogSet.Entry;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.text.MessageFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -41,6 +46,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 
@@ -58,6 +64,7 @@ public abstract class AbstractHistoryAction implements HistoryAction {
     protected String extendedViewPath;
     protected boolean isDynamicView;
     private ChangeSetLevel changeset;
+    private boolean coalesced;
 
     public AbstractHistoryAction(ClearTool cleartool, boolean isDynamicView, Filter filter, ChangeSetLevel changeset) {
         this.cleartool = cleartool;
@@ -87,8 +94,19 @@ public abstract class AbstractHistoryAction implements HistoryAction {
             String[] viewPaths) throws IOException, InterruptedException {
         List<Entry> changelog;
         if (needsLsHistoryForGetChanges(viewTag, viewPaths)) {
-            List<HistoryEntry> historyEntries = runAndFilterLsHistory(time, viewPath, viewTag, branchNames, viewPaths);
-            changelog = (List<Entry>) buildChangelog(viewPath, historyEntries);
+            List<HistoryEntry> historyEntries;
+            Phase phase = PhaseProfile.enter("read history");
+            try {
+                historyEntries = runAndFilterLsHistory(time, viewPath, viewTag, branchNames, viewPaths);
+            } finally {
+                PhaseProfile.exit(phase);
+            }
+            phase = PhaseProfile.enter("build change log");
+            try {
+                changelog = (List<Entry>) buildChangelog(viewPath, historyEntries);
+            } finally {
+                PhaseProfile.exit(phase);
+            }
         } else {
             changelog = Collections.emptyList();
         }
@@ -137,14 +155,44 @@ public abstract class AbstractHistoryAction implements HistoryAction {
 
     protected void parseLsHistory(BufferedReader reader, Collection<HistoryEntry> history) throws IOException,
             InterruptedException, ParseException {
+        parseLsHistory(reader, history, false);
+    }
+
+    /**
+     * Same as {@link #parseLsHistory(BufferedReader, Collection)}, but an entry that can't be parsed is logged and
+     * skipped along with its comment, instead of aborting the rest of the output.
+     */
+    protected void parseLsHistorySkippingErrors(BufferedReader reader, Collection<HistoryEntry> history) throws IOException,
+            InterruptedException {
+        try {
+            parseLsHistory(reader, history, true);
+        } catch (ParseException e) {
+            // can't happen, parse errors are skipped
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void parseLsHistory(BufferedReader reader, Collection<HistoryEntry> history, boolean skipErrors) throws IOException,
+            InterruptedException, ParseException {
         HistoryEntry previousEntry = null;
+        boolean skipping = false;
 
         for (String line = reader.readLine(); line != null; line = reader.readLine()) {
             if (!gotACleartoolError(line)) {
                 Matcher matcher = getHistoryFormatHandler().checkLine(line);
                 if (startOfLsHistoryEntry(matcher)) {
-                    previousEntry = buildHistoryEntry(history, line, matcher);
-                } else {
+                    try {
+                        previousEntry = buildHistoryEntry(history, line, matcher);
+                        skipping = false;
+                    } catch (ParseException e) {
+                        if (!skipErrors) {
+                            throw e;
+                        }
+                        Logger.getLogger(AbstractHistoryAction.class.getName()).log(Level.WARNING, "Skipping the history entry \"" + line + "\"", e);
+                        previousEntry = null;
+                        skipping = true;
+                    }
+                } else if (!skipping) {
                     tryToAttachLineToPreviousEntry(previousEntry, line);
                 }
             } else {
@@ -220,17 +268,94 @@ public abstract class AbstractHistoryAction implements HistoryAction {
             parseLsHistory(bufferedReader, historyEntries);
             bufferedReader.close();
         }
+        if (isCoalescing()) {
+            historyEntries = keepRequested(historyEntries, time, viewPaths);
+        }
         return historyEntries;
     }
 
+    /**
+     * Keeps the entries of a shared history the job would have got if it had read the history itself: the ones since
+     * its time, and for its paths or under them.
+     */
+    static List<HistoryEntry> keepRequested(List<HistoryEntry> entries, Date time, String[] viewPaths) {
+        // lshistory -since has a precision of a second
+        long since = time.getTime() / 1000 * 1000;
+        List<String> paths = new ArrayList<String>();
+        for (String viewPath : viewPaths) {
+            paths.add(normalizePath(viewPath));
+        }
+        List<HistoryEntry> kept = new ArrayList<HistoryEntry>();
+        for (HistoryEntry entry : entries) {
+            if (entry.getDate() != null && entry.getDate().getTime() < since) {
+                continue;
+            }
+            String element = normalizePath(entry.getElement());
+            for (String path : paths) {
+                if (path.length() == 0 || element.equals(path) || element.startsWith(path + "/")) {
+                    kept.add(entry);
+                    break;
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return the path relative to the view root, with forward slashes, without empty or "." segments
+     */
+    static String normalizePath(String path) {
+        StringBuilder normalized = new StringBuilder();
+        for (String segment : StringUtils.split(StringUtils.defaultString(path).replace('\\', '/').trim(), '/')) {
+            if (!".".equals(segment)) {
+                if (normalized.length() > 0) {
+                    normalized.append('/');
+                }
+                normalized.append(segment);
+            }
+        }
+        return normalized.toString();
+    }
+
     private BufferedReader getLsHistoryBufferedReader(Date time, String viewPath, String[] viewPaths, String branchName)
             throws IOException, InterruptedException {
         return new BufferedReader(getLsHistoryReader(time, viewPath, viewPaths, branchName));
     }
 
-    private Reader getLsHistoryReader(Date time, String viewPath, String[] viewPaths, String branchName)
+    private Reader getLsHistoryReader(Date time, final String viewPath, String[] viewPaths, final String branchName)
             throws IOException, InterruptedException {
-        return cleartool.lshistory(getLsHistoryFormat(), time, viewPath, branchName, viewPaths, needMinorEvents());
+        String key = getCoalescingKey(viewPath, branchName);
+        if (key == null) {
+            return cleartool.lshistory(getLsHistoryFormat(), time, viewPath, branchName, viewPaths, needMinorEvents());
+        }
+        return new StringReader(LsHistoryCoalescer.getInstance().lshistory(key, time, viewPaths, new LsHistoryCoalescer.Query() {
+            public Reader lshistory(Date since, String[] paths) throws IOException, InterruptedException {
+                return cleartool.lshistory(getLsHistoryFormat(), since, viewPath, branchName, paths, needMinorEvents());
+            }
+        }));
+    }
+
+    /**
+     * @return what identifies the lshistory of the branch in the view, or null if it isn't shared
+     */
+    private String getCoalescingKey(String viewPath, String branchName) {
+        if (!isCoalescing()) {
+            return null;
+        }
+        FilePath workspace = cleartool.getLauncher().getWorkspace();
+        return NodeClearTool.getNodeName(workspace) + '|' + workspace.getRemote() + '|' + viewPath + '|' + isDynamicView + '|' + branchName + '|'
+                + needMinorEvents() + '|' + getLsHistoryFormat();
+    }
+
+    /**
+     * @return true if the lshistory runs are shared; the elements must then be relative to the view root, to tell
+     *         which paths they are under
+     */
+    private boolean isCoalescing() {
+        if (!coalesced || extendedViewPath == null || cleartool.getLauncher() == null || cleartool.getLauncher().getWorkspace() == null) {
+            return false;
+        }
+        return NodeClearTool.getNodeName(cleartool.getLauncher().getWorkspace()) != null;
     }
 
     private String getLsHistoryFormat() {
@@ -253,4 +378,12 @@ public abstract class AbstractHistoryAction implements HistoryAction {
     public void setExtendedViewPath(String path) {
         this.extendedViewPath = path;
     }
+
+    /**
+     * @param coalesced true to share the lshistory runs with the polls of the other jobs asking for the same history
+     * @see LsHistoryCoalescer
+     */
+    public void setCoalesced(boolean coalesced) {
+        this.coalesced = coalesced;
+    }
 }
@@ -0,0 +1,243 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.history;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Runs a single <tt>lshistory</tt> for the polls of several jobs asking for the history of the same branch in the same
+ * view. When polls of the same query overlap, the next poll waits for a short window, during which the polls with the
+ * same query join it; then the history is read once, since the earliest time and for the union of the paths, and
+ * shared by all of them. Each job then keeps the entries it asked for and applies its own filters, so that the load on
+ * cleartool grows with the number of distinct branches and views polled, not with the number of jobs.
+ * <p>
+ * A poll alone with its query runs its lshistory right away, until polls of the same query overlap again. A poll
+ * interrupted while its batch is collecting or running leaves the batch to another poll of the batch.
+ * </p>
+ */
+public class LsHistoryCoalescer {
+
+    private static final Logger LOGGER = Logger.getLogger(LsHistoryCoalescer.class.getName());
+
+    /** Time in ms the first poll of a batch waits for the others to join it */
+    static final long WINDOW = Long.getLong(LsHistoryCoalescer.class.getName() + ".window", 2000L);
+
+    private static final LsHistoryCoalescer INSTANCE = new LsHistoryCoalescer(WINDOW);
+
+    public static LsHistoryCoalescer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reads the history, for the batch.
+     */
+    public interface Query {
+        Reader lshistory(Date since, String[] paths) throws IOException, InterruptedException;
+    }
+
+    private final long window;
+    /** The batches the polls can join, by query; guards the other fields */
+    private final Map<String, Batch> collecting = new HashMap<String, Batch>();
+    /** The last batch of each query */
+    private final Map<String, Batch> latest = new HashMap<String, Batch>();
+    /** The queries whose polls overlap, and so wait for each other */
+    private final Set<String> shared = new HashSet<String>();
+
+    LsHistoryCoalescer(long window) {
+        this.window = window;
+    }
+
+    /**
+     * @param key what makes the query of a job the same as the one of another: the view, the branch, the format...
+     * @param since the time of the history the job asks for
+     * @param paths the paths the job asks the history of
+     * @return the output of the lshistory run for the batch the job joined
+     */
+    public String lshistory(String key, Date since, String[] paths, Query query) throws IOException, InterruptedException {
+        Batch batch;
+        boolean overlapped = false;
+        boolean wait = false;
+        synchronized (collecting) {
+            batch = collecting.get(key);
+            if (batch != null) {
+                batch.add(since, paths);
+            } else {
+                Batch previous = latest.get(key);
+                overlapped = previous != null && previous.isRecent(System.currentTimeMillis(), window);
+                if (overlapped) {
+                    shared.add(key);
+                }
+                wait = shared.contains(key);
+                batch = new Batch(wait);
+                batch.add(since, paths);
+                latest.put(key, batch);
+                if (wait) {
+                    collecting.put(key, batch);
+                }
+            }
+        }
+        if (wait) {
+            try {
+                Thread.sleep(window);
+            } finally {
+                synchronized (collecting) {
+                    collecting.remove(key);
+                    if (batch.getJobs() == 1 && !overlapped) {
+                        // the polls of the query no longer overlap, don't wait next time
+                        shared.remove(key);
+                    }
+                }
+                // if interrupted, a poll that joined meanwhile runs the batch
+                batch.close();
+            }
+        }
+        return batch.getOutput(query);
+    }
+
+    private static class Batch {
+        private Date since;
+        private final Set<String> paths = new LinkedHashSet<String>();
+        private int jobs;
+        /** Whether polls can still join the batch */
+        private boolean collecting;
+        /** Whether a poll of the batch is reading the history */
+        private boolean running;
+        private boolean done;
+        private long end;
+        private String output;
+        private IOException failure;
+
+        Batch(boolean collecting) {
+            this.collecting = collecting;
+        }
+
+        /** Called with the lock of the coalescer, while the batch is collecting */
+        void add(Date since, String[] paths) {
+            if (this.since == null || since.before(this.since)) {
+                this.since = since;
+            }
+            for (String path : paths) {
+                this.paths.add(path);
+            }
+            jobs++;
+        }
+
+        /** Called with the lock of the coalescer */
+        int getJobs() {
+            return jobs;
+        }
+
+        /**
+         * @return true if the batch is still running, or ended less than the window ago
+         */
+        synchronized boolean isRecent(long now, long window) {
+            return !done || now - end < window;
+        }
+
+        /**
+         * Ends the window of the batch, and lets the polls waiting for it run it.
+         */
+        synchronized void close() {
+            collecting = false;
+            notifyAll();
+        }
+
+        /**
+         * Runs the batch unless another poll of the batch runs it, and waits for its output.
+         */
+        String getOutput(Query query) throws IOException, InterruptedException {
+            synchronized (this) {
+                while (collecting || running) {
+                    wait();
+                }
+                if (done) {
+                    return getResult();
+                }
+                running = true;
+            }
+            String result = null;
+            try {
+                if (jobs > 1) {
+                    LOGGER.fine("Reading the history of " + paths + " since " + since + " once for " + jobs + " polls");
+                }
+                result = read(query.lshistory(since, paths.toArray(new String[paths.size()])));
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                    finish();
+                }
+                throw e;
+            } finally {
+                synchronized (this) {
+                    if (!done && result == null) {
+                        // interrupted, another poll of the batch runs it
+                        running = false;
+                        notifyAll();
+                    }
+                }
+            }
+            synchronized (this) {
+                output = result;
+                finish();
+                return output;
+            }
+        }
+
+        private void finish() {
+            running = false;
+            done = true;
+            end = System.currentTimeMillis();
+            notifyAll();
+        }
+
+        private String getResult() throws IOException {
+            if (failure != null) {
+                throw new IOException(failure.getMessage(), failure);
+            }
+            return output;
+        }
+
+        private static String read(Reader reader) throws IOException {
+            try {
+                StringBuilder builder = new StringBuilder();
+                char[] buffer = new char[8192];
+                for (int n = reader.read(buffer); n != -1; n = reader.read(buffer)) {
+                    builder.append(buffer, 0, n);
+                }
+                return builder.toString();
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
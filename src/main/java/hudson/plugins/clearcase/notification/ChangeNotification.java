@@ -0,0 +1,181 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.notification;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A change reported by a ClearCase trigger (checkin, deliver, mkbl...). Each field is optional: what isn't known
+ * doesn't rule out any job.
+ */
+public class ChangeNotification {
+
+    static final String[] KEYS = { "event", "branch", "vob", "path", "stream", "activity" };
+
+    private final String event;
+    private final String branch;
+    private final String vob;
+    private final String path;
+    private final String stream;
+    private final String activity;
+
+    public ChangeNotification(String event, String branch, String vob, String path, String stream, String activity) {
+        this.event = StringUtils.trimToNull(event);
+        this.branch = StringUtils.trimToNull(branch);
+        this.vob = StringUtils.trimToNull(vob);
+        this.path = StringUtils.trimToNull(path);
+        this.stream = StringUtils.trimToNull(stream);
+        this.activity = StringUtils.trimToNull(activity);
+    }
+
+    /**
+     * @param parameters the values by key, as in {@link #KEYS}
+     */
+    public static ChangeNotification create(Map<String, String> parameters) {
+        return new ChangeNotification(parameters.get("event"), parameters.get("branch"), parameters.get("vob"), parameters.get("path"),
+                parameters.get("stream"), parameters.get("activity"));
+    }
+
+    /**
+     * @param query the notification as sent to the notifyCommit URL, <tt>branch=dev&amp;path=/vobs/a/b.c...</tt>
+     * @return the notification, or null if the query has none of the keys
+     */
+    public static ChangeNotification parse(String query) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        for (String parameter : StringUtils.split(query, '&')) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(decode(parameter.substring(0, equals)).trim().toLowerCase(), decode(parameter.substring(equals + 1)));
+            }
+        }
+        ChangeNotification notification = create(parameters);
+        return notification.isEmpty() ? null : notification;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isEmpty() {
+        return branch == null && vob == null && path == null && stream == null && activity == null;
+    }
+
+    public String getEvent() {
+        return event;
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public String getVob() {
+        return vob;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    public String getActivity() {
+        return activity;
+    }
+
+    /**
+     * @param branchNames the branches a job builds, empty if it builds any
+     */
+    public boolean matchesBranch(String[] branchNames) {
+        if (branch == null || branchNames == null || branchNames.length == 0) {
+            return true;
+        }
+        for (String branchName : branchNames) {
+            if (StringUtils.isBlank(branchName) || branch.equals(branchName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param loadRules the paths in the view a job builds, relative to the view root, null if unknown
+     */
+    public boolean matchesPaths(String[] loadRules) {
+        if ((vob == null && path == null) || loadRules == null || loadRules.length == 0) {
+            return true;
+        }
+        String normalizedVob = normalize(vob);
+        String normalizedPath = normalize(path);
+        for (String loadRule : loadRules) {
+            String rule = normalize(loadRule);
+            if (rule.length() == 0) {
+                return true;
+            }
+            if (normalizedPath != null) {
+                // the element changed is under the load rule, or is a directory above it
+                if (normalizedPath.equals(rule) || normalizedPath.endsWith("/" + rule) || normalizedPath.contains("/" + rule + "/")
+                        || normalizedPath.startsWith(rule + "/") || rule.startsWith(normalizedPath + "/")) {
+                    return true;
+                }
+            } else if (rule.equals(normalizedVob) || rule.startsWith(normalizedVob + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String path) {
+        if (path == null) {
+            return null;
+        }
+        return StringUtils.strip(path.trim().replace('\\', '/'), "/");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        String[] values = { event, branch, vob, path, stream, activity };
+        for (int i = 0; i < KEYS.length; i++) {
+            if (values[i] != null) {
+                if (builder.length() > 0) {
+                    builder.append('&');
+                }
+                builder.append(KEYS[i]).append('=').append(values[i]);
+            }
+        }
+        return builder.toString();
+    }
+}
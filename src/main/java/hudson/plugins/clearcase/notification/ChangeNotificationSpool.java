@@ -0,0 +1,107 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.notification;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.PluginImpl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+/**
+ * Reads the change notifications dropped in the spool directory configured globally, for the sites whose triggers
+ * can't reach the master over HTTP. Each file holds a notification per line, in the format of the notifyCommit
+ * query, and is removed once read. Files ending with <tt>.tmp</tt> are being written and are skipped.
+ */
+@Extension
+public class ChangeNotificationSpool extends AsyncPeriodicWork {
+
+    private static final long PERIOD = 15 * 1000L;
+
+    public ChangeNotificationSpool() {
+        super("ClearCase change notification spool");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return PERIOD;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        String spool = PluginImpl.BASE_DESCRIPTOR.getNotificationSpool();
+        if (spool != null) {
+            int read = process(new File(spool), ChangeNotifier.getInstance(), listener);
+            if (read > 0) {
+                listener.getLogger().println("Read " + read + " change notifications from " + spool);
+            }
+        }
+    }
+
+    /**
+     * @return the number of notifications read
+     */
+    static int process(File directory, ChangeNotifier notifier, TaskListener listener) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        Arrays.sort(files);
+        int read = 0;
+        for (File file : files) {
+            if (!file.isFile() || file.getName().endsWith(".tmp")) {
+                continue;
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    line = line.trim();
+                    if (line.length() == 0 || line.startsWith("#")) {
+                        continue;
+                    }
+                    ChangeNotification notification = ChangeNotification.parse(line);
+                    if (notification == null) {
+                        listener.getLogger().println("Ignoring " + line + " in " + file + ": no branch, vob, path, stream nor activity");
+                    } else {
+                        notifier.notify(notification);
+                        read++;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            if (!file.delete()) {
+                listener.error("Couldn't remove " + file + ", its notifications will be read again");
+            }
+        }
+        return read;
+    }
+}
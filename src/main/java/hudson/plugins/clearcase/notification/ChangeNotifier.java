@@ -0,0 +1,130 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.notification;
+
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.plugins.clearcase.AbstractClearCaseScm;
+import hudson.plugins.clearcase.PollActivity;
+import hudson.triggers.SCMTrigger;
+import hudson.triggers.SafeTimerTask;
+import hudson.triggers.Trigger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Polls the jobs affected by the changes ClearCase triggers notify, instead of waiting for their scheduled poll. The
+ * notifications received in a short delay are handled together, so that a burst of checkins polls each job once.
+ * Only the jobs polling the SCM are polled: the poll still decides whether a build is needed.
+ */
+public class ChangeNotifier {
+
+    private static final Logger LOGGER = Logger.getLogger(ChangeNotifier.class.getName());
+
+    /** Time in ms the notifications are collected before the jobs are polled */
+    static final long BATCH_DELAY = Long.getLong(ChangeNotifier.class.getName() + ".batchDelay", 5000L);
+
+    private static final ChangeNotifier INSTANCE = new ChangeNotifier();
+
+    public static ChangeNotifier getInstance() {
+        return INSTANCE;
+    }
+
+    private List<ChangeNotification> pending = new ArrayList<ChangeNotification>();
+
+    ChangeNotifier() {
+    }
+
+    /**
+     * Queues a notification, the affected jobs are polled once the batch delay is over.
+     */
+    public void notify(ChangeNotification notification) {
+        LOGGER.fine("Received ClearCase change notification " + notification);
+        synchronized (this) {
+            pending.add(notification);
+            if (pending.size() > 1) {
+                return;
+            }
+        }
+        Trigger.timer.schedule(new SafeTimerTask() {
+            @Override
+            protected void doRun() {
+                flush();
+            }
+        }, BATCH_DELAY);
+    }
+
+    void flush() {
+        List<ChangeNotification> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new ArrayList<ChangeNotification>();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (AbstractProject<?, ?> project : getAffectedProjects(Hudson.getInstance().getAllItems(AbstractProject.class), batch)) {
+            SCMTrigger trigger = project.getTrigger(SCMTrigger.class);
+            if (trigger != null) {
+                // a notified change is worth a scan even on a job without recent changes
+                PollActivity.getInstance().wake(project.getFullName());
+                LOGGER.fine("Polling " + project.getFullName() + " after ClearCase change notifications");
+                trigger.run();
+            }
+        }
+    }
+
+    /**
+     * @return the projects with a ClearCase SCM affected by any of the notifications
+     */
+    static Collection<AbstractProject<?, ?>> getAffectedProjects(Collection<? extends AbstractProject> projects, List<ChangeNotification> notifications) {
+        Set<AbstractProject<?, ?>> affected = new LinkedHashSet<AbstractProject<?, ?>>();
+        for (AbstractProject<?, ?> project : projects) {
+            if (!(project.getScm() instanceof AbstractClearCaseScm) || project.isDisabled()) {
+                continue;
+            }
+            AbstractClearCaseScm scm = (AbstractClearCaseScm) project.getScm();
+            for (ChangeNotification notification : notifications) {
+                try {
+                    if (scm.isAffectedBy(notification, project.getLastBuild())) {
+                        affected.add(project);
+                        break;
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Couldn't match " + notification + " with " + project.getFullName(), e);
+                    affected.add(project);
+                    break;
+                }
+            }
+        }
+        return affected;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.profile;
+
+import hudson.Util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A step of the ClearCase work of a build, with the wall time spent in it, the cleartool commands it ran and the bytes
+ * they output. The times and counts of a phase include the ones of its children. A phase entered several times, such
+ * as a cleartool command run once per load rule, accumulates its time and counts. Threads working for the same build
+ * can be in a phase at once: its time is then the wall time during which at least one of them was in it.
+ */
+public class Phase {
+
+    private final String name;
+    private long duration;
+    private int commands;
+    private long bytes;
+    private List<Phase> children;
+
+    private transient volatile Phase parent;
+    /** The number of threads in the phase, and when the first of them entered it */
+    private transient int active;
+    private transient long start;
+
+    Phase(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the wall time in ms
+     */
+    public synchronized long getDuration() {
+        return duration;
+    }
+
+    public String getDurationString() {
+        return Util.getTimeSpanString(getDuration());
+    }
+
+    public synchronized int getCommands() {
+        int count = commands;
+        for (Phase child : getChildren()) {
+            count += child.getCommands();
+        }
+        return count;
+    }
+
+    public synchronized long getBytes() {
+        long count = bytes;
+        for (Phase child : getChildren()) {
+            count += child.getBytes();
+        }
+        return count;
+    }
+
+    public synchronized List<Phase> getChildren() {
+        return children == null ? new ArrayList<Phase>() : new ArrayList<Phase>(children);
+    }
+
+    Phase getParent() {
+        return parent;
+    }
+
+    synchronized Phase enter(String childName, long now) {
+        Phase child = null;
+        if (children == null) {
+            children = new ArrayList<Phase>();
+        }
+        for (Phase existing : children) {
+            if (existing.name.equals(childName)) {
+                child = existing;
+                break;
+            }
+        }
+        if (child == null) {
+            child = new Phase(childName);
+            children.add(child);
+        }
+        child.parent = this;
+        child.entered(now);
+        return child;
+    }
+
+    private synchronized void entered(long now) {
+        if (active++ == 0) {
+            start = now;
+        }
+    }
+
+    synchronized void exit(long now) {
+        if (active > 0 && --active == 0) {
+            duration += now - start;
+        }
+    }
+
+    synchronized void addCommand(long outputBytes) {
+        commands++;
+        bytes += outputBytes;
+    }
+
+    /**
+     * Adds the time spent in this phase and its descendants, outside of their own children, by phase name.
+     */
+    void addSelfDurations(Map<String, Long> durations) {
+        long self = getDuration();
+        for (Phase child : getChildren()) {
+            self -= child.getDuration();
+            child.addSelfDurations(durations);
+        }
+        Long total = durations.get(name);
+        durations.put(name, Math.max(0, self) + (total == null ? 0 : total));
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.profile;
+
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The phases of the ClearCase work of a build: checkout, change log, baselines, down to each cleartool command. Shown
+ * as a table on the build page, and summed up by {@link PhaseTrendAction} across builds.
+ * <p>
+ * The phases are recorded for the thread running the build, between {@link #start(AbstractBuild)} and {@link #stop()}:
+ * {@link #enter(String)} and {@link #exit(Phase)} do nothing when no build is recorded, e.g. while polling.
+ * </p>
+ */
+public class PhaseProfile implements Action {
+
+    private static final ThreadLocal<Phase> CURRENT = new ThreadLocal<Phase>();
+
+    private final Phase root = new Phase("ClearCase");
+
+    PhaseProfile() {
+    }
+
+    /**
+     * Starts recording the phases of the build run by the current thread, in the profile of the build.
+     */
+    public static PhaseProfile start(AbstractBuild<?, ?> build) {
+        PhaseProfile profile;
+        synchronized (build) {
+            profile = build.getAction(PhaseProfile.class);
+            if (profile == null) {
+                profile = new PhaseProfile();
+                build.addAction(profile);
+            }
+        }
+        CURRENT.set(profile.root);
+        return profile;
+    }
+
+    public void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the phase the current thread is in, to pass to {@link #resume(Phase)} in another thread, or null if no
+     *         build is recorded
+     */
+    public static Phase current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Records the phases of the current thread, which works for the build, under a phase of the thread running the
+     * build, until {@link #suspend()}.
+     */
+    public static void resume(Phase phase) {
+        if (phase != null) {
+            CURRENT.set(phase);
+        }
+    }
+
+    public static void suspend() {
+        CURRENT.remove();
+    }
+
+    /**
+     * @return the phase entered, to pass to {@link #exit(Phase)}, or null if no build is recorded
+     */
+    public static Phase enter(String name) {
+        Phase current = CURRENT.get();
+        if (current == null) {
+            return null;
+        }
+        Phase phase = current.enter(name, System.currentTimeMillis());
+        CURRENT.set(phase);
+        return phase;
+    }
+
+    public static void exit(Phase phase) {
+        if (phase != null) {
+            phase.exit(System.currentTimeMillis());
+            CURRENT.set(phase.getParent());
+        }
+    }
+
+    /**
+     * Counts a cleartool command in the current phase.
+     *
+     * @param bytes the size of its output
+     */
+    public static void recordCommand(long bytes) {
+        Phase current = CURRENT.get();
+        if (current != null) {
+            current.addCommand(bytes);
+        }
+    }
+
+    public Phase getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the wall time in ms of all the phases
+     */
+    public long getDuration() {
+        long duration = 0;
+        for (Phase phase : root.getChildren()) {
+            duration += phase.getDuration();
+        }
+        return duration;
+    }
+
+    /**
+     * @return the phases depth first, with their depth, for the summary table
+     */
+    public List<Row> getRows() {
+        List<Row> rows = new ArrayList<Row>();
+        for (Phase phase : root.getChildren()) {
+            addRows(rows, phase, 0);
+        }
+        return rows;
+    }
+
+    private static void addRows(List<Row> rows, Phase phase, int depth) {
+        rows.add(new Row(phase, depth));
+        for (Phase child : phase.getChildren()) {
+            addRows(rows, child, depth + 1);
+        }
+    }
+
+    /**
+     * @return the time in ms spent in each phase outside of its children, by phase name
+     */
+    public Map<String, Long> getSelfDurations() {
+        Map<String, Long> durations = new LinkedHashMap<String, Long>();
+        for (Phase phase : root.getChildren()) {
+            phase.addSelfDurations(durations);
+        }
+        return durations;
+    }
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return "ClearCase phases";
+    }
+
+    public String getUrlName() {
+        return null;
+    }
+
+    public static class Row {
+        private final Phase phase;
+        private final int depth;
+
+        Row(Phase phase, int depth) {
+            this.phase = phase;
+            this.depth = depth;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.profile;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+import hudson.model.TransientProjectActionFactory;
+import hudson.plugins.clearcase.AbstractClearCaseScm;
+import hudson.util.ChartUtil.NumberOnlyBuildLabel;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+import hudson.util.ShiftedCategoryAxis;
+
+import java.awt.Color;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.CategoryAxis;
+import org.jfree.chart.axis.CategoryLabelPositions;
+import org.jfree.chart.plot.CategoryPlot;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.data.category.CategoryDataset;
+
+/**
+ * Charts the time the builds of a ClearCase job spent in each phase, from their {@link PhaseProfile}.
+ */
+public class PhaseTrendAction implements Action {
+
+    /** Number of builds charted */
+    static final int BUILDS = 30;
+
+    private final AbstractProject<?, ?> project;
+
+    public PhaseTrendAction(AbstractProject<?, ?> project) {
+        this.project = project;
+    }
+
+    public AbstractProject<?, ?> getProject() {
+        return project;
+    }
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return "ClearCase phases";
+    }
+
+    public String getUrlName() {
+        return "clearcasePhases";
+    }
+
+    /**
+     * @return whether any of the charted builds has a profile
+     */
+    public boolean isProfiled() {
+        int count = 0;
+        for (AbstractBuild<?, ?> build = project.getLastBuild(); build != null && count < BUILDS; build = build.getPreviousBuild(), count++) {
+            if (build.getAction(PhaseProfile.class) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the chart, at <tt>clearcasePhases/graph/png</tt>
+     */
+    public Graph getGraph() {
+        AbstractBuild<?, ?> lastBuild = project.getLastBuild();
+        long timestamp = lastBuild == null ? 0 : lastBuild.getTimeInMillis();
+        return new Graph(timestamp, 500, 200) {
+            @Override
+            protected JFreeChart createGraph() {
+                return createChart(buildDataSet());
+            }
+        };
+    }
+
+    private CategoryDataset buildDataSet() {
+        Map<NumberOnlyBuildLabel, Map<String, Long>> durations = new LinkedHashMap<NumberOnlyBuildLabel, Map<String, Long>>();
+        Set<String> phases = new LinkedHashSet<String>();
+        int count = 0;
+        for (AbstractBuild<?, ?> build = project.getLastBuild(); build != null && count < BUILDS; build = build.getPreviousBuild(), count++) {
+            PhaseProfile profile = build.getAction(PhaseProfile.class);
+            if (profile != null) {
+                Map<String, Long> buildDurations = profile.getSelfDurations();
+                durations.put(new NumberOnlyBuildLabel(build), buildDurations);
+                phases.addAll(buildDurations.keySet());
+            }
+        }
+        // every phase needs a value in every build for the areas to stack
+        DataSetBuilder<String, NumberOnlyBuildLabel> builder = new DataSetBuilder<String, NumberOnlyBuildLabel>();
+        for (Map.Entry<NumberOnlyBuildLabel, Map<String, Long>> entry : durations.entrySet()) {
+            for (String phase : phases) {
+                Long duration = entry.getValue().get(phase);
+                builder.add(duration == null ? 0 : duration / 1000.0, phase, entry.getKey());
+            }
+        }
+        return builder.build();
+    }
+
+    private static JFreeChart createChart(CategoryDataset dataset) {
+        JFreeChart chart = ChartFactory.createStackedAreaChart(null, null, "seconds", dataset, PlotOrientation.VERTICAL, true, true, false);
+        chart.setBackgroundPaint(Color.white);
+        CategoryPlot plot = chart.getCategoryPlot();
+        plot.setBackgroundPaint(Color.WHITE);
+        plot.setOutlinePaint(null);
+        plot.setForegroundAlpha(0.8f);
+        plot.setRangeGridlinesVisible(true);
+        plot.setRangeGridlinePaint(Color.black);
+        CategoryAxis domainAxis = new ShiftedCategoryAxis(null);
+        plot.setDomainAxis(domainAxis);
+        domainAxis.setCategoryLabelPositions(CategoryLabelPositions.UP_90);
+        domainAxis.setLowerMargin(0.0);
+        domainAxis.setUpperMargin(0.0);
+        domainAxis.setCategoryMargin(0.0);
+        return chart;
+    }
+
+    /**
+     * Adds the chart to the jobs using ClearCase.
+     */
+    @Extension
+    public static class Factory extends TransientProjectActionFactory {
+        @Override
+        public Collection<? extends Action> createFor(@SuppressWarnings("rawtypes") AbstractProject target) {
+            if (target.getScm() instanceof AbstractClearCaseScm) {
+                return Collections.singletonList(new PhaseTrendAction(target));
+            }
+            return Collections.<Action> emptyList();
+        }
+    }
+}
@@ -38,6 +38,9 @@ import java.util.List;
 public class ClearCaseUCMSCMRevisionState extends AbstractClearCaseSCMRevisionState {
     private final List<Baseline> baselines;
     private final String stream;
+    private String fingerprint;
+    private Date fullScanTime;
+    private Date fingerprintTime;
     
     public ClearCaseUCMSCMRevisionState(List<Baseline> baselines, Date buildTime, String stream) {
         super(buildTime);
@@ -52,6 +55,51 @@ public class ClearCaseUCMSCMRevisionState extends AbstractClearCaseSCMRevisionSt
     public String getStream() {
         return stream;
     }
-    
+
+    /**
+     * @return the fingerprint of the stream when this state was computed, or null if unknown
+     * @see UcmCommon#getStreamFingerprint(hudson.plugins.clearcase.ClearTool, String, String[])
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @return the last time changes were looked for through the history of the load rules, or null if unknown
+     */
+    public Date getFullScanTime() {
+        return fullScanTime;
+    }
+
+    public void setFullScanTime(Date fullScanTime) {
+        this.fullScanTime = fullScanTime;
+    }
+
+    /**
+     * @return the last time the fingerprint was checked, or null if it was only computed with this state
+     */
+    public Date getFingerprintTime() {
+        return fingerprintTime;
+    }
+
+    /**
+     * Returns the state to poll against after a poll found the fingerprint unchanged. The build time and the full
+     * scan time are kept, so that the next history scan still covers everything since the last one and happens once
+     * the full scan interval has elapsed; only the time of the fingerprint check moves on.
+     * 
+     * @param fingerprintTime the time of the fingerprint check
+     */
+    public ClearCaseUCMSCMRevisionState withFingerprintTime(Date fingerprintTime) {
+        ClearCaseUCMSCMRevisionState state = new ClearCaseUCMSCMRevisionState(baselines, getBuildTime(), stream);
+        state.setLoadRules(getLoadRules());
+        state.fingerprint = fingerprint;
+        state.fullScanTime = fullScanTime;
+        state.fingerprintTime = fingerprintTime;
+        return state;
+    }
 
 }
@@ -0,0 +1,120 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.ClearTool.DiffBlOptions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the versions listed by {@code diffbl -versions}, while diffbl runs.
+ * <p>
+ * Only the versions of the second baseline or stream (lines starting with &gt;&gt;) are returned. The iterator must be
+ * closed if it isn't read until the end.
+ * </p>
+ */
+public class DiffBlVersionIterator implements Iterator<String> {
+
+    private final BufferedReader reader;
+    private String next;
+    private boolean closed;
+
+    public DiffBlVersionIterator(ClearTool clearTool, String viewRootDirectory, String bl1, String bl2) throws IOException {
+        this(clearTool.diffbl(EnumSet.of(DiffBlOptions.VERSIONS), bl1, bl2, viewRootDirectory));
+    }
+
+    DiffBlVersionIterator(Reader reader) {
+        this.reader = new BufferedReader(reader);
+    }
+
+    /**
+     * @throws IOException if diffbl failed, or its output couldn't be read
+     */
+    public boolean hasNextVersion() throws IOException {
+        while (next == null && !closed) {
+            String line = reader.readLine();
+            if (line == null) {
+                close();
+            } else if (line.startsWith(">>")) {
+                next = line.substring(2).trim();
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * @throws IOException if diffbl failed, or its output couldn't be read
+     */
+    public String nextVersion() throws IOException {
+        if (!hasNextVersion()) {
+            throw new NoSuchElementException();
+        }
+        String version = next;
+        next = null;
+        return version;
+    }
+
+    /**
+     * @throws IllegalStateException wrapping the {@link IOException} thrown by {@link #hasNextVersion()}
+     */
+    public boolean hasNext() {
+        try {
+            return hasNextVersion();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException wrapping the {@link IOException} thrown by {@link #nextVersion()}
+     */
+    public String next() {
+        try {
+            return nextVersion();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops reading, and stops diffbl if it is still running.
+     */
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            reader.close();
+        }
+    }
+}
@@ -24,33 +24,27 @@
  */
 package hudson.plugins.clearcase.ucm;
 
-import static hudson.plugins.clearcase.util.OutputFormat.COMMENT;
-import static hudson.plugins.clearcase.util.OutputFormat.LINEEND;
 import hudson.model.AbstractBuild;
 import hudson.model.Run;
 import hudson.plugins.clearcase.Baseline;
 import hudson.plugins.clearcase.ClearCaseDataAction;
 import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.ClearTool.DiffBlOptions;
 import hudson.plugins.clearcase.action.UcmDynamicCheckoutAction;
 import hudson.plugins.clearcase.history.Filter;
 import hudson.plugins.clearcase.history.HistoryEntry;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
 import hudson.scm.ChangeLogSet.Entry;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.StringReader;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
 public class FreezeCodeUcmHistoryAction extends UcmHistoryAction {
-    private static final String BASELINE_NAME = "hudson_poll_";
-    private static final String BASELINE_COMMENT = "hudson_poll_";
-
     private final AbstractBuild<?, ?> build;
     private final String viewDrive;
     private final String stream;
@@ -96,86 +90,74 @@ public class FreezeCodeUcmHistoryAction extends UcmHistoryAction {
 
         // compare
         if (latestBlsOnConfiguredStream != null && previousBuildBls != null) {
-            // calculate changed versions
-            List<String> changedVerionsList = getChangedVersions(latestBlsOnConfiguredStream, previousBuildBls);
-
-            // get HistoryEntry list out of changed version
-            entries = translateChangedVersionsToEnteries(changedVerionsList);
+            // get HistoryEntry list out of the changed versions
+            Phase phase = PhaseProfile.enter("compare baselines");
+            try {
+                entries = getChangedEntries(latestBlsOnConfiguredStream, previousBuildBls);
+            } finally {
+                PhaseProfile.exit(phase);
+            }
         }
         List<HistoryEntry> filtered = filterEntries(entries);
-        List<Entry> changelog = buildChangelog(viewName, filtered);
-        return changelog;
+        Phase phase = PhaseProfile.enter("build change log");
+        try {
+            return buildChangelog(viewName, filtered);
+        } finally {
+            PhaseProfile.exit(phase);
+        }
     }
 
+    /**
+     * Compares the configured stream with the baselines the last build on the stream was rebased to. No baseline is
+     * created: baselines are only made by the checkout.
+     */
     @Override
     public boolean hasChanges(Date time, String viewPath, String viewTag, String[] branchNames, String[] viewPaths) throws IOException, InterruptedException {
-        // make baseline on the configured stream.
-        SimpleDateFormat formatter = new SimpleDateFormat("d-MMM-yy_HH_mm_ss", Locale.US);
-        formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
-        String dateStr = formatter.format(new Date()).toLowerCase();
-
-        cleartool.mkbl((BASELINE_NAME + dateStr), UcmDynamicCheckoutAction.getConfiguredStreamViewName(build.getProject().getName(), getStream()), (BASELINE_COMMENT + dateStr), false, false, null, null, null);
-
-        // get latest baselines on the configured stream
-        List<Baseline> latestBlsOnConfgiuredStream = UcmCommon.getLatestBlsWithCompOnStream(cleartool, getStream(),
-                UcmDynamicCheckoutAction.getConfiguredStreamViewName(build.getProject().getName(), getStream()));
-
-        // find the previous build running on the same stream
-        Run<?, ?> previousBuild = build.getPreviousBuild();
-        ClearCaseDataAction clearcaseDataAction = previousBuild.getAction(ClearCaseDataAction.class);
-
-        // get previous build baselines (set as an action on the previous build by the checkout operation)
-        List<Baseline> previousBuildBls = null;
-        if (clearcaseDataAction != null)
-            previousBuildBls = clearcaseDataAction.getLatestBlsOnConfiguredStream();
+        // find the last build that ran on the same stream
+        List<Baseline> builtBaselines = null;
+        for (Run<?, ?> run = build; run != null && builtBaselines == null; run = run.getPreviousBuild()) {
+            ClearCaseDataAction clearcaseDataAction = run.getAction(ClearCaseDataAction.class);
+            if (clearcaseDataAction != null && getStream().equals(clearcaseDataAction.getStream())) {
+                builtBaselines = clearcaseDataAction.getLatestBlsOnConfiguredStream();
+            }
+        }
+        if (builtBaselines == null) {
+            return false;
+        }
 
-        // check if any baselines added/removed/changed
-        if (latestBlsOnConfgiuredStream != null && previousBuildBls != null) {
-            if (latestBlsOnConfgiuredStream.size() != previousBuildBls.size())
+        String configuredViewPath = viewDrive + "/" + UcmDynamicCheckoutAction.getConfiguredStreamViewName(build.getProject().getName(), getStream());
+        for (Baseline baseline : builtBaselines) {
+            // ignore read-only components
+            if (baseline.getComponentDesc() != null && !baseline.getComponentDesc().isModifiable()) {
+                continue;
+            }
+            if (hasNewActivities(baseline.getBaselineName(), configuredViewPath)) {
                 return true;
-
-            for (Baseline blCurr : latestBlsOnConfgiuredStream) {
-                boolean foundBl = false;
-
-                for (Baseline blPrev : previousBuildBls) {
-                    if (blCurr.getBaselineName().equals(blPrev.getBaselineName())) {
-                        foundBl = true;
-                        break;
-                    }
-                }
-
-                if (!foundBl)
-                    return true;
             }
         }
-
         return false;
     }
 
-    private List<HistoryEntry> translateChangedVersionsToEnteries(List<String> changedVerionsList) throws IOException, InterruptedException {
-        List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
-        StringBuilder entriesDesc = new StringBuilder();
-
-        // build output that parseLsHistory can read...
-        for (String version : changedVerionsList) {
-            String versionDesc = UcmCommon.getVersionDescription(cleartool, version, getHistoryFormatHandler().getFormat() + COMMENT + LINEEND);
-
-            entriesDesc.append(versionDesc + "\n");
-        }
-
-        // call parseLsHistory in order to create the HistoryEntry list
-        BufferedReader buffReader = new BufferedReader(new StringReader(entriesDesc.toString()));
+    private boolean hasNewActivities(String baselineName, String configuredViewPath) throws IOException, InterruptedException {
+        BufferedReader reader = new BufferedReader(cleartool.diffbl(EnumSet.of(DiffBlOptions.ACTIVITIES), "baseline:" + baselineName, "stream:" + getStream(),
+                configuredViewPath));
         try {
-            parseLsHistory(buffReader, entries);
-        } catch (ParseException e) {
-            throw new IOException(e.getMessage());
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                // activities in the stream that are not in the baseline (>>), or that have new versions since it (<>)
+                if (line.startsWith(">>") || line.startsWith("<>")) {
+                    cleartool.getLauncher().getListener().getLogger().println(
+                            "Found activity " + line.substring(2).trim() + " on stream " + getStream() + " since baseline " + baselineName);
+                    return true;
+                }
+            }
+        } finally {
+            reader.close();
         }
-
-        return entries;
+        return false;
     }
 
-    private List<String> getChangedVersions(List<Baseline> newBls, List<Baseline> oldBls) throws IOException, InterruptedException {
-        List<String> changedVersionList = new ArrayList<String>();
+    private List<HistoryEntry> getChangedEntries(List<Baseline> newBls, List<Baseline> oldBls) throws IOException, InterruptedException {
+        List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
 
         // compare baselines
         for (Baseline blDesc : newBls) {
@@ -189,15 +171,17 @@ public class FreezeCodeUcmHistoryAction extends UcmHistoryAction {
             if (previousBl != null && !previousBl.equals(blDesc.getBaselineName())) {
                 String viewName = UcmDynamicCheckoutAction.getConfiguredStreamViewName(build.getProject().getName(), getStream());
 
-                // run diffbl
-                List<String> changedVersionListPerBl = UcmCommon.getDiffBlVersions(cleartool, viewDrive + "/" + viewName, previousBl, blDesc
-                        .getBaselineName());
-
-                changedVersionList.addAll(changedVersionListPerBl);
+                // run diffbl and describe the changed versions as they are read
+                DiffBlVersionIterator versions = new DiffBlVersionIterator(cleartool, viewDrive + "/" + viewName, previousBl, blDesc.getBaselineName());
+                try {
+                    describeVersions(versions, entries);
+                } finally {
+                    versions.close();
+                }
             }
         }
 
-        return changedVersionList;
+        return entries;
     }
 
     private String getBaseLineNameForComponent(List<Baseline> baselineList, String compName) {
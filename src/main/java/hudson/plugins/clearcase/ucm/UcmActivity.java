@@ -25,6 +25,7 @@
 package hudson.plugins.clearcase.ucm;
 
 import hudson.model.User;
+import hudson.plugins.clearcase.util.ChangeLogPaging;
 import hudson.scm.ChangeLogSet;
 import hudson.scm.EditType;
 
@@ -130,11 +131,35 @@ public class UcmActivity extends ChangeLogSet.Entry {
         this.files.addAll(files);
     }
 
-    @Exported
     public List<File> getFiles() {
         return files;
     }
 
+    /**
+     * The files exported by the remote API. The <code>fileStart</code> and <code>fileLimit</code> query parameters can
+     * be used to page through activities with many files.
+     */
+    @Exported(name = "files")
+    public List<File> getExportedFiles() {
+        return ChangeLogPaging.getExportedRange(files, "fileStart", "fileLimit");
+    }
+
+    @Exported
+    public int getFileCount() {
+        return files.size();
+    }
+
+    /**
+     * @return the files rendered with the activity, the others are only loaded when expanded
+     */
+    public List<File> getInlineFiles() {
+        return ChangeLogPaging.getInlineFiles(files);
+    }
+
+    public boolean isFilesTruncated() {
+        return files.size() > ChangeLogPaging.INLINE_FILE_LIMIT;
+    }
+
     @Exported
     public boolean hasFiles() {
         return files.size() > 0;
@@ -148,11 +173,24 @@ public class UcmActivity extends ChangeLogSet.Entry {
         this.subActivities.addAll(activities);
     }
 
-    @Exported
     public List<UcmActivity> getSubActivities() {
         return subActivities;
     }
 
+    /**
+     * The contributing activities exported by the remote API. The <code>subActivityStart</code> and
+     * <code>subActivityLimit</code> query parameters can be used to page through large rebases and deliveries.
+     */
+    @Exported(name = "subActivities")
+    public List<UcmActivity> getExportedSubActivities() {
+        return ChangeLogPaging.getExportedRange(subActivities, "subActivityStart", "subActivityLimit");
+    }
+
+    @Exported
+    public int getSubActivityCount() {
+        return subActivities.size();
+    }
+
     @Exported
     public boolean hasSubActivities() {
         return subActivities.size() > 0;
@@ -0,0 +1,434 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_CONTRIBUTING;
+import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_HEADLINE;
+import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_STREAM;
+import static hudson.plugins.clearcase.util.OutputFormat.USER_ID;
+import hudson.model.Hudson;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.util.ClearToolFormatHandler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+
+/**
+ * Persistent cache of the UCM activity attributes used in change logs: headline, stream, owner and contributing
+ * activities.
+ * <p>
+ * Records are appended to a log file under the Hudson root directory, and indexed in memory. When the log file grows
+ * over its maximum size, it is rewritten with the most recently used records only. Only fully qualified activity
+ * selectors (with their project VOB) are cached, since a simple name depends on the view it is resolved in.
+ * </p>
+ * <p>
+ * Headlines, streams and owners can be changed, and are queried again once they are older than the time to live.
+ * A non empty list of contributing activities is never queried again: it doesn't change once the deliver or rebase
+ * is done.
+ * </p>
+ */
+public class UcmActivityCache {
+
+    private static final Logger LOGGER = Logger.getLogger(UcmActivityCache.class.getName());
+
+    /** Default maximum size of the log file, in bytes */
+    public static final long DEFAULT_MAX_SIZE = 8 * 1024 * 1024;
+
+    /** Default time to live of the headline, stream and owner of an activity, in milliseconds */
+    public static final long DEFAULT_TIME_TO_LIVE = 24 * 60 * 60 * 1000L;
+
+    static final String FILE_NAME = "clearcase-activities.log";
+
+    private static final int MAGIC = 0x43434143; // "CCAC"
+    private static final int VERSION = 1;
+
+    private static final String[] ACTIVITY_FORMAT = { UCM_ACTIVITY_HEADLINE, UCM_ACTIVITY_STREAM, USER_ID };
+    private static final String[] INTEGRATION_ACTIVITY_FORMAT = { UCM_ACTIVITY_HEADLINE, UCM_ACTIVITY_STREAM, USER_ID, UCM_ACTIVITY_CONTRIBUTING };
+
+    private static UcmActivityCache instance;
+
+    /**
+     * Cached attributes of an activity.
+     */
+    static final class Record {
+        private final String name;
+        private final String headline;
+        private final String stream;
+        private final String user;
+        /** null if never queried */
+        private final String contributing;
+        private final long time;
+        private int size;
+
+        Record(String name, String headline, String stream, String user, String contributing, long time) {
+            this.name = name;
+            this.headline = headline;
+            this.stream = stream;
+            this.user = user;
+            this.contributing = contributing;
+            this.time = time;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHeadline() {
+            return headline;
+        }
+
+        public String getStream() {
+            return stream;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public String getContributing() {
+            return contributing;
+        }
+
+        public long getTime() {
+            return time;
+        }
+    }
+
+    private final File file;
+    private final long maxSize;
+    private final long timeToLive;
+    private final Map<String, Record> index = new LinkedHashMap<String, Record>(256, 0.75f, true);
+    private DataOutputStream out;
+    private long fileSize;
+    private boolean loaded;
+    private boolean persistent = true;
+
+    UcmActivityCache(File file, long maxSize, long timeToLive) {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * @return the cache stored in the Hudson root directory, or null if Hudson isn't running
+     */
+    public static synchronized UcmActivityCache getInstance() {
+        Hudson hudson = Hudson.getInstance();
+        if (hudson == null) {
+            return null;
+        }
+        File file = new File(hudson.getRootDir(), FILE_NAME);
+        if (instance == null || !instance.file.equals(file)) {
+            instance = new UcmActivityCache(file, DEFAULT_MAX_SIZE, DEFAULT_TIME_TO_LIVE);
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the attributes of an activity, from the cache if possible, or else through lsactivity.
+     * 
+     * @param cleartool
+     * @param activity the activity selector
+     * @param integration true if the contributing activities are needed
+     * @param viewPath view path name to use in order to list the activity
+     * @return the attributes of the activity, or null if lsactivity output couldn't be parsed
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    static Record lsactivity(ClearTool cleartool, String activity, boolean integration, String viewPath) throws IOException, InterruptedException {
+        UcmActivityCache cache = getInstance();
+        if (cache == null) {
+            return query(cleartool, activity, integration, viewPath, null);
+        }
+        return cache.get(cleartool, activity, integration, viewPath);
+    }
+
+    Record get(ClearTool cleartool, String activity, boolean integration, String viewPath) throws IOException, InterruptedException {
+        if (!isCacheable(activity)) {
+            return query(cleartool, activity, integration, viewPath, null);
+        }
+        Record cached = get(activity);
+        boolean fresh = cached != null && System.currentTimeMillis() - cached.getTime() < timeToLive;
+        boolean contributingKnown = cached != null && isImmutable(cached.getContributing());
+        if (fresh && (!integration || cached.getContributing() != null)) {
+            return cached;
+        }
+        Record record;
+        if (integration && contributingKnown) {
+            // only the headline needs to be refreshed
+            record = query(cleartool, activity, false, viewPath, cached.getContributing());
+        } else {
+            record = query(cleartool, activity, integration, viewPath, cached != null ? cached.getContributing() : null);
+        }
+        if (record != null) {
+            put(record);
+        }
+        return record;
+    }
+
+    private static Record query(ClearTool cleartool, String activity, boolean integration, String viewPath, String knownContributing) throws IOException,
+            InterruptedException {
+        ClearToolFormatHandler handler = new ClearToolFormatHandler(integration ? INTEGRATION_ACTIVITY_FORMAT : ACTIVITY_FORMAT);
+        BufferedReader reader = new BufferedReader(cleartool.lsactivity(activity, handler.getFormat(), viewPath));
+        try {
+            Matcher matcher = handler.checkLine(reader.readLine());
+            if (matcher == null) {
+                return null;
+            }
+            String contributing = integration ? matcher.group(4) : knownContributing;
+            return new Record(activity, matcher.group(1), matcher.group(2), matcher.group(3), contributing, System.currentTimeMillis());
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static boolean isCacheable(String activity) {
+        return activity != null && activity.indexOf('@') > 0;
+    }
+
+    private static boolean isImmutable(String contributing) {
+        return contributing != null && contributing.trim().length() > 0;
+    }
+
+    synchronized Record get(String activity) {
+        load();
+        return index.get(activity);
+    }
+
+    synchronized void put(Record record) {
+        load();
+        index.put(record.getName(), record);
+        if (!persistent) {
+            return;
+        }
+        try {
+            if (out == null) {
+                boolean exists = file.length() > 0;
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+                if (!exists) {
+                    writeHeader(out);
+                    fileSize = out.size();
+                }
+            }
+            byte[] bytes = toBytes(record);
+            record.size = bytes.length;
+            out.write(bytes);
+            out.flush();
+            fileSize += bytes.length;
+            if (fileSize > maxSize) {
+                compact();
+            }
+        } catch (IOException e) {
+            disablePersistence(e);
+        }
+    }
+
+    /**
+     * @return the number of activities in the cache
+     */
+    public synchronized int size() {
+        load();
+        return index.size();
+    }
+
+    synchronized long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Closes the log file. It is opened again on the next update.
+     */
+    public synchronized void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Couldn't close " + file, e);
+            }
+            out = null;
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        boolean truncated = false;
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                    LOGGER.log(Level.WARNING, "Ignoring {0}, unknown format", file);
+                    truncated = true;
+                } else {
+                    for (int first = in.read(); first != -1; first = in.read()) {
+                        Record record = readRecord(first != 0, in);
+                        index.put(record.getName(), record);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // a record was partially written (EOFException), or the file is corrupted: keep what could be read
+            LOGGER.log(Level.WARNING, "Couldn't read all of " + file, e);
+            truncated = true;
+        }
+        fileSize = file.length();
+        if (truncated || fileSize > maxSize) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the log file with the most recently used records, up to half the maximum size.
+     */
+    private void compact() {
+        close();
+        List<Record> records = new ArrayList<Record>(index.values());
+        long size = 0;
+        int first = records.size();
+        while (first > 0) {
+            Record record = records.get(first - 1);
+            if (record.size == 0) {
+                record.size = toBytes(record).length;
+            }
+            if (size + record.size > maxSize / 2) {
+                break;
+            }
+            size += record.size;
+            first--;
+        }
+        for (Iterator<Record> it = records.subList(0, first).iterator(); it.hasNext();) {
+            index.remove(it.next().getName());
+        }
+        records = records.subList(first, records.size());
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            try {
+                writeHeader(tmpOut);
+                for (Record record : records) {
+                    tmpOut.write(toBytes(record));
+                }
+            } finally {
+                tmpOut.close();
+            }
+            if (!file.delete() && file.exists() || !tmp.renameTo(file)) {
+                throw new IOException("Couldn't replace " + file);
+            }
+            fileSize = file.length();
+            LOGGER.log(Level.FINE, "Compacted {0}: {1} activities, {2} evicted", new Object[] { file, records.size(), first });
+        } catch (IOException e) {
+            tmp.delete();
+            disablePersistence(e);
+        }
+    }
+
+    private void disablePersistence(IOException e) {
+        LOGGER.log(Level.WARNING, "Couldn't write " + file + ", UCM activities are only cached in memory", e);
+        close();
+        persistent = false;
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+    }
+
+    private static byte[] toBytes(Record record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            writeString(out, record.getName());
+            writeString(out, record.getHeadline());
+            writeString(out, record.getStream());
+            writeString(out, record.getUser());
+            writeString(out, record.getContributing());
+            out.writeLong(record.getTime());
+            out.close();
+        } catch (IOException e) {
+            // can't happen with a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Record readRecord(boolean hasName, DataInputStream in) throws IOException {
+        String name = hasName ? readString(in, true) : null;
+        Record record = new Record(name, readString(in), readString(in), readString(in), readString(in), in.readLong());
+        if (name == null) {
+            throw new IOException("Activity record without name");
+        }
+        return record;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            // writeUTF is limited to 64KB, long contributing lists aren't unusual
+            byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return readString(in, in.readBoolean());
+    }
+
+    private static String readString(DataInputStream in, boolean notNull) throws IOException {
+        if (!notNull) {
+            return null;
+        }
+        int length = in.readInt();
+        if (length < 0 || length > 16 * 1024 * 1024) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import hudson.model.AbstractBuild;
+import hudson.plugins.clearcase.Baseline;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.Component;
+import hudson.plugins.clearcase.util.BuildScopedMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Remembers the UCM queries run during a build, so that the SCM, the history and change log actions and the baseline
+ * publishers don't run the same query twice.
+ * <p>
+ * Kept for the build while it runs, and never persisted with it. A build that is over doesn't remember anything:
+ * polling goes through {@link UcmStreamCache} only.
+ * </p>
+ */
+public class UcmBuildQueries {
+
+    private static final BuildScopedMap<UcmBuildQueries> QUERIES = new BuildScopedMap<UcmBuildQueries>() {
+        @Override
+        protected UcmBuildQueries create(AbstractBuild<?, ?> build) {
+            return new UcmBuildQueries();
+        }
+    };
+
+    private static final String FOUNDATION_BASELINES = "foundation_bls";
+    private static final String LATEST_BASELINES = "latest_bls";
+    private static final String LOAD_RULES = "load_rules";
+    private static final String COMPONENTS = "components";
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String ACTIVITY = "activity";
+
+    private Map<String, Object> values;
+
+    UcmBuildQueries() {
+    }
+
+    /**
+     * @return the queries of the build if it is running, or else queries that aren't shared
+     */
+    public static UcmBuildQueries get(AbstractBuild<?, ?> build) {
+        if (build == null || !build.isLogUpdated()) {
+            return new UcmBuildQueries();
+        }
+        return QUERIES.getOrCreate(build);
+    }
+
+    public List<Baseline> getFoundationBaselines(final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        return new ArrayList<Baseline>(get(key(FOUNDATION_BASELINES, stream), new UcmStreamCache.Query<List<Baseline>>() {
+            public List<Baseline> execute() throws IOException, InterruptedException {
+                return UcmStreamCache.getInstance().getFoundationBaselines(clearTool, stream);
+            }
+        }));
+    }
+
+    public List<Baseline> getLatestBaselines(final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        return new ArrayList<Baseline>(get(key(LATEST_BASELINES, stream), new UcmStreamCache.Query<List<Baseline>>() {
+            public List<Baseline> execute() throws IOException, InterruptedException {
+                return UcmStreamCache.getInstance().getLatestBaselines(clearTool, stream);
+            }
+        }));
+    }
+
+    public String[] getLoadRules(final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        String[] loadRules = get(key(LOAD_RULES, stream, String.valueOf(clearTool.getLauncher().isUnix())), new UcmStreamCache.Query<String[]>() {
+            public String[] execute() throws IOException, InterruptedException {
+                return UcmStreamCache.getInstance().getLoadRules(clearTool, stream);
+            }
+        });
+        return loadRules == null ? null : loadRules.clone();
+    }
+
+    public List<Component> getComponents(final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        return new ArrayList<Component>(get(key(COMPONENTS, stream), new UcmStreamCache.Query<List<Component>>() {
+            public List<Component> execute() throws IOException, InterruptedException {
+                return UcmStreamCache.getInstance().getComponents(clearTool, stream);
+            }
+        }));
+    }
+
+    /**
+     * @see UcmCommon#getStreamFingerprint(ClearTool, String, String[])
+     */
+    public String getStreamFingerprint(final ClearTool clearTool, final String stream, final String[] loadRules) throws IOException, InterruptedException {
+        String rules = loadRules == null ? "" : StringUtils.join(loadRules, ';');
+        return get(key(FINGERPRINT, stream, rules), new UcmStreamCache.Query<String>() {
+            public String execute() throws IOException, InterruptedException {
+                return UcmCommon.getStreamFingerprint(clearTool, stream, loadRules);
+            }
+        });
+    }
+
+    UcmActivityCache.Record getActivity(final ClearTool clearTool, final String activity, final boolean integration, final String viewPath)
+            throws IOException, InterruptedException {
+        return get(key(ACTIVITY, activity, String.valueOf(integration)), new UcmStreamCache.Query<UcmActivityCache.Record>() {
+            public UcmActivityCache.Record execute() throws IOException, InterruptedException {
+                return UcmActivityCache.lsactivity(clearTool, activity, integration, viewPath);
+            }
+        });
+    }
+
+    /**
+     * Runs a query, unless it already ran during the build.
+     * 
+     * @param kind the kind of query
+     * @param object the object queried, a stream or any other selector
+     */
+    <T> T get(String kind, String object, UcmStreamCache.Query<T> query) throws IOException, InterruptedException {
+        return get(key(kind, object), query);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T get(String key, UcmStreamCache.Query<T> query) throws IOException, InterruptedException {
+        if (values == null) {
+            values = new HashMap<String, Object>();
+        }
+        if (values.containsKey(key)) {
+            return (T) values.get(key);
+        }
+        T value = query.execute();
+        values.put(key, value);
+        return value;
+    }
+
+    /**
+     * Forgets what is known about a stream, here and in {@link UcmStreamCache}. To be called after changing the stream
+     * (mkbl, rebase...).
+     */
+    public synchronized void invalidate(String stream) {
+        UcmStreamCache.getInstance().invalidate(stream);
+        if (values != null) {
+            String object = '|' + normalize(stream) + '|';
+            for (Iterator<String> it = values.keySet().iterator(); it.hasNext();) {
+                if ((it.next() + '|').contains(object)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets everything about streams, for changes where the affected stream isn't known (e.g. rebase of a view).
+     */
+    public synchronized void invalidateAll() {
+        UcmStreamCache.getInstance().invalidateAll();
+        if (values != null) {
+            for (Iterator<String> it = values.keySet().iterator(); it.hasNext();) {
+                if (!it.next().startsWith(ACTIVITY + '|')) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static String key(String kind, String object, String... qualifiers) {
+        StringBuilder key = new StringBuilder(kind).append('|').append(normalize(object));
+        if (qualifiers.length > 0) {
+            key.append('|').append(StringUtils.join(Arrays.asList(qualifiers), '|'));
+        }
+        return key.toString();
+    }
+
+    private static String normalize(String object) {
+        return StringUtils.removeStart(StringUtils.trimToEmpty(object), "stream:");
+    }
+}
@@ -31,9 +31,6 @@ import static hudson.plugins.clearcase.util.OutputFormat.LINEEND;
 import static hudson.plugins.clearcase.util.OutputFormat.NAME_ELEMENTNAME;
 import static hudson.plugins.clearcase.util.OutputFormat.NAME_VERSIONID;
 import static hudson.plugins.clearcase.util.OutputFormat.OPERATION;
-import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_CONTRIBUTING;
-import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_HEADLINE;
-import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_STREAM;
 import static hudson.plugins.clearcase.util.OutputFormat.UCM_VERSION_ACTIVITY;
 import static hudson.plugins.clearcase.util.OutputFormat.USER_ID;
 import hudson.plugins.clearcase.ClearTool;
@@ -64,10 +61,6 @@ public class UcmChangeLogAction implements ChangeLogAction {
     // full lshistory output and parsing
     private static final String[]    HISTORY_FORMAT              = { DATE_NUMERIC, NAME_ELEMENTNAME, NAME_VERSIONID,
             UCM_VERSION_ACTIVITY, EVENT, OPERATION, USER_ID     };
-    private static final String[]    ACTIVITY_FORMAT             = { UCM_ACTIVITY_HEADLINE, UCM_ACTIVITY_STREAM,
-            USER_ID,                                            };
-    private static final String[]    INTEGRATION_ACTIVITY_FORMAT = { UCM_ACTIVITY_HEADLINE, UCM_ACTIVITY_STREAM,
-            USER_ID, UCM_ACTIVITY_CONTRIBUTING                  };
 
     private ClearTool                cleartool;
 
@@ -215,26 +208,16 @@ public class UcmChangeLogAction implements ChangeLogAction {
 
     private void callLsActivity(UcmActivity activity, String viewname, int numberOfContributingActivitiesToFollow)
             throws IOException, InterruptedException {
-        ClearToolFormatHandler handler = null;
-        if (activity.isIntegrationActivity()) {
-            handler = new ClearToolFormatHandler(INTEGRATION_ACTIVITY_FORMAT);
-        } else {
-            handler = new ClearToolFormatHandler(ACTIVITY_FORMAT);
-        }
-
-        BufferedReader reader = new BufferedReader(cleartool.lsactivity(activity.getName(), handler.getFormat(),
-                                                                        viewname));
-
-        String line = reader.readLine();
-        Matcher matcher = handler.checkLine(line);
-        if (matcher != null) {
-            activity.setHeadline(matcher.group(1));
-            activity.setStream(matcher.group(2));
-            activity.setUser(matcher.group(3));
+        UcmActivityCache.Record record = UcmActivityCache.lsactivity(cleartool, activity.getName(),
+                                                                     activity.isIntegrationActivity(), viewname);
+        if (record != null) {
+            activity.setHeadline(record.getHeadline());
+            activity.setStream(record.getStream());
+            activity.setUser(record.getUser());
 
             if (activity.isIntegrationActivity() && numberOfContributingActivitiesToFollow > 0) {
 
-                String contributingActivities = matcher.group(4);
+                String contributingActivities = record.getContributing();
 
                 for (String contributing : contributingActivities.split(" ")) {
 
@@ -254,8 +237,6 @@ public class UcmChangeLogAction implements ChangeLogAction {
                 }
             }
         }
-
-        reader.close();
     }
 
     /**
@@ -25,6 +25,8 @@
 package hudson.plugins.clearcase.ucm;
 
 import hudson.model.AbstractBuild;
+import hudson.plugins.clearcase.util.ChangeLogSetCache;
+import hudson.plugins.clearcase.util.CompactChangeLog;
 import hudson.scm.ChangeLogParser;
 
 import java.io.File;
@@ -41,7 +43,7 @@ import org.xml.sax.SAXException;
  * 
  * @author Erik Ramfelt
  */
-public class UcmChangeLogParser extends ChangeLogParser {
+public class UcmChangeLogParser extends ChangeLogParser implements CompactChangeLog.Migrator {
 
     /**
      * Parses the change log file and returns a ClearCase change log set.
@@ -51,7 +53,18 @@ public class UcmChangeLogParser extends ChangeLogParser {
      * @return the change log set
      */
     @Override
-    public UcmChangeLogSet parse(AbstractBuild build, File changeLogFile) throws IOException, SAXException {
+    public UcmChangeLogSet parse(final AbstractBuild build, final File changeLogFile) throws IOException, SAXException {
+        return ChangeLogSetCache.getInstance().get(build, changeLogFile, new ChangeLogSetCache.Loader<UcmChangeLogSet>() {
+            public UcmChangeLogSet load() throws IOException, SAXException {
+                return parseFile(build, changeLogFile);
+            }
+        });
+    }
+
+    private UcmChangeLogSet parseFile(AbstractBuild<?, ?> build, File changeLogFile) throws IOException, SAXException {
+        if (CompactChangeLog.isCompact(changeLogFile)) {
+            return new UcmChangeLogSet(build, changeLogFile);
+        }
         FileInputStream fileInputStream = new FileInputStream(changeLogFile);
         UcmChangeLogSet logSet = parse(build, fileInputStream);
         fileInputStream.close();
@@ -102,4 +115,20 @@ public class UcmChangeLogParser extends ChangeLogParser {
         return new UcmChangeLogSet(build, history);
     }
 
+    /**
+     * Rewrites a legacy xml change log file in the compact binary format.
+     * 
+     * @param build the build for the change log
+     * @param changeLogFile the change log file
+     * @return true if the file has been rewritten, false if it doesn't exist or is already compact
+     */
+    public boolean migrate(AbstractBuild<?, ?> build, File changeLogFile) throws IOException, SAXException {
+        if (!changeLogFile.isFile() || CompactChangeLog.isCompact(changeLogFile)) {
+            return false;
+        }
+        UcmChangeLogSet logSet = parseFile(build, changeLogFile);
+        CompactChangeLog.replace(changeLogFile, logSet.getLogs(), UcmChangeLogSet.CODEC);
+        return true;
+    }
+
 }
@@ -26,8 +26,12 @@ package hudson.plugins.clearcase.ucm;
 
 import hudson.model.AbstractBuild;
 import hudson.plugins.clearcase.ClearCaseChangeLogSet;
+import hudson.plugins.clearcase.util.ChangeLogPaging;
+import hudson.plugins.clearcase.util.ChangeLogSetCache;
+import hudson.plugins.clearcase.util.CompactChangeLog;
 import hudson.scm.ChangeLogSet;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -42,7 +46,7 @@ import org.kohsuke.stapler.export.Exported;
  * 
  * @author Henrik L. Hansen
  */
-public class UcmChangeLogSet extends ChangeLogSet<UcmActivity> {
+public class UcmChangeLogSet extends ChangeLogSet<UcmActivity> implements ChangeLogSetCache.Sized {
 
     static final String[] ACTIVITY_TAGS = new String[] { "name", "headline", "stream", "user" };
     static final String[] FILE_TAGS = new String[] { "name", "date", "comment", "version", "event", "operation" };
@@ -56,6 +60,24 @@ public class UcmChangeLogSet extends ChangeLogSet<UcmActivity> {
         this.history = Collections.unmodifiableList(logs);
     }
 
+    /**
+     * Creates a set over a compact change log file, whose activities are only decoded when accessed.
+     */
+    UcmChangeLogSet(AbstractBuild<?, ?> build, File compactChangeLogFile) throws IOException {
+        super(build);
+        this.history = CompactChangeLog.openList(compactChangeLogFile, new CompactChangeLog.Codec<UcmActivity>() {
+            public void write(UcmActivity activity, CompactChangeLog.EntryOutput out) throws IOException {
+                CODEC.write(activity, out);
+            }
+
+            public UcmActivity read(CompactChangeLog.EntryInput in) throws IOException {
+                UcmActivity activity = CODEC.read(in);
+                activity.setParent(UcmChangeLogSet.this);
+                return activity;
+            }
+        });
+    }
+
     @Override
     public boolean isEmptySet() {
         return history.size() == 0;
@@ -65,11 +87,53 @@ public class UcmChangeLogSet extends ChangeLogSet<UcmActivity> {
         return history.iterator();
     }
 
-    @Exported
     public List<UcmActivity> getLogs() {
         return history;
     }
 
+    /**
+     * The activities exported by the remote API. The <code>start</code> and <code>limit</code> query parameters can be
+     * used to page through large change logs.
+     */
+    @Exported(name = "logs")
+    public List<UcmActivity> getExportedLogs() {
+        return ChangeLogPaging.getExportedRange(history, "start", "limit");
+    }
+
+    public int size() {
+        return history.size();
+    }
+
+    public int getPageSize() {
+        return ChangeLogPaging.PAGE_SIZE;
+    }
+
+    public int getPageCount() {
+        return ChangeLogPaging.getPageCount(history.size());
+    }
+
+    public int getPageOf(int index) {
+        return ChangeLogPaging.getPageOf(index);
+    }
+
+    public int toPage(String value) {
+        return ChangeLogPaging.toPage(value, history.size());
+    }
+
+    public List<UcmActivity> getPage(int page) {
+        return ChangeLogPaging.getPage(history, page);
+    }
+
+    /**
+     * Used by the change log views to expand a single activity on demand.
+     * 
+     * @param index the index of the activity in the change log
+     * @return the activity, or null if there is no such activity
+     */
+    public UcmActivity getActivity(int index) {
+        return index >= 0 && index < history.size() ? history.get(index) : null;
+    }
+
     /**
      * Stores the history objects to the output stream as xml
      * 
@@ -118,6 +182,66 @@ public class UcmChangeLogSet extends ChangeLogSet<UcmActivity> {
         stream.close();
     }
 
+    /**
+     * Stores the history objects to the output stream in the compact binary format
+     * 
+     * @param outputStream the stream to write to
+     * @param history the history objects to store
+     * @throws IOException
+     * @see CompactChangeLog
+     */
+    public static void saveToCompactChangeLog(OutputStream outputStream, List<UcmActivity> history) throws IOException {
+        CompactChangeLog.write(outputStream, history, CODEC);
+    }
+
+    static final CompactChangeLog.Codec<UcmActivity> CODEC = new CompactChangeLog.Codec<UcmActivity>() {
+        public void write(UcmActivity activity, CompactChangeLog.EntryOutput out) throws IOException {
+            out.writeString(activity.getName());
+            out.writeString(activity.getHeadline());
+            out.writeString(activity.getStream());
+            out.writeString(activity.getUser());
+            List<UcmActivity.File> files = activity.getFiles();
+            out.writeInt(files.size());
+            for (UcmActivity.File file : files) {
+                out.writeString(file.getName());
+                out.writeString(file.getDateStr());
+                out.writeString(file.getComment());
+                out.writeString(file.getVersion());
+                out.writeString(file.getEvent());
+                out.writeString(file.getOperation());
+            }
+            List<UcmActivity> subActivities = activity.getSubActivities();
+            out.writeInt(subActivities.size());
+            for (UcmActivity subActivity : subActivities) {
+                write(subActivity, out);
+            }
+        }
+
+        public UcmActivity read(CompactChangeLog.EntryInput in) throws IOException {
+            UcmActivity activity = new UcmActivity();
+            activity.setName(in.readString());
+            activity.setHeadline(in.readString());
+            activity.setStream(in.readString());
+            activity.setUser(in.readString());
+            int fileCount = in.readInt();
+            for (int i = 0; i < fileCount; i++) {
+                UcmActivity.File file = new UcmActivity.File();
+                file.setName(in.readString());
+                file.setDateStr(in.readString());
+                file.setComment(in.readString());
+                file.setVersion(in.readString());
+                file.setEvent(in.readString());
+                file.setOperation(in.readString());
+                activity.addFile(file);
+            }
+            int subActivityCount = in.readInt();
+            for (int i = 0; i < subActivityCount; i++) {
+                activity.addSubActivity(read(in));
+            }
+            return activity;
+        }
+    };
+
     private static String[] getEntryAsStrings(UcmActivity entry) {
         String[] array = new String[ACTIVITY_TAGS.length];
         array[0] = entry.getName();
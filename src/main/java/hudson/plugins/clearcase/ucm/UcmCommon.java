@@ -25,16 +25,17 @@
 package hudson.plugins.clearcase.ucm;
 
 import hudson.FilePath;
+import hudson.Util;
 import hudson.plugins.clearcase.Baseline;
 import hudson.plugins.clearcase.ClearTool;
-import hudson.plugins.clearcase.ClearTool.DiffBlOptions;
 import hudson.plugins.clearcase.Component;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 
@@ -212,6 +213,57 @@ public class UcmCommon {
         return foundationBaselines;
     }
     
+    /**
+     * Computes a fingerprint of a stream as seen through the given load rules: foundation and latest baselines and
+     * activities, read with a single lsstream, and the change sets of these activities, read with a single describe.
+     * New baselines, rebases, deliveries, new activities and check-ins in the activities of the stream change the
+     * fingerprint.
+     * 
+     * @param clearTool
+     * @param stream
+     * @param loadRules
+     * @return the fingerprint, or null if the stream couldn't be described
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public static String getStreamFingerprint(ClearTool clearTool, String stream, String[] loadRules) throws IOException, InterruptedException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new Error(e);
+        }
+        try {
+            String output = clearTool.lsstream("stream:" + stream, null, "%[found_bls]Xp\\n%[latest_bls]Xp\\n%[activities]Xp\\n");
+            if (output == null) {
+                return null;
+            }
+            digest.update(output.getBytes("UTF-8"));
+            // the versions of the change sets, a check-in adds one
+            String[] lines = output.split("\n");
+            String[] activities = lines.length > 2 ? StringUtils.split(lines[2]) : new String[0];
+            if (activities.length > 0) {
+                BufferedReader reader = new BufferedReader(clearTool.describe("%[versions]p\\n", activities));
+                try {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        digest.update((line + "\n").getBytes("UTF-8"));
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+        } catch (IOException e) {
+            // cleartool exited with an error, such as an unknown stream
+            return null;
+        }
+        if (loadRules != null) {
+            for (String loadRule : loadRules) {
+                digest.update((loadRule + "\n").getBytes("UTF-8"));
+            }
+        }
+        return Util.toHexString(digest.digest());
+    }
+    
     /**
      * @param clearToolLauncher
      * @param streamName
@@ -224,8 +276,12 @@ public class UcmCommon {
         Reader reader = clearTool.describe(null, "stream:" + streamName);
         BufferedReader bufferedReader = new BufferedReader(reader);
         StringBuilder sb = new StringBuilder();
-        while (bufferedReader.ready()) {
-            sb.append(bufferedReader.readLine());
+        try {
+            for (String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine()) {
+                sb.append(line);
+            }
+        } finally {
+            bufferedReader.close();
         }
         String output = sb.toString();
 
@@ -264,8 +320,20 @@ public class UcmCommon {
      * @throws Exception
      */
     public static List<Baseline> getLatestBlsWithCompOnStream(ClearTool clearTool, String stream, String view) throws IOException, InterruptedException {
+        return getLatestBlsWithCompOnStream(UcmBuildQueries.get(null), clearTool, stream, view);
+    }
+
+    /**
+     * @param queries the queries of the running build
+     * @return List of latest BaseLineDesc (baseline + component) for stream. Only baselines on read-write components
+     *         are returned
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    public static List<Baseline> getLatestBlsWithCompOnStream(UcmBuildQueries queries, ClearTool clearTool, String stream, String view) throws IOException,
+            InterruptedException {
         // get the components on the build stream
-        List<Component> componentsList = getStreamComponentsDesc(clearTool, stream);
+        List<Component> componentsList = queries.getComponents(clearTool, stream);
 
         // get latest baselines on the stream (name only)
         List<String> latestBlsOnBuildStream = getLatestBaselineNames(clearTool, true, view, null, null);
@@ -303,20 +371,15 @@ public class UcmCommon {
      */
     public static List<String> getDiffBlVersions(ClearTool clearTool, String viewRootDirectory, String bl1, String bl2) throws IOException,
             InterruptedException {
-        Reader rd = clearTool.diffbl(EnumSet.of(DiffBlOptions.VERSIONS), bl1, bl2, viewRootDirectory);
-
-        BufferedReader br = new BufferedReader(rd);
-
+        DiffBlVersionIterator versions = new DiffBlVersionIterator(clearTool, viewRootDirectory, bl1, bl2);
         List<String> versionList = new ArrayList<String>();
-        // remove ">>" from result
-        for (String line = br.readLine(); br.ready(); line = br.readLine()) {
-            if (line.startsWith(">>")) {
-                line = line.replaceAll(">>", "");
-                versionList.add(line.trim());
+        try {
+            while (versions.hasNextVersion()) {
+                versionList.add(versions.nextVersion());
             }
+        } finally {
+            versions.close();
         }
-        br.close();
-
         return versionList;
     }
 
@@ -331,8 +394,12 @@ public class UcmCommon {
         Reader rd = clearTool.describe(format, version);
         BufferedReader bufferedReader = new BufferedReader(rd);
         StringBuilder sb = new StringBuilder();
-        while (bufferedReader.ready()) {
-            sb.append(bufferedReader.readLine());
+        try {
+            for (String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine()) {
+                sb.append(line);
+            }
+        } finally {
+            bufferedReader.close();
         }
         return sb.toString();
     }
@@ -29,9 +29,6 @@ import static hudson.plugins.clearcase.util.OutputFormat.EVENT;
 import static hudson.plugins.clearcase.util.OutputFormat.NAME_ELEMENTNAME;
 import static hudson.plugins.clearcase.util.OutputFormat.NAME_VERSIONID;
 import static hudson.plugins.clearcase.util.OutputFormat.OPERATION;
-import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_CONTRIBUTING;
-import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_HEADLINE;
-import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_STREAM;
 import static hudson.plugins.clearcase.util.OutputFormat.UCM_VERSION_ACTIVITY;
 import static hudson.plugins.clearcase.util.OutputFormat.USER_ID;
 import hudson.plugins.clearcase.AbstractClearCaseScm.ChangeSetLevel;
@@ -66,15 +63,16 @@ public class UcmHistoryAction extends AbstractHistoryAction {
 
     private static final String[] HISTORY_FORMAT = { DATE_NUMERIC, USER_ID, NAME_ELEMENTNAME, NAME_VERSIONID, EVENT, OPERATION, UCM_VERSION_ACTIVITY };
 
-    private static final String[] ACTIVITY_FORMAT = { UCM_ACTIVITY_HEADLINE, UCM_ACTIVITY_STREAM, USER_ID, };
-
-    private static final String[] INTEGRATION_ACTIVITY_FORMAT = { UCM_ACTIVITY_HEADLINE, UCM_ACTIVITY_STREAM, USER_ID, UCM_ACTIVITY_CONTRIBUTING };
+    /** Number of versions described by a single cleartool describe call */
+    static final int DESCRIBE_BATCH_SIZE = 50;
 
     private final ClearToolFormatHandler historyHandler = new ClearToolFormatHandler(HISTORY_FORMAT);
 
     private final ClearCaseUCMSCMRevisionState oldBaseline;
     private final ClearCaseUCMSCMRevisionState newBaseline;
 
+    private UcmBuildQueries queries = UcmBuildQueries.get(null);
+
     public UcmHistoryAction(ClearTool cleartool, boolean useDynamicView, Filter filter, ClearCaseUCMSCMRevisionState oldBaseline,
             ClearCaseUCMSCMRevisionState newBaseline, ChangeSetLevel changeset) {
         super(cleartool, useDynamicView, filter, changeset);
@@ -82,6 +80,13 @@ public class UcmHistoryAction extends AbstractHistoryAction {
         this.newBaseline = newBaseline;
     }
 
+    /**
+     * @param queries the queries of the build the history is computed for
+     */
+    public void setBuildQueries(UcmBuildQueries queries) {
+        this.queries = queries;
+    }
+
     @Override
     protected List<Entry> buildChangelog(String viewPath, List<HistoryEntry> entries) throws IOException, InterruptedException {
         List<Entry> result = new ArrayList<Entry>();
@@ -118,24 +123,20 @@ public class UcmHistoryAction extends AbstractHistoryAction {
 
     private void callLsActivity(Map<String, UcmActivity> activityMap, UcmActivity activity, String viewPath, int numberOfContributingActivitiesToFollow)
             throws IOException, InterruptedException {
-        ClearToolFormatHandler handler = new ClearToolFormatHandler(activity.isIntegrationActivity() ? INTEGRATION_ACTIVITY_FORMAT : ACTIVITY_FORMAT);
         if (StringUtils.isBlank(activity.getName())) {
             activity.setName("Unable to get activity name");
             return;
         }
 
-        BufferedReader reader = new BufferedReader(cleartool.lsactivity(activity.getName(), handler.getFormat(), viewPath));
-
-        String line = reader.readLine();
-        Matcher matcher = handler.checkLine(line);
-        if (matcher != null) {
-            activity.setHeadline(matcher.group(1));
-            activity.setStream(matcher.group(2));
-            activity.setUser(matcher.group(3));
+        UcmActivityCache.Record record = queries.getActivity(cleartool, activity.getName(), activity.isIntegrationActivity(), viewPath);
+        if (record != null) {
+            activity.setHeadline(record.getHeadline());
+            activity.setStream(record.getStream());
+            activity.setUser(record.getUser());
 
             if (activity.isIntegrationActivity() && numberOfContributingActivitiesToFollow > 0) {
 
-                String contributingActivities = matcher.group(4);
+                String contributingActivities = record.getContributing();
 
                 for (String contributing : contributingActivities.split(" ")) {
 
@@ -155,7 +156,6 @@ public class UcmHistoryAction extends AbstractHistoryAction {
                 }
             }
         }
-        reader.close();
     }
 
     @Override
@@ -188,13 +188,11 @@ public class UcmHistoryAction extends AbstractHistoryAction {
                 }
                 String bl2 = newBl.getBaselineName();
                 if (!StringUtils.equals(bl1, bl2)) {
-                    List<String> versions = UcmCommon.getDiffBlVersions(cleartool, viewPath, "baseline:" + bl1, "baseline:" + bl2);
-                    for (String version : versions) {
-                        try {
-                            parseLsHistory(new BufferedReader(cleartool.describe(getHistoryFormatHandler().getFormat() + OutputFormat.COMMENT + OutputFormat.LINEEND, version)), history);
-                        } catch (ParseException e) {
-                            /* empty by design */
-                        }
+                    DiffBlVersionIterator versions = new DiffBlVersionIterator(cleartool, viewPath, "baseline:" + bl1, "baseline:" + bl2);
+                    try {
+                        describeVersions(versions, history);
+                    } finally {
+                        versions.close();
                     }
                 }
             }
@@ -202,6 +200,27 @@ public class UcmHistoryAction extends AbstractHistoryAction {
         return history;
     }
 
+    /**
+     * Describes the versions reported by a diffbl, {@link #DESCRIBE_BATCH_SIZE} versions per cleartool call, and adds
+     * the resulting entries to the history. A version whose description can't be parsed is logged and skipped.
+     */
+    protected void describeVersions(DiffBlVersionIterator versions, List<HistoryEntry> history) throws IOException, InterruptedException {
+        String format = getHistoryFormatHandler().getFormat() + OutputFormat.COMMENT + OutputFormat.LINEEND;
+        List<String> batch = new ArrayList<String>(DESCRIBE_BATCH_SIZE);
+        while (versions.hasNextVersion()) {
+            batch.add(versions.nextVersion());
+            if (batch.size() == DESCRIBE_BATCH_SIZE || !versions.hasNextVersion()) {
+                BufferedReader reader = new BufferedReader(cleartool.describe(format, batch.toArray(new String[batch.size()])));
+                try {
+                    parseLsHistorySkippingErrors(reader, history);
+                } finally {
+                    reader.close();
+                }
+                batch.clear();
+            }
+        }
+    }
+
     private boolean needsHistoryOnAllBranches() {
         return ChangeSetLevel.ALL.equals(getChangeset());
     }
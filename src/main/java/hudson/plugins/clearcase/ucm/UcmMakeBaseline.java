@@ -38,7 +38,10 @@ import hudson.plugins.clearcase.Baseline;
 import hudson.plugins.clearcase.ClearCaseUcmSCM;
 import hudson.plugins.clearcase.ClearTool;
 import hudson.plugins.clearcase.ClearTool.DefaultPromotionLevel;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
 import hudson.plugins.clearcase.util.BuildVariableResolver;
+import hudson.plugins.clearcase.util.BuildVariableSnapshot;
 import hudson.scm.SCM;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
@@ -236,12 +239,24 @@ public class UcmMakeBaseline extends Notifier {
 
     @Override
     public boolean prebuild(AbstractBuild<?, ?> build, BuildListener listener) {
+        PhaseProfile profile = PhaseProfile.start(build);
+        Phase phase = PhaseProfile.enter("make baseline");
+        try {
+            return doPrebuild(build, listener);
+        } finally {
+            PhaseProfile.exit(phase);
+            profile.stop();
+        }
+    }
+
+    private boolean doPrebuild(AbstractBuild<?, ?> build, BuildListener listener) {
         SCM scm = build.getProject().getScm();
         if (scm instanceof ClearCaseUcmSCM) {
             ClearCaseUcmSCM ucm = (ClearCaseUcmSCM) scm;
             Launcher launcher = Executor.currentExecutor().getOwner().getNode().createLauncher(listener);
             VariableResolver<String> variableResolver = new BuildVariableResolver(build);
             ClearTool clearTool = ucm.createClearTool(variableResolver, ucm.createClearToolLauncher(listener, build.getWorkspace(), launcher));
+            UcmBuildQueries queries = UcmBuildQueries.get(build);
             if (this.lockStream) {
                 try {
                     this.streamSuccessfullyLocked = lockStream(clearTool, ucm.getStream());
@@ -256,10 +271,11 @@ public class UcmMakeBaseline extends Notifier {
             try {
                 // Get read/write component
                 String viewTag = ucm.getViewName(variableResolver);
-                this.readWriteComponents = getReadWriteComponent(clearTool, viewTag);
+                this.readWriteComponents = getReadWriteComponent(queries, clearTool, viewTag);
                 if (!readWriteComponents.isEmpty()) {
                     this.createdBaselines = makeBaseline(clearTool, viewTag, variableResolver);
-                    this.latestBaselines = getLatestBaselineNames(clearTool, viewTag);
+                    queries.invalidate(ucm.getStream(variableResolver));
+                    this.latestBaselines = getLatestBaselineNames(queries, clearTool, viewTag);
                     addBuildParameter(build);
                 }
 
@@ -287,9 +303,23 @@ public class UcmMakeBaseline extends Notifier {
     @SuppressWarnings("unchecked")
     @Override
     public boolean perform(AbstractBuild build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        PhaseProfile profile = PhaseProfile.start(build);
+        Phase phase = PhaseProfile.enter("publish baseline");
+        try {
+            return doPerform(build, launcher, listener);
+        } finally {
+            PhaseProfile.exit(phase);
+            profile.stop();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean doPerform(AbstractBuild build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
         SCM scm = build.getProject().getScm();
         if (scm instanceof ClearCaseUcmSCM) {
             ClearCaseUcmSCM ucm = (ClearCaseUcmSCM) scm;
+            // the build steps may have contributed variables since the checkout
+            BuildVariableSnapshot.get(build).refresh();
             VariableResolver<String> variableResolver = new BuildVariableResolver(build);
             ClearTool clearTool = ucm.createClearTool(variableResolver, ucm.createClearToolLauncher(listener, build.getWorkspace(), launcher));
 
@@ -310,6 +340,8 @@ public class UcmMakeBaseline extends Notifier {
                     for (String baseline : this.latestBaselines) {
                         rebaseDynamicView(clearTool, Util.replaceMacro(this.dynamicViewName, variableResolver), baseline);
                     }
+                    // the stream of the view isn't known here
+                    UcmBuildQueries.get(build).invalidateAll();
                 }
             } else if (result.equals(Result.FAILURE) && this.demote) {
 
@@ -403,8 +435,12 @@ public class UcmMakeBaseline extends Notifier {
      * @throws InterruptedException
      * @throws Exception
      */
-    private List<String> getReadWriteComponent(ClearTool clearTool, String viewTag) throws IOException, InterruptedException {
-        String output = clearTool.lsproject(viewTag, "%[mod_comps]Xp");
+    private List<String> getReadWriteComponent(UcmBuildQueries queries, final ClearTool clearTool, final String viewTag) throws IOException, InterruptedException {
+        String output = queries.get("mod_comps", viewTag, new UcmStreamCache.Query<String>() {
+            public String execute() throws IOException, InterruptedException {
+                return clearTool.lsproject(viewTag, "%[mod_comps]Xp");
+            }
+        });
 
         final String prefix = "component:";
         if (StringUtils.startsWith(output, prefix)) {
@@ -430,8 +466,12 @@ public class UcmMakeBaseline extends Notifier {
      * @throws InterruptedException
      * @throws IOException
      */
-    private String getComponentforBaseline(ClearTool clearTool, String baselineName) throws InterruptedException, IOException {
-        String output = clearTool.lsbl(baselineName, "%[component]Xp");
+    private String getComponentforBaseline(UcmBuildQueries queries, final ClearTool clearTool, final String baselineName) throws InterruptedException, IOException {
+        String output = queries.get("baseline_component", baselineName, new UcmStreamCache.Query<String>() {
+            public String execute() throws IOException, InterruptedException {
+                return clearTool.lsbl(baselineName, "%[component]Xp");
+            }
+        });
         String prefix = "component:";
         if (StringUtils.startsWith(output, prefix)) {
             return StringUtils.difference(prefix, output);
@@ -439,7 +479,7 @@ public class UcmMakeBaseline extends Notifier {
         throw new IOException("Incorrect output. Received " + output);
     }
 
-    private List<String> getLatestBaselineNames(ClearTool clearTool, String viewTag) throws Exception {
+    private List<String> getLatestBaselineNames(UcmBuildQueries queries, ClearTool clearTool, String viewTag) throws Exception {
 
         String output = clearTool.lsstream(null, viewTag, "%[latest_bls]Xp");
         String prefix = "baseline:";
@@ -450,7 +490,7 @@ public class UcmMakeBaseline extends Notifier {
                 String baselineNameTrimmed = baselineName.trim();
                 if (StringUtils.isNotEmpty(baselineNameTrimmed)) {
                     // Retrict to baseline bind to read/write component
-                    String blComp = getComponentforBaseline(clearTool, baselineNameTrimmed);
+                    String blComp = getComponentforBaseline(queries, clearTool, baselineNameTrimmed);
                     if (this.readWriteComponents.contains(blComp))
                         baselineNames.add(baselineNameTrimmed);
                 }
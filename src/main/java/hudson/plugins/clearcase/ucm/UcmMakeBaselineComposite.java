@@ -36,7 +36,10 @@ import hudson.plugins.clearcase.ClearCaseUcmSCM;
 import hudson.plugins.clearcase.ClearTool;
 import hudson.plugins.clearcase.ClearTool.DefaultPromotionLevel;
 import hudson.plugins.clearcase.ClearToolLauncher;
+import hudson.plugins.clearcase.profile.Phase;
+import hudson.plugins.clearcase.profile.PhaseProfile;
 import hudson.plugins.clearcase.util.BuildVariableResolver;
+import hudson.plugins.clearcase.util.BuildVariableSnapshot;
 import hudson.scm.SCM;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
@@ -175,18 +178,32 @@ public class UcmMakeBaselineComposite extends Notifier {
 
     @Override
     public boolean perform(@SuppressWarnings("unchecked") AbstractBuild build, Launcher launcher, BuildListener listener) throws InterruptedException, IOException {
+        PhaseProfile profile = PhaseProfile.start(build);
+        Phase phase = PhaseProfile.enter("make composite baseline");
+        try {
+            return doPerform(build, launcher, listener);
+        } finally {
+            PhaseProfile.exit(phase);
+            profile.stop();
+        }
+    }
+
+    private boolean doPerform(@SuppressWarnings("unchecked") AbstractBuild build, Launcher launcher, BuildListener listener)
+            throws InterruptedException, IOException {
         SCM scm = build.getProject().getScm();
         if (scm instanceof ClearCaseUcmSCM) {
             ClearCaseUcmSCM ucm = (ClearCaseUcmSCM) scm;
             FilePath workspace = build.getWorkspace();
             ClearToolLauncher clearToolLauncher = ucm.createClearToolLauncher(listener, workspace, launcher);
+            // the build steps may have contributed variables since the checkout
+            BuildVariableSnapshot.get(build).refresh();
             VariableResolver<String> variableResolver = new BuildVariableResolver(build);
             ClearTool clearTool = ucm.createClearTool(variableResolver, clearToolLauncher);
             if (build.getResult().equals(Result.SUCCESS)) {
                 try {
-                    String compositeBaselineName = Util.replaceMacro(compositeNamePattern, new BuildVariableResolver(build));
+                    String compositeBaselineName = Util.replaceMacro(compositeNamePattern, variableResolver);
                     String pvob = UcmCommon.getVob(compositeStreamSelector);
-                    makeCompositeBaseline(clearTool, compositeBaselineName, compositeStreamSelector, compositeComponentName, pvob);
+                    makeCompositeBaseline(UcmBuildQueries.get(build), clearTool, compositeBaselineName, compositeStreamSelector, compositeComponentName, pvob);
                     promoteCompositeBaselineToBuiltLevel(clearTool, compositeBaselineName, pvob);
                     if (extractInfoFile) {
                         processExtractInfoFile(clearTool, this.compositeComponentName, pvob, compositeBaselineName, this.fileName);
@@ -218,8 +235,12 @@ public class UcmMakeBaselineComposite extends Notifier {
      * @throws IOException
      * @throws InterruptedException
      */
-    private List<String> getComponentList(ClearTool clearTool, String stream) throws IOException, InterruptedException {
-        String output = clearTool.lsstream(stream, null, "\"%[components]XCp\"");
+    private List<String> getComponentList(UcmBuildQueries queries, final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        String output = queries.get("stream_components", stream, new UcmStreamCache.Query<String>() {
+            public String execute() throws IOException, InterruptedException {
+                return clearTool.lsstream(stream, null, "\"%[components]XCp\"");
+            }
+        });
         String comp[] = output.split(",\\s");
         List<String> result = new ArrayList<String>();
         final String prefix = "component:";
@@ -241,8 +262,12 @@ public class UcmMakeBaselineComposite extends Notifier {
      * @throws InterruptedException
      * @throws IOException
      */
-    private String getOneViewFromStream(ClearTool clearTool, String stream) throws IOException, InterruptedException {
-        String output = clearTool.lsstream(stream, null, "\"%[views]p\"");
+    private String getOneViewFromStream(UcmBuildQueries queries, final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        String output = queries.get("stream_views", stream, new UcmStreamCache.Query<String>() {
+            public String execute() throws IOException, InterruptedException {
+                return clearTool.lsstream(stream, null, "\"%[views]p\"");
+            }
+        });
         String resultLines[] = output.split("\n");
         if (resultLines.length == 0) {
             throw new IOException("There is no view attached to the stream '" + stream + "'");
@@ -262,13 +287,13 @@ public class UcmMakeBaselineComposite extends Notifier {
      * @param filePath the filepath
      * @throws Exception
      */
-    private void makeCompositeBaseline(ClearTool clearTool, String compositeBaselineName, String compositeStream, String compositeComponent, String pvob) throws Exception {
+    private void makeCompositeBaseline(UcmBuildQueries queries, ClearTool clearTool, String compositeBaselineName, String compositeStream, String compositeComponent, String pvob) throws Exception {
 
         // Get a view containing the composite component
-        String compositeView = getOneViewFromStream(clearTool, this.compositeStreamSelector);
+        String compositeView = getOneViewFromStream(queries, clearTool, this.compositeStreamSelector);
 
         // Get the component list (with pvob suffix) for the stream
-        List<String> componentList = getComponentList(clearTool, this.compositeStreamSelector);
+        List<String> componentList = getComponentList(queries, clearTool, this.compositeStreamSelector);
 
         StringBuffer sb = new StringBuffer();
         for (String comp : componentList) {
@@ -281,6 +306,7 @@ public class UcmMakeBaselineComposite extends Notifier {
         String dependsOn = sb.toString();
 
         clearTool.mkbl(compositeBaselineName, compositeView, null, true, false, Arrays.asList(compositeComponent), dependsOn, dependsOn);
+        queries.invalidate(compositeStream);
 
     }
 
@@ -36,11 +36,28 @@ import org.apache.commons.lang.Validate;
 
 public class UcmSaveChangeLogAction implements SaveChangeLogAction {
 
+    private final boolean compact;
+
+    public UcmSaveChangeLogAction() {
+        this(false);
+    }
+
+    /**
+     * @param compact true to store the change log in the compact binary format instead of xml
+     */
+    public UcmSaveChangeLogAction(boolean compact) {
+        this.compact = compact;
+    }
+
     public void saveChangeLog(File changeLogFile, List<? extends Entry> entries) throws IOException, InterruptedException {
         Validate.allElementsOfType(entries, UcmActivity.class);
         @SuppressWarnings("unchecked") List<UcmActivity> ucmEntries = (List<UcmActivity>) entries;
         FileOutputStream fileOutputStream = new FileOutputStream(changeLogFile);
-        UcmChangeLogSet.saveToChangeLog(fileOutputStream, ucmEntries);
+        if (compact) {
+            UcmChangeLogSet.saveToCompactChangeLog(fileOutputStream, ucmEntries);
+        } else {
+            UcmChangeLogSet.saveToChangeLog(fileOutputStream, ucmEntries);
+        }
         fileOutputStream.close();
     }
 }
@@ -0,0 +1,194 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import hudson.plugins.clearcase.Baseline;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Master wide cache of UCM stream metadata: foundation baselines, latest baselines, load rules of the components and
+ * component modifiability.
+ * <p>
+ * Polling and checkout of every job on a stream query the same data. Each value is queried at most once per refresh
+ * interval and per stream, whatever the number of jobs. The plugin invalidates a stream whenever it changes it itself
+ * (mkbl, rebase).
+ * </p>
+ */
+public class UcmStreamCache {
+
+    private static final Logger LOGGER = Logger.getLogger(UcmStreamCache.class.getName());
+
+    /** Default refresh interval, in milliseconds */
+    public static final long DEFAULT_REFRESH_INTERVAL = 60 * 1000L;
+
+    private static final String STREAM_PREFIX = "stream:";
+    private static final String FOUNDATION_BASELINES = "foundation_bls";
+    private static final String LATEST_BASELINES = "latest_bls";
+    private static final String LOAD_RULES = "load_rules";
+    private static final String COMPONENTS = "components";
+
+    private static final UcmStreamCache INSTANCE = new UcmStreamCache();
+
+    /**
+     * Queries one kind of metadata on a stream.
+     */
+    interface Query<T> {
+        T execute() throws IOException, InterruptedException;
+    }
+
+    private static final class Slot {
+        private Object value;
+        private long timestamp;
+        private boolean valid;
+    }
+
+    private final ConcurrentMap<String, Slot> slots = new ConcurrentHashMap<String, Slot>();
+    private volatile long refreshInterval = DEFAULT_REFRESH_INTERVAL;
+
+    UcmStreamCache() {
+    }
+
+    public static UcmStreamCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param refreshInterval the time in milliseconds a value is reused before querying the stream again. 0 disables
+     *            the cache.
+     */
+    public void setRefreshInterval(long refreshInterval) {
+        this.refreshInterval = Math.max(0, refreshInterval);
+    }
+
+    public long getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public List<Baseline> getFoundationBaselines(final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        return new ArrayList<Baseline>(get(stream, FOUNDATION_BASELINES, new Query<List<Baseline>>() {
+            public List<Baseline> execute() throws IOException, InterruptedException {
+                return UcmCommon.getFoundationBaselines(clearTool, stream);
+            }
+        }));
+    }
+
+    public List<Baseline> getLatestBaselines(final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        return new ArrayList<Baseline>(get(stream, LATEST_BASELINES, new Query<List<Baseline>>() {
+            public List<Baseline> execute() throws IOException, InterruptedException {
+                return UcmCommon.getLatestBaselines(clearTool, stream);
+            }
+        }));
+    }
+
+    /**
+     * @return the load rules of the components of the latest baselines of the stream
+     */
+    public String[] getLoadRules(final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        // root dirs are returned with the separators of the node platform
+        String kind = LOAD_RULES + (clearTool.getLauncher().isUnix() ? "/unix" : "/windows");
+        String[] loadRules = get(stream, kind, new Query<String[]>() {
+            public String[] execute() throws IOException, InterruptedException {
+                return UcmCommon.generateLoadRulesFromBaselines(clearTool, stream, getLatestBaselines(clearTool, stream));
+            }
+        });
+        return loadRules == null ? null : loadRules.clone();
+    }
+
+    /**
+     * @return the components of the stream, with their modifiability
+     */
+    public List<Component> getComponents(final ClearTool clearTool, final String stream) throws IOException, InterruptedException {
+        return new ArrayList<Component>(get(stream, COMPONENTS, new Query<List<Component>>() {
+            public List<Component> execute() throws IOException, InterruptedException {
+                return UcmCommon.getStreamComponentsDesc(clearTool, stream);
+            }
+        }));
+    }
+
+    /**
+     * Forgets everything known about the stream. To be called after changing the stream (mkbl, rebase...).
+     */
+    public void invalidate(String stream) {
+        String prefix = normalize(stream) + '|';
+        for (Iterator<String> it = slots.keySet().iterator(); it.hasNext();) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+        LOGGER.log(Level.FINE, "Invalidated cached metadata of stream {0}", stream);
+    }
+
+    /**
+     * Forgets everything, for changes where the affected stream isn't known (e.g. rebase of a view).
+     */
+    public void invalidateAll() {
+        slots.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(String stream, String kind, Query<T> query) throws IOException, InterruptedException {
+        if (refreshInterval == 0) {
+            return query.execute();
+        }
+        String key = normalize(stream) + '|' + kind;
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            Slot newSlot = new Slot();
+            slot = slots.putIfAbsent(key, newSlot);
+            if (slot == null) {
+                slot = newSlot;
+            }
+        }
+        // concurrent pollers of the same stream wait for the first one instead of running the same query
+        synchronized (slot) {
+            long now = System.currentTimeMillis();
+            if (!slot.valid || now - slot.timestamp >= refreshInterval || slots.get(key) != slot) {
+                slot.value = query.execute();
+                slot.timestamp = now;
+                slot.valid = true;
+                slots.put(key, slot);
+            } else {
+                LOGGER.log(Level.FINEST, "Using cached {0} of stream {1}", new Object[] { kind, stream });
+            }
+            return (T) slot.value;
+        }
+    }
+
+    private static String normalize(String stream) {
+        return StringUtils.removeStart(StringUtils.trimToEmpty(stream), STREAM_PREFIX);
+    }
+}
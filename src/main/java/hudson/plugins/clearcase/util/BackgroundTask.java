@@ -0,0 +1,157 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Work run by another thread while the current one goes on, such as computing the change log of a build while its
+ * view is updated.
+ * <p>
+ * {@link #get()} waits for the result and throws the failure of the work as it was thrown.
+ * {@link #cancel()} interrupts the work and waits until it stopped, so that nothing it does outlives the caller.
+ * {@link #startFailingFast(Executor)} also interrupts the caller as soon as the work fails, so that it doesn't go on
+ * with work that is lost anyway.
+ * </p>
+ */
+public class BackgroundTask<V> {
+
+    private final FutureTask<V> task;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile Thread caller;
+    private volatile boolean failed;
+
+    public BackgroundTask(final Callable<V> callable) {
+        task = new FutureTask<V>(new Callable<V>() {
+            public V call() throws Exception {
+                try {
+                    return callable.call();
+                } catch (Exception e) {
+                    failed();
+                    throw e;
+                } catch (Error e) {
+                    failed();
+                    throw e;
+                }
+            }
+        });
+    }
+
+    private void failed() {
+        // the interruption of a cancelled work isn't a failure to report
+        if (task.isCancelled()) {
+            return;
+        }
+        failed = true;
+        Thread thread = caller;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * @return true if the work failed, rather than being cancelled
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Runs the work on a thread of the executor, and interrupts the current thread if the work fails. The current
+     * thread then gets the failure from {@link #get()}, even while it is interrupted.
+     */
+    public BackgroundTask<V> startFailingFast(Executor executor) {
+        caller = Thread.currentThread();
+        return start(executor);
+    }
+
+    /**
+     * Runs the work on a thread of the executor.
+     */
+    public BackgroundTask<V> start(Executor executor) {
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    // does nothing if cancelled before it started
+                    task.run();
+                } finally {
+                    stopped.countDown();
+                }
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Waits for the work to finish. If the current thread is interrupted meanwhile, the work is cancelled.
+     *
+     * @return the result of the work
+     */
+    public V get() throws IOException, InterruptedException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            if (failed) {
+                // interrupted by the work to report its failure
+                Thread.interrupted();
+                return get();
+            }
+            cancel();
+            throw e;
+        } catch (ExecutionException e) {
+            if (failed) {
+                // the failure is thrown instead of the interruption that reported it
+                Thread.interrupted();
+            }
+            Throwable t = e.getCause();
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof InterruptedException) {
+                throw (InterruptedException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new IOException(t);
+        }
+    }
+
+    /**
+     * Interrupts the work, and waits until it stopped. Its result and failure, if any, are dropped.
+     */
+    public void cancel() throws InterruptedException {
+        task.cancel(true);
+        stopped.await();
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Values kept for each running build, which unlike the actions of the build are never persisted with it. The builds
+ * are weakly referenced, and their values are dropped once they are completed.
+ */
+public abstract class BuildScopedMap<V> {
+
+    private static final List<BuildScopedMap<?>> MAPS = new CopyOnWriteArrayList<BuildScopedMap<?>>();
+
+    private final Map<AbstractBuild<?, ?>, V> values = new WeakHashMap<AbstractBuild<?, ?>, V>();
+
+    protected BuildScopedMap() {
+        MAPS.add(this);
+    }
+
+    /**
+     * @return the value of the build, or null if it has none
+     */
+    public synchronized V get(AbstractBuild<?, ?> build) {
+        return values.get(build);
+    }
+
+    /**
+     * @return the value of the build, created by {@link #create(AbstractBuild)} the first time
+     */
+    public synchronized V getOrCreate(AbstractBuild<?, ?> build) {
+        V value = values.get(build);
+        if (value == null) {
+            value = create(build);
+            values.put(build, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the value the build had, or null
+     */
+    public synchronized V put(AbstractBuild<?, ?> build, V value) {
+        return values.put(build, value);
+    }
+
+    public synchronized V remove(AbstractBuild<?, ?> build) {
+        return values.remove(build);
+    }
+
+    /**
+     * Creates the value of a build, for {@link #getOrCreate(AbstractBuild)}.
+     */
+    protected abstract V create(AbstractBuild<?, ?> build);
+
+    /**
+     * Drops the values of the builds once they are completed.
+     */
+    @Extension
+    @SuppressWarnings("unchecked")
+    public static class RunListenerImpl extends RunListener<AbstractBuild> {
+
+        public RunListenerImpl() {
+            super(AbstractBuild.class);
+        }
+
+        @Override
+        public void onCompleted(AbstractBuild build, TaskListener listener) {
+            for (BuildScopedMap<?> map : MAPS) {
+                map.remove(build);
+            }
+        }
+    }
+}
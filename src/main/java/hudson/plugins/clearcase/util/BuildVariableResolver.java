@@ -24,20 +24,9 @@
  */
 package hudson.plugins.clearcase.util;
 
-import hudson.EnvVars;
-import hudson.Util;
 import hudson.model.AbstractBuild;
-import hudson.model.Computer;
-import hudson.model.Node;
-import hudson.util.LogTaskListener;
 import hudson.util.VariableResolver;
 
-import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-
-import org.apache.commons.lang.StringUtils;
-
 /**
  * A {@link VariableResolver} that resolves certain Build variables.
  * <p>
@@ -50,6 +39,7 @@ import org.apache.commons.lang.StringUtils;
  * <li>Any environment variable (system or build-scoped) that is set on the Node that the Launcher is being executed on
  * (slave or master)</li>
  * </ul>
+ * The values are read once per build, through the {@link BuildVariableSnapshot} of the build.
  * Implementation note: This class is modelled after Erik Ramfelt's work in the Team Foundation Server Plugin. Maybe
  * they should be merged and moved to the hudson core
  * 
@@ -57,72 +47,27 @@ import org.apache.commons.lang.StringUtils;
  */
 public class BuildVariableResolver implements VariableResolver<String> {
 
-    private static final Logger LOGGER = Logger.getLogger(BuildVariableResolver.class.getName());
-
     private AbstractBuild<?, ?> build;
-    
-    private transient String nodeName;
-    
-    private transient Computer computer;
-    
-    private transient Map<Object, Object> systemProperties;
-    
+
+    private transient BuildVariableSnapshot snapshot;
+
     private boolean restricted;
 
     public BuildVariableResolver(final AbstractBuild<?, ?> build) {
         this.build = build;
-        Node node = build.getBuiltOn();
-        this.nodeName = node.getNodeName();
-        this.computer = node.toComputer();
+        this.snapshot = BuildVariableSnapshot.get(build);
     }
-    
+
     public BuildVariableResolver(final AbstractBuild<?, ?> build, boolean restricted) {
         this(build);
         this.restricted = restricted;
     }
-    
-    public String resolve(String key) {
-        try {
-            if (systemProperties == null) {
-                systemProperties = computer.getSystemProperties();
-            }
-            LogTaskListener ltl = new LogTaskListener(LOGGER, Level.INFO);
-            if ("JOB_NAME".equals(key) && build != null && build.getProject() != null) {
-                return build.getProject().getFullName();
-            }
-            
-            if ("HOST".equals(key)) {
-                return (Util.fixEmpty(computer.getHostName()));
-            }
-
-            if ("OS".equals(key)) {
-                return (String) systemProperties.get("os.name");
-            }
 
-            if ("NODE_NAME".equals(key)) {
-                return (Util.fixEmpty(StringUtils.isEmpty(nodeName) ? "master" : nodeName));
-            }
+    public AbstractBuild<?, ?> getBuild() {
+        return build;
+    }
 
-            if ("USER_NAME".equals(key)) {
-                return (String) systemProperties.get("user.name");
-            }
-            Map<String, String> buildVariables = build.getBuildVariables();
-            if (buildVariables.containsKey(key)) {
-                return buildVariables.get(key);
-            }
-            EnvVars compEnv = computer.getEnvironment();
-            if (compEnv.containsKey(key)) {
-                return compEnv.get(key);
-            }
-            if (!restricted) {
-                EnvVars env = build.getEnvironment(ltl);
-                if (env.containsKey(key)) {
-                    return env.get(key);
-                }
-            }
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Variable name '" + key + "' look up failed", e);
-        }
-        return null; 
+    public String resolve(String key) {
+        return snapshot.resolve(key, restricted);
     }
 }
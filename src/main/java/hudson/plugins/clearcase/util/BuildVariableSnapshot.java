@@ -0,0 +1,225 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import hudson.EnvVars;
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.remoting.Callable;
+import hudson.remoting.VirtualChannel;
+import hudson.util.LogTaskListener;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The values {@link BuildVariableResolver} resolves for a build, read once instead of at every lookup: the host name,
+ * the system properties and the environment of the node come in a single remote call, the environment of the build is
+ * read the first time it is needed. The values are read without holding the lock of the snapshot, so that threads
+ * resolving variables known already don't wait for a remote call; two threads asking at once may both read.
+ * <p>
+ * Kept for the build while it runs, so that the SCM, the history, the view storage and the baseline publishers
+ * share it. It is never persisted with the build, and a build that is over gets a snapshot that isn't shared.
+ * </p>
+ */
+public class BuildVariableSnapshot {
+
+    private static final Logger LOGGER = Logger.getLogger(BuildVariableSnapshot.class.getName());
+
+    private static final BuildScopedMap<BuildVariableSnapshot> SNAPSHOTS = new BuildScopedMap<BuildVariableSnapshot>() {
+        @Override
+        protected BuildVariableSnapshot create(AbstractBuild<?, ?> build) {
+            return new BuildVariableSnapshot(build);
+        }
+    };
+
+    private final AbstractBuild<?, ?> build;
+    private final Computer computer;
+    private final String nodeName;
+
+    private volatile NodeVariables nodeVariables;
+    private Map<String, String> buildVariables;
+    private EnvVars buildEnvironment;
+    /** Counts the refreshes, so that an environment read before one isn't kept */
+    private int generation;
+
+    BuildVariableSnapshot(AbstractBuild<?, ?> build) {
+        this.build = build;
+        Node node = build.getBuiltOn();
+        this.nodeName = node.getNodeName();
+        this.computer = node.toComputer();
+    }
+
+    /**
+     * @return the snapshot of the build if it is running, or else a snapshot that isn't shared
+     */
+    public static BuildVariableSnapshot get(AbstractBuild<?, ?> build) {
+        if (!build.isLogUpdated()) {
+            return new BuildVariableSnapshot(build);
+        }
+        return SNAPSHOTS.getOrCreate(build);
+    }
+
+    /**
+     * Reads the variables and the environment of the build again, e.g. once the build steps ran and added their own.
+     * The values of the node are kept.
+     */
+    public synchronized void refresh() {
+        buildVariables = null;
+        buildEnvironment = null;
+        generation++;
+    }
+
+    /**
+     * @param restricted true not to look in the environment of the build, when the lookup contributes to it
+     */
+    public String resolve(String key, boolean restricted) {
+        try {
+            if ("JOB_NAME".equals(key) && build.getProject() != null) {
+                return build.getProject().getFullName();
+            }
+            if ("HOST".equals(key)) {
+                return getNodeVariables().hostName;
+            }
+            if ("OS".equals(key)) {
+                return getNodeVariables().os;
+            }
+            if ("NODE_NAME".equals(key)) {
+                return Util.fixEmpty(StringUtils.isEmpty(nodeName) ? "master" : nodeName);
+            }
+            if ("USER_NAME".equals(key)) {
+                return getNodeVariables().userName;
+            }
+            Map<String, String> variables = getBuildVariables();
+            if (variables.containsKey(key)) {
+                return variables.get(key);
+            }
+            EnvVars nodeEnvironment = getNodeVariables().environment;
+            if (nodeEnvironment.containsKey(key)) {
+                return nodeEnvironment.get(key);
+            }
+            if (!restricted) {
+                EnvVars environment = getBuildEnvironment();
+                if (environment.containsKey(key)) {
+                    return environment.get(key);
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Variable name '" + key + "' look up failed", e);
+        }
+        return null;
+    }
+
+    private NodeVariables getNodeVariables() throws Exception {
+        NodeVariables variables = nodeVariables;
+        if (variables == null) {
+            VirtualChannel channel = computer.getChannel();
+            if (channel != null) {
+                variables = channel.call(new GetNodeVariables());
+            } else {
+                Map<Object, Object> systemProperties = computer.getSystemProperties();
+                variables = new NodeVariables(computer.getHostName(), (String) systemProperties.get("os.name"), (String) systemProperties
+                        .get("user.name"), computer.getEnvironment());
+            }
+            nodeVariables = variables;
+        }
+        return variables;
+    }
+
+    private synchronized Map<String, String> getBuildVariables() {
+        if (buildVariables == null) {
+            Map<String, String> variables = build.getBuildVariables();
+            buildVariables = variables == null ? Collections.<String, String> emptyMap() : new HashMap<String, String>(variables);
+        }
+        return buildVariables;
+    }
+
+    /**
+     * The environment of the build adds the contributions of the master to the one of the node, it is read through
+     * the build rather than on the node.
+     */
+    private EnvVars getBuildEnvironment() throws Exception {
+        int readGeneration;
+        synchronized (this) {
+            if (buildEnvironment != null) {
+                return buildEnvironment;
+            }
+            readGeneration = generation;
+        }
+        EnvVars environment = build.getEnvironment(new LogTaskListener(LOGGER, Level.INFO));
+        if (environment == null) {
+            environment = new EnvVars();
+        }
+        synchronized (this) {
+            if (generation == readGeneration) {
+                buildEnvironment = environment;
+            }
+        }
+        return environment;
+    }
+
+    private static class NodeVariables implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String hostName;
+        private final String os;
+        private final String userName;
+        private final EnvVars environment;
+
+        NodeVariables(String hostName, String os, String userName, EnvVars environment) {
+            this.hostName = Util.fixEmpty(hostName);
+            this.os = os;
+            this.userName = userName;
+            this.environment = environment == null ? new EnvVars() : environment;
+        }
+    }
+
+    /**
+     * Reads the host name, the system properties and the environment of the node in one call.
+     */
+    private static class GetNodeVariables implements Callable<NodeVariables, RuntimeException> {
+        private static final long serialVersionUID = 1L;
+
+        public NodeVariables call() {
+            String hostName;
+            try {
+                hostName = InetAddress.getLocalHost().getCanonicalHostName();
+            } catch (UnknownHostException e) {
+                hostName = null;
+            }
+            return new NodeVariables(hostName, System.getProperty("os.name"), System.getProperty("user.name"), new EnvVars(System.getenv()));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * Paging helpers for the change log views and the remote API, so that huge change logs (UCM rebases, first builds...)
+ * are not rendered or exported in one go.
+ */
+public final class ChangeLogPaging {
+
+    /** Number of change log entries rendered per page */
+    public static final int PAGE_SIZE = 100;
+
+    /** Number of files rendered for an entry before the rest has to be expanded on demand */
+    public static final int INLINE_FILE_LIMIT = 20;
+
+    private ChangeLogPaging() {
+    }
+
+    public static int getPageCount(int size) {
+        return Math.max(1, (size + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    public static int getPageOf(int index) {
+        return index / PAGE_SIZE;
+    }
+
+    /**
+     * Parses a page number, falling back to the first page if the value is missing or out of range.
+     */
+    public static int toPage(String value, int size) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            int page = Integer.parseInt(value.trim());
+            return page < 0 || page >= getPageCount(size) ? 0 : page;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static <T> List<T> getPage(List<T> list, int page) {
+        return subList(list, page * PAGE_SIZE, PAGE_SIZE);
+    }
+
+    public static <T> List<T> getInlineFiles(List<T> files) {
+        return subList(files, 0, INLINE_FILE_LIMIT);
+    }
+
+    /**
+     * Restricts an exported list to the range given by the request parameters of the current remote API call. The
+     * whole list is returned when the parameters are absent or when not serving a request.
+     * 
+     * @param startParameter name of the parameter holding the index of the first element
+     * @param limitParameter name of the parameter holding the maximum number of elements
+     */
+    public static <T> List<T> getExportedRange(List<T> list, String startParameter, String limitParameter) {
+        StaplerRequest request = Stapler.getCurrentRequest();
+        if (request == null) {
+            return list;
+        }
+        int start = parseNonNegative(request.getParameter(startParameter), 0);
+        int limit = parseNonNegative(request.getParameter(limitParameter), Integer.MAX_VALUE);
+        if (start == 0 && limit == Integer.MAX_VALUE) {
+            return list;
+        }
+        return subList(list, start, limit);
+    }
+
+    private static int parseNonNegative(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static <T> List<T> subList(List<T> list, int start, int count) {
+        if (start >= list.size()) {
+            return Collections.emptyList();
+        }
+        long end = Math.min((long) start + count, list.size());
+        return list.subList(start, (int) end);
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import hudson.model.AbstractBuild;
+import hudson.scm.ChangeLogSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Memory sensitive cache of parsed change logs.
+ * <p>
+ * Change logs are parsed again each time a build page, the project changes, the remote API or a notifier needs them.
+ * This cache keeps the parsed sets through soft references, keyed by the change log file along with its size and
+ * modification time, so a rewritten file (e.g. by a migration) is parsed again. The weight of a cached set is its count
+ * of change log entries, which a compact file holds many more of than an xml file of the same size; the least recently
+ * used sets are evicted once the total weight exceeds the configured maximum.
+ * </p>
+ */
+public class ChangeLogSetCache {
+
+    /** Default maximum weight, in change log entries */
+    public static final long DEFAULT_MAX_WEIGHT = 100000;
+
+    private static final ChangeLogSetCache INSTANCE = new ChangeLogSetCache(DEFAULT_MAX_WEIGHT);
+
+    /**
+     * Parses the change log when it isn't cached.
+     */
+    public interface Loader<T extends ChangeLogSet<?>> {
+        T load() throws IOException, SAXException;
+    }
+
+    /**
+     * Implemented by the change log sets that know their count of entries without decoding them all.
+     */
+    public interface Sized {
+        int size();
+    }
+
+    private static final class CacheEntry {
+        private final long size;
+        private final long lastModified;
+        private final long weight;
+        private final SoftReference<ChangeLogSet<?>> changeLogSet;
+
+        CacheEntry(long size, long lastModified, ChangeLogSet<?> changeLogSet) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.weight = getWeight(changeLogSet);
+            this.changeLogSet = new SoftReference<ChangeLogSet<?>>(changeLogSet);
+        }
+    }
+
+    private final Map<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+    private long maxWeight;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    ChangeLogSetCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public static ChangeLogSetCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached change log set for the file, or loads it and caches it.
+     * 
+     * @param build the build the change log belongs to
+     * @param changeLogFile the change log file
+     * @param loader parses the change log file on a cache miss
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends ChangeLogSet<?>> T get(AbstractBuild<?, ?> build, File changeLogFile, Loader<T> loader) throws IOException, SAXException {
+        String key = changeLogFile.getAbsolutePath();
+        long size = changeLogFile.length();
+        long lastModified = changeLogFile.lastModified();
+        synchronized (this) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                ChangeLogSet<?> cached = entry.changeLogSet.get();
+                if (cached != null && entry.size == size && entry.lastModified == lastModified && cached.build == build) {
+                    hits++;
+                    return (T) cached;
+                }
+                remove(key, entry);
+                invalidations++;
+            }
+            misses++;
+        }
+        // parse outside of the lock, concurrent misses on the same file are harmless
+        T changeLogSet = loader.load();
+        put(key, new CacheEntry(size, lastModified, changeLogSet));
+        return changeLogSet;
+    }
+
+    /**
+     * Drops the cached change log set of the file, if any.
+     */
+    public synchronized void invalidate(File changeLogFile) {
+        String key = changeLogFile.getAbsolutePath();
+        CacheEntry entry = entries.get(key);
+        if (entry != null) {
+            remove(key, entry);
+            invalidations++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    private synchronized void put(String key, CacheEntry entry) {
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        CacheEntry previous = entries.put(key, entry);
+        if (previous != null) {
+            weight -= previous.weight;
+        }
+        weight += entry.weight;
+        evict();
+    }
+
+    private void remove(String key, CacheEntry entry) {
+        entries.remove(key);
+        weight -= entry.weight;
+    }
+
+    /**
+     * @return the count of entries of the set, at least 1 so that empty sets count too
+     */
+    static long getWeight(ChangeLogSet<?> changeLogSet) {
+        if (changeLogSet instanceof Sized) {
+            return Math.max(1, ((Sized) changeLogSet).size());
+        }
+        long count = 0;
+        for (Iterator<?> iterator = changeLogSet.iterator(); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        return Math.max(1, count);
+    }
+
+    private void evict() {
+        Iterator<CacheEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CacheEntry entry = iterator.next();
+            // collected entries are worth nothing, drop them first
+            if (weight > maxWeight || entry.changeLogSet.get() == null) {
+                iterator.remove();
+                weight -= entry.weight;
+                evictions++;
+            }
+        }
+    }
+
+    /**
+     * @param maxWeight the maximum total count of entries of the cached change log sets. 0 disables the cache.
+     */
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = Math.max(0, maxWeight);
+        evict();
+    }
+
+    public synchronized long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getInvalidationCount() {
+        return invalidations;
+    }
+
+    public synchronized void resetStatistics() {
+        hits = 0;
+        misses = 0;
+        evictions = 0;
+        invalidations = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long requests = hits + misses;
+        return "Change log cache: " + entries.size() + " change logs, " + weight + "/" + maxWeight + " change log entries, " + hits + " hits, " + misses + " misses ("
+                + (requests == 0 ? 0 : hits * 100 / requests) + "% hit ratio), " + evictions + " evictions, " + invalidations + " invalidations";
+    }
+}
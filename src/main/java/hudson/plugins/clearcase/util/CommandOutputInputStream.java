@@ -0,0 +1,139 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import hudson.remoting.FastPipedInputStream;
+import hudson.remoting.FastPipedOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams the output of a command while it runs.
+ * <p>
+ * The command writes from a background thread into a pipe; readers get its output as soon as it is written, without
+ * waiting for the command to finish nor buffering the whole output. A failure of the command is thrown by the read
+ * reaching the end of its output. Closing the stream before the end interrupts the command.
+ * </p>
+ */
+public class CommandOutputInputStream extends InputStream {
+
+    private static final Logger LOGGER = Logger.getLogger(CommandOutputInputStream.class.getName());
+
+    /**
+     * A command writing its output to a stream.
+     */
+    public interface Command {
+        void run(OutputStream out) throws IOException, InterruptedException;
+    }
+
+    private final FastPipedInputStream in;
+    private final Thread thread;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    public CommandOutputInputStream(final Command command, String name) throws IOException {
+        // unlike java.io pipes, these don't break when the thread that last wrote dies, e.g. a process output pump
+        in = new FastPipedInputStream();
+        final FastPipedOutputStream out = new FastPipedOutputStream(in);
+        thread = new Thread("ClearCase " + name) {
+            @Override
+            public void run() {
+                try {
+                    command.run(out);
+                } catch (Throwable t) {
+                    if (!closed) {
+                        failure = t;
+                    }
+                } finally {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.FINEST, "Couldn't close pipe", e);
+                    }
+                }
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            checkFailure();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n == -1) {
+            checkFailure();
+        }
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return in.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (thread.isAlive()) {
+            thread.interrupt();
+        }
+        in.close();
+    }
+
+    private void checkFailure() throws IOException {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        Throwable t = failure;
+        if (t instanceof InterruptedException) {
+            throw new InterruptedIOException(t.getMessage());
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+    }
+}
@@ -0,0 +1,606 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import hudson.model.AbstractBuild;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Compact binary storage for change logs.
+ * <p>
+ * The file starts with a magic header, followed by deflate compressed blocks of entries. Strings (users, streams,
+ * paths, versions...) are stored once in a dictionary and referenced by index from the entries. The footer holds the
+ * dictionary and an index of the blocks, so that any entry can be read without decoding the whole file. The last 12
+ * bytes of the file are the footer offset and a trailing magic number.
+ * </p>
+ * <p>
+ * The layout of an entry is left to a {@link Codec}, see {@link hudson.plugins.clearcase.ClearCaseChangeLogSet} and
+ * {@link hudson.plugins.clearcase.ucm.UcmChangeLogSet}.
+ * </p>
+ */
+public final class CompactChangeLog {
+
+    /** "CCLB" */
+    private static final int HEADER_MAGIC = 0x43434C42;
+    /** "CCLE" */
+    private static final int FOOTER_MAGIC = 0x43434C45;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 5;
+    private static final int TRAILER_LENGTH = 12;
+
+    static final int DEFAULT_BLOCK_SIZE = 128;
+
+    private CompactChangeLog() {
+    }
+
+    /**
+     * Writes and reads one change log entry.
+     */
+    public interface Codec<T> {
+        void write(T entry, EntryOutput out) throws IOException;
+
+        T read(EntryInput in) throws IOException;
+    }
+
+    /**
+     * Converts a legacy change log file of a build to the compact format.
+     */
+    public interface Migrator {
+        /**
+         * @return true if the file has been rewritten, false if it was already compact or does not exist
+         */
+        boolean migrate(AbstractBuild<?, ?> build, File changeLogFile) throws IOException, SAXException;
+    }
+
+    /**
+     * Returns true if the file has been written in the compact format.
+     */
+    public static boolean isCompact(File file) throws IOException {
+        if (!file.isFile() || file.length() < HEADER_LENGTH + TRAILER_LENGTH) {
+            return false;
+        }
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readInt() == HEADER_MAGIC;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the entries to the output stream. The stream is closed when done.
+     */
+    public static <T> void write(OutputStream outputStream, List<T> entries, Codec<T> codec) throws IOException {
+        write(outputStream, entries, codec, DEFAULT_BLOCK_SIZE);
+    }
+
+    static <T> void write(OutputStream outputStream, List<T> entries, Codec<T> codec, int blockSize) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(outputStream);
+        DataOutputStream out = new DataOutputStream(counter);
+        try {
+            out.writeInt(HEADER_MAGIC);
+            out.writeByte(VERSION);
+
+            EntryOutput entryOutput = new EntryOutput();
+            List<long[]> blocks = new ArrayList<long[]>();
+            for (int first = 0; first < entries.size(); first += blockSize) {
+                int last = Math.min(first + blockSize, entries.size());
+                ByteArrayOutputStream raw = new ByteArrayOutputStream();
+                entryOutput.reset(new DataOutputStream(raw));
+                for (int i = first; i < last; i++) {
+                    codec.write(entries.get(i), entryOutput);
+                }
+                entryOutput.out.flush();
+                byte[] compressed = deflate(raw.toByteArray());
+                out.flush();
+                blocks.add(new long[] { counter.count, compressed.length, raw.size(), first, last - first });
+                out.write(compressed);
+            }
+
+            out.flush();
+            long footerOffset = counter.count;
+            writeFooter(out, entryOutput.dictionary, entries.size(), blocks);
+            out.writeLong(footerOffset);
+            out.writeInt(FOOTER_MAGIC);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the entries to the file, replacing it only once the new content has been completely written.
+     */
+    public static <T> void replace(File file, List<T> entries, Codec<T> codec) throws IOException {
+        File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        write(new FileOutputStream(tmp), entries, codec);
+        if (!tmp.renameTo(file)) {
+            // renameTo does not overwrite on every platform
+            if (!file.delete() || !tmp.renameTo(file)) {
+                tmp.delete();
+                throw new IOException("Could not replace " + file);
+            }
+        }
+    }
+
+    /**
+     * Opens a compact change log for random access. The caller is responsible for closing the reader.
+     */
+    public static <T> Reader<T> open(File file, Codec<T> codec) throws IOException {
+        return new Reader<T>(file, codec);
+    }
+
+    /**
+     * Opens a compact change log as a list whose entries are only decoded when accessed.
+     * 
+     * @see LazyList
+     */
+    public static <T> List<T> openList(File file, Codec<T> codec) throws IOException {
+        return new LazyList<T>(file, codec);
+    }
+
+    /**
+     * Reads all entries of a compact change log.
+     */
+    public static <T> List<T> readAll(File file, Codec<T> codec) throws IOException {
+        Reader<T> reader = open(file, codec);
+        try {
+            return reader.readAll();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void writeFooter(DataOutputStream out, List<String> dictionary, int entryCount, List<long[]> blocks) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        DataOutputStream footer = new DataOutputStream(raw);
+        footer.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            byte[] bytes = value.getBytes("UTF-8");
+            footer.writeInt(bytes.length);
+            footer.write(bytes);
+        }
+        footer.flush();
+        byte[] compressedDictionary = deflate(raw.toByteArray());
+
+        out.writeInt(entryCount);
+        out.writeInt(blocks.size());
+        for (long[] block : blocks) {
+            out.writeLong(block[0]);
+            out.writeInt((int) block[1]);
+            out.writeInt((int) block[2]);
+            out.writeInt((int) block[3]);
+            out.writeInt((int) block[4]);
+        }
+        out.writeInt(raw.size());
+        out.writeInt(compressedDictionary.length);
+        out.write(compressedDictionary);
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        DeflaterOutputStream deflater = new DeflaterOutputStream(compressed, new Deflater(Deflater.BEST_COMPRESSION));
+        deflater.write(data);
+        deflater.finish();
+        deflater.close();
+        return compressed.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] data, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] result = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(result, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != length) {
+                throw new IOException("Corrupted change log block, expected " + length + " bytes but got " + read);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            IOException ioe = new IOException("Corrupted change log block");
+            ioe.initCause(e);
+            throw ioe;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Dictionary and block index of a compact change log, read from its footer.
+     */
+    private static final class Index {
+        private final String[] dictionary;
+        private final int size;
+        private final long[] blockOffsets;
+        private final int[] blockCompressedLengths;
+        private final int[] blockLengths;
+        private final int[] blockFirstEntries;
+        private final int[] blockEntryCounts;
+
+        Index(File file, RandomAccessFile in) throws IOException {
+            try {
+                if (in.length() < HEADER_LENGTH + TRAILER_LENGTH || in.readInt() != HEADER_MAGIC) {
+                    throw new IOException(file + " is not a compact change log");
+                }
+                int version = in.readUnsignedByte();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported compact change log version " + version + " in " + file);
+                }
+                in.seek(in.length() - TRAILER_LENGTH);
+                long footerOffset = in.readLong();
+                if (in.readInt() != FOOTER_MAGIC) {
+                    throw new IOException(file + " is truncated");
+                }
+                in.seek(footerOffset);
+                size = in.readInt();
+                int blockCount = in.readInt();
+                blockOffsets = new long[blockCount];
+                blockCompressedLengths = new int[blockCount];
+                blockLengths = new int[blockCount];
+                blockFirstEntries = new int[blockCount];
+                blockEntryCounts = new int[blockCount];
+                for (int i = 0; i < blockCount; i++) {
+                    blockOffsets[i] = in.readLong();
+                    blockCompressedLengths[i] = in.readInt();
+                    blockLengths[i] = in.readInt();
+                    blockFirstEntries[i] = in.readInt();
+                    blockEntryCounts[i] = in.readInt();
+                }
+                int dictionaryLength = in.readInt();
+                byte[] compressedDictionary = new byte[in.readInt()];
+                in.readFully(compressedDictionary);
+                DataInputStream dictionaryIn = new DataInputStream(new ByteArrayInputStream(inflate(compressedDictionary, dictionaryLength)));
+                dictionary = new String[dictionaryIn.readInt()];
+                for (int i = 0; i < dictionary.length; i++) {
+                    byte[] bytes = new byte[dictionaryIn.readInt()];
+                    dictionaryIn.readFully(bytes);
+                    dictionary[i] = new String(bytes, "UTF-8");
+                }
+            } catch (EOFException e) {
+                IOException ioe = new IOException(file + " is truncated");
+                ioe.initCause(e);
+                throw ioe;
+            }
+        }
+
+        int getBlockCount() {
+            return blockOffsets.length;
+        }
+
+        int findBlock(int index) {
+            int low = 0;
+            int high = blockFirstEntries.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (blockFirstEntries[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        <T> List<T> decodeBlock(RandomAccessFile in, int block, Codec<T> codec) throws IOException {
+            byte[] compressed = new byte[blockCompressedLengths[block]];
+            in.seek(blockOffsets[block]);
+            in.readFully(compressed);
+            EntryInput entryInput = new EntryInput(new DataInputStream(new ByteArrayInputStream(inflate(compressed, blockLengths[block]))), dictionary);
+            List<T> entries = new ArrayList<T>(blockEntryCounts[block]);
+            for (int i = 0; i < blockEntryCounts[block]; i++) {
+                entries.add(codec.read(entryInput));
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Random access reader over a compact change log. The last decoded block is kept in memory, so reading entries
+     * sequentially only inflates each block once.
+     */
+    public static final class Reader<T> {
+        private final RandomAccessFile file;
+        private final Codec<T> codec;
+        private final Index index;
+
+        private int cachedBlock = -1;
+        private List<T> cachedEntries;
+
+        Reader(File file, Codec<T> codec) throws IOException {
+            this.codec = codec;
+            this.file = new RandomAccessFile(file, "r");
+            boolean ok = false;
+            try {
+                this.index = new Index(file, this.file);
+                ok = true;
+            } finally {
+                if (!ok) {
+                    this.file.close();
+                }
+            }
+        }
+
+        /**
+         * @return the number of entries in the change log
+         */
+        public int size() {
+            return index.size;
+        }
+
+        /**
+         * Reads the entry at the given position, only inflating the block that contains it.
+         */
+        public T get(int position) throws IOException {
+            if (position < 0 || position >= index.size) {
+                throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + index.size);
+            }
+            int block = index.findBlock(position);
+            return loadBlock(block).get(position - index.blockFirstEntries[block]);
+        }
+
+        /**
+         * Reads the entries from <code>from</code> (inclusive) to <code>to</code> (exclusive).
+         */
+        public List<T> read(int from, int to) throws IOException {
+            List<T> result = new ArrayList<T>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                result.add(get(i));
+            }
+            return result;
+        }
+
+        public List<T> readAll() throws IOException {
+            List<T> result = new ArrayList<T>(index.size);
+            for (int block = 0; block < index.getBlockCount(); block++) {
+                result.addAll(block == cachedBlock ? cachedEntries : index.decodeBlock(file, block, codec));
+            }
+            return result;
+        }
+
+        public void close() throws IOException {
+            cachedEntries = null;
+            file.close();
+        }
+
+        private List<T> loadBlock(int block) throws IOException {
+            if (block != cachedBlock) {
+                cachedEntries = index.decodeBlock(file, block, codec);
+                cachedBlock = block;
+            }
+            return cachedEntries;
+        }
+    }
+
+    /**
+     * Read-only list over a compact change log, which only decodes the blocks holding the requested entries. Decoded
+     * blocks are kept through soft references and the file is only open while a block is read, so the list can be
+     * held by a cached change log set and paged through without decoding the whole change log.
+     * <p>
+     * As the list interface does not allow it, a failure to read the file is reported as an
+     * {@link IllegalStateException}.
+     * </p>
+     */
+    public static final class LazyList<T> extends AbstractList<T> implements RandomAccess {
+        private final File file;
+        private final Codec<T> codec;
+        private final Index index;
+        private final SoftReference<List<T>>[] blocks;
+
+        @SuppressWarnings("unchecked")
+        LazyList(File file, Codec<T> codec) throws IOException {
+            this.file = file;
+            this.codec = codec;
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                this.index = new Index(file, in);
+            } finally {
+                in.close();
+            }
+            this.blocks = new SoftReference[index.getBlockCount()];
+        }
+
+        @Override
+        public T get(int position) {
+            if (position < 0 || position >= index.size) {
+                throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + index.size);
+            }
+            int block = index.findBlock(position);
+            return loadBlock(block).get(position - index.blockFirstEntries[block]);
+        }
+
+        @Override
+        public int size() {
+            return index.size;
+        }
+
+        private synchronized List<T> loadBlock(int block) {
+            List<T> entries = blocks[block] == null ? null : blocks[block].get();
+            if (entries == null) {
+                try {
+                    RandomAccessFile in = new RandomAccessFile(file, "r");
+                    try {
+                        entries = index.decodeBlock(in, block, codec);
+                    } finally {
+                        in.close();
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not read the change log " + file, e);
+                }
+                blocks[block] = new SoftReference<List<T>>(entries);
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Encodes entry fields, replacing strings by their index in the dictionary.
+     */
+    public static final class EntryOutput {
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+        private final List<String> dictionary = new ArrayList<String>();
+        private DataOutputStream out;
+
+        EntryOutput() {
+        }
+
+        void reset(DataOutputStream out) {
+            this.out = out;
+        }
+
+        public void writeString(String value) throws IOException {
+            // 0 is reserved for null
+            if (value == null) {
+                writeInt(0);
+                return;
+            }
+            Integer index = indexes.get(value);
+            if (index == null) {
+                dictionary.add(value);
+                index = Integer.valueOf(dictionary.size());
+                indexes.put(value, index);
+            }
+            writeInt(index.intValue());
+        }
+
+        /**
+         * Writes a non negative int as a variable length quantity.
+         */
+        public void writeInt(int value) throws IOException {
+            if (value < 0) {
+                throw new IllegalArgumentException("Negative value: " + value);
+            }
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        public void writeLong(long value) throws IOException {
+            out.writeLong(value);
+        }
+    }
+
+    /**
+     * Decodes the fields written by an {@link EntryOutput}.
+     */
+    public static final class EntryInput {
+        private final DataInputStream in;
+        private final String[] dictionary;
+
+        EntryInput(DataInputStream in, String[] dictionary) {
+            this.in = in;
+            this.dictionary = dictionary;
+        }
+
+        public String readString() throws IOException {
+            int index = readInt();
+            if (index == 0) {
+                return null;
+            }
+            if (index > dictionary.length) {
+                throw new IOException("Invalid dictionary reference " + index);
+            }
+            return dictionary[index - 1];
+        }
+
+        public int readInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable length int");
+        }
+
+        public long readLong() throws IOException {
+            return in.readLong();
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
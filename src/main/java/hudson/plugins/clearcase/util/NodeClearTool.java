@@ -0,0 +1,89 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.Computer;
+import hudson.model.Hudson;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.ClearToolLauncher;
+import hudson.plugins.clearcase.ClearToolSnapshot;
+import hudson.plugins.clearcase.HudsonClearToolLauncher;
+import hudson.plugins.clearcase.PluginImpl;
+import hudson.remoting.VirtualChannel;
+import hudson.util.VariableResolver;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * Runs cleartool on a node outside of any build, for background work.
+ */
+public final class NodeClearTool {
+
+    private NodeClearTool() {
+    }
+
+    /**
+     * @param nodeName the name of the node, empty for the master
+     * @return the node, null if it doesn't exist anymore
+     */
+    public static Node getNode(String nodeName) {
+        Hudson hudson = Hudson.getInstance();
+        return nodeName.length() == 0 ? hudson : hudson.getNode(nodeName);
+    }
+
+    /**
+     * @return the name of the node a file is on, empty for the master, null if the node isn't connected
+     */
+    public static String getNodeName(FilePath path) {
+        VirtualChannel channel = path.getChannel();
+        if (channel == null || channel == Hudson.MasterComputer.localChannel) {
+            return "";
+        }
+        for (Computer computer : Hudson.getInstance().getComputers()) {
+            if (channel == computer.getChannel()) {
+                return computer.getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param node the node to run cleartool on
+     * @param workingDirectory the directory relative paths are resolved against
+     * @param name the name logged with the commands
+     */
+    public static ClearTool create(Node node, FilePath workingDirectory, TaskListener listener, String name) throws IOException,
+            InterruptedException {
+        Launcher launcher = node.createLauncher(listener);
+        String cleartoolExe = PluginImpl.BASE_DESCRIPTOR.getCleartoolExe(node, listener);
+        ClearToolLauncher clearToolLauncher = new HudsonClearToolLauncher(cleartoolExe, name, listener, workingDirectory, launcher);
+        return new ClearToolSnapshot(new VariableResolver.ByMap<String>(new HashMap<String, String>()), clearToolLauncher, null);
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.viewpool;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * A snapshot view created in advance under the view pool directory of a node, and the state of its lease.
+ */
+public class PooledView {
+
+    public enum State {
+        /** The view is being created, or given back by a job */
+        CREATING,
+        /** The view is up to date and can be leased */
+        IDLE,
+        /** The view is being updated in the background */
+        UPDATING,
+        /** The view is used by a build */
+        LEASED
+    }
+
+    private final String node;
+    private final String stream;
+    private final String viewTag;
+    private final String path;
+    private String[] loadRules;
+    private String storageDir;
+    private volatile State state = State.CREATING;
+    private volatile long lastUpdate;
+    private volatile long diskUsage;
+    private volatile String leaseHolder;
+    private volatile String leaseUrl;
+    private volatile long leaseTime;
+
+    /**
+     * @param node the name of the node, empty for the master
+     * @param stream the stream selector of the view
+     * @param viewTag the tag of the view while it is in the pool
+     * @param path the absolute path of the view on the node while it is in the pool
+     * @param loadRules the load rules of the view
+     */
+    PooledView(String node, String stream, String viewTag, String path, String[] loadRules) {
+        this.node = node;
+        this.stream = stream;
+        this.viewTag = viewTag;
+        this.path = path;
+        this.loadRules = loadRules;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    public String getViewTag() {
+        return viewTag;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String[] getLoadRules() {
+        return loadRules;
+    }
+
+    void setLoadRules(String[] loadRules) {
+        this.loadRules = loadRules;
+    }
+
+    boolean hasLoadRules(String[] otherLoadRules) {
+        return Arrays.equals(loadRules, otherLoadRules);
+    }
+
+    public String getStorageDir() {
+        return storageDir;
+    }
+
+    void setStorageDir(String storageDir) {
+        this.storageDir = storageDir;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void setState(State state) {
+        this.state = state;
+    }
+
+    /**
+     * @return the time of the last update of the view, null if it was never updated in the pool
+     */
+    public Date getLastUpdate() {
+        return lastUpdate == 0 ? null : new Date(lastUpdate);
+    }
+
+    void setLastUpdate(long lastUpdate) {
+        this.lastUpdate = lastUpdate;
+    }
+
+    /**
+     * @return the size in bytes of the files of the view, as of its last update
+     */
+    public long getDiskUsage() {
+        return diskUsage;
+    }
+
+    void setDiskUsage(long diskUsage) {
+        this.diskUsage = diskUsage;
+    }
+
+    /**
+     * @return the display name of the build holding the lease, null if the view isn't leased
+     */
+    public String getLeaseHolder() {
+        return leaseHolder;
+    }
+
+    /**
+     * @return the URL, relative to the root URL, of the build holding the lease
+     */
+    public String getLeaseUrl() {
+        return leaseUrl;
+    }
+
+    public Date getLeaseTime() {
+        return leaseTime == 0 ? null : new Date(leaseTime);
+    }
+
+    void lease(String holder, String url) {
+        state = State.LEASED;
+        leaseHolder = holder;
+        leaseUrl = url;
+        leaseTime = System.currentTimeMillis();
+    }
+}
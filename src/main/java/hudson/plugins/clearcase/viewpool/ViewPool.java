@@ -0,0 +1,493 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.viewpool;
+
+import hudson.FilePath;
+import hudson.FilePath.FileCallable;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.MkViewParameters;
+import hudson.plugins.clearcase.ViewType;
+import hudson.plugins.clearcase.util.NodeClearTool;
+import hudson.plugins.clearcase.viewstorage.ViewStorage;
+import hudson.remoting.VirtualChannel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per node pool of UCM snapshot views, kept up to date in the background, so that builds needing a new view (new
+ * job, concurrent build, ...) don't pay for mkview and a full initial update.
+ * <p>
+ * A build leases a pooled view of its stream: the view is moved into its workspace and tagged with the tag of the
+ * job's view, then the build applies its own load rules and updates it. The lease ends with the build, and the view
+ * stays with the job, whose polling needs it. It is given back to the pool when the job would otherwise remove it.
+ * </p>
+ * <p>
+ * Views are moved, not copied: the pool directory of a node (under its root directory) and the workspaces must be on
+ * the same file system, and only views whose storage isn't in the view directory can be pooled.
+ * </p>
+ */
+public class ViewPool {
+
+    private static final Logger LOGGER = Logger.getLogger(ViewPool.class.getName());
+
+    /** Name of the directory of the pooled views, under the root directory of each node */
+    public static final String POOL_DIRECTORY = "clearcase-view-pool";
+
+    /** Time after which the views of a stream that wasn't requested are removed */
+    public static final long DEFAULT_MAX_IDLE = 24 * 60 * 60 * 1000L;
+
+    private static final String TAG_PREFIX = "hudson_pool_";
+
+    private static final ViewPool INSTANCE = new ViewPool();
+
+    public static ViewPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * A stream kept warm on a node, with the parameters of its last request.
+     */
+    static class Family {
+        final String node;
+        final String stream;
+        ViewStorage viewStorage;
+        String[] loadRules;
+        long lastDemand;
+
+        Family(String node, String stream) {
+            this.node = node;
+            this.stream = stream;
+        }
+    }
+
+    private final Map<String, Family> families = new LinkedHashMap<String, Family>();
+    private final List<PooledView> views = new ArrayList<PooledView>();
+    private final AtomicInteger counter = new AtomicInteger();
+    private volatile int size;
+    private volatile long maxIdle = DEFAULT_MAX_IDLE;
+    private volatile long diskQuota;
+
+    ViewPool() {
+    }
+
+    /**
+     * @param size the number of views kept ready per stream and node, 0 disables the pool
+     * @param maxIdle the time in ms after which the views of a stream that wasn't requested are removed
+     * @param diskQuota the maximum size in bytes of the pooled views of a node, 0 for no limit
+     */
+    public void setConfiguration(int size, long maxIdle, long diskQuota) {
+        this.size = size;
+        this.maxIdle = maxIdle;
+        this.diskQuota = diskQuota;
+    }
+
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * @param node the name of the node, empty for the master
+     * @return the views of the pool of the node, including the leased ones
+     */
+    public synchronized List<PooledView> getViews(String node) {
+        List<PooledView> result = new ArrayList<PooledView>();
+        for (PooledView view : views) {
+            if (view.getNode().equals(node)) {
+                result.add(view);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Leases an idle view of the stream, preferably one with the same load rules. The stream is kept warm on the node
+     * from now on.
+     * 
+     * @return the leased view, to be passed to {@link #adopt}, or null if none is ready
+     */
+    public PooledView lease(String node, String stream, ViewStorage viewStorage, String[] loadRules, Run<?, ?> build) {
+        if (!isEnabled() || viewStorage == null) {
+            return null;
+        }
+        synchronized (this) {
+            String key = node + '\n' + stream;
+            Family family = families.get(key);
+            if (family == null) {
+                family = new Family(node, stream);
+                families.put(key, family);
+            }
+            family.viewStorage = viewStorage;
+            family.loadRules = loadRules;
+            family.lastDemand = System.currentTimeMillis();
+
+            PooledView candidate = null;
+            for (PooledView view : views) {
+                if (view.getState() == PooledView.State.IDLE && view.getNode().equals(node) && view.getStream().equals(stream)) {
+                    if (view.hasLoadRules(loadRules)) {
+                        candidate = view;
+                        break;
+                    }
+                    if (candidate == null) {
+                        candidate = view;
+                    }
+                }
+            }
+            if (candidate != null) {
+                candidate.lease(build.getFullDisplayName(), build.getUrl());
+            }
+            return candidate;
+        }
+    }
+
+    /**
+     * Moves a leased view to the workspace, and gives it the tag of the job's view. If it fails, the view is removed
+     * from the pool.
+     */
+    public void adopt(PooledView view, ClearTool cleartool, FilePath workspace, String viewPath, String viewTag) throws IOException,
+            InterruptedException {
+        FilePath pooledPath = new FilePath(workspace.getChannel(), view.getPath());
+        FilePath target = workspace.child(viewPath);
+        try {
+            pooledPath.renameTo(target);
+        } catch (IOException e) {
+            remove(view);
+            discard(view, cleartool, pooledPath);
+            throw e;
+        }
+        try {
+            cleartool.mktag(viewTag, view.getStorageDir());
+        } catch (IOException e) {
+            remove(view);
+            discard(view, cleartool, target);
+            throw e;
+        }
+        removeTag(cleartool, view.getViewTag());
+    }
+
+    /**
+     * Ends the leases held by a build. The leased views now belong to the jobs.
+     */
+    public synchronized void release(Run<?, ?> build) {
+        String url = build.getUrl();
+        for (Iterator<PooledView> it = views.iterator(); it.hasNext();) {
+            PooledView view = it.next();
+            if (view.getState() == PooledView.State.LEASED && url.equals(view.getLeaseUrl())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Moves a view the job doesn't need anymore to the pool, if the pool of its stream isn't full. Only views stored
+     * in a server storage location are taken.
+     * 
+     * @return true if the view was taken, false if it is still in the workspace
+     */
+    public boolean giveBack(String node, String stream, ViewStorage viewStorage, String[] loadRules, ClearTool cleartool, FilePath workspace,
+            String viewPath, String viewTag) throws IOException, InterruptedException {
+        // a specific storage is named after the view tag, which the job needs for its next view
+        if (!isEnabled() || viewStorage == null || !"server".equals(viewStorage.getType())) {
+            return false;
+        }
+        FilePath poolDirectory = getPoolDirectory(node);
+        if (poolDirectory == null) {
+            return false;
+        }
+        PooledView view;
+        synchronized (this) {
+            if (countPooledViews(node, stream) >= size) {
+                return false;
+            }
+            view = newView(node, stream, poolDirectory, loadRules);
+        }
+        String storageDir = getStorageDir(cleartool, viewTag);
+        if (storageDir == null) {
+            remove(view);
+            return false;
+        }
+        FilePath source = workspace.child(viewPath);
+        FilePath pooledPath = poolDirectory.child(view.getViewTag());
+        try {
+            poolDirectory.mkdirs();
+            source.renameTo(pooledPath);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't move view " + viewTag + " to the view pool", e);
+            remove(view);
+            return false;
+        }
+        try {
+            cleartool.mktag(view.getViewTag(), storageDir);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't tag view " + viewTag + " for the view pool", e);
+            pooledPath.renameTo(source);
+            remove(view);
+            return false;
+        }
+        removeTag(cleartool, viewTag);
+        view.setStorageDir(storageDir);
+        view.setLastUpdate(System.currentTimeMillis());
+        view.setState(PooledView.State.IDLE);
+        return true;
+    }
+
+    /**
+     * Updates the idle views, removes the views of the streams that weren't requested for a while or which exceed the
+     * disk quota, and creates the missing views.
+     */
+    public void refresh(TaskListener listener) throws InterruptedException {
+        List<Family> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<Family>(families.values());
+        }
+        long now = System.currentTimeMillis();
+        for (Family family : snapshot) {
+            boolean expired = !isEnabled() || now - family.lastDemand > maxIdle;
+            try {
+                refresh(family, expired, listener);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Couldn't refresh the view pool of stream " + family.stream + " on node " + family.node, e);
+            }
+            if (expired) {
+                synchronized (this) {
+                    if (countPooledViews(family.node, family.stream) == 0) {
+                        families.remove(family.node + '\n' + family.stream);
+                    }
+                }
+            }
+        }
+    }
+
+    private void refresh(Family family, boolean expired, TaskListener listener) throws IOException, InterruptedException {
+        FilePath poolDirectory = getPoolDirectory(family.node);
+        if (poolDirectory == null) {
+            // node offline or removed
+            return;
+        }
+        ClearTool cleartool = NodeClearTool.create(NodeClearTool.getNode(family.node), poolDirectory, listener, "ClearCase view pool");
+
+        List<PooledView> idleViews = new ArrayList<PooledView>();
+        synchronized (this) {
+            for (PooledView view : views) {
+                if (view.getState() == PooledView.State.IDLE && view.getNode().equals(family.node) && view.getStream().equals(family.stream)) {
+                    view.setState(PooledView.State.UPDATING);
+                    idleViews.add(view);
+                }
+            }
+        }
+        for (PooledView view : idleViews) {
+            FilePath pooledPath = poolDirectory.child(view.getViewTag());
+            if (expired || isOverQuota(family.node, 0)) {
+                remove(view);
+                discard(view, cleartool, pooledPath);
+                continue;
+            }
+            try {
+                cleartool.update(view.getViewTag(), null);
+                view.setDiskUsage(pooledPath.act(new DiskUsage()));
+                view.setLastUpdate(System.currentTimeMillis());
+                view.setState(PooledView.State.IDLE);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Couldn't update pooled view " + view.getViewTag(), e);
+                remove(view);
+                discard(view, cleartool, pooledPath);
+            }
+        }
+
+        while (!expired) {
+            PooledView view;
+            synchronized (this) {
+                if (countPooledViews(family.node, family.stream) >= size || isOverQuota(family.node, estimateDiskUsage(family))) {
+                    return;
+                }
+                view = newView(family.node, family.stream, poolDirectory, family.loadRules);
+            }
+            create(view, family, cleartool, poolDirectory);
+        }
+    }
+
+    private void create(PooledView view, Family family, ClearTool cleartool, FilePath poolDirectory) throws IOException, InterruptedException {
+        FilePath pooledPath = poolDirectory.child(view.getViewTag());
+        try {
+            poolDirectory.mkdirs();
+            MkViewParameters params = new MkViewParameters();
+            params.setType(ViewType.Snapshot);
+            params.setViewPath(view.getViewTag());
+            params.setViewTag(view.getViewTag());
+            params.setStreamSelector(family.stream);
+            params.setViewStorage(family.viewStorage.forViewTag(view.getViewTag()));
+            cleartool.mkview(params);
+            cleartool.update(view.getViewTag(), family.loadRules);
+            String storageDir = getStorageDir(cleartool, view.getViewTag());
+            if (storageDir == null) {
+                throw new IOException("Couldn't find the storage of view " + view.getViewTag());
+            }
+            view.setStorageDir(storageDir);
+            view.setDiskUsage(pooledPath.act(new DiskUsage()));
+            view.setLastUpdate(System.currentTimeMillis());
+            view.setState(PooledView.State.IDLE);
+        } catch (IOException e) {
+            remove(view);
+            discard(view, cleartool, pooledPath);
+            throw e;
+        }
+    }
+
+    /**
+     * Registers a new view of the pool, in {@link PooledView.State#CREATING} state.
+     */
+    private synchronized PooledView newView(String node, String stream, FilePath poolDirectory, String[] loadRules) {
+        String nodeName = node.length() == 0 ? "master" : node.replaceAll("[^\\w.-]", "_");
+        String viewTag = TAG_PREFIX + nodeName + "_" + Long.toString(System.currentTimeMillis(), 36) + "_" + counter.incrementAndGet();
+        PooledView view = new PooledView(node, stream, viewTag, poolDirectory.child(viewTag).getRemote(), loadRules);
+        add(view);
+        return view;
+    }
+
+    synchronized void add(PooledView view) {
+        views.add(view);
+    }
+
+    synchronized void remove(PooledView view) {
+        views.remove(view);
+    }
+
+    /**
+     * @return the number of views of the stream in the pool, leased views excluded
+     */
+    private synchronized int countPooledViews(String node, String stream) {
+        int count = 0;
+        for (PooledView view : views) {
+            if (view.getState() != PooledView.State.LEASED && view.getNode().equals(node) && view.getStream().equals(stream)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private synchronized boolean isOverQuota(String node, long additionalUsage) {
+        if (diskQuota <= 0) {
+            return false;
+        }
+        long usage = additionalUsage;
+        for (PooledView view : views) {
+            if (view.getState() != PooledView.State.LEASED && view.getNode().equals(node)) {
+                usage += view.getDiskUsage();
+            }
+        }
+        return usage > diskQuota;
+    }
+
+    private synchronized long estimateDiskUsage(Family family) {
+        long estimate = 0;
+        for (PooledView view : views) {
+            if (view.getNode().equals(family.node) && view.getStream().equals(family.stream)) {
+                estimate = Math.max(estimate, view.getDiskUsage());
+            }
+        }
+        return estimate;
+    }
+
+    private static String getStorageDir(ClearTool cleartool, String viewTag) throws IOException, InterruptedException {
+        Properties viewData = cleartool.getViewData(viewTag);
+        String storageDir = viewData.getProperty("GLOBAL_PATH");
+        if (storageDir == null) {
+            storageDir = viewData.getProperty("STORAGE_DIR");
+        }
+        return storageDir;
+    }
+
+    private static void removeTag(ClearTool cleartool, String viewTag) throws InterruptedException {
+        try {
+            cleartool.rmtag(viewTag);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't remove view tag " + viewTag, e);
+        }
+    }
+
+    /**
+     * Removes a view that left the pool, ignoring errors.
+     */
+    private static void discard(PooledView view, ClearTool cleartool, FilePath path) throws InterruptedException {
+        try {
+            cleartool.rmviewtag(view.getViewTag());
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Couldn't remove pooled view " + view.getViewTag(), e);
+        }
+        try {
+            if (path.exists()) {
+                path.deleteRecursive();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Couldn't delete pooled view directory " + path, e);
+        }
+    }
+
+    private static FilePath getPoolDirectory(String nodeName) {
+        Node node = NodeClearTool.getNode(nodeName);
+        if (node == null) {
+            return null;
+        }
+        FilePath root = node.getRootPath();
+        return root == null ? null : root.child(POOL_DIRECTORY);
+    }
+
+    /**
+     * Size of the files of a directory tree.
+     */
+    private static final class DiskUsage implements FileCallable<Long> {
+        private static final long serialVersionUID = 1L;
+
+        public Long invoke(File f, VirtualChannel channel) {
+            return size(f);
+        }
+
+        private long size(File f) {
+            if (!f.isDirectory()) {
+                return f.length();
+            }
+            long size = 0;
+            File[] children = f.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    size += size(child);
+                }
+            }
+            return size;
+        }
+    }
+}
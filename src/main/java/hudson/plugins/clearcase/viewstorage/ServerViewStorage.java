@@ -29,4 +29,9 @@ class ServerViewStorage implements ViewStorage {
         return "server";
     }
 
+    @Override
+    public ViewStorage forViewTag(String viewTag) {
+        return this;
+    }
+
 }
@@ -46,4 +46,9 @@ class SpecificViewStorage implements ViewStorage {
         return "specific";
     }
 
+    @Override
+    public ViewStorage forViewTag(String viewTag) {
+        return new SpecificViewStorage(winStorageDir, unixStorageDir, unix, viewTag);
+    }
+
 }
@@ -5,4 +5,9 @@ public interface ViewStorage {
     String[] getCommandArguments();
 
     String getType();
+
+    /**
+     * @return the storage to use for a view with another tag
+     */
+    ViewStorage forViewTag(String viewTag);
 }
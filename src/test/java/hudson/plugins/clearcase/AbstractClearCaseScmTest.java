@@ -27,6 +27,7 @@ package hudson.plugins.clearcase;
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
+import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -52,8 +53,10 @@ import hudson.scm.SCMRevisionState;
 import hudson.util.LogTaskListener;
 import hudson.util.VariableResolver;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
@@ -61,12 +64,16 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -77,6 +84,7 @@ public class AbstractClearCaseScmTest extends AbstractWorkspaceTest {
 
     @Mock
     private BuildListener                     taskListener;
+    private final ByteArrayOutputStream       buildLog = new ByteArrayOutputStream();
     @Mock
     private Launcher                          launcher;
 
@@ -104,6 +112,9 @@ public class AbstractClearCaseScmTest extends AbstractWorkspaceTest {
     @Before
     public void setUp() throws Exception {
         createWorkspace();
+        File buildDir = new File(parentFile, "build");
+        buildDir.mkdirs();
+        when(build.getRootDir()).thenReturn(buildDir);
         node = PowerMockito.mock(Node.class);
         project = PowerMockito.mock(AbstractProject.class);
 
@@ -329,6 +340,7 @@ public class AbstractClearCaseScmTest extends AbstractWorkspaceTest {
 
         FilePath changeLogFilePath = new FilePath(changelogFile);
         assertTrue("The change log file is empty", changeLogFilePath.length() == 0);
+        assertTrue("The update manifest is copied to the workspace", workspace.child(UpdateManifest.FILE_NAME).exists());
     }
 
     @Test
@@ -413,6 +425,143 @@ public class AbstractClearCaseScmTest extends AbstractWorkspaceTest {
         verify(build, times(2)).getPreviousBuild();
     }
 
+    @Test
+    public void assertChangeLogComputedWhileViewIsUpdated() throws Exception {
+        final File changelogFile = setUpConcurrentChangeLog();
+        final List<Entry> list = new ArrayList<Entry>();
+        list.add(new ClearCaseChangeLogEntry(new Date(12), "user", "comment"));
+        final CountDownLatch historyRead = new CountDownLatch(1);
+
+        when(checkOutAction.checkout(launcher, workspace, "viewname")).thenAnswer(new Answer<Boolean>() {
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                // fails unless the history is read meanwhile
+                return historyRead.await(10, TimeUnit.SECONDS);
+            }
+        });
+        when(historyAction.getChanges(any(Date.class), eq("viewname"), eq("viewname"), eq(new String[] { "branch" }), eq(new String[] { "vob" })))
+                .thenAnswer(new Answer<List<Entry>>() {
+                    public List<Entry> answer(InvocationOnMock invocation) throws Throwable {
+                        historyRead.countDown();
+                        return list;
+                    }
+                });
+
+        AbstractClearCaseScm scm = new AbstractClearCaseScmDummy("viewname", "vob", "");
+        assertTrue(scm.checkout(build, launcher, workspace, taskListener, changelogFile));
+        verify(checkOutAction).checkout(launcher, workspace, "viewname");
+        verify(saveChangeLogAction).saveChangeLog(changelogFile, list);
+    }
+
+    @Test
+    public void assertChangeLogCancelledWhenCheckoutFails() throws Exception {
+        final File changelogFile = setUpConcurrentChangeLog();
+        final CountDownLatch historyStarted = new CountDownLatch(1);
+        final CountDownLatch historyInterrupted = new CountDownLatch(1);
+
+        when(checkOutAction.checkout(launcher, workspace, "viewname")).thenAnswer(new Answer<Boolean>() {
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                historyStarted.await(10, TimeUnit.SECONDS);
+                return Boolean.FALSE;
+            }
+        });
+        when(historyAction.getChanges(any(Date.class), eq("viewname"), eq("viewname"), eq(new String[] { "branch" }), eq(new String[] { "vob" })))
+                .thenAnswer(new Answer<List<Entry>>() {
+                    public List<Entry> answer(InvocationOnMock invocation) throws Throwable {
+                        historyStarted.countDown();
+                        try {
+                            Thread.sleep(60000);
+                        } catch (InterruptedException e) {
+                            historyInterrupted.countDown();
+                            throw e;
+                        }
+                        return new ArrayList<Entry>();
+                    }
+                });
+
+        AbstractClearCaseScm scm = new AbstractClearCaseScmDummy("viewname", "vob", "");
+        try {
+            scm.checkout(build, launcher, workspace, taskListener, changelogFile);
+            fail("The failed checkout wasn't reported");
+        } catch (AbortException e) {
+            // expected
+        }
+        assertEquals("The change log wasn't cancelled", 0, historyInterrupted.getCount());
+        verify(saveChangeLogAction, never()).saveChangeLog(any(File.class), anyList());
+    }
+
+    @Test
+    public void assertChangeLogFailureReportedAfterCheckout() throws Exception {
+        final File changelogFile = setUpConcurrentChangeLog();
+
+        when(checkOutAction.checkout(launcher, workspace, "viewname")).thenReturn(Boolean.TRUE);
+        when(historyAction.getChanges(any(Date.class), eq("viewname"), eq("viewname"), eq(new String[] { "branch" }), eq(new String[] { "vob" })))
+                .thenThrow(new IOException("lshistory failed"));
+
+        AbstractClearCaseScm scm = new AbstractClearCaseScmDummy("viewname", "vob", "");
+        try {
+            scm.checkout(build, launcher, workspace, taskListener, changelogFile);
+            fail("The failure of the change log wasn't reported");
+        } catch (IOException e) {
+            assertEquals("lshistory failed", e.getMessage());
+        }
+        verify(checkOutAction).checkout(launcher, workspace, "viewname");
+    }
+
+    @Test
+    public void assertChangeLogFailureStopsCheckout() throws Exception {
+        final File changelogFile = setUpConcurrentChangeLog();
+        final CountDownLatch checkoutInterrupted = new CountDownLatch(1);
+
+        when(checkOutAction.checkout(launcher, workspace, "viewname")).thenAnswer(new Answer<Boolean>() {
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    checkoutInterrupted.countDown();
+                    throw e;
+                }
+                return Boolean.TRUE;
+            }
+        });
+        when(historyAction.getChanges(any(Date.class), eq("viewname"), eq("viewname"), eq(new String[] { "branch" }), eq(new String[] { "vob" })))
+                .thenThrow(new IOException("lshistory failed"));
+
+        AbstractClearCaseScm scm = new AbstractClearCaseScmDummy("viewname", "vob", "");
+        try {
+            scm.checkout(build, launcher, workspace, taskListener, changelogFile);
+            fail("The failure of the change log wasn't reported");
+        } catch (IOException e) {
+            assertEquals("lshistory failed", e.getMessage());
+        }
+        assertEquals("The checkout wasn't stopped", 0, checkoutInterrupted.getCount());
+        assertFalse(Thread.interrupted());
+        assertTrue(buildLog.toString().startsWith("Change log computed while the view is updated:"));
+    }
+
+    /**
+     * A build whose view is valid, with the same load rules as the previous build.
+     */
+    private File setUpConcurrentChangeLog() throws Exception {
+        workspace.child("viewname").mkdirs();
+        final Calendar mockedCalendar = Calendar.getInstance();
+        mockedCalendar.setTimeInMillis(100000);
+
+        when(checkOutAction.isViewValid(launcher, workspace, "viewname")).thenReturn(Boolean.TRUE);
+        when(build.getBuiltOn()).thenReturn(node);
+        when(node.toComputer()).thenReturn(computer);
+        when(node.getNodeName()).thenReturn("test-node");
+        when(build.getBuildVariables()).thenReturn(Collections.emptyMap());
+        when(computer.getSystemProperties()).thenReturn(System.getProperties());
+        when(build.getPreviousBuild()).thenReturn(build);
+        when(build.getTimestamp()).thenReturn(mockedCalendar);
+        when(build.getParent()).thenReturn(project);
+        when(build.getEnvironment(any(LogTaskListener.class))).thenReturn(new EnvVars());
+        when(build.getAction(AbstractClearCaseSCMRevisionState.class)).thenReturn(scmRevisionState);
+        when(scmRevisionState.getLoadRules()).thenReturn(new String[] { "vob" });
+        when(taskListener.getLogger()).thenReturn(new PrintStream(buildLog, true));
+        return new File(parentFile, "changelog.xml");
+    }
+
     @Test
     public void assertCheckoutUsesNormalizedViewName() throws Exception {
         workspace.child("viewname-CCHudson").mkdirs();
@@ -874,6 +1023,11 @@ public class AbstractClearCaseScmTest extends AbstractWorkspaceTest {
 
         private boolean firstBuild;
 
+        @Override
+        protected String preparePollView(PollView pollView, ClearTool clearTool, VariableResolver<String> variableResolver, boolean isUnix) {
+            return null;
+        }
+
         @Override
         protected boolean isFirstBuild(SCMRevisionState baseline) {
             return firstBuild;
@@ -143,4 +143,50 @@ public class ClearCaseChangeLogSetTest {
         Assert.assertEquals("The second action is incorrect", "action2", logs.get(0).getElements().get(1).getAction());
         Assert.assertEquals("The second operation is incorrect", "mkelem", logs.get(0).getElements().get(1).getOperation());
     }
+
+    @Test
+    public void testCompactChangeLog() throws IOException, SAXException {
+        ClearCaseChangeLogEntry entry = new ClearCaseChangeLogEntry();
+        entry.setUser("B\u00FClow");
+        entry.setComment("comment");
+        entry.setDateStr("28/08/2007 15:27:00");
+        entry.addElement(new FileElement("file1", "version1", "action1", "mkelem"));
+        entry.addElement(new FileElement("file2", "version2", "action2", "checkin"));
+
+        List<ClearCaseChangeLogEntry> history = new ArrayList<ClearCaseChangeLogEntry>();
+        history.add(entry);
+
+        File tempLogFile = File.createTempFile("clearcase", "bin");
+        tempLogFile.deleteOnExit();
+        FileOutputStream fileOutputStream = new FileOutputStream(tempLogFile);
+        ClearCaseChangeLogSet.saveToCompactChangeLog(fileOutputStream, history);
+        fileOutputStream.close();
+
+        List<ClearCaseChangeLogEntry> logs = ClearCaseChangeLogSet.parse(null, tempLogFile).getLogs();
+        Assert.assertEquals("The number of change log entries is incorrect", 1, logs.size());
+        Assert.assertEquals("The user is incorrect", "B\u00FClow", logs.get(0).getUser());
+        Assert.assertEquals("The date is incorrect", "28/08/2007 15:27:00", logs.get(0).getDateStr());
+        Assert.assertEquals("The number of files in the first log entry is incorrect", 2, logs.get(0).getElements().size());
+        Assert.assertEquals("The second file name is incorrect", "file2", logs.get(0).getElements().get(1).getFile());
+        Assert.assertEquals("The second operation is incorrect", "checkin", logs.get(0).getElements().get(1).getOperation());
+        Assert.assertNotNull("Parent is null", logs.get(0).getParent());
+    }
+
+    @Test
+    public void testMigrateToCompact() throws IOException, SAXException {
+        File tempLogFile = File.createTempFile("clearcase", "xml");
+        tempLogFile.deleteOnExit();
+        FileOutputStream fileOutputStream = new FileOutputStream(tempLogFile);
+        ClearCaseChangeLogSet.saveToChangeLog(fileOutputStream, ClearCaseChangeLogSet.parse(null, ClearCaseChangeLogSetTest.class
+                                                                   .getResourceAsStream("changelog-multi.xml")).getLogs());
+        fileOutputStream.close();
+
+        Assert.assertTrue("The xml change log should be migrated", ClearCaseChangeLogSet.migrateToCompact(tempLogFile));
+        Assert.assertFalse("The compact change log should not be migrated twice", ClearCaseChangeLogSet.migrateToCompact(tempLogFile));
+
+        List<ClearCaseChangeLogEntry> logs = ClearCaseChangeLogSet.parse(null, tempLogFile).getLogs();
+        Assert.assertEquals("Number of logs is incorrect", 1, logs.size());
+        Assert.assertEquals("Number of file elements is incorrect", 3, logs.get(0).getElements().size());
+        Assert.assertEquals("Version of file element is incorrect", "\\main\\sit_r5_maint\\4", logs.get(0).getElements().get(1).getVersion());
+    }
 }
@@ -27,12 +27,14 @@ package hudson.plugins.clearcase;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
 import static org.mockito.Matchers.notNull;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import hudson.FilePath;
@@ -515,6 +517,52 @@ public class ClearToolExecTest extends AbstractWorkspaceTest {
     /**
      * Simple impl of ClearToolExec to help testing the methods in the class
      */
+    @Test
+    public void testViewStateRunsLsviewOnce() throws Exception {
+        when(ccLauncher.run(eq(new String[] { "lsview", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull())).thenReturn(Boolean.TRUE);
+        clearToolExec.setViewState(new ViewState());
+
+        assertTrue(clearToolExec.doesViewExist("viewTag"));
+        assertTrue(clearToolExec.doesViewExist("viewTag"));
+        verify(ccLauncher, times(1)).run(eq(new String[] { "lsview", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull());
+    }
+
+    @Test
+    public void testViewStateIsForgottenOnRmviewtag() throws Exception {
+        when(ccLauncher.run(eq(new String[] { "lsview", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull())).thenReturn(Boolean.TRUE);
+        when(ccLauncher.run(eq(new String[] { "rmview", "-force", "-tag", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull()))
+                .thenReturn(Boolean.TRUE);
+        clearToolExec.setViewState(new ViewState());
+
+        clearToolExec.doesViewExist("viewTag");
+        clearToolExec.rmviewtag("viewTag");
+        clearToolExec.doesViewExist("viewTag");
+        verify(ccLauncher, times(2)).run(eq(new String[] { "lsview", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull());
+    }
+
+    @Test
+    public void testViewStateStartsViewOnce() throws Exception {
+        clearToolExec.setViewState(new ViewState());
+
+        clearToolExec.startView("viewTag");
+        clearToolExec.setcsTag("viewTag", SetcsOption.CURRENT, null);
+        clearToolExec.startView("viewTag");
+        verify(ccLauncher, times(1)).run(eq(new String[] { "startview", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull());
+
+        clearToolExec.endView("viewTag");
+        clearToolExec.startView("viewTag");
+        verify(ccLauncher, times(2)).run(eq(new String[] { "startview", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull());
+    }
+
+    @Test
+    public void testWithoutViewStateLsviewRunsEachTime() throws Exception {
+        when(ccLauncher.run(eq(new String[] { "lsview", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull())).thenReturn(Boolean.TRUE);
+
+        clearToolExec.doesViewExist("viewTag");
+        clearToolExec.doesViewExist("viewTag");
+        verify(ccLauncher, times(2)).run(eq(new String[] { "lsview", "viewTag" }), any(InputStream.class), any(OutputStream.class), (FilePath) isNull());
+    }
+
     private static class ClearToolImpl extends ClearToolExec {
 
         public ClearToolImpl(ClearToolLauncher launcher) {
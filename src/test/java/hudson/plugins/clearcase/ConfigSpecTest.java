@@ -0,0 +1,103 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.plugins.clearcase.ConfigSpec.Change;
+import hudson.plugins.clearcase.ConfigSpecRule.Kind;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ConfigSpecTest {
+
+    @Test
+    public void testParseRules() {
+        ConfigSpec configSpec = new ConfigSpec("# comment\nelement * CHECKEDOUT\ntime 10-Jul.19:00\nELEMENT -file \"/vob/a b\" /main/LATEST # latest\n"
+                + "end time\nmkbranch dev\nend mkbranch\ninclude /net/cs/common.cs\nload /vob/dir\nucm", true);
+        List<ConfigSpecRule> rules = configSpec.getRules();
+        assertEquals(10, rules.size());
+        assertEquals(Kind.COMMENT, rules.get(0).getKind());
+        assertEquals(Kind.ELEMENT, rules.get(1).getKind());
+        assertEquals(Kind.TIME, rules.get(2).getKind());
+        assertEquals(Kind.ELEMENT, rules.get(3).getKind());
+        assertEquals(Arrays.asList("element", "-file", "\"/vob/a b\"", "/main/LATEST"), rules.get(3).getTokens());
+        assertEquals("-file \"/vob/a b\" /main/LATEST", rules.get(3).getArguments());
+        assertEquals(Kind.END, rules.get(4).getKind());
+        assertEquals(Kind.MKBRANCH, rules.get(5).getKind());
+        assertEquals(Kind.END, rules.get(6).getKind());
+        assertEquals(Kind.INCLUDE, rules.get(7).getKind());
+        assertEquals(Kind.LOAD, rules.get(8).getKind());
+        assertEquals(Kind.OTHER, rules.get(9).getKind());
+        assertTrue(configSpec.hasIncludes());
+    }
+
+    @Test
+    public void testGetLoadRules() {
+        ConfigSpec configSpec = new ConfigSpec("element * /main/LATEST\r\nload /vob/a # first\r\n  load   \"/vob/b c\"\r\nloader /x\r\n", true);
+        assertEquals(new HashSet<String>(Arrays.asList("/vob/a", "\"/vob/b c\"")), configSpec.getLoadRules());
+        assertFalse(configSpec.hasIncludes());
+    }
+
+    @Test
+    public void testNoChangeWhateverTheFormatting() {
+        ConfigSpec target = new ConfigSpec("element * CHECKEDOUT\nelement * /main/LATEST\nload /vob/a\n", true);
+        ConfigSpec current = new ConfigSpec("# set by hudson\r\nelement\t*  CHECKEDOUT\r\n\r\nelement * /main/LATEST # latest\r\nload /vob/a\r\n", true);
+        assertEquals(Change.NONE, target.getChangeFrom(current));
+    }
+
+    @Test
+    public void testNoChangeWithWindowsSeparators() {
+        ConfigSpec target = new ConfigSpec("element \\vob\\dir\\... /main/LATEST\nload \\vob\\a\n", false);
+        ConfigSpec current = new ConfigSpec("element /vob/dir/... /main/LATEST\nload vob\\a\n", false);
+        assertEquals(Change.NONE, target.getChangeFrom(current));
+    }
+
+    @Test
+    public void testLoadRulesChange() {
+        ConfigSpec target = new ConfigSpec("element * /main/LATEST\nload /vob/a\nload /vob/b\n", true);
+        ConfigSpec current = new ConfigSpec("element * /main/LATEST\nload /vob/a\n", true);
+        assertEquals(Change.LOAD_RULES, target.getChangeFrom(current));
+    }
+
+    @Test
+    public void testRulesChange() {
+        ConfigSpec target = new ConfigSpec("element * /main/dev/LATEST\nload /vob/a\n", true);
+        ConfigSpec current = new ConfigSpec("element * /main/LATEST\nload /vob/a\n", true);
+        assertEquals(Change.RULES, target.getChangeFrom(current));
+    }
+
+    @Test
+    public void testRulesOrderMatters() {
+        ConfigSpec target = new ConfigSpec("element * /main/LATEST\nelement * CHECKEDOUT\n", true);
+        ConfigSpec current = new ConfigSpec("element * CHECKEDOUT\nelement * /main/LATEST\n", true);
+        assertEquals(Change.RULES, target.getChangeFrom(current));
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class NodeCapabilitiesTest {
+
+    @Test
+    public void testParseVersion() {
+        String output = "ClearCase version 7.1.2.3 (Fri Oct 15 09:00:00 EDT 2010) (7.1.2.03.00_2010B.D101015)\n"
+                + "@(#) MVFS version 7.1.2.3 (Thu Sep 30 23:00:00 2010)\n" + "cleartool                         7.1.2.3 (Thu Sep 30 23:00:00 2010)\n";
+        assertEquals("7.1.2.3", NodeCapabilities.parseVersion(output));
+    }
+
+    @Test
+    public void testParseVersionUnknown() {
+        assertNull(NodeCapabilities.parseVersion("cleartool: Error: Unrecognized command\n"));
+    }
+
+    @Test
+    public void testMajorVersion() {
+        NodeCapabilities capabilities = new NodeCapabilities("", "cleartool", true) {
+            @Override
+            public String getVersion() {
+                return "8.0.0.2";
+            }
+        };
+        assertEquals(8, capabilities.getMajorVersion());
+    }
+
+    @Test
+    public void testCleartoolExeWithoutInstallation() throws Exception {
+        assertEquals(ClearCaseInstallation.CLEARTOOL_EXE_FALLBACK, NodeCapabilities.resolveCleartoolExe(null, null, null));
+    }
+
+    @Test
+    public void testParseRegion() {
+        String output = "Client: buildhost\n  Product: ClearCase 7.1.2.3\n  Registry host: reghost\n  Registry region: unix_region\n"
+                + "  License host: lichost\n";
+        assertEquals("unix_region", NodeCapabilities.parseRegion(output));
+    }
+
+    @Test
+    public void testParseStorageLocations() {
+        String output = "  viewstgloc1          /net/server1/views\n  viewstgloc2          /net/server2/views\n";
+        List<NodeCapabilities.StorageLocation> locations = NodeCapabilities.parseStorageLocations(output);
+        assertEquals(2, locations.size());
+        assertEquals("viewstgloc1", locations.get(0).getName());
+        assertEquals("/net/server1/views", locations.get(0).getPath());
+        assertEquals("viewstgloc2", locations.get(1).getName());
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class PollActivityTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY = 24 * HOUR;
+
+    private PollActivity activity;
+    private long now;
+    private Date buildTime;
+
+    @Before
+    public void setUp() {
+        activity = new PollActivity();
+        now = 100 * DAY;
+        buildTime = new Date(now - 48 * DAY);
+    }
+
+    @Test
+    public void testScansWhenDisabled() {
+        activity.recordScan("job", buildTime, false, now - 1000);
+        assertNull(activity.getSkipReason("job", buildTime, 0, now));
+    }
+
+    @Test
+    public void testScansFirstPoll() {
+        assertNull(activity.getSkipReason("job", buildTime, DAY, now));
+    }
+
+    @Test
+    public void testSkipsColdJob() {
+        activity.recordScan("job", buildTime, false, now - HOUR);
+        // idle for 48 days, scanned every 2 days at most, but the maximum staleness is 1 day
+        assertNotNull(activity.getSkipReason("job", buildTime, DAY, now));
+        assertNull(activity.getSkipReason("job", buildTime, DAY, now + DAY));
+    }
+
+    @Test
+    public void testIntervalFollowsIdleTime() {
+        Date recentBuild = new Date(now - 2 * DAY);
+        activity.recordScan("job", recentBuild, false, now - 3 * HOUR);
+        // idle for 2 days, scanned every 2 hours
+        assertNull(activity.getSkipReason("job", recentBuild, DAY, now));
+        activity.recordScan("job", recentBuild, false, now - HOUR);
+        assertNotNull(activity.getSkipReason("job", recentBuild, DAY, now));
+    }
+
+    @Test
+    public void testScansHotJob() {
+        activity.recordScan("job", buildTime, true, now - HOUR);
+        assertNull(activity.getSkipReason("job", buildTime, DAY, now));
+    }
+
+    @Test
+    public void testScansRecentBuild() {
+        Date recentBuild = new Date(now - HOUR);
+        activity.recordScan("job", recentBuild, false, now - 1000);
+        assertNull(activity.getSkipReason("job", recentBuild, DAY, now));
+    }
+
+    @Test
+    public void testScansWokenJob() {
+        activity.recordScan("job", buildTime, false, now - HOUR);
+        activity.wake("job");
+        assertNull(activity.getSkipReason("job", buildTime, DAY, now));
+        activity.recordScan("job", buildTime, false, now);
+        assertNotNull(activity.getSkipReason("job", buildTime, DAY, now + HOUR));
+    }
+
+    @Test
+    public void testRenamedJobKeepsItsStats() {
+        activity.recordScan("job", buildTime, false, now - HOUR);
+        activity.rename("job", "renamed");
+        assertNotNull(activity.getSkipReason("renamed", buildTime, DAY, now));
+        assertNull(activity.getSkipReason("job", buildTime, DAY, now));
+    }
+
+    @Test
+    public void testDeletedJobIsForgotten() {
+        activity.recordScan("job", buildTime, false, now - HOUR);
+        activity.remove("job");
+        assertNull(activity.getSkipReason("job", buildTime, DAY, now));
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import hudson.model.Node;
+import hudson.plugins.clearcase.ClearTool.SetcsOption;
+import hudson.util.StreamTaskListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class PollViewTest {
+
+    @Test
+    public void testGetTag() {
+        String tag = PollView.getTag("dev_1.0");
+        assertTrue(tag, tag.matches("hudson_poll_dev_1\\.0_[0-9a-f]{8}"));
+        assertEquals(tag, PollView.getTag("dev_1.0"));
+        assertFalse(tag.equals(PollView.getTag("dev 1.0")));
+        assertTrue(PollView.getTag("stream with a very long name, longer than what fits in a tag").matches("hudson_poll_[A-Za-z0-9_]{40}_[0-9a-f]{8}"));
+    }
+
+    @Test
+    public void testBranchViewFailingSetcsIsRemoved() throws Exception {
+        ClearTool clearTool = mock(ClearTool.class);
+        when(clearTool.doesViewExist(anyString())).thenReturn(Boolean.FALSE);
+        doThrow(new IOException("setcs failed")).when(clearTool).setcsTag(anyString(), eq(SetcsOption.CONFIGSPEC), eq("element * /main/LATEST"));
+        PollView pollView = new PollView(mock(Node.class), new StreamTaskListener(new ByteArrayOutputStream()));
+        try {
+            pollView.prepareBranchView(clearTool, new String[] { "dev" }, "element * /main/LATEST", null);
+            fail("The failure of setcs wasn't reported");
+        } catch (IOException e) {
+            assertEquals("setcs failed", e.getMessage());
+        }
+        ArgumentCaptor<String> tag = ArgumentCaptor.forClass(String.class);
+        verify(clearTool).mkview(any(MkViewParameters.class));
+        verify(clearTool).rmviewtag(tag.capture());
+        assertTrue(tag.getValue().startsWith("hudson_poll_dev_"));
+    }
+}
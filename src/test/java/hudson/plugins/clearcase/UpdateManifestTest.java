@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import hudson.plugins.clearcase.UpdateManifest.Kind;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class UpdateManifestTest {
+
+    @Test
+    public void testParse() {
+        assertArrayEquals(new String[] { "LOADED", "omnicom_code\\Source\\RES\\A.cs" }, UpdateManifest.parse("Loading \"omnicom_code\\Source\\RES\\A.cs\" (1312 bytes)."));
+        assertArrayEquals(new String[] { "UNLOADED", "vob/dir/b.c" }, UpdateManifest.parse("Unloaded \"vob/dir/b.c\"."));
+        assertArrayEquals(new String[] { "HIJACK_KEPT", "vob/dir/c.c" }, UpdateManifest.parse("Keeping hijacked object \"vob/dir/c.c\" - base \"/main/2\"."));
+        assertArrayEquals(new String[] { "HIJACK_RESTORED", "vob/dir/d.c" }, UpdateManifest.parse("Overwriting hijacked object \"vob/dir/d.c\"."));
+        assertNull(UpdateManifest.parse("Processing dir \"ccl\\Bin\"."));
+        assertNull(UpdateManifest.parse("Done loading \"\\ccl\\Bin\" (81 objects, copied 0 KB)."));
+        assertNull(UpdateManifest.parse("."));
+    }
+
+    @Test
+    public void testRecord() throws Exception {
+        StringWriter writer = new StringWriter();
+        UpdateManifest manifest = new UpdateManifest(writer);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputStream out = manifest.record(output);
+        String text = "Processing dir \"vob\\dir\".\r\nLoading \"vob\\dir\\a.c\" (12 bytes).\r\nLoad";
+        out.write(text.getBytes());
+        out.write("ing \"vob\\dir\\b.c\" (3 bytes).\r".getBytes());
+        out.write('\n');
+        out.write("Unloaded \"vob\\dir\\c.c\".".getBytes());
+        out.close();
+
+        assertEquals(text + "ing \"vob\\dir\\b.c\" (3 bytes).\r\nUnloaded \"vob\\dir\\c.c\".", output.toString());
+        assertEquals("LOADED\tvob\\dir\\a.c\nLOADED\tvob\\dir\\b.c\nUNLOADED\tvob\\dir\\c.c\n", writer.toString());
+        assertEquals(2, manifest.getCount(Kind.LOADED));
+        assertEquals(1, manifest.getCount(Kind.UNLOADED));
+        assertEquals(0, manifest.getCount(Kind.HIJACK_RESTORED));
+    }
+
+    @Test
+    public void testRecordElementsOnlyWritesOtherLines() throws Exception {
+        StringWriter writer = new StringWriter();
+        UpdateManifest manifest = new UpdateManifest(writer);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputStream out = manifest.recordElements(output);
+        out.write("Processing dir \"vob\\dir\".\r\nLoading \"vob\\dir\\a.c\" (12 bytes).\r\n".getBytes());
+        out.write("cleartool: Error: Unable to remove \"vob\\dir\\x\": Directory not empty.\nUnloaded \"vob\\dir\\c.c\".".getBytes());
+        out.close();
+
+        assertEquals("Processing dir \"vob\\dir\".\r\ncleartool: Error: Unable to remove \"vob\\dir\\x\": Directory not empty.\n", output.toString());
+        assertEquals("LOADED\tvob\\dir\\a.c\nUNLOADED\tvob\\dir\\c.c\n", writer.toString());
+    }
+}
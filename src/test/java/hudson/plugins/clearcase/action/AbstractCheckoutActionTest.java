@@ -140,4 +140,45 @@ public class AbstractCheckoutActionTest extends AbstractWorkspaceTest {
         assertEquals("aViewTag", argument.getValue().getViewTag());
         assertEquals("stream@\\pvob", argument.getValue().getStreamSelector());
     }
+
+    @Test
+    public void reusedViewConfigSpecIsReadOnce() throws Exception {
+        workspace.child("path").mkdirs();
+
+        when(clearTool.doesViewExist("aViewTag")).thenReturn(Boolean.TRUE);
+        when(clearTool.lscurrentview("path")).thenReturn("aViewTag");
+        when(clearTool.catcs("aViewTag")).thenReturn("configspec");
+
+        DummyCheckoutAction action = new DummyCheckoutAction(clearTool, new String[] { "aLoadRule" }, true, "");
+        assertFalse(action.cleanAndCreateViewIfNeeded(workspace, "aViewTag", "path", "stream@\\pvob"));
+        assertEquals("configspec", action.catcs("aViewTag"));
+
+        verify(clearTool).catcs("aViewTag");
+        verify(clearTool, never()).mkview(any(MkViewParameters.class));
+    }
+
+    @Test
+    public void viewIsValidWhenTagAndPathMatch() throws Exception {
+        workspace.child("path").mkdirs();
+
+        when(clearTool.doesViewExist("aViewTag")).thenReturn(Boolean.TRUE);
+        when(clearTool.lscurrentview("path")).thenReturn("aViewTag");
+
+        DummyCheckoutAction action = new DummyCheckoutAction(clearTool, new String[] { "aLoadRule" }, true, "path");
+        assertTrue(action.isViewValid(null, workspace, "aViewTag"));
+        assertFalse(action.isViewValid(null, workspace, "anotherViewTag"));
+        assertTrue("The view path shouldn't have been touched", workspace.child("path").exists());
+        verify(clearTool, never()).rmviewtag(anyString());
+    }
+
+    @Test
+    public void viewIsInvalidWhenPathIsNotAView() throws Exception {
+        workspace.child("path").mkdirs();
+
+        when(clearTool.lscurrentview("path")).thenThrow(new IOException());
+
+        DummyCheckoutAction action = new DummyCheckoutAction(clearTool, new String[] { "aLoadRule" }, true, "path");
+        assertFalse(action.isViewValid(null, workspace, "aViewTag"));
+        assertTrue("The view path shouldn't have been renamed", workspace.child("path").exists());
+    }
 }
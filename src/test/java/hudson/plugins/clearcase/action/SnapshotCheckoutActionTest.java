@@ -261,7 +261,7 @@ public class SnapshotCheckoutActionTest extends AbstractWorkspaceTest {
         verify(cleartool).lscurrentview("viewpath");
         verify(cleartool).catcs("viewname");
         verify(cleartool).setcs("viewpath", SetcsOption.CONFIGSPEC, "configspec\nload /foo\n");
-        verify(cleartool).setcs("viewpath", SetcsOption.CURRENT, null);
+        verify(cleartool, never()).setcs("viewpath", SetcsOption.CURRENT, null);
     }
 
     @Test
@@ -303,6 +303,25 @@ public class SnapshotCheckoutActionTest extends AbstractWorkspaceTest {
         verify(cleartool).lscurrentview("viewpath");
         verify(cleartool).catcs("viewname");
         verify(cleartool).setcs("viewpath", SetcsOption.CONFIGSPEC, "configspec\nload /bar\n");
+        verify(cleartool, never()).setcs("viewpath", SetcsOption.CURRENT, null);
+    }
+
+    @Test
+    public void testSecondTimeReformattedConfigSpec() throws Exception {
+        workspace.child("viewpath").mkdirs();
+
+        when(cleartool.doesViewExist("viewname")).thenReturn(Boolean.TRUE);
+        when(cleartool.lscurrentview("viewpath")).thenReturn("viewname");
+        when(cleartool.catcs("viewname")).thenReturn("element  *   CHECKEDOUT\r\n# comment\r\nelement * /main/LATEST\r\nload /foo\r\n");
+        when(taskListener.getLogger()).thenReturn(System.out);
+        when(launcher.isUnix()).thenReturn(Boolean.TRUE);
+        when(launcher.getListener()).thenReturn(taskListener);
+
+        CheckOutAction action = new SnapshotCheckoutAction(cleartool, new ConfigSpec("element * CHECKEDOUT\nelement * /main/LATEST # latest", true),
+                new String[] { "/foo" }, true, "viewpath", null);
+        action.checkout(launcher, workspace, "viewname");
+
+        verify(cleartool, never()).setcs(eq("viewpath"), eq(SetcsOption.CONFIGSPEC), anyString());
         verify(cleartool).setcs("viewpath", SetcsOption.CURRENT, null);
     }
 
@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.cleanup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.model.TaskListener;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class ViewCleanupServiceTest {
+
+    @Test
+    public void testToPatternMatchesUnresolvedVariables() {
+        Pattern pattern = ViewCleanupService.toPattern("jenkins_${NODE_NAME}_myjob_hudson");
+        assertTrue(pattern.matcher("jenkins_slave1_myjob_hudson").matches());
+        assertFalse(pattern.matcher("jenkins_slave1_otherjob_hudson").matches());
+    }
+
+    @Test
+    public void testToPatternQuotesTag() {
+        Pattern pattern = ViewCleanupService.toPattern("a.b_hudson");
+        assertTrue(pattern.matcher("a.b_hudson").matches());
+        assertFalse(pattern.matcher("axb_hudson").matches());
+    }
+
+    @Test
+    public void testSelectOrphans() {
+        List<String> viewTags = Arrays.asList("user_view", "used_hudson", "jenkins_slave1_job_hudson", "deleted_hudson");
+        Set<String> used = new HashSet<String>(Collections.singleton("used_hudson"));
+        List<Pattern> usedPatterns = Collections.singletonList(ViewCleanupService.toPattern("jenkins_${NODE_NAME}_job_hudson"));
+        assertEquals(Collections.singleton("deleted_hudson"), ViewCleanupService.selectOrphans(viewTags, used, usedPatterns));
+    }
+
+    @Test
+    public void testDoneTaskIsRemoved() throws Exception {
+        ViewCleanupService service = new ViewCleanupService(null) {
+            @Override
+            boolean execute(CleanupTask task, TaskListener listener) {
+                return true;
+            }
+        };
+        service.submit(CleanupTask.removeViewTag("", "view_hudson"));
+        service.process(null);
+        assertTrue(service.getTasks().isEmpty());
+    }
+
+    @Test
+    public void testTaskIsPostponedWhileNodeIsOffline() throws Exception {
+        ViewCleanupService service = new ViewCleanupService(null) {
+            @Override
+            boolean execute(CleanupTask task, TaskListener listener) {
+                return false;
+            }
+        };
+        service.submit(CleanupTask.removeViewTag("slave1", "view_hudson"));
+        long before = System.currentTimeMillis();
+        service.process(null);
+        CleanupTask task = service.getTasks().get(0);
+        assertEquals(0, task.getAttempts());
+        assertTrue(task.getNextAttempt().getTime() >= before + ViewCleanupService.RETRY_DELAY);
+        assertFalse(task.isDue(before));
+    }
+
+    @Test
+    public void testFailedTaskIsRetriedThenDropped() throws Exception {
+        ViewCleanupService service = new ViewCleanupService(null) {
+            @Override
+            boolean execute(CleanupTask task, TaskListener listener) throws IOException {
+                throw new IOException("cleartool: Error: Unable to remove view");
+            }
+        };
+        CleanupTask task = CleanupTask.removeViewTag("", "view_hudson");
+        service.submit(task);
+        service.process(null);
+        assertEquals(1, task.getAttempts());
+        assertEquals("cleartool: Error: Unable to remove view", task.getLastError());
+        long firstDelay = task.getNextAttempt().getTime();
+        for (int i = 1; i < ViewCleanupService.MAX_ATTEMPTS; i++) {
+            assertEquals(1, service.getTasks().size());
+            task.postpone(0, 0);
+            service.process(null);
+        }
+        assertTrue(service.getTasks().isEmpty());
+        assertTrue(task.getNextAttempt().getTime() > firstDelay);
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LsHistoryCoalescerTest {
+
+    private static class CountingQuery implements LsHistoryCoalescer.Query {
+        final List<String> calls = new ArrayList<String>();
+
+        public synchronized Reader lshistory(Date since, String[] paths) throws IOException, InterruptedException {
+            calls.add(since.getTime() + " " + Arrays.asList(paths));
+            return new StringReader("history");
+        }
+    }
+
+    /**
+     * Polls the same history from two jobs at once, the second one starting 50ms after the first.
+     */
+    private static String[] pollTogether(final LsHistoryCoalescer coalescer, final LsHistoryCoalescer.Query query) throws Exception {
+        final String[] outputs = new String[2];
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    outputs[1] = coalescer.lshistory("key", new Date(1000), new String[] { "vob/b" }, query);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        other.start();
+        outputs[0] = coalescer.lshistory("key", new Date(5000), new String[] { "vob/a" }, query);
+        other.join();
+        return outputs;
+    }
+
+    private static class SlowQuery extends CountingQuery {
+        @Override
+        public Reader lshistory(Date since, String[] paths) throws IOException, InterruptedException {
+            Reader reader = super.lshistory(since, paths);
+            Thread.sleep(200);
+            return reader;
+        }
+    }
+
+    @Test
+    public void testPollAloneDoesntWait() throws Exception {
+        LsHistoryCoalescer coalescer = new LsHistoryCoalescer(60000);
+        long start = System.currentTimeMillis();
+        assertEquals("history", coalescer.lshistory("key", new Date(1000), new String[] { "vob/a" }, new CountingQuery()));
+        assertTrue(System.currentTimeMillis() - start < 30000);
+    }
+
+    @Test
+    public void testOverlappingPollsShareTheNextRun() throws Exception {
+        LsHistoryCoalescer coalescer = new LsHistoryCoalescer(500);
+        SlowQuery query = new SlowQuery();
+        // the first time, the polls find out they overlap
+        pollTogether(coalescer, query);
+        assertEquals(2, query.calls.size());
+        query.calls.clear();
+
+        String[] outputs = pollTogether(coalescer, query);
+
+        assertEquals(Arrays.asList("1000 [vob/a, vob/b]"), query.calls);
+        assertEquals("history", outputs[0]);
+        assertEquals("history", outputs[1]);
+    }
+
+    @Test
+    public void testInterruptedPollLeavesTheBatchToTheOthers() throws Exception {
+        final LsHistoryCoalescer coalescer = new LsHistoryCoalescer(1000);
+        final SlowQuery query = new SlowQuery();
+        pollTogether(coalescer, query);
+        query.calls.clear();
+
+        final Throwable[] failures = new Throwable[1];
+        final Thread first = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    coalescer.lshistory("key", new Date(5000), new String[] { "vob/a" }, query);
+                } catch (Throwable t) {
+                    failures[0] = t;
+                }
+            }
+        };
+        first.start();
+        Thread.sleep(100);
+        // interrupts the first poll while the second one waits for the batch
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                    first.interrupt();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }.start();
+        String output = coalescer.lshistory("key", new Date(1000), new String[] { "vob/b" }, query);
+        first.join();
+
+        assertTrue(failures[0] instanceof InterruptedException);
+        assertEquals("history", output);
+        assertEquals(Arrays.asList("1000 [vob/a, vob/b]"), query.calls);
+    }
+
+    @Test
+    public void testDifferentHistoriesRunSeparately() throws Exception {
+        LsHistoryCoalescer coalescer = new LsHistoryCoalescer(0);
+        CountingQuery query = new CountingQuery();
+        coalescer.lshistory("key1", new Date(1000), new String[] { "vob/a" }, query);
+        coalescer.lshistory("key2", new Date(1000), new String[] { "vob/a" }, query);
+        assertEquals(2, query.calls.size());
+    }
+
+    @Test
+    public void testFailureIsReported() throws Exception {
+        LsHistoryCoalescer coalescer = new LsHistoryCoalescer(0);
+        try {
+            coalescer.lshistory("key", new Date(1000), new String[] { "vob/a" }, new LsHistoryCoalescer.Query() {
+                public Reader lshistory(Date since, String[] paths) throws IOException {
+                    throw new IOException("cleartool failed");
+                }
+            });
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("cleartool failed"));
+        }
+    }
+
+    @Test
+    public void testKeepRequested() throws Exception {
+        List<HistoryEntry> entries = new ArrayList<HistoryEntry>();
+        entries.add(entry("20100101.100000", "vob\\a\\file.c"));
+        entries.add(entry("20100101.090000", "vob\\a\\old.c"));
+        entries.add(entry("20100101.100000", "vob\\b\\file.c"));
+        entries.add(entry("20100101.100000", "vob\\a"));
+        entries.add(entry("20100101.100000", "vob\\ab\\file.c"));
+        entries.add(entry("20100101.100000", "other\\vob\\a\\file.c"));
+        Date since = entries.get(0).getDate();
+
+        List<HistoryEntry> kept = AbstractHistoryAction.keepRequested(entries, new Date(since.getTime() + 500), new String[] { "/vob//a/" });
+
+        assertEquals(2, kept.size());
+        assertEquals("vob\\a\\file.c", kept.get(0).getElement());
+        assertEquals("vob\\a", kept.get(1).getElement());
+    }
+
+    private static HistoryEntry entry(String date, String element) throws Exception {
+        HistoryEntry entry = new HistoryEntry();
+        entry.setDateText(date);
+        entry.setElement(element);
+        return entry;
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.notification;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ChangeNotificationTest {
+
+    @Test
+    public void testParse() {
+        ChangeNotification notification = ChangeNotification.parse("event=checkin&branch=dev&vob=%2Fvobs%2Fapp&path=/vobs/app/src/Main.java");
+        assertEquals("checkin", notification.getEvent());
+        assertEquals("dev", notification.getBranch());
+        assertEquals("/vobs/app", notification.getVob());
+        assertEquals("/vobs/app/src/Main.java", notification.getPath());
+        assertNull(notification.getStream());
+    }
+
+    @Test
+    public void testParseEmpty() {
+        assertNull(ChangeNotification.parse("event=checkin"));
+        assertNull(ChangeNotification.parse(""));
+    }
+
+    @Test
+    public void testMatchesBranch() {
+        ChangeNotification notification = new ChangeNotification(null, "dev", null, null, null, null);
+        assertTrue(notification.matchesBranch(new String[] { "main", "dev" }));
+        assertFalse(notification.matchesBranch(new String[] { "main" }));
+        assertTrue(notification.matchesBranch(new String[0]));
+    }
+
+    @Test
+    public void testMatchesAnyBranchWithoutBranch() {
+        ChangeNotification notification = new ChangeNotification(null, null, "/vobs/app", null, null, null);
+        assertTrue(notification.matchesBranch(new String[] { "main" }));
+    }
+
+    @Test
+    public void testMatchesPaths() {
+        ChangeNotification notification = new ChangeNotification(null, "dev", null, "/vobs/app/src/Main.java", null, null);
+        assertTrue(notification.matchesPaths(new String[] { "vobs/app" }));
+        assertTrue(notification.matchesPaths(new String[] { "\\vobs\\app\\src" }));
+        assertFalse(notification.matchesPaths(new String[] { "vobs/lib" }));
+        assertTrue(notification.matchesPaths(null));
+    }
+
+    @Test
+    public void testMatchesPathsByVob() {
+        ChangeNotification notification = new ChangeNotification(null, null, "/vobs/app", null, null, null);
+        assertTrue(notification.matchesPaths(new String[] { "vobs/app/src" }));
+        assertFalse(notification.matchesPaths(new String[] { "vobs/application" }));
+    }
+}
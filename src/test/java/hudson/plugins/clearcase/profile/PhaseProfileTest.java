@@ -0,0 +1,165 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.profile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import hudson.model.Build;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class PhaseProfileTest {
+
+    @Mock
+    private Build build;
+
+    private PhaseProfile profile;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        profile = PhaseProfile.start(build);
+    }
+
+    @Test
+    public void testAttachedToBuild() {
+        verify(build).addAction(profile);
+        profile.stop();
+        when(build.getAction(PhaseProfile.class)).thenReturn(profile);
+        assertSame(profile, PhaseProfile.start(build));
+        profile.stop();
+    }
+
+    @Test
+    public void testNothingRecordedWhenStopped() {
+        profile.stop();
+        assertNull(PhaseProfile.enter("checkout"));
+        PhaseProfile.recordCommand(10);
+        assertTrue(profile.getRows().isEmpty());
+    }
+
+    @Test
+    public void testResumedInAnotherThread() throws Exception {
+        final Phase checkout = PhaseProfile.enter("checkout");
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                PhaseProfile.resume(checkout);
+                try {
+                    Phase changeLog = PhaseProfile.enter("change log");
+                    PhaseProfile.recordCommand(50);
+                    PhaseProfile.exit(changeLog);
+                } finally {
+                    PhaseProfile.suspend();
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame(checkout, PhaseProfile.current());
+        PhaseProfile.exit(checkout);
+        profile.stop();
+
+        List<PhaseProfile.Row> rows = profile.getRows();
+        assertEquals(2, rows.size());
+        assertEquals("change log", rows.get(1).getPhase().getName());
+        assertEquals(1, rows.get(1).getDepth());
+        assertEquals(50, rows.get(0).getPhase().getBytes());
+    }
+
+    @Test
+    public void testOverlappingEntriesCountWallTime() {
+        Phase root = profile.getRoot();
+        Phase first = root.enter("cleartool lshistory", 1000);
+        Phase second = root.enter("cleartool lshistory", 1500);
+        assertSame(first, second);
+        first.exit(2000);
+        assertEquals(0, first.getDuration());
+        second.exit(3000);
+        assertEquals(2000, first.getDuration());
+        profile.stop();
+    }
+
+    @Test
+    public void testTree() {
+        Phase checkout = PhaseProfile.enter("checkout");
+        Phase update = PhaseProfile.enter("cleartool update");
+        PhaseProfile.recordCommand(100);
+        PhaseProfile.exit(update);
+        Phase changeLog = PhaseProfile.enter("change log");
+        PhaseProfile.exit(changeLog);
+        PhaseProfile.exit(checkout);
+        profile.stop();
+
+        List<PhaseProfile.Row> rows = profile.getRows();
+        assertEquals(3, rows.size());
+        assertEquals("checkout", rows.get(0).getPhase().getName());
+        assertEquals(0, rows.get(0).getDepth());
+        assertEquals("cleartool update", rows.get(1).getPhase().getName());
+        assertEquals(1, rows.get(1).getDepth());
+        assertEquals("change log", rows.get(2).getPhase().getName());
+        assertEquals(1, checkout.getCommands());
+        assertEquals(100, checkout.getBytes());
+    }
+
+    @Test
+    public void testRepeatedPhaseAccumulates() {
+        Phase checkout = PhaseProfile.enter("checkout");
+        for (int i = 0; i < 3; i++) {
+            Phase command = PhaseProfile.enter("cleartool lshistory");
+            PhaseProfile.recordCommand(10);
+            PhaseProfile.exit(command);
+        }
+        PhaseProfile.exit(checkout);
+        profile.stop();
+
+        assertEquals(1, checkout.getChildren().size());
+        Phase command = checkout.getChildren().get(0);
+        assertEquals(3, command.getCommands());
+        assertEquals(30, command.getBytes());
+    }
+
+    @Test
+    public void testSelfDurations() {
+        Phase checkout = PhaseProfile.enter("checkout");
+        PhaseProfile.exit(PhaseProfile.enter("cleartool setcs"));
+        PhaseProfile.exit(checkout);
+        profile.stop();
+
+        Map<String, Long> durations = profile.getSelfDurations();
+        assertEquals(2, durations.size());
+        assertEquals(profile.getDuration(), durations.get("checkout") + durations.get("cleartool setcs"));
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class DiffBlVersionIteratorTest {
+
+    @Test
+    public void testReturnsOnlyNewVersions() throws Exception {
+        DiffBlVersionIterator versions = new DiffBlVersionIterator(new StringReader("Comparing the following:\n"
+                + "  bl1@\\pvob\n  bl2@\\pvob\nDifferences:\n"
+                + ">> M:\\view\\vob\\a.txt@@\\main\\dev\\2\n"
+                + "<< M:\\view\\vob\\b.txt@@\\main\\dev\\1\n"
+                + ">>   M:\\view\\vob\\c.txt@@\\main\\dev\\4  \n"));
+        assertTrue(versions.hasNextVersion());
+        assertTrue(versions.hasNextVersion());
+        assertEquals("M:\\view\\vob\\a.txt@@\\main\\dev\\2", versions.nextVersion());
+        assertEquals("M:\\view\\vob\\c.txt@@\\main\\dev\\4", versions.next());
+        assertFalse(versions.hasNext());
+        versions.close();
+    }
+
+    @Test
+    public void testLastLineWithoutLineEnd() throws Exception {
+        DiffBlVersionIterator versions = new DiffBlVersionIterator(new StringReader(">> a.txt@@\\main\\1"));
+        assertEquals("a.txt@@\\main\\1", versions.nextVersion());
+        assertFalse(versions.hasNextVersion());
+    }
+}
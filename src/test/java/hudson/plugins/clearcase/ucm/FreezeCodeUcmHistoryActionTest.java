@@ -0,0 +1,116 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyList;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.TaskListener;
+import hudson.plugins.clearcase.AbstractWorkspaceTest;
+import hudson.plugins.clearcase.Baseline;
+import hudson.plugins.clearcase.ClearCaseDataAction;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.ClearTool.DiffBlOptions;
+import hudson.plugins.clearcase.ClearToolLauncher;
+import hudson.plugins.clearcase.Component;
+import hudson.plugins.clearcase.history.DefaultFilter;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class FreezeCodeUcmHistoryActionTest extends AbstractWorkspaceTest {
+
+    @Mock
+    private ClearTool         cleartool;
+    @Mock
+    private ClearToolLauncher clearToolLauncher;
+    @Mock
+    private TaskListener      listener;
+    @Mock
+    private AbstractBuild     build;
+    @Mock
+    private AbstractProject   project;
+
+    @Before
+    public void setUp() throws Exception {
+        when(cleartool.getLauncher()).thenReturn(clearToolLauncher);
+        when(clearToolLauncher.getListener()).thenReturn(listener);
+        when(listener.getLogger()).thenReturn(System.out);
+        when(build.getProject()).thenReturn(project);
+        when(project.getName()).thenReturn("job");
+
+        ClearCaseDataAction dataAction = new ClearCaseDataAction();
+        dataAction.setStream("dev@\\pvob");
+        List<Baseline> baselines = Arrays.asList(new Baseline("bl1@\\pvob", new Component("comp1@\\pvob", true)), new Baseline("bl2@\\pvob",
+                new Component("comp2@\\pvob", false)));
+        dataAction.setLatestBlsOnConfiguredStream(baselines);
+        when(build.getAction(ClearCaseDataAction.class)).thenReturn(dataAction);
+    }
+
+    private FreezeCodeUcmHistoryAction createAction() {
+        return new FreezeCodeUcmHistoryAction(cleartool, true, new DefaultFilter(), "dev@\\pvob", "/view", build, null, null);
+    }
+
+    @Test
+    public void testNewActivityOnStream() throws Exception {
+        when(cleartool.diffbl(eq(EnumSet.of(DiffBlOptions.ACTIVITIES)), eq("baseline:bl1@\\pvob"), eq("stream:dev@\\pvob"), anyString())).thenReturn(
+                new StringReader("Comparing the following:\n  bl1@\\pvob\n  dev@\\pvob\nDifferences:\n>> activity:fix@\\pvob \"Fix\"\n"));
+
+        assertTrue(createAction().hasChanges(null, "view", "viewTag", null, null));
+        verify(cleartool, never()).mkbl(anyString(), anyString(), anyString(), anyBoolean(), anyBoolean(), anyList(), anyString(), anyString());
+        // read-only components are ignored
+        verify(cleartool, never()).diffbl(eq(EnumSet.of(DiffBlOptions.ACTIVITIES)), eq("baseline:bl2@\\pvob"), anyString(), anyString());
+    }
+
+    @Test
+    public void testChangedActivityOnStream() throws Exception {
+        when(cleartool.diffbl(eq(EnumSet.of(DiffBlOptions.ACTIVITIES)), eq("baseline:bl1@\\pvob"), eq("stream:dev@\\pvob"), anyString())).thenReturn(
+                new StringReader("Comparing the following:\n  bl1@\\pvob\n  dev@\\pvob\nDifferences:\n<> activity:fix@\\pvob \"Fix\"\n"));
+
+        assertTrue(createAction().hasChanges(null, "view", "viewTag", null, null));
+    }
+
+    @Test
+    public void testNoChange() throws Exception {
+        when(cleartool.diffbl(eq(EnumSet.of(DiffBlOptions.ACTIVITIES)), eq("baseline:bl1@\\pvob"), eq("stream:dev@\\pvob"), anyString())).thenReturn(
+                new StringReader("Comparing the following:\n  bl1@\\pvob\n  dev@\\pvob\nBaselines are identical\n"));
+
+        assertFalse(createAction().hasChanges(null, "view", "viewTag", null, null));
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_HEADLINE;
+import static hudson.plugins.clearcase.util.OutputFormat.UCM_ACTIVITY_STREAM;
+import static hudson.plugins.clearcase.util.OutputFormat.USER_ID;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+import hudson.plugins.clearcase.AbstractWorkspaceTest;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.util.ClearToolFormatHandler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.StringReader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class UcmActivityCacheTest extends AbstractWorkspaceTest {
+
+    private static final String ACTIVITY = "activity:act1@\\pvob";
+    private static final String DELIVER = "activity:deliver.dev.20110101@\\pvob";
+
+    @Mock
+    private ClearTool cleartool;
+
+    private File file;
+    private UcmActivityCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("activities", ".log");
+        file.delete();
+        cache = new UcmActivityCache(file, 64 * 1024, 60 * 60 * 1000L);
+    }
+
+    @After
+    public void tearDown() {
+        cache.close();
+        file.delete();
+    }
+
+    @Test
+    public void testQueriedOnce() throws Exception {
+        when(cleartool.lsactivity(eq(ACTIVITY), anyString(), anyString())).thenReturn(new StringReader("\"Fix\" \"dev\" \"bob\" \n"));
+        UcmActivityCache.Record record = cache.get(cleartool, ACTIVITY, false, "view");
+        assertEquals("Fix", record.getHeadline());
+        assertEquals("dev", record.getStream());
+        assertEquals("bob", record.getUser());
+        assertEquals("Fix", cache.get(cleartool, ACTIVITY, false, "view").getHeadline());
+        verify(cleartool, times(1)).lsactivity(eq(ACTIVITY), anyString(), anyString());
+    }
+
+    @Test
+    public void testSimpleNamesAreNotCached() throws Exception {
+        when(cleartool.lsactivity(eq("act1"), anyString(), anyString())).thenReturn(new StringReader("\"Fix\" \"dev\" \"bob\" \n"),
+                new StringReader("\"Fix\" \"dev\" \"bob\" \n"));
+        cache.get(cleartool, "act1", false, "view");
+        cache.get(cleartool, "act1", false, "view");
+        verify(cleartool, times(2)).lsactivity(eq("act1"), anyString(), anyString());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        cache.put(new UcmActivityCache.Record(ACTIVITY, "Fix", "dev", "bob", null, System.currentTimeMillis()));
+        cache.put(new UcmActivityCache.Record(DELIVER, "deliver", "int", "bob", ACTIVITY, System.currentTimeMillis()));
+        cache.close();
+
+        UcmActivityCache reloaded = new UcmActivityCache(file, 64 * 1024, 60 * 60 * 1000L);
+        assertEquals(2, reloaded.size());
+        assertEquals("Fix", reloaded.get(ACTIVITY).getHeadline());
+        assertNull(reloaded.get(ACTIVITY).getContributing());
+        assertEquals(ACTIVITY, reloaded.get(DELIVER).getContributing());
+        reloaded.close();
+    }
+
+    @Test
+    public void testPartialRecordIsIgnored() throws Exception {
+        cache.put(new UcmActivityCache.Record(ACTIVITY, "Fix", "dev", "bob", null, System.currentTimeMillis()));
+        cache.close();
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[] { 1, 0, 0 });
+        out.close();
+
+        UcmActivityCache reloaded = new UcmActivityCache(file, 64 * 1024, 60 * 60 * 1000L);
+        assertEquals(1, reloaded.size());
+        reloaded.put(new UcmActivityCache.Record(DELIVER, "deliver", "int", "bob", ACTIVITY, System.currentTimeMillis()));
+        reloaded.close();
+        assertEquals(2, new UcmActivityCache(file, 64 * 1024, 60 * 60 * 1000L).size());
+    }
+
+    @Test
+    public void testStaleHeadlineKeepsContributing() throws Exception {
+        cache.put(new UcmActivityCache.Record(DELIVER, "deliver", "int", "bob", ACTIVITY, 0));
+        when(cleartool.lsactivity(eq(DELIVER), anyString(), anyString())).thenReturn(new StringReader("\"renamed\" \"int\" \"bob\" \n"));
+        UcmActivityCache.Record record = cache.get(cleartool, DELIVER, true, "view");
+        assertEquals("renamed", record.getHeadline());
+        assertEquals(ACTIVITY, record.getContributing());
+        // the contributing activities aren't queried again
+        String activityFormat = new ClearToolFormatHandler(UCM_ACTIVITY_HEADLINE, UCM_ACTIVITY_STREAM, USER_ID).getFormat();
+        verify(cleartool).lsactivity(eq(DELIVER), eq(activityFormat), eq("view"));
+    }
+
+    @Test
+    public void testMissingContributingIsQueried() throws Exception {
+        cache.put(new UcmActivityCache.Record(DELIVER, "deliver", "int", "bob", null, System.currentTimeMillis()));
+        when(cleartool.lsactivity(eq(DELIVER), anyString(), anyString())).thenReturn(
+                new StringReader("\"deliver\" \"int\" \"bob\" \"" + ACTIVITY + "\" \n"));
+        assertEquals(ACTIVITY, cache.get(cleartool, DELIVER, true, "view").getContributing());
+        assertEquals(ACTIVITY, cache.get(DELIVER).getContributing());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        UcmActivityCache small = new UcmActivityCache(file, 1024, 60 * 60 * 1000L);
+        for (int i = 0; i < 100; i++) {
+            small.put(new UcmActivityCache.Record("activity:act" + i + "@\\pvob", "headline " + i, "dev", "bob", null, System.currentTimeMillis()));
+        }
+        assertTrue(small.size() < 100);
+        assertTrue(file.length() <= 1024);
+        assertNotNull(small.get("activity:act99@\\pvob"));
+        assertNull(small.get("activity:act0@\\pvob"));
+        small.close();
+    }
+}
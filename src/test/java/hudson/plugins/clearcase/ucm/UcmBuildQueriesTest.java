@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UcmBuildQueriesTest {
+
+    private UcmBuildQueries queries;
+    private int executions;
+
+    private final UcmStreamCache.Query<String> query = new UcmStreamCache.Query<String>() {
+        public String execute() throws IOException, InterruptedException {
+            return "value" + (++executions);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        queries = new UcmBuildQueries();
+        executions = 0;
+    }
+
+    @Test
+    public void testQueryRunsOnce() throws Exception {
+        assertEquals("value1", queries.get("kind", "stream:dev@\\pvob", query));
+        assertEquals("value1", queries.get("kind", "dev@\\pvob", query));
+        assertEquals("value2", queries.get("other", "dev@\\pvob", query));
+        assertEquals(2, executions);
+    }
+
+    @Test
+    public void testNullIsRemembered() throws Exception {
+        UcmStreamCache.Query<String> nullQuery = new UcmStreamCache.Query<String>() {
+            public String execute() throws IOException, InterruptedException {
+                executions++;
+                return null;
+            }
+        };
+        queries.get("kind", "dev@\\pvob", nullQuery);
+        queries.get("kind", "dev@\\pvob", nullQuery);
+        assertEquals(1, executions);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        queries.get("kind", "dev@\\pvob", query);
+        queries.get("kind", "int@\\pvob", query);
+        queries.invalidate("stream:dev@\\pvob");
+        assertEquals("value3", queries.get("kind", "dev@\\pvob", query));
+        assertEquals("value2", queries.get("kind", "int@\\pvob", query));
+    }
+
+    @Test
+    public void testInvalidateAllKeepsActivities() throws Exception {
+        queries.get("activity", "activity:act1@\\pvob", query);
+        queries.get("kind", "dev@\\pvob", query);
+        queries.invalidateAll();
+        assertEquals("value1", queries.get("activity", "activity:act1@\\pvob", query));
+        assertEquals("value3", queries.get("kind", "dev@\\pvob", query));
+    }
+
+    @Test
+    public void testNotSharedWithoutRunningBuild() throws Exception {
+        assertNotSame(UcmBuildQueries.get(null), UcmBuildQueries.get(null));
+    }
+}
@@ -27,7 +27,10 @@ package hudson.plugins.clearcase.ucm;
 import static org.junit.Assert.assertEquals;
 import hudson.plugins.clearcase.ucm.UcmActivity.File;
 
+import java.io.FileOutputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -81,4 +84,40 @@ public class UcmChangeLogParserTest {
         cal.set(2008, 4, 8, 12, 20, 00);
         assertEquals("File date is incorrect", cal.getTime(), file.getDate());
     }
+
+    @Test
+    public void assertCompactChangeLogIsParsed() throws Exception {
+        UcmChangeLogParser parser = new UcmChangeLogParser();
+        List<UcmActivity> activities = new ArrayList<UcmActivity>(parser.parse(null, UcmChangeLogParserTest.class.getResourceAsStream("ucmchangelog.xml")).getLogs());
+
+        java.io.File changeLogFile = java.io.File.createTempFile("ucmchangelog", "bin");
+        changeLogFile.deleteOnExit();
+        FileOutputStream outputStream = new FileOutputStream(changeLogFile);
+        UcmChangeLogSet.saveToCompactChangeLog(outputStream, activities);
+        outputStream.close();
+
+        UcmChangeLogSet logSet = parser.parse(null, changeLogFile);
+        assertEquals("The log set should only contain 1 entry", 1, logSet.getItems().length);
+        UcmActivity activity = logSet.getLogs().get(0);
+        assertEquals("Activity name is incorrect", "name", activity.getName());
+        assertEquals("There should be 2 subactivities", 2, activity.getSubActivities().size());
+        assertEquals("SubSubActivity name is incorrect", "sub_sub_name1", activity.getSubActivities().get(0).getSubActivities().get(0).getName());
+        File file = activity.getFiles().get(0);
+        assertEquals("File version is incorrect", "file-version", file.getVersion());
+        assertEquals("File date is incorrect", activities.get(0).getFiles().get(0).getDate(), file.getDate());
+    }
+
+    @Test
+    public void assertMigrateIsOnlyDoneOnce() throws Exception {
+        UcmChangeLogParser parser = new UcmChangeLogParser();
+        java.io.File changeLogFile = java.io.File.createTempFile("ucmchangelog", "xml");
+        changeLogFile.deleteOnExit();
+        FileOutputStream outputStream = new FileOutputStream(changeLogFile);
+        UcmChangeLogSet.saveToChangeLog(outputStream, parser.parse(null, UcmChangeLogParserTest.class.getResourceAsStream("ucmchangelog.xml")).getLogs());
+        outputStream.close();
+
+        assertEquals("The xml change log should be migrated", true, parser.migrate(null, changeLogFile));
+        assertEquals("The compact change log should not be migrated twice", false, parser.migrate(null, changeLogFile));
+        assertEquals("The log set should only contain 1 entry", 1, parser.parse(null, changeLogFile).getLogs().size());
+    }
 }
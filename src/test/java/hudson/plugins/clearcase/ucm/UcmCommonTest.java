@@ -8,12 +8,16 @@ import hudson.plugins.clearcase.Baseline;
 import hudson.plugins.clearcase.ClearTool;
 import hudson.plugins.clearcase.ClearToolLauncher;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class UcmCommonTest extends AbstractWorkspaceTest {
 
@@ -60,4 +64,46 @@ public class UcmCommonTest extends AbstractWorkspaceTest {
         assertEquals("othervob/comp2", loadRules[1]);
         verify(cleartool).describe(eq("%[root_dir]p\\n"), eq(new String[] {"component:comp1@\\pvob", "component:comp2@\\otherpvob"}));
     }
+
+    @Test
+    public void testStreamFingerprintChangesWithActivities() throws Exception {
+        String streamFormat = "%[found_bls]Xp\\n%[latest_bls]Xp\\n%[activities]Xp\\n";
+        String[] loadRules = new String[] { "vob/comp1" };
+        when(cleartool.lsstream(eq("stream:mystream@\\pvob"), (String) isNull(), eq(streamFormat))).thenReturn(
+                "baseline:bl1@\\pvob\nbaseline:bl2@\\pvob\nactivity:act1@\\pvob",
+                "baseline:bl1@\\pvob\nbaseline:bl2@\\pvob\nactivity:act1@\\pvob",
+                "baseline:bl1@\\pvob\nbaseline:bl2@\\pvob\nactivity:act1@\\pvob activity:act2@\\pvob");
+        when(cleartool.describe(eq("%[versions]p\\n"), any(String[].class))).thenAnswer(new Answer<Reader>() {
+            public Reader answer(InvocationOnMock invocation) throws Throwable {
+                return new StringReader("/vob/comp1/a.c@@/main/mystream/1\n");
+            }
+        });
+
+        String fingerprint = UcmCommon.getStreamFingerprint(cleartool, "mystream@\\pvob", loadRules);
+        assertNotNull(fingerprint);
+        assertEquals(fingerprint, UcmCommon.getStreamFingerprint(cleartool, "mystream@\\pvob", loadRules));
+        assertFalse(fingerprint.equals(UcmCommon.getStreamFingerprint(cleartool, "mystream@\\pvob", loadRules)));
+        verify(cleartool, times(2)).describe(eq("%[versions]p\\n"), eq(new String[] { "activity:act1@\\pvob" }));
+        verify(cleartool).describe(eq("%[versions]p\\n"), eq(new String[] { "activity:act1@\\pvob", "activity:act2@\\pvob" }));
+    }
+
+    @Test
+    public void testStreamFingerprintChangesWithCheckins() throws Exception {
+        when(cleartool.lsstream(eq("stream:mystream@\\pvob"), (String) isNull(), eq("%[found_bls]Xp\\n%[latest_bls]Xp\\n%[activities]Xp\\n"))).thenReturn(
+                "baseline:bl1@\\pvob\nbaseline:bl2@\\pvob\nactivity:act1@\\pvob");
+        when(cleartool.describe(eq("%[versions]p\\n"), eq(new String[] { "activity:act1@\\pvob" }))).thenReturn(
+                new StringReader("/vob/comp1/a.c@@/main/mystream/1\n"), new StringReader("/vob/comp1/a.c@@/main/mystream/2\n"));
+
+        String fingerprint = UcmCommon.getStreamFingerprint(cleartool, "mystream@\\pvob", null);
+        assertNotNull(fingerprint);
+        assertFalse(fingerprint.equals(UcmCommon.getStreamFingerprint(cleartool, "mystream@\\pvob", null)));
+    }
+
+    @Test
+    public void testStreamFingerprintUnknownStream() throws Exception {
+        when(cleartool.lsstream(eq("stream:mystream@\\pvob"), (String) isNull(), eq("%[found_bls]Xp\\n%[latest_bls]Xp\\n%[activities]Xp\\n"))).thenThrow(
+                new IOException("cleartool did not return the expected exit code. Command line=\"lsstream\", actual exit code=1"));
+        assertNull(UcmCommon.getStreamFingerprint(cleartool, "mystream@\\pvob", null));
+        verify(cleartool, never()).describe(anyString(), any(String[].class));
+    }
 }
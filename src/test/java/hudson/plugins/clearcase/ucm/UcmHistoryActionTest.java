@@ -49,6 +49,7 @@ import hudson.plugins.clearcase.history.DestroySubBranchFilter;
 import hudson.plugins.clearcase.history.FileFilter;
 import hudson.plugins.clearcase.history.Filter;
 import hudson.plugins.clearcase.history.FilterChain;
+import hudson.plugins.clearcase.history.HistoryEntry;
 import hudson.scm.ChangeLogSet;
 import hudson.util.VariableResolver;
 
@@ -127,6 +128,23 @@ public class UcmHistoryActionTest extends AbstractWorkspaceTest {
         verify(cleartool).lshistory((String) notNull(), (Date) isNull(), eq("view"), eq("branch"), eq(new String[] { "vobpath" }), eq(Boolean.FALSE));
     }
 
+    @Test
+    public void assertDescribedVersionsSkipUnparsableEntries() throws Exception {
+        when(cleartool.describe(anyString(), any(String[].class))).thenReturn(
+                new StringReader("\"notadate\" \"username\" \"Customer\\DataSet.xsd\" \"\\main\\sit_r6a\\1\" \"create version\"  \"mkelem\" \"activity\" \n"
+                        + "broken comment\n"
+                        + "\"20071015.151822\" \"username\" \"Customer\\DataSet.xsd\" \"\\main\\sit_r6a\\2\" \"create version\"  \"mkelem\" \"activity\" \n"
+                        + "comment\n"));
+
+        UcmHistoryAction action = createUcmHistoryAction();
+        List<HistoryEntry> history = new ArrayList<HistoryEntry>();
+        action.describeVersions(new DiffBlVersionIterator(new StringReader(">> \\vob\\a@@\\main\\1\n>> \\vob\\b@@\\main\\2\n")), history);
+
+        assertEquals(1, history.size());
+        assertEquals("\\main\\sit_r6a\\2", history.get(0).getVersionId());
+        assertEquals("comment", history.get(0).getComment());
+    }
+
     @Test
     public void assertIgnoringVersionZero() throws Exception {
         when(cleartool.doesViewExist("viewTag")).thenReturn(Boolean.TRUE);
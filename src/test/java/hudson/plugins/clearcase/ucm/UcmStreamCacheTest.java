@@ -0,0 +1,93 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.ucm;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UcmStreamCacheTest {
+
+    private UcmStreamCache cache;
+    private int queries;
+
+    private final UcmStreamCache.Query<String> query = new UcmStreamCache.Query<String>() {
+        public String execute() throws IOException, InterruptedException {
+            return "value" + (++queries);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        cache = new UcmStreamCache();
+        queries = 0;
+    }
+
+    @Test
+    public void testQueriedOncePerInterval() throws Exception {
+        assertEquals("value1", cache.get("stream:dev@\\pvob", "kind", query));
+        assertEquals("value1", cache.get("stream:dev@\\pvob", "kind", query));
+        assertEquals("value1", cache.get("dev@\\pvob", "kind", query));
+        assertEquals(1, queries);
+    }
+
+    @Test
+    public void testKindsAndStreamsAreSeparate() throws Exception {
+        cache.get("dev@\\pvob", "kind", query);
+        cache.get("dev@\\pvob", "other", query);
+        cache.get("int@\\pvob", "kind", query);
+        assertEquals(3, queries);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        cache.get("dev@\\pvob", "kind", query);
+        cache.get("int@\\pvob", "kind", query);
+        cache.invalidate("stream:dev@\\pvob");
+        assertEquals("value3", cache.get("dev@\\pvob", "kind", query));
+        assertEquals("value2", cache.get("int@\\pvob", "kind", query));
+        cache.invalidateAll();
+        assertEquals("value4", cache.get("int@\\pvob", "kind", query));
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        cache.setRefreshInterval(1);
+        cache.get("dev@\\pvob", "kind", query);
+        Thread.sleep(5);
+        assertEquals("value2", cache.get("dev@\\pvob", "kind", query));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        cache.setRefreshInterval(0);
+        cache.get("dev@\\pvob", "kind", query);
+        cache.get("dev@\\pvob", "kind", query);
+        assertEquals(2, queries);
+    }
+}
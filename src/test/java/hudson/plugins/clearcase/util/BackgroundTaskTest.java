@@ -0,0 +1,239 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BackgroundTaskTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testReturnsResult() throws Exception {
+        BackgroundTask<String> task = new BackgroundTask<String>(new Callable<String>() {
+            public String call() {
+                return "done";
+            }
+        }).start(executor);
+        assertEquals("done", task.get());
+    }
+
+    @Test
+    public void testRunsWhileCallerGoesOn() throws Exception {
+        final CountDownLatch callerDone = new CountDownLatch(1);
+        BackgroundTask<Boolean> task = new BackgroundTask<Boolean>(new Callable<Boolean>() {
+            public Boolean call() throws InterruptedException {
+                return callerDone.await(10, TimeUnit.SECONDS);
+            }
+        }).start(executor);
+        callerDone.countDown();
+        assertTrue("The task didn't run at the same time as the caller", task.get());
+    }
+
+    @Test
+    public void testThrowsFailureAsThrown() throws Exception {
+        BackgroundTask<String> task = new BackgroundTask<String>(new Callable<String>() {
+            public String call() throws IOException {
+                throw new IOException("lshistory failed");
+            }
+        }).start(executor);
+        try {
+            task.get();
+            fail("The failure of the task wasn't thrown");
+        } catch (IOException e) {
+            assertEquals("lshistory failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testThrowsRuntimeException() throws Exception {
+        BackgroundTask<String> task = new BackgroundTask<String>(new Callable<String>() {
+            public String call() {
+                throw new IllegalStateException("broken");
+            }
+        }).start(executor);
+        try {
+            task.get();
+            fail("The failure of the task wasn't thrown");
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFailureInterruptsCaller() throws Exception {
+        BackgroundTask<String> task = new BackgroundTask<String>(new Callable<String>() {
+            public String call() throws IOException {
+                throw new IOException("lshistory failed");
+            }
+        }).startFailingFast(executor);
+        try {
+            // the update of the view
+            Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            fail("The caller wasn't interrupted");
+        } catch (InterruptedException e) {
+            assertTrue(task.isFailed());
+        }
+        try {
+            task.get();
+            fail("The failure of the task wasn't thrown");
+        } catch (IOException e) {
+            assertEquals("lshistory failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testFailureThrownWhileCallerInterrupted() throws Exception {
+        final CountDownLatch failing = new CountDownLatch(1);
+        BackgroundTask<String> task = new BackgroundTask<String>(new Callable<String>() {
+            public String call() throws Exception {
+                failing.await();
+                throw new IOException("lshistory failed");
+            }
+        }).startFailingFast(executor);
+        failing.countDown();
+        try {
+            task.get();
+            fail("The failure of the task wasn't thrown");
+        } catch (IOException e) {
+            assertEquals("lshistory failed", e.getMessage());
+        }
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test
+    public void testCancelDoesntInterruptCaller() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        BackgroundTask<String> task = new BackgroundTask<String>(new Callable<String>() {
+            public String call() throws InterruptedException {
+                started.countDown();
+                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+                return "done";
+            }
+        }).startFailingFast(executor);
+        started.await();
+        task.cancel();
+        assertFalse(task.isFailed());
+        assertFalse(Thread.interrupted());
+    }
+
+    @Test
+    public void testCancelInterruptsAndWaits() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final boolean[] interrupted = new boolean[1];
+        final boolean[] finished = new boolean[1];
+        BackgroundTask<String> task = new BackgroundTask<String>(new Callable<String>() {
+            public String call() throws Exception {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interrupted[0] = true;
+                    // cleaning up, e.g. killing the cleartool process
+                    Thread.sleep(100);
+                    throw e;
+                } finally {
+                    synchronized (finished) {
+                        finished[0] = true;
+                    }
+                }
+                return "done";
+            }
+        }).start(executor);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        task.cancel();
+        assertTrue("The task wasn't interrupted", interrupted[0]);
+        synchronized (finished) {
+            assertTrue("Cancel didn't wait for the task to stop", finished[0]);
+        }
+    }
+
+    @Test
+    public void testCancelBeforeStart() throws Exception {
+        final boolean[] ran = new boolean[1];
+        final CountDownLatch release = new CountDownLatch(1);
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        try {
+            // keep the only thread busy, so that the task is cancelled while queued
+            single.execute(new Runnable() {
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        // stop
+                    }
+                }
+            });
+            final BackgroundTask<String> task = new BackgroundTask<String>(new Callable<String>() {
+                public String call() {
+                    ran[0] = true;
+                    return "done";
+                }
+            }).start(single);
+            Thread canceller = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        task.cancel();
+                    } catch (InterruptedException e) {
+                        // stop
+                    }
+                }
+            };
+            canceller.start();
+            Thread.sleep(100);
+            release.countDown();
+            canceller.join(10000);
+            assertFalse("Cancel didn't return", canceller.isAlive());
+            assertFalse("A cancelled task ran", ran[0]);
+        } finally {
+            single.shutdownNow();
+        }
+    }
+}
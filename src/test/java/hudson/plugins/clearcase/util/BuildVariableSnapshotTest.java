@@ -0,0 +1,140 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import hudson.EnvVars;
+import hudson.model.Action;
+import hudson.model.Build;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.util.LogTaskListener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.api.mockito.PowerMockito;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ Node.class })
+public class BuildVariableSnapshotTest {
+
+    @Mock
+    private Build build;
+    @Mock
+    private Computer computer;
+
+    private Node node;
+
+    @Before
+    public void setUp() throws Exception {
+        node = PowerMockito.mock(Node.class);
+        when(build.getBuiltOn()).thenReturn(node);
+        when(node.toComputer()).thenReturn(computer);
+        when(node.getNodeName()).thenReturn("test-node");
+        when(computer.getSystemProperties()).thenReturn(Collections.<Object, Object> singletonMap("os.name", "Linux"));
+        when(computer.getEnvironment()).thenReturn(new EnvVars("NODE_VARIABLE", "node"));
+        when(build.getBuildVariables()).thenReturn(Collections.singletonMap("PLATFORM", "17"));
+        when(build.getEnvironment(any(LogTaskListener.class))).thenReturn(new EnvVars("BUILD_VARIABLE", "build"));
+    }
+
+    @Test
+    public void testResolve() throws Exception {
+        BuildVariableSnapshot snapshot = BuildVariableSnapshot.get(build);
+        assertEquals("Linux", snapshot.resolve("OS", false));
+        assertEquals("test-node", snapshot.resolve("NODE_NAME", false));
+        assertEquals("17", snapshot.resolve("PLATFORM", false));
+        assertEquals("node", snapshot.resolve("NODE_VARIABLE", false));
+        assertEquals("build", snapshot.resolve("BUILD_VARIABLE", false));
+        assertNull(snapshot.resolve("UNKNOWN", false));
+    }
+
+    @Test
+    public void testReadsNodeOnce() throws Exception {
+        BuildVariableSnapshot snapshot = BuildVariableSnapshot.get(build);
+        snapshot.resolve("OS", false);
+        snapshot.resolve("NODE_VARIABLE", false);
+        snapshot.resolve("BUILD_VARIABLE", false);
+        snapshot.resolve("UNKNOWN", false);
+        verify(computer, times(1)).getSystemProperties();
+        verify(computer, times(1)).getEnvironment();
+        verify(build, times(1)).getEnvironment(any(LogTaskListener.class));
+    }
+
+    @Test
+    public void testHostReadWithNode() throws Exception {
+        when(computer.getHostName()).thenReturn("buildhost");
+        BuildVariableSnapshot snapshot = BuildVariableSnapshot.get(build);
+        assertEquals("buildhost", snapshot.resolve("HOST", false));
+        assertEquals("Linux", snapshot.resolve("OS", false));
+        verify(computer, times(1)).getHostName();
+        verify(computer, times(1)).getSystemProperties();
+    }
+
+    @Test
+    public void testRestrictedSkipsBuildEnvironment() throws Exception {
+        BuildVariableSnapshot snapshot = BuildVariableSnapshot.get(build);
+        assertNull(snapshot.resolve("BUILD_VARIABLE", true));
+        verify(build, times(0)).getEnvironment(any(LogTaskListener.class));
+    }
+
+    @Test
+    public void testSharedWhileBuilding() {
+        when(build.isLogUpdated()).thenReturn(true);
+        BuildVariableSnapshot snapshot = BuildVariableSnapshot.get(build);
+        assertSame(snapshot, BuildVariableSnapshot.get(build));
+        verify(build, never()).addAction(any(Action.class));
+
+        new BuildScopedMap.RunListenerImpl().onCompleted(build, null);
+        assertNotSame(snapshot, BuildVariableSnapshot.get(build));
+    }
+
+    @Test
+    public void testRefresh() {
+        BuildVariableSnapshot snapshot = BuildVariableSnapshot.get(build);
+        assertNull(snapshot.resolve("CC_BASELINE_NAME", true));
+        Map<String, String> variables = new HashMap<String, String>();
+        variables.put("CC_BASELINE_NAME", "baseline_1");
+        when(build.getBuildVariables()).thenReturn(variables);
+        assertNull(snapshot.resolve("CC_BASELINE_NAME", true));
+        snapshot.refresh();
+        assertEquals("baseline_1", snapshot.resolve("CC_BASELINE_NAME", true));
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ChangeLogPagingTest {
+
+    private List<Integer> createList(int size) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int i = 0; i < size; i++) {
+            list.add(Integer.valueOf(i));
+        }
+        return list;
+    }
+
+    @Test
+    public void testPageCount() {
+        assertEquals(1, ChangeLogPaging.getPageCount(0));
+        assertEquals(1, ChangeLogPaging.getPageCount(ChangeLogPaging.PAGE_SIZE));
+        assertEquals(2, ChangeLogPaging.getPageCount(ChangeLogPaging.PAGE_SIZE + 1));
+    }
+
+    @Test
+    public void testGetPage() {
+        List<Integer> list = createList(ChangeLogPaging.PAGE_SIZE + 10);
+        assertEquals(ChangeLogPaging.PAGE_SIZE, ChangeLogPaging.getPage(list, 0).size());
+        List<Integer> lastPage = ChangeLogPaging.getPage(list, 1);
+        assertEquals(10, lastPage.size());
+        assertEquals(Integer.valueOf(ChangeLogPaging.PAGE_SIZE), lastPage.get(0));
+        assertTrue(ChangeLogPaging.getPage(list, 2).isEmpty());
+    }
+
+    @Test
+    public void testToPage() {
+        int size = ChangeLogPaging.PAGE_SIZE * 3;
+        assertEquals(0, ChangeLogPaging.toPage(null, size));
+        assertEquals(2, ChangeLogPaging.toPage("2", size));
+        assertEquals(0, ChangeLogPaging.toPage("3", size));
+        assertEquals(0, ChangeLogPaging.toPage("-1", size));
+        assertEquals(0, ChangeLogPaging.toPage("abc", size));
+    }
+
+    @Test
+    public void testInlineFiles() {
+        assertEquals(ChangeLogPaging.INLINE_FILE_LIMIT, ChangeLogPaging.getInlineFiles(createList(ChangeLogPaging.INLINE_FILE_LIMIT + 5)).size());
+        assertEquals(3, ChangeLogPaging.getInlineFiles(createList(3)).size());
+    }
+
+    @Test
+    public void testExportedRangeWithoutRequest() {
+        List<Integer> list = createList(5);
+        assertSame(list, ChangeLogPaging.getExportedRange(list, "start", "limit"));
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import hudson.plugins.clearcase.ClearCaseChangeLogEntry;
+import hudson.plugins.clearcase.ClearCaseChangeLogSet;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class ChangeLogSetCacheTest {
+
+    private ChangeLogSetCache cache;
+    private int loads;
+
+    @Before
+    public void setUp() {
+        cache = new ChangeLogSetCache(10);
+        loads = 0;
+    }
+
+    private File createFile(int size) throws IOException {
+        File file = File.createTempFile("changelog", "xml");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[size]);
+        out.close();
+        return file;
+    }
+
+    private ClearCaseChangeLogSet get(File file) throws IOException, SAXException {
+        return get(file, 1);
+    }
+
+    private ClearCaseChangeLogSet get(File file, final int entryCount) throws IOException, SAXException {
+        return cache.get(null, file, new ChangeLogSetCache.Loader<ClearCaseChangeLogSet>() {
+            public ClearCaseChangeLogSet load() {
+                loads++;
+                List<ClearCaseChangeLogEntry> entries = new ArrayList<ClearCaseChangeLogEntry>();
+                for (int i = 0; i < entryCount; i++) {
+                    entries.add(new ClearCaseChangeLogEntry(new Date(i), "user", "comment " + i));
+                }
+                return new ClearCaseChangeLogSet(null, entries);
+            }
+        });
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        File file = createFile(100);
+        ClearCaseChangeLogSet first = get(file, 3);
+        assertSame(first, get(file, 3));
+        assertEquals(1, loads);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(3, cache.getWeight());
+    }
+
+    @Test
+    public void testModifiedFileIsReloaded() throws Exception {
+        File file = createFile(100);
+        ClearCaseChangeLogSet first = get(file, 2);
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[10]);
+        out.close();
+        assertNotSame(first, get(file, 4));
+        assertEquals(2, loads);
+        assertEquals(1, cache.getInvalidationCount());
+        assertEquals(4, cache.getWeight());
+    }
+
+    @Test
+    public void testEvictionByWeight() throws Exception {
+        File first = createFile(10);
+        File second = createFile(10);
+        get(first, 6);
+        get(second, 6);
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        get(second, 6);
+        assertEquals(2, loads);
+        get(first, 6);
+        assertEquals(3, loads);
+    }
+
+    @Test
+    public void testTooHeavyIsNotCached() throws Exception {
+        File file = createFile(10);
+        get(file, 20);
+        get(file, 20);
+        assertEquals(2, loads);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testWeightIgnoresFileSize() throws Exception {
+        // a compact change log is much smaller than the xml one, for as many entries
+        File file = createFile(100000);
+        get(file, 5);
+        get(file, 5);
+        assertEquals(1, loads);
+        assertEquals(5, cache.getWeight());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        cache.setMaxWeight(0);
+        File file = createFile(10);
+        get(file);
+        get(file);
+        assertEquals(2, loads);
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        File file = createFile(10);
+        get(file);
+        cache.invalidate(file);
+        get(file);
+        assertEquals(2, loads);
+        assertEquals(0, cache.getHitCount());
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CommandOutputInputStreamTest {
+
+    @Test
+    public void testReadsWholeOutput() throws Exception {
+        CommandOutputInputStream in = new CommandOutputInputStream(new CommandOutputInputStream.Command() {
+            public void run(OutputStream out) throws IOException {
+                for (int i = 0; i < 10000; i++) {
+                    out.write(("line " + i + "\n").getBytes("UTF-8"));
+                }
+            }
+        }, "test");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        int count = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            assertEquals("line " + count, line);
+            count++;
+        }
+        reader.close();
+        assertEquals(10000, count);
+    }
+
+    @Test
+    public void testFailureIsThrownAtEndOfOutput() throws Exception {
+        CommandOutputInputStream in = new CommandOutputInputStream(new CommandOutputInputStream.Command() {
+            public void run(OutputStream out) throws IOException {
+                out.write("partial\n".getBytes("UTF-8"));
+                throw new IOException("cleartool failed");
+            }
+        }, "test");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        assertEquals("partial", reader.readLine());
+        try {
+            reader.readLine();
+            fail("The failure of the command should have been thrown");
+        } catch (IOException e) {
+            assertEquals("cleartool failed", e.getMessage());
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testCloseInterruptsCommand() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        CommandOutputInputStream in = new CommandOutputInputStream(new CommandOutputInputStream.Command() {
+            public void run(OutputStream out) throws IOException {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        }, "test");
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        in.close();
+        assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+    }
+}
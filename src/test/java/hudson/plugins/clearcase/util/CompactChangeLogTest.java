@@ -0,0 +1,164 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CompactChangeLogTest {
+
+    private static final CompactChangeLog.Codec<String[]> CODEC = new CompactChangeLog.Codec<String[]>() {
+        public void write(String[] entry, CompactChangeLog.EntryOutput out) throws IOException {
+            out.writeInt(entry.length);
+            for (String value : entry) {
+                out.writeString(value);
+            }
+        }
+
+        public String[] read(CompactChangeLog.EntryInput in) throws IOException {
+            String[] entry = new String[in.readInt()];
+            for (int i = 0; i < entry.length; i++) {
+                entry[i] = in.readString();
+            }
+            return entry;
+        }
+    };
+
+    private File write(List<String[]> entries, int blockSize) throws IOException {
+        File file = File.createTempFile("changelog", "bin");
+        file.deleteOnExit();
+        CompactChangeLog.write(new FileOutputStream(file), entries, CODEC, blockSize);
+        return file;
+    }
+
+    private List<String[]> createEntries(int count) {
+        List<String[]> entries = new ArrayList<String[]>();
+        for (int i = 0; i < count; i++) {
+            entries.add(new String[] { "user" + (i % 3), "B\u00FClow", null, "\\vob\\file" + i });
+        }
+        return entries;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = write(createEntries(10), 3);
+        assertTrue(CompactChangeLog.isCompact(file));
+
+        List<String[]> entries = CompactChangeLog.readAll(file, CODEC);
+        assertEquals(10, entries.size());
+        assertEquals("user2", entries.get(5)[0]);
+        assertEquals("B\u00FClow", entries.get(5)[1]);
+        assertNull(entries.get(5)[2]);
+        assertEquals("\\vob\\file5", entries.get(5)[3]);
+    }
+
+    @Test
+    public void testRandomAccess() throws IOException {
+        File file = write(createEntries(100), 7);
+        CompactChangeLog.Reader<String[]> reader = CompactChangeLog.open(file, CODEC);
+        try {
+            assertEquals(100, reader.size());
+            assertEquals("\\vob\\file99", reader.get(99)[3]);
+            assertEquals("\\vob\\file0", reader.get(0)[3]);
+            assertEquals("\\vob\\file49", reader.get(49)[3]);
+            List<String[]> page = reader.read(20, 30);
+            assertEquals(10, page.size());
+            assertEquals("\\vob\\file20", page.get(0)[3]);
+            assertEquals("\\vob\\file29", page.get(9)[3]);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testLazyListOnlyDecodesRequestedBlocks() throws IOException {
+        File file = write(createEntries(100), 10);
+        final int[] decoded = new int[1];
+        CompactChangeLog.Codec<String[]> countingCodec = new CompactChangeLog.Codec<String[]>() {
+            public void write(String[] entry, CompactChangeLog.EntryOutput out) throws IOException {
+                CODEC.write(entry, out);
+            }
+
+            public String[] read(CompactChangeLog.EntryInput in) throws IOException {
+                decoded[0]++;
+                return CODEC.read(in);
+            }
+        };
+        List<String[]> entries = CompactChangeLog.openList(file, countingCodec);
+        assertEquals(100, entries.size());
+        assertEquals(0, decoded[0]);
+
+        List<String[]> page = entries.subList(20, 30);
+        assertEquals("\\vob\\file20", page.get(0)[3]);
+        assertEquals("\\vob\\file29", page.get(9)[3]);
+        assertEquals(10, decoded[0]);
+
+        assertEquals("\\vob\\file25", entries.get(25)[3]);
+        assertEquals(10, decoded[0]);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        File file = write(new ArrayList<String[]>(), 3);
+        assertTrue(CompactChangeLog.isCompact(file));
+        assertEquals(0, CompactChangeLog.readAll(file, CODEC).size());
+    }
+
+    @Test
+    public void testXmlIsNotCompact() throws IOException {
+        File file = File.createTempFile("changelog", "xml");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write("<?xml version='1.0' encoding='UTF-8'?>\n<history>\n</history>\n".getBytes("UTF-8"));
+        out.close();
+        assertFalse(CompactChangeLog.isCompact(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws IOException {
+        File file = write(createEntries(10), 3);
+        File truncated = File.createTempFile("changelog", "bin");
+        truncated.deleteOnExit();
+        byte[] content = new byte[(int) file.length() - 4];
+        FileInputStream in = new FileInputStream(file);
+        in.read(content);
+        in.close();
+        FileOutputStream out = new FileOutputStream(truncated);
+        out.write(content);
+        out.close();
+        CompactChangeLog.readAll(truncated, CODEC);
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * The MIT License
+ *
+ * Copyright (c) 2007-2009, Sun Microsystems, Inc., Kohsuke Kawaguchi, Erik Ramfelt,
+ *                          Henrik Lynggaard, Peter Liljenberg, Andrew Bayer
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.clearcase.viewpool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import hudson.model.AbstractBuild;
+import hudson.plugins.clearcase.AbstractWorkspaceTest;
+import hudson.plugins.clearcase.ClearTool;
+import hudson.plugins.clearcase.viewstorage.ViewStorage;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+public class ViewPoolTest extends AbstractWorkspaceTest {
+
+    private static final String STREAM = "dev@\\pvob";
+    private static final String[] LOAD_RULES = { "vob/comp1" };
+
+    @Mock
+    private ClearTool     cleartool;
+    @Mock
+    private ViewStorage   viewStorage;
+    @Mock
+    private AbstractBuild build;
+    @Mock
+    private AbstractBuild otherBuild;
+
+    private ViewPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        createWorkspace();
+        pool = new ViewPool();
+        pool.setConfiguration(2, ViewPool.DEFAULT_MAX_IDLE, 0);
+        when(build.getFullDisplayName()).thenReturn("job #1");
+        when(build.getUrl()).thenReturn("job/job/1/");
+        when(otherBuild.getFullDisplayName()).thenReturn("job #2");
+        when(otherBuild.getUrl()).thenReturn("job/job/2/");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deleteWorkspace();
+    }
+
+    private PooledView addIdleView(String node, String stream, String viewTag, String[] loadRules) throws Exception {
+        PooledView view = new PooledView(node, stream, viewTag, workspace.child("pool").child(viewTag).getRemote(), loadRules);
+        view.setStorageDir("\\\\server\\views\\" + viewTag + ".vws");
+        view.setState(PooledView.State.IDLE);
+        pool.add(view);
+        return view;
+    }
+
+    @Test
+    public void testNoLeaseWhenDisabled() throws Exception {
+        addIdleView("", STREAM, "pool_1", LOAD_RULES);
+        pool.setConfiguration(0, ViewPool.DEFAULT_MAX_IDLE, 0);
+        assertNull(pool.lease("", STREAM, viewStorage, LOAD_RULES, build));
+    }
+
+    @Test
+    public void testNoLeaseWithoutViewStorage() throws Exception {
+        addIdleView("", STREAM, "pool_1", LOAD_RULES);
+        assertNull(pool.lease("", STREAM, null, LOAD_RULES, build));
+    }
+
+    @Test
+    public void testLeaseMatchesNodeAndStream() throws Exception {
+        addIdleView("slave", STREAM, "pool_1", LOAD_RULES);
+        addIdleView("", "int@\\pvob", "pool_2", LOAD_RULES);
+        assertNull(pool.lease("", STREAM, viewStorage, LOAD_RULES, build));
+
+        PooledView view = pool.lease("slave", STREAM, viewStorage, LOAD_RULES, build);
+        assertEquals("pool_1", view.getViewTag());
+        assertEquals(PooledView.State.LEASED, view.getState());
+        assertEquals("job #1", view.getLeaseHolder());
+        assertNull("A leased view can't be leased again", pool.lease("slave", STREAM, viewStorage, LOAD_RULES, otherBuild));
+    }
+
+    @Test
+    public void testLeasePrefersSameLoadRules() throws Exception {
+        addIdleView("", STREAM, "pool_1", new String[] { "vob/comp2" });
+        PooledView sameLoadRules = addIdleView("", STREAM, "pool_2", LOAD_RULES);
+        assertSame(sameLoadRules, pool.lease("", STREAM, viewStorage, LOAD_RULES, build));
+        assertEquals("pool_1", pool.lease("", STREAM, viewStorage, LOAD_RULES, otherBuild).getViewTag());
+    }
+
+    @Test
+    public void testReleaseRemovesLeasedViews() throws Exception {
+        addIdleView("", STREAM, "pool_1", LOAD_RULES);
+        addIdleView("", STREAM, "pool_2", LOAD_RULES);
+        pool.lease("", STREAM, viewStorage, LOAD_RULES, build);
+        assertEquals(2, pool.getViews("").size());
+
+        pool.release(otherBuild);
+        assertEquals(2, pool.getViews("").size());
+        pool.release(build);
+        assertEquals(1, pool.getViews("").size());
+        assertEquals(PooledView.State.IDLE, pool.getViews("").get(0).getState());
+    }
+
+    @Test
+    public void testAdoptMovesAndRetagsView() throws Exception {
+        PooledView view = addIdleView("", STREAM, "pool_1", LOAD_RULES);
+        workspace.child("pool").child("pool_1").child("vob").mkdirs();
+        pool.lease("", STREAM, viewStorage, LOAD_RULES, build);
+
+        pool.adopt(view, cleartool, workspace, "view", "job_view");
+
+        assertTrue(workspace.child("view").child("vob").exists());
+        assertFalse(workspace.child("pool").child("pool_1").exists());
+        verify(cleartool).mktag("job_view", "\\\\server\\views\\pool_1.vws");
+        verify(cleartool).rmtag("pool_1");
+    }
+
+    @Test
+    public void testFailedAdoptionRemovesView() throws Exception {
+        PooledView view = addIdleView("", STREAM, "pool_1", LOAD_RULES);
+        workspace.child("pool").child("pool_1").mkdirs();
+        pool.lease("", STREAM, viewStorage, LOAD_RULES, build);
+        doThrow(new IOException("mktag failed")).when(cleartool).mktag(anyString(), anyString());
+
+        try {
+            pool.adopt(view, cleartool, workspace, "view", "job_view");
+            fail("The failure should be thrown");
+        } catch (IOException e) {
+            assertEquals("mktag failed", e.getMessage());
+        }
+        assertTrue(pool.getViews("").isEmpty());
+        assertFalse(workspace.child("view").exists());
+        verify(cleartool).rmviewtag("pool_1");
+    }
+}